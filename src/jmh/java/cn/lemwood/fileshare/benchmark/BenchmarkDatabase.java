@@ -0,0 +1,61 @@
+package cn.lemwood.fileshare.benchmark;
+
+import java.nio.file.Path;
+
+/**
+ * 仓库基准使用的数据库
+ * SQLite 与生产默认配置一致；MySQL 以 H2 的 MySQL 兼容模式代替，使用与生产相同的 MySQL8Dialect 生成 SQL，
+ * 不需要单独部署数据库即可比较两种方言的查询。
+ *
+ * @author lemwood
+ */
+enum BenchmarkDatabase {
+
+    SQLITE("sqlite", "org.sqlite.hibernate.dialect.SQLiteDialect", "EXPLAIN QUERY PLAN ") {
+        @Override
+        String url(Path directory, int rows) {
+            return "jdbc:sqlite:" + directory.resolve("fileshare-" + rows + ".db");
+        }
+    },
+
+    H2_MYSQL("h2-mysql", "org.hibernate.dialect.MySQL8Dialect", "EXPLAIN ") {
+        @Override
+        String url(Path directory, int rows) {
+            return "jdbc:h2:file:" + directory.resolve("fileshare-" + rows).toAbsolutePath()
+                    + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE";
+        }
+    };
+
+    private final String key;
+    private final String dialect;
+    private final String explainPrefix;
+
+    BenchmarkDatabase(String key, String dialect, String explainPrefix) {
+        this.key = key;
+        this.dialect = dialect;
+        this.explainPrefix = explainPrefix;
+    }
+
+    abstract String url(Path directory, int rows);
+
+    String key() {
+        return key;
+    }
+
+    String dialect() {
+        return dialect;
+    }
+
+    String explainPrefix() {
+        return explainPrefix;
+    }
+
+    static BenchmarkDatabase of(String key) {
+        for (BenchmarkDatabase database : values()) {
+            if (database.key.equals(key)) {
+                return database;
+            }
+        }
+        throw new IllegalArgumentException("未知的基准数据库: " + key);
+    }
+}
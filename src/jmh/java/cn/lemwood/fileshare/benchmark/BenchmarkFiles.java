@@ -0,0 +1,85 @@
+package cn.lemwood.fileshare.benchmark;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * 基准测试公用的文件工具
+ *
+ * @author lemwood
+ */
+final class BenchmarkFiles {
+
+    private BenchmarkFiles() {
+    }
+
+    /**
+     * 创建指定大小、内容随机的源文件
+     */
+    static Path createSource(Path directory, int size) throws IOException {
+        Path source = directory.resolve("source-" + size + ".bin");
+        byte[] chunk = new byte[64 * 1024];
+        Random random = new Random(size);
+        try (OutputStream out = Files.newOutputStream(source)) {
+            int remaining = size;
+            while (remaining > 0) {
+                random.nextBytes(chunk);
+                int length = Math.min(remaining, chunk.length);
+                out.write(chunk, 0, length);
+                remaining -= length;
+            }
+        }
+        return source;
+    }
+
+    /**
+     * 递归删除临时目录
+     */
+    static void deleteRecursively(Path directory) throws IOException {
+        if (directory == null || !Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * 模拟网络响应的输出流：不落盘，只把数据交给 Blackhole 防止被优化掉
+     */
+    static final class BlackholeOutputStream extends OutputStream {
+
+        private final Blackhole blackhole;
+        private long written;
+
+        BlackholeOutputStream(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(int b) {
+            blackhole.consume(b);
+            written++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (len > 0) {
+                blackhole.consume(b[off]);
+                blackhole.consume(b[off + len - 1]);
+            }
+            written += len;
+        }
+
+        long getWritten() {
+            return written;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package cn.lemwood.fileshare.benchmark;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 记录执行语句的数据源包装
+ * 开启捕获时记录每条预编译语句的 SQL 和绑定参数，用于对仓库方法实际执行的 SQL 取执行计划；
+ * 未开启捕获时直接返回原始连接，不影响计时。
+ *
+ * @author lemwood
+ */
+final class CapturingDataSource extends DelegatingDataSource {
+
+    /**
+     * 一条已执行的语句
+     */
+    static final class CapturedStatement {
+        final String sql;
+        final List<Object> parameters;
+
+        CapturedStatement(String sql, List<Object> parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+    }
+
+    private volatile List<CapturedStatement> capture;
+
+    CapturingDataSource(DataSource target) {
+        super(target);
+    }
+
+    /**
+     * 开始捕获，返回的列表在 {@link #stopCapture()} 之前持续追加
+     */
+    List<CapturedStatement> startCapture() {
+        List<CapturedStatement> statements = Collections.synchronizedList(new ArrayList<>());
+        capture = statements;
+        return statements;
+    }
+
+    void stopCapture() {
+        capture = null;
+    }
+
+    /**
+     * 随上下文关闭连接池
+     */
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable) {
+            ((AutoCloseable) getTargetDataSource()).close();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = super.getConnection();
+        return capture != null ? wrap(connection) : connection;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Connection connection = super.getConnection(username, password);
+        return capture != null ? wrap(connection) : connection;
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof PreparedStatement && "prepareStatement".equals(method.getName())) {
+                        return wrap((PreparedStatement) result, (String) args[0]);
+                    }
+                    return result;
+                });
+    }
+
+    private PreparedStatement wrap(PreparedStatement statement, String sql) {
+        Map<Integer, Object> parameters = new TreeMap<>();
+        InvocationHandler handler = (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.startsWith("execute")) {
+                List<CapturedStatement> statements = capture;
+                if (statements != null) {
+                    statements.add(new CapturedStatement(sql, new ArrayList<>(parameters.values())));
+                }
+            }
+            return invoke(statement, method, args);
+        };
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package cn.lemwood.fileshare.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下载读盘路径基准
+ * 对比 FileService.downloadFile 返回的 UrlResource 经 ResourceHttpMessageConverter
+ * (StreamUtils.copy) 写出，与直接用 FileChannel 读出（transferTo、直接缓冲区）。
+ * 响应输出流用 Blackhole 代替，只衡量读盘和拷贝开销，不包含网络。
+ *
+ * @author lemwood
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+public class DownloadBenchmark {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    @Param({"16384", "4194304", "67108864"})
+    public int size;
+
+    private Path directory;
+    private Path source;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("jmh-download");
+        source = BenchmarkFiles.createSource(directory, size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.deleteRecursively(directory);
+    }
+
+    /**
+     * 当前实现：UrlResource 输入流经 StreamUtils.copy 写出
+     */
+    @Benchmark
+    public long urlResource(Blackhole blackhole) throws IOException {
+        Resource resource = new UrlResource(source.toUri());
+        try (InputStream in = resource.getInputStream()) {
+            return StreamUtils.copy(in, new BenchmarkFiles.BlackholeOutputStream(blackhole));
+        }
+    }
+
+    /**
+     * FileChannel.transferTo 写入输出流包装的通道
+     */
+    @Benchmark
+    public long channelTransferTo(Blackhole blackhole) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(new BenchmarkFiles.BlackholeOutputStream(blackhole));
+            long position = 0;
+            long length = channel.size();
+            while (position < length) {
+                position += channel.transferTo(position, length - position, out);
+            }
+            return position;
+        }
+    }
+
+    /**
+     * FileChannel 读入直接缓冲区后写出
+     */
+    @Benchmark
+    public long channelDirectBuffer(Blackhole blackhole) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(new BenchmarkFiles.BlackholeOutputStream(blackhole));
+            long total = 0;
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    total += out.write(buffer);
+                }
+                buffer.clear();
+            }
+            return total;
+        }
+    }
+}
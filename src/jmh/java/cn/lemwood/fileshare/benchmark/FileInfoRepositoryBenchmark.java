@@ -0,0 +1,282 @@
+package cn.lemwood.fileshare.benchmark;
+
+import cn.lemwood.fileshare.entity.FileInfo;
+import cn.lemwood.fileshare.repository.FileInfoRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FileInfoRepository 基准
+ * 分别在 SQLite 和 H2 (MySQL 模式) 上按 1万 / 100万 / 1000万行数据，对应用实际调用的每个仓库方法计时，
+ * 包括插入、下载计数更新和清理（写墓碑 + 清除）。每个组合开始前把各方法实际执行的 SQL 及执行计划
+ * 写入 target/query-plans/&lt;数据库&gt;-&lt;行数&gt;.txt，与 JMH 结果对照查看随数据量的变化。
+ * 未被应用调用、会整表加载实体的 findExpiredFiles、deleteByExpireTimeBefore 不在此列。
+ *
+ * 数据库文件缓存在 target/bench-db（可用 -Dbench.db.dir 指定），首次生成 1000 万行需要数分钟。
+ *
+ * @author lemwood
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class FileInfoRepositoryBenchmark {
+
+    private static final int PAGE_SIZE = 500;
+    private static final int LOOKUP_BATCH = 100;
+    private static final int CLEANUP_BATCH = 100;
+
+    @Param({"sqlite", "h2-mysql"})
+    public String database;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    private RepositoryBenchmarkSupport support;
+    private FileInfoRepository repository;
+    private LocalDateTime now;
+    private long minId;
+    private long maxId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Path directory = Paths.get(System.getProperty("bench.db.dir", "target/bench-db"));
+        support = RepositoryBenchmarkSupport.start(BenchmarkDatabase.of(database), directory, rows);
+        support.seed(rows);
+        repository = support.repository();
+        now = support.baseTime();
+        minId = support.minId();
+        maxId = support.maxId();
+        support.writeQueryPlans(Paths.get("target", "query-plans", database + "-" + rows + ".txt"), operations());
+    }
+
+    /**
+     * 删除本轮追加的记录（插入基准和执行计划生成时写入的行），下次运行复用的仍是原始种子数据
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        try {
+            support.deleteRows(maxId + 1, Long.MAX_VALUE);
+        } finally {
+            support.close();
+        }
+    }
+
+    /**
+     * 清理基准每轮迭代前追加的待删除记录
+     */
+    @State(Scope.Benchmark)
+    public static class CleanupVictims {
+
+        private static final int VICTIMS_PER_ITERATION = 100_000;
+
+        private long next;
+        private long last;
+
+        @Setup(Level.Iteration)
+        public void append(FileInfoRepositoryBenchmark benchmark) throws Exception {
+            long[] range = benchmark.support.appendRows(VICTIMS_PER_ITERATION, benchmark.now);
+            next = range[0];
+            last = range[1];
+        }
+
+        /**
+         * 删除本轮未用完的待删除记录，避免逐轮累积影响后续迭代
+         */
+        @TearDown(Level.Iteration)
+        public void purge(FileInfoRepositoryBenchmark benchmark) {
+            if (next <= last) {
+                benchmark.support.deleteRows(next, last);
+            }
+        }
+
+        synchronized List<Long> take(int count) {
+            List<Long> ids = new ArrayList<>(count);
+            while (ids.size() < count && next <= last) {
+                ids.add(next++);
+            }
+            return ids;
+        }
+    }
+
+    @Benchmark
+    public Optional<FileInfo> findByFileKey() {
+        return repository.findByFileKey(randomKey());
+    }
+
+    @Benchmark
+    public Optional<FileInfo> findByStoredName() {
+        return repository.findByStoredName(randomKey() + ".bin");
+    }
+
+    @Benchmark
+    public Object findExpiredBatch() {
+        return repository.findExpiredBatch(now, randomId() - 1, page());
+    }
+
+    @Benchmark
+    public Object findExpiringBatch() {
+        return repository.findExpiringBatch(now.minusHours(24), now.minusHours(23), 0L, page());
+    }
+
+    @Benchmark
+    public Object findSummariesByFileKeyIn() {
+        List<String> keys = new ArrayList<>(LOOKUP_BATCH);
+        for (int i = 0; i < LOOKUP_BATCH; i++) {
+            keys.add(randomKey());
+        }
+        return repository.findSummariesByFileKeyIn(keys);
+    }
+
+    @Benchmark
+    public Object findStoredNameBatch() {
+        return repository.findStoredNameBatch(randomId() - 1, page());
+    }
+
+    @Benchmark
+    public Object findUsageBatch() {
+        return repository.findUsageBatch(randomId() - 1, page());
+    }
+
+    @Benchmark
+    public Object findTombstoneBatch() {
+        return repository.findTombstoneBatch(randomId() - 1, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public long countTombstones() {
+        return repository.countTombstones();
+    }
+
+    @Benchmark
+    public long countByExpireTimeBefore() {
+        return repository.countByExpireTimeBefore(now);
+    }
+
+    @Benchmark
+    public Long getExpiredFileSize() {
+        return repository.getExpiredFileSize(now);
+    }
+
+    @Benchmark
+    public long count() {
+        return repository.count();
+    }
+
+    @Benchmark
+    public Long getTotalFileSize() {
+        return repository.getTotalFileSize();
+    }
+
+    @Benchmark
+    public List<FileInfo> findByUploaderIp() {
+        return repository.findByUploaderIpOrderByUploadTimeDesc(
+                RepositoryBenchmarkSupport.uploaderIp(ThreadLocalRandom.current().nextInt(1000)));
+    }
+
+    @Benchmark
+    public List<FileInfo> findTop10ByOrderByUploadTimeDesc() {
+        return repository.findTop10ByOrderByUploadTimeDesc();
+    }
+
+    @Benchmark
+    public int incrementDownloadCount() {
+        return repository.incrementDownloadCount(randomId());
+    }
+
+    @Benchmark
+    public FileInfo insert() {
+        return repository.save(newFile());
+    }
+
+    /**
+     * 清理路径：批量写墓碑后清除
+     */
+    @Benchmark
+    public int tombstoneAndPurge(CleanupVictims victims) {
+        List<Long> ids = victims.take(CLEANUP_BATCH);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        repository.markDeleted(ids, now);
+        return repository.purgeTombstones(ids);
+    }
+
+    /**
+     * 用于生成执行计划的操作（每个执行一次）
+     */
+    private Map<String, Callable<?>> operations() {
+        Map<String, Callable<?>> operations = new LinkedHashMap<>();
+        operations.put("findByFileKey", this::findByFileKey);
+        operations.put("findByStoredName", this::findByStoredName);
+        operations.put("findExpiredBatch", this::findExpiredBatch);
+        operations.put("findExpiringBatch", this::findExpiringBatch);
+        operations.put("findSummariesByFileKeyIn", this::findSummariesByFileKeyIn);
+        operations.put("findStoredNameBatch", this::findStoredNameBatch);
+        operations.put("findUsageBatch", this::findUsageBatch);
+        operations.put("findTombstoneBatch", this::findTombstoneBatch);
+        operations.put("countTombstones", this::countTombstones);
+        operations.put("countByExpireTimeBefore", this::countByExpireTimeBefore);
+        operations.put("getExpiredFileSize", this::getExpiredFileSize);
+        operations.put("count", this::count);
+        operations.put("getTotalFileSize", this::getTotalFileSize);
+        operations.put("findByUploaderIp", this::findByUploaderIp);
+        operations.put("findTop10ByOrderByUploadTimeDesc", this::findTop10ByOrderByUploadTimeDesc);
+        operations.put("incrementDownloadCount", this::incrementDownloadCount);
+        operations.put("insert", this::insert);
+        operations.put("tombstoneAndPurge", () -> {
+            FileInfo victim = repository.save(newFile());
+            List<Long> ids = Arrays.asList(victim.getId());
+            repository.markDeleted(ids, now);
+            return repository.purgeTombstones(ids);
+        });
+        return operations;
+    }
+
+    private FileInfo newFile() {
+        String fileKey = UUID.randomUUID().toString().replace("-", "");
+        return new FileInfo(fileKey, "bench.bin", fileKey + ".bin", 4096L, "application/octet-stream",
+                "./uploads/" + fileKey + ".bin", "10.1.0.1");
+    }
+
+    private String randomKey() {
+        return RepositoryBenchmarkSupport.fileKey(ThreadLocalRandom.current().nextInt(rows));
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(minId, maxId + 1);
+    }
+
+    private static Pageable page() {
+        return PageRequest.of(0, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,311 @@
+package cn.lemwood.fileshare.benchmark;
+
+import cn.lemwood.fileshare.repository.FileInfoRepository;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+/**
+ * 仓库基准的数据库环境
+ * 只启动 JPA 和仓库（不启动 Web 服务器和定时任务），表结构由 Hibernate 按实体生成，与应用一致；
+ * 数据用 JDBC 批量写入，数据库文件按数据库类型和行数缓存在目录中，再次运行时直接复用。
+ *
+ * @author lemwood
+ */
+final class RepositoryBenchmarkSupport implements AutoCloseable {
+
+    private static final String INSERT_SQL = "INSERT INTO file_info (file_key, original_name, stored_name, file_size, "
+            + "content_type, file_path, upload_time, expire_time, download_count, uploader_ip, deleted_time) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int SEED_BATCH = 10_000;
+
+    /**
+     * 上传时间分布的时间跨度，约一半记录已过期
+     */
+    private static final long UPLOAD_SPAN_MINUTES = 48 * 60;
+
+    /**
+     * 每 100 条记录中的墓碑数
+     */
+    private static final int TOMBSTONES_PER_HUNDRED = 1;
+
+    private static final String[] CONTENT_TYPES = {"image/png", "application/pdf", "application/zip", "video/mp4", "text/plain"};
+
+    private final BenchmarkDatabase database;
+    private final AnnotationConfigApplicationContext context;
+    private final CapturingDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    private RepositoryBenchmarkSupport(BenchmarkDatabase database, String url) {
+        this.database = database;
+        this.context = new AnnotationConfigApplicationContext();
+        context.registerBean(BenchmarkSettings.class, () -> new BenchmarkSettings(url, database.dialect()));
+        context.register(RepositoryConfig.class);
+        context.refresh();
+        this.dataSource = context.getBean(CapturingDataSource.class);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    static RepositoryBenchmarkSupport start(BenchmarkDatabase database, Path directory, int rows) throws IOException {
+        Files.createDirectories(directory);
+        return new RepositoryBenchmarkSupport(database, database.url(directory, rows));
+    }
+
+    FileInfoRepository repository() {
+        return context.getBean(FileInfoRepository.class);
+    }
+
+    /**
+     * 补足到指定行数；多出的行（旧版本基准遗留的插入记录）按 ID 删除，恢复为原始种子数据
+     */
+    void seed(int rows) throws SQLException {
+        long existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM file_info", Long.class);
+        if (existing > rows) {
+            Long lastSeeded = jdbcTemplate.queryForObject(
+                    "SELECT id FROM file_info ORDER BY id LIMIT 1 OFFSET ?", Long.class, rows - 1);
+            deleteRows(lastSeeded + 1, Long.MAX_VALUE);
+            existing = rows;
+        }
+        if (existing >= rows) {
+            return;
+        }
+        LocalDateTime base = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                for (long index = existing; index < rows; index++) {
+                    bindRow(statement, index, base);
+                    statement.addBatch();
+                    if ((index + 1) % SEED_BATCH == 0) {
+                        statement.executeBatch();
+                        connection.commit();
+                    }
+                }
+                statement.executeBatch();
+                connection.commit();
+            }
+        }
+        jdbcTemplate.execute(database == BenchmarkDatabase.SQLITE ? "ANALYZE" : "ANALYZE TABLE file_info");
+    }
+
+    /**
+     * 追加一批有效记录（随机文件标识），返回新增记录的 ID 范围 [first, last]
+     */
+    long[] appendRows(int count, LocalDateTime base) throws SQLException {
+        long before = maxId();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                for (int i = 0; i < count; i++) {
+                    bindRow(statement, -1L, base);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.commit();
+            }
+        }
+        return new long[]{before + 1, maxId()};
+    }
+
+    /**
+     * 删除 ID 在 [first, last] 内的记录，基准结束时清除追加的记录，保持缓存的数据库与种子数据一致
+     */
+    int deleteRows(long first, long last) {
+        return jdbcTemplate.update("DELETE FROM file_info WHERE id BETWEEN ? AND ?", first, last);
+    }
+
+    long minId() {
+        Long id = jdbcTemplate.queryForObject("SELECT MIN(id) FROM file_info", Long.class);
+        return id != null ? id : 0L;
+    }
+
+    long maxId() {
+        Long id = jdbcTemplate.queryForObject("SELECT MAX(id) FROM file_info", Long.class);
+        return id != null ? id : 0L;
+    }
+
+    /**
+     * 数据集的基准时间（最晚的上传时间），查询以此作为"当前时间"，复用旧数据库时结果分布不变
+     */
+    LocalDateTime baseTime() {
+        Timestamp latest = jdbcTemplate.queryForObject("SELECT MAX(upload_time) FROM file_info", Timestamp.class);
+        return latest != null ? latest.toLocalDateTime() : LocalDateTime.now();
+    }
+
+    /**
+     * 逐个执行操作并捕获其 SQL，写出执行计划和单次耗时
+     */
+    void writeQueryPlans(Path file, Map<String, Callable<?>> operations) throws Exception {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.printf("# %s, %d 行%n", database.key(), jdbcTemplate.queryForObject("SELECT COUNT(*) FROM file_info", Long.class));
+            for (Map.Entry<String, Callable<?>> operation : operations.entrySet()) {
+                List<CapturingDataSource.CapturedStatement> statements = dataSource.startCapture();
+                long start = System.nanoTime();
+                try {
+                    operation.getValue().call();
+                } finally {
+                    dataSource.stopCapture();
+                }
+                out.printf("%n## %s (%.3f ms)%n", operation.getKey(), (System.nanoTime() - start) / 1e6);
+                for (CapturingDataSource.CapturedStatement statement : new ArrayList<>(statements)) {
+                    out.println(statement.sql);
+                    for (String line : explain(statement)) {
+                        out.println("    " + line);
+                    }
+                }
+            }
+        }
+    }
+
+    private List<String> explain(CapturingDataSource.CapturedStatement statement) {
+        List<String> plan = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement explain = connection.prepareStatement(database.explainPrefix() + statement.sql)) {
+            for (int i = 0; i < statement.parameters.size(); i++) {
+                explain.setObject(i + 1, statement.parameters.get(i));
+            }
+            try (ResultSet resultSet = explain.executeQuery()) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                while (resultSet.next()) {
+                    StringBuilder row = new StringBuilder();
+                    for (int column = 1; column <= metaData.getColumnCount(); column++) {
+                        if (column > 1) {
+                            row.append(" | ");
+                        }
+                        row.append(resultSet.getString(column));
+                    }
+                    plan.add(row.toString());
+                }
+            }
+        } catch (SQLException e) {
+            plan.add("无法获取执行计划: " + e.getMessage());
+        }
+        return plan;
+    }
+
+    /**
+     * 写入一行数据；index 为负数时使用随机文件标识，否则由序号确定，便于基准随机查找已有记录
+     */
+    private static void bindRow(PreparedStatement statement, long index, LocalDateTime base) throws SQLException {
+        long sequence = index >= 0 ? index : UUID.randomUUID().getMostSignificantBits() & Long.MAX_VALUE;
+        String fileKey = index >= 0 ? fileKey(index) : UUID.randomUUID().toString().replace("-", "");
+        LocalDateTime uploadTime = index >= 0
+                ? base.minusMinutes(Math.floorMod(sequence * 7919, UPLOAD_SPAN_MINUTES))
+                : base;
+        statement.setString(1, fileKey);
+        statement.setString(2, "file-" + sequence + ".bin");
+        statement.setString(3, fileKey + ".bin");
+        statement.setLong(4, 1024L + Math.floorMod(sequence * 104729, 100L * 1024 * 1024));
+        statement.setString(5, CONTENT_TYPES[(int) Math.floorMod(sequence, (long) CONTENT_TYPES.length)]);
+        statement.setString(6, "./uploads/" + fileKey + ".bin");
+        statement.setTimestamp(7, Timestamp.valueOf(uploadTime));
+        statement.setTimestamp(8, Timestamp.valueOf(uploadTime.plusHours(24)));
+        statement.setInt(9, (int) Math.floorMod(sequence, 50L));
+        statement.setString(10, uploaderIp(sequence));
+        if (index >= 0 && Math.floorMod(index, 100L) < TOMBSTONES_PER_HUNDRED) {
+            statement.setTimestamp(11, Timestamp.valueOf(uploadTime.plusHours(1)));
+        } else {
+            statement.setTimestamp(11, null);
+        }
+    }
+
+    /**
+     * 第 index 条种子记录的文件标识
+     */
+    static String fileKey(long index) {
+        return String.format("%016x%016x", index, index * 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * 种子数据中约 1000 个不同的上传者
+     */
+    static String uploaderIp(long sequence) {
+        long client = Math.floorMod(sequence, 1000L);
+        return "10.0." + (client / 250) + "." + (client % 250);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    /**
+     * 基准数据库连接参数
+     */
+    static final class BenchmarkSettings {
+        final String url;
+        final String dialect;
+
+        BenchmarkSettings(String url, String dialect) {
+            this.url = url;
+            this.dialect = dialect;
+        }
+    }
+
+    /**
+     * 只包含数据源、JPA 和仓库的最小配置
+     */
+    @Configuration
+    @EnableTransactionManagement
+    @EnableJpaRepositories(basePackageClasses = FileInfoRepository.class)
+    static class RepositoryConfig {
+
+        @Bean
+        public CapturingDataSource dataSource(BenchmarkSettings settings) {
+            DataSource target = DataSourceBuilder.create().url(settings.url).build();
+            return new CapturingDataSource(target);
+        }
+
+        @Bean
+        public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource,
+                                                                           BenchmarkSettings settings) {
+            LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
+            em.setDataSource(dataSource);
+            em.setPackagesToScan("cn.lemwood.fileshare.entity");
+            em.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+            Properties properties = new Properties();
+            properties.setProperty("hibernate.dialect", settings.dialect);
+            properties.setProperty("hibernate.hbm2ddl.auto", "update");
+            properties.setProperty("hibernate.show_sql", "false");
+            em.setJpaProperties(properties);
+            return em;
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager(EntityManagerFactory emf) {
+            return new JpaTransactionManager(emf);
+        }
+    }
+}
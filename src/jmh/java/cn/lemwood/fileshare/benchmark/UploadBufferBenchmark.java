@@ -0,0 +1,90 @@
+package cn.lemwood.fileshare.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上传写盘路径基准：缓冲区拷贝
+ * 从输入流读入缓冲区再写入 FileChannel，对比缓冲区大小以及堆内 / 直接缓冲区。
+ * 缓冲区在每次拷贝时新建，与请求线程上的真实用法一致，-prof gc 可看到每次拷贝的分配量。
+ *
+ * @author lemwood
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+public class UploadBufferBenchmark {
+
+    @Param({"16384", "4194304", "67108864"})
+    public int size;
+
+    @Param({"8192", "65536", "262144", "1048576"})
+    public int bufferSize;
+
+    @Param({"heap", "direct"})
+    public String bufferType;
+
+    private Path directory;
+    private Path source;
+    private Path target;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("jmh-upload-buffer");
+        source = BenchmarkFiles.createSource(directory, size);
+        target = directory.resolve("target.bin");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.deleteRecursively(directory);
+    }
+
+    /**
+     * 输入流包装为通道，经缓冲区写入目标文件通道
+     */
+    @Benchmark
+    public long channelCopy() throws IOException {
+        ByteBuffer buffer = "direct".equals(bufferType)
+                ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+        try (InputStream in = Files.newInputStream(source);
+             ReadableByteChannel channel = Channels.newChannel(in);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long total = 0;
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    total += out.write(buffer);
+                }
+                buffer.clear();
+            }
+            return total;
+        }
+    }
+}
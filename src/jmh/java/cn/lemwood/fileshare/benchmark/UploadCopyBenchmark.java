@@ -0,0 +1,121 @@
+package cn.lemwood.fileshare.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上传写盘路径基准：整体拷贝方式对比
+ * 源文件模拟 multipart 临时文件 (MultipartFile.getInputStream() 在超过内存阈值时即为文件流)，
+ * 对比 FileService.uploadFile 当前使用的 Files.copy(InputStream, Path)
+ * 与 FileChannel.transferFrom / transferTo。分配速率用 -prof gc 查看。
+ *
+ * @author lemwood
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+public class UploadCopyBenchmark {
+
+    /**
+     * 小 (16KB)、中 (4MB)、大 (64MB) 文件
+     */
+    @Param({"16384", "4194304", "67108864"})
+    public int size;
+
+    private Path directory;
+    private Path source;
+    private Path target;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("jmh-upload");
+        source = BenchmarkFiles.createSource(directory, size);
+        target = directory.resolve("target.bin");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.deleteRecursively(directory);
+    }
+
+    /**
+     * 当前实现：Files.copy(InputStream, Path)
+     */
+    @Benchmark
+    public long filesCopy() throws IOException {
+        try (InputStream in = Files.newInputStream(source)) {
+            return Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 输入流包装为通道后由 FileChannel.transferFrom 写入
+     */
+    @Benchmark
+    public long transferFromStream() throws IOException {
+        try (InputStream in = Files.newInputStream(source);
+             ReadableByteChannel channel = Channels.newChannel(in);
+             FileChannel out = openTarget()) {
+            return transferFrom(out, channel, size);
+        }
+    }
+
+    /**
+     * 源为文件流时取得其通道，文件到文件的 transferTo（可走内核拷贝）
+     */
+    @Benchmark
+    public long transferToFromFile() throws IOException {
+        try (FileInputStream in = new FileInputStream(source.toFile());
+             FileChannel channel = in.getChannel();
+             FileChannel out = openTarget()) {
+            long position = 0;
+            long length = channel.size();
+            while (position < length) {
+                position += channel.transferTo(position, length - position, out);
+            }
+            return position;
+        }
+    }
+
+    private FileChannel openTarget() throws IOException {
+        return FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    static long transferFrom(FileChannel out, ReadableByteChannel in, long expected) throws IOException {
+        long position = 0;
+        while (true) {
+            long transferred = out.transferFrom(in, position, Math.max(expected - position, 1L << 20));
+            if (transferred <= 0) {
+                return position;
+            }
+            position += transferred;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package cn.lemwood.fileshare.benchmark.gate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 性能回归检查
+ * 把本次 JMH 基准和压测的结果与 perf/baselines 下已提交的基线逐项比较，打印差异表并写入报告文件；
+ * 存在显著回归或本次结果没有对应的基线时以非零状态退出，使 ./mvnw -Pbenchmark,perf-gate verify 失败。
+ * 传入 --rebaseline=true 时只报告差异，并用本次结果覆盖基线，供有意的性能变化后更新基线。
+ *
+ * @author lemwood
+ */
+public final class PerfGate {
+
+    static final String JMH_RESULT = "jmh-result.json";
+    static final String LOAD_REPORT = "load-report.json";
+
+    private static final int EXIT_REGRESSION = 1;
+    private static final int EXIT_NO_RESULTS = 2;
+    private static final int EXIT_NO_BASELINE = 3;
+
+    /**
+     * 各类指标的判定阈值，可在命令行或 pom 属性中覆盖
+     */
+    static final class Thresholds {
+
+        /**
+         * JMH 主指标（吞吐量、平均耗时）的相对阈值
+         */
+        double score = 0.10;
+
+        /**
+         * 每次操作分配字节数的相对阈值与绝对下限
+         */
+        double allocation = 0.05;
+        double allocationFloorBytes = 64;
+
+        /**
+         * 压测延迟分位数的相对阈值与绝对下限（毫秒）
+         */
+        double latency = 0.25;
+        double latencyFloorMillis = 2.0;
+
+        /**
+         * 压测错误率允许的绝对增量
+         */
+        double errorRateFloor = 0.005;
+    }
+
+    @FunctionalInterface
+    private interface ResultReader {
+        PerfResults read(Path file, Thresholds thresholds) throws IOException;
+    }
+
+    private final Path baselineDir;
+    private final Path resultsDir;
+    private final Path reportFile;
+    private final boolean rebaseline;
+    private final Thresholds thresholds = new Thresholds();
+    private final StringBuilder report = new StringBuilder();
+    private final Map<PerfMetric.Verdict, Integer> totals = new EnumMap<>(PerfMetric.Verdict.class);
+    private final List<Path> missingBaselines = new ArrayList<>();
+
+    private PerfGate(Map<String, String> options) {
+        baselineDir = Paths.get(options.getOrDefault("baseline-dir", "perf/baselines"));
+        resultsDir = Paths.get(options.getOrDefault("results-dir", "target/perf"));
+        reportFile = Paths.get(options.getOrDefault("report", resultsDir.resolve("perf-gate-report.txt").toString()));
+        rebaseline = Boolean.parseBoolean(options.getOrDefault("rebaseline", "false"));
+        thresholds.score = doubleOption(options, "threshold", thresholds.score);
+        thresholds.allocation = doubleOption(options, "alloc-threshold", thresholds.allocation);
+        thresholds.allocationFloorBytes = doubleOption(options, "alloc-floor-bytes", thresholds.allocationFloorBytes);
+        thresholds.latency = doubleOption(options, "latency-threshold", thresholds.latency);
+        thresholds.latencyFloorMillis = doubleOption(options, "latency-floor-ms", thresholds.latencyFloorMillis);
+        thresholds.errorRateFloor = doubleOption(options, "error-rate-floor", thresholds.errorRateFloor);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("参数格式应为 --名称=值: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        System.exit(new PerfGate(options).run());
+    }
+
+    private int run() throws IOException {
+        line("性能回归检查  基线目录: %s  结果目录: %s", baselineDir, resultsDir);
+        line("阈值: 基准 %.0f%%, 分配 %.0f%% (至少 %.0f B/op), 延迟 %.0f%% (至少 %.1f ms), 错误率 +%.3f",
+                thresholds.score * 100, thresholds.allocation * 100, thresholds.allocationFloorBytes,
+                thresholds.latency * 100, thresholds.latencyFloorMillis, thresholds.errorRateFloor);
+        boolean checkedJmh = checkSection("JMH 基准", JMH_RESULT, PerfResults::readJmh);
+        boolean checkedLoad = checkSection("压测", LOAD_REPORT, PerfResults::readLoad);
+
+        int regressions = totals.getOrDefault(PerfMetric.Verdict.REGRESSION, 0);
+        line("");
+        line("合计: %d 项回归, %d 项提升, %d 项通过, %d 项新增, %d 项缺失", regressions,
+                totals.getOrDefault(PerfMetric.Verdict.IMPROVEMENT, 0), totals.getOrDefault(PerfMetric.Verdict.PASS, 0),
+                totals.getOrDefault(PerfMetric.Verdict.NEW, 0), totals.getOrDefault(PerfMetric.Verdict.MISSING, 0));
+        if (!checkedJmh && !checkedLoad) {
+            line("没有找到任何本次结果，请先运行基准和压测");
+            return finish(EXIT_NO_RESULTS);
+        }
+        if (rebaseline) {
+            line("基线已用本次结果更新，请检查 %s 的差异后随代码一起提交", baselineDir);
+            return finish(0);
+        }
+        if (!missingBaselines.isEmpty()) {
+            // 没有基线时任何回归都检查不出来，不能当作通过
+            line("缺少基线 %s，无法判断是否回归。在 CI 机器上运行以下命令生成基线并提交:", missingBaselines);
+            line("  ./mvnw -Pbenchmark,perf-gate verify -Dperf.rebaseline=true");
+            return finish(EXIT_NO_BASELINE);
+        }
+        if (regressions > 0) {
+            line("发现显著性能回归。如果这是预期的变化，运行以下命令更新基线并提交:");
+            line("  ./mvnw -Pbenchmark,perf-gate verify -Dperf.rebaseline=true");
+            return finish(EXIT_REGRESSION);
+        }
+        return finish(0);
+    }
+
+    /**
+     * 比较一类结果，返回本次是否有该类结果
+     */
+    private boolean checkSection(String title, String fileName, ResultReader reader) throws IOException {
+        Path current = resultsDir.resolve(fileName);
+        Path baseline = baselineDir.resolve(fileName);
+        line("");
+        line("== %s ==", title);
+        if (!Files.exists(current)) {
+            line("跳过: 没有本次结果 %s", current);
+            return false;
+        }
+        PerfResults currentResults = reader.read(current, thresholds);
+        if (Files.exists(baseline)) {
+            PerfResults baselineResults = reader.read(baseline, thresholds);
+            if (!baselineResults.environment.equals(currentResults.environment)) {
+                line("注意: 基线与本次的运行环境或参数不同，差异可能来自环境而不是代码");
+                line("  基线: %s", baselineResults.environment);
+                line("  本次: %s", currentResults.environment);
+            }
+            compare(baselineResults.metrics, currentResults.metrics);
+        } else {
+            line("没有基线 %s，本次不做比较", baseline);
+            missingBaselines.add(baseline);
+        }
+        if (rebaseline) {
+            Files.createDirectories(baseline.toAbsolutePath().getParent());
+            Files.copy(current, baseline, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return true;
+    }
+
+    private void compare(Map<String, PerfMetric> baseline, Map<String, PerfMetric> current) {
+        Set<String> names = new LinkedHashSet<>(baseline.keySet());
+        names.addAll(current.keySet());
+        List<String[]> rows = new ArrayList<>();
+        rows.add(new String[]{"指标", "基线", "本次", "变化", "结论"});
+        for (String name : names) {
+            PerfMetric before = baseline.get(name);
+            PerfMetric after = current.get(name);
+            PerfMetric.Verdict verdict;
+            String change = "";
+            if (before == null) {
+                verdict = PerfMetric.Verdict.NEW;
+            } else if (after == null) {
+                verdict = PerfMetric.Verdict.MISSING;
+            } else {
+                verdict = after.compareTo(before);
+                double relative = after.relativeChange(before);
+                // 基线为 0 时相对变化没有意义，改为显示绝对变化量
+                change = Double.isInfinite(relative) ? String.format("%+.4g", after.score - before.score)
+                        : String.format("%+.1f%%", relative * 100);
+            }
+            totals.merge(verdict, 1, Integer::sum);
+            rows.add(new String[]{name, before != null ? before.describe() : "-",
+                    after != null ? after.describe() : "-", change,
+                    verdict == PerfMetric.Verdict.REGRESSION ? "<< " + verdict.label() : verdict.label()});
+        }
+        printTable(rows);
+    }
+
+    private void printTable(List<String[]> rows) {
+        int[] widths = new int[rows.get(0).length];
+        for (String[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                widths[i] = Math.max(widths[i], displayWidth(row[i]));
+            }
+        }
+        for (String[] row : rows) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < row.length; i++) {
+                String padding = repeat(' ', widths[i] - displayWidth(row[i]));
+                // 指标名左对齐，数值右对齐
+                text.append(i == 0 ? row[i] + padding : "  " + padding + row[i]);
+            }
+            line("%s", text.toString().trim());
+        }
+    }
+
+    /**
+     * 终端显示宽度，中文按两个字符宽计算，使表头与数值列对齐
+     */
+    private static int displayWidth(String text) {
+        int width = 0;
+        for (int i = 0; i < text.length(); i++) {
+            width += text.charAt(i) >= 0x2E80 ? 2 : 1;
+        }
+        return width;
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(c);
+        }
+        return text.toString();
+    }
+
+    private void line(String format, Object... args) {
+        String text = args.length > 0 ? String.format(format, args) : format;
+        System.out.println(text);
+        report.append(text).append(System.lineSeparator());
+    }
+
+    private int finish(int exitCode) throws IOException {
+        Path parent = reportFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Files.write(reportFile, report.toString().getBytes(StandardCharsets.UTF_8));
+        System.out.println("报告已写入 " + reportFile);
+        return exitCode;
+    }
+
+    private static double doubleOption(Map<String, String> options, String name, double defaultValue) {
+        String value = options.get(name);
+        return value != null && !value.isEmpty() ? Double.parseDouble(value) : defaultValue;
+    }
+}
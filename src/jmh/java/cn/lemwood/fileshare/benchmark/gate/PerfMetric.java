@@ -0,0 +1,122 @@
+package cn.lemwood.fileshare.benchmark.gate;
+
+/**
+ * 性能回归检查中的单个指标
+ * 分数带置信区间时（JMH 多次迭代的 99.9% 区间）用于判断差异是否显著；
+ * 单次运行的压测指标没有区间，只按相对阈值和绝对下限判断。
+ *
+ * @author lemwood
+ */
+final class PerfMetric {
+
+    /**
+     * 指标方向
+     */
+    enum Direction {
+        HIGHER_IS_BETTER, LOWER_IS_BETTER
+    }
+
+    /**
+     * 比较结论
+     */
+    enum Verdict {
+        PASS("通过"),
+        REGRESSION("回归"),
+        IMPROVEMENT("提升"),
+        NEW("新增"),
+        MISSING("缺失");
+
+        private final String label;
+
+        Verdict(String label) {
+            this.label = label;
+        }
+
+        String label() {
+            return label;
+        }
+    }
+
+    final String name;
+    final String unit;
+    final double score;
+    final double lower;
+    final double upper;
+    final Direction direction;
+
+    /**
+     * 判为显著变化所需的相对变化幅度
+     */
+    final double threshold;
+
+    /**
+     * 判为显著变化所需的最小绝对变化量，避免在接近 0 的指标上因相对变化放大而误报
+     */
+    final double floor;
+
+    PerfMetric(String name, String unit, double score, double lower, double upper,
+               Direction direction, double threshold, double floor) {
+        this.name = name;
+        this.unit = unit;
+        this.score = score;
+        this.lower = lower;
+        this.upper = upper;
+        this.direction = direction;
+        this.threshold = threshold;
+        this.floor = floor;
+    }
+
+    static PerfMetric withoutInterval(String name, String unit, double score,
+                                      Direction direction, double threshold, double floor) {
+        return new PerfMetric(name, unit, score, Double.NaN, Double.NaN, direction, threshold, floor);
+    }
+
+    boolean hasInterval() {
+        return !Double.isNaN(lower) && !Double.isNaN(upper) && lower <= upper;
+    }
+
+    /**
+     * 相对基线的变化比例，基线为 0 时返回正负无穷或 0
+     */
+    double relativeChange(PerfMetric baseline) {
+        if (baseline.score == 0) {
+            return score == 0 ? 0.0 : Math.copySign(Double.POSITIVE_INFINITY, score);
+        }
+        return (score - baseline.score) / Math.abs(baseline.score);
+    }
+
+    /**
+     * 与基线比较：变化超过相对阈值和绝对下限，且双方置信区间不重叠时才认为显著。
+     * 阈值取本次运行的配置，便于调整阈值后不必重新生成基线。
+     */
+    Verdict compareTo(PerfMetric baseline) {
+        double delta = score - baseline.score;
+        if (Math.abs(delta) <= floor || Math.abs(relativeChange(baseline)) <= threshold) {
+            return Verdict.PASS;
+        }
+        if (hasInterval() && baseline.hasInterval() && lower <= baseline.upper && baseline.lower <= upper) {
+            return Verdict.PASS;
+        }
+        boolean worse = direction == Direction.HIGHER_IS_BETTER ? delta < 0 : delta > 0;
+        return worse ? Verdict.REGRESSION : Verdict.IMPROVEMENT;
+    }
+
+    String describe() {
+        String value = format(score);
+        if (hasInterval()) {
+            value += " ±" + format((upper - lower) / 2);
+        }
+        return unit.isEmpty() ? value : value + " " + unit;
+    }
+
+    private static String format(double value) {
+        double abs = Math.abs(value);
+        if (abs >= 100) {
+            return String.format("%.1f", value);
+        }
+        if (abs >= 1 || abs == 0) {
+            return String.format("%.3f", value);
+        }
+        return String.format("%.4g", value);
+    }
+}
@@ -0,0 +1,123 @@
+package cn.lemwood.fileshare.benchmark.gate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 从 JMH 的 JSON 结果和压测报告 (target/load-report.json 格式) 中读取参与回归检查的指标
+ *
+ * @author lemwood
+ */
+final class PerfResults {
+
+    private static final String BENCHMARK_PACKAGE = "cn.lemwood.fileshare.benchmark.";
+
+    /**
+     * JMH -prof gc 输出的每次操作分配字节数，比吞吐量稳定得多
+     */
+    private static final String ALLOCATION_METRIC = "·gc.alloc.rate.norm";
+
+    private static final String[] LATENCY_PERCENTILES = {"p50", "p90"};
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    final Map<String, PerfMetric> metrics;
+
+    /**
+     * 运行环境或压测参数的描述，基线与本次不一致时结果只能作为参考
+     */
+    final String environment;
+
+    private PerfResults(Map<String, PerfMetric> metrics, String environment) {
+        this.metrics = metrics;
+        this.environment = environment;
+    }
+
+    static PerfResults readJmh(Path file, PerfGate.Thresholds thresholds) throws IOException {
+        Map<String, PerfMetric> metrics = new LinkedHashMap<>();
+        String environment = "";
+        for (JsonNode run : OBJECT_MAPPER.readTree(file.toFile())) {
+            environment = run.path("jdkVersion").asText() + " " + run.path("vmName").asText()
+                    + ", forks=" + run.path("forks").asInt()
+                    + ", threads=" + run.path("threads").asInt();
+            String name = benchmarkName(run);
+            PerfMetric.Direction direction = "thrpt".equals(run.path("mode").asText())
+                    ? PerfMetric.Direction.HIGHER_IS_BETTER : PerfMetric.Direction.LOWER_IS_BETTER;
+            metrics.put(name, jmhMetric(name, run.path("primaryMetric"), direction,
+                    thresholds.score, 0.0));
+            JsonNode allocation = run.path("secondaryMetrics").path(ALLOCATION_METRIC);
+            if (!allocation.isMissingNode()) {
+                metrics.put(name + ":alloc", jmhMetric(name + ":alloc", allocation,
+                        PerfMetric.Direction.LOWER_IS_BETTER, thresholds.allocation, thresholds.allocationFloorBytes));
+            }
+        }
+        return new PerfResults(metrics, environment);
+    }
+
+    static PerfResults readLoad(Path file, PerfGate.Thresholds thresholds) throws IOException {
+        JsonNode report = OBJECT_MAPPER.readTree(file.toFile());
+        Map<String, PerfMetric> metrics = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> operations = report.path("operations").fields();
+        while (operations.hasNext()) {
+            Map.Entry<String, JsonNode> operation = operations.next();
+            String prefix = "load." + operation.getKey() + ".";
+            JsonNode summary = operation.getValue();
+            for (String percentile : LATENCY_PERCENTILES) {
+                metrics.put(prefix + percentile, PerfMetric.withoutInterval(prefix + percentile, "ms",
+                        summary.path("latencyMillis").path(percentile).asDouble(),
+                        PerfMetric.Direction.LOWER_IS_BETTER, thresholds.latency, thresholds.latencyFloorMillis));
+            }
+            // 错误率只看绝对变化量
+            metrics.put(prefix + "errorRate", PerfMetric.withoutInterval(prefix + "errorRate", "",
+                    summary.path("errorRate").asDouble(),
+                    PerfMetric.Direction.LOWER_IS_BETTER, 0.0, thresholds.errorRateFloor));
+        }
+        return new PerfResults(metrics, report.path("profile").toString());
+    }
+
+    private static PerfMetric jmhMetric(String name, JsonNode metric, PerfMetric.Direction direction,
+                                        double threshold, double floor) {
+        double score = metric.path("score").asDouble();
+        JsonNode confidence = metric.path("scoreConfidence");
+        double lower = Double.NaN;
+        double upper = Double.NaN;
+        // 只有一次测量迭代时 JMH 输出 NaN，按没有置信区间处理
+        if (confidence.size() == 2 && confidence.get(0).isNumber() && confidence.get(1).isNumber()) {
+            lower = confidence.get(0).asDouble();
+            upper = confidence.get(1).asDouble();
+        }
+        return new PerfMetric(name, metric.path("scoreUnit").asText(), score, lower, upper,
+                direction, threshold, floor);
+    }
+
+    /**
+     * 基准名去掉包名，带上排序后的参数，例如 DownloadBenchmark.channelTransferTo[size=4194304]
+     */
+    private static String benchmarkName(JsonNode run) {
+        String benchmark = run.path("benchmark").asText();
+        if (benchmark.startsWith(BENCHMARK_PACKAGE)) {
+            benchmark = benchmark.substring(BENCHMARK_PACKAGE.length());
+        }
+        Map<String, String> params = new TreeMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = run.path("params").fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            params.put(field.getKey(), field.getValue().asText());
+        }
+        if (params.isEmpty()) {
+            return benchmark;
+        }
+        List<String> pairs = new ArrayList<>();
+        params.forEach((key, value) -> pairs.add(key + "=" + value));
+        return benchmark + "[" + String.join(",", pairs) + "]";
+    }
+}
@@ -0,0 +1,86 @@
+package cn.lemwood.fileshare.accesslog;
+
+/**
+ * 单条访问日志记录
+ * 在请求线程上只采集原始字段，格式化推迟到写出线程
+ *
+ * @author lemwood
+ */
+public final class AccessLogRecord {
+
+    final long timestamp;
+    final String method;
+    final String endpoint;
+    final String fileKey;
+    final String client;
+    final long bytes;
+    final int status;
+    final long durationNanos;
+    final double sampleRate;
+
+    public AccessLogRecord(long timestamp, String method, String endpoint, String fileKey, String client,
+                           long bytes, int status, long durationNanos, double sampleRate) {
+        this.timestamp = timestamp;
+        this.method = method;
+        this.endpoint = endpoint;
+        this.fileKey = fileKey;
+        this.client = client;
+        this.bytes = bytes;
+        this.status = status;
+        this.durationNanos = durationNanos;
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * 格式化为单行 JSON
+     */
+    String toJson() {
+        StringBuilder json = new StringBuilder(192);
+        json.append("{\"ts\":").append(timestamp);
+        appendString(json, "method", method);
+        appendString(json, "endpoint", endpoint);
+        appendString(json, "fileKey", fileKey);
+        appendString(json, "client", client);
+        json.append(",\"bytes\":").append(bytes);
+        json.append(",\"status\":").append(status);
+        json.append(",\"durationMs\":").append(durationNanos / 1_000_000L);
+        json.append(",\"sampleRate\":").append(sampleRate);
+        return json.append('}').toString();
+    }
+
+    private static void appendString(StringBuilder json, String name, String value) {
+        json.append(",\"").append(name).append("\":");
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,87 @@
+package cn.lemwood.fileshare.accesslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁有界环形缓冲区（多生产者、单消费者）
+ * 请求线程通过 CAS 抢占槽位写入记录，不加锁、不阻塞；缓冲区满时直接返回 false 由调用方丢弃。
+ * 每个槽位带序号，生产者写完记录后发布序号，消费者看到序号才读取，保证读到完整的记录。
+ *
+ * @author lemwood
+ */
+final class AccessLogRingBuffer<T> {
+
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 只由消费者线程写入
+     */
+    private volatile long head;
+
+    AccessLogRingBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.slots = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 写入一条记录，缓冲区满时返回 false
+     */
+    boolean offer(T element) {
+        long position;
+        int index;
+        while (true) {
+            position = tail.get();
+            index = (int) position & mask;
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (diff < 0) {
+                // 消费者还没读走一整圈之前的记录
+                return false;
+            }
+            // diff > 0：其他生产者已经占用该位置，重读 tail
+        }
+        slots[index] = element;
+        sequences.lazySet(index, position + 1);
+        return true;
+    }
+
+    /**
+     * 取出一条记录，没有已发布的记录时返回 null。只能由消费者线程调用。
+     */
+    @SuppressWarnings("unchecked")
+    T poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        T element = (T) slots[index];
+        slots[index] = null;
+        sequences.lazySet(index, position + slots.length);
+        head = position + 1;
+        return element;
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * 当前积压数（近似值）
+     */
+    long size() {
+        return Math.max(0L, tail.get() - head);
+    }
+}
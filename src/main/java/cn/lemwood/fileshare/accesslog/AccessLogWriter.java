@@ -0,0 +1,138 @@
+package cn.lemwood.fileshare.accesslog;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步访问日志写出器
+ * 请求线程只把记录放入无锁环形缓冲区后立即返回；单独的写出线程批量取出记录、格式化为 JSON，
+ * 写入 fileshare.access 日志（logback-spring.xml 中配置为独立的滚动文件）。
+ * 只有写出线程会调用该日志的追加器，请求线程不再竞争追加器锁。缓冲区满时丢弃记录并计数。
+ *
+ * @author lemwood
+ */
+@Component
+public class AccessLogWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessLogWriter.class);
+
+    /**
+     * 访问日志专用日志名
+     */
+    public static final String ACCESS_LOGGER = "fileshare.access";
+
+    private static final Logger accessLogger = LoggerFactory.getLogger(ACCESS_LOGGER);
+
+    /**
+     * 缓冲区为空时写出线程的休眠时长
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private AccessLogRingBuffer<AccessLogRecord> buffer;
+    private Counter droppedCounter;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        FileUploadConfig.AccessLog config = fileUploadConfig.getAccessLog();
+        if (!config.isEnabled()) {
+            return;
+        }
+        buffer = new AccessLogRingBuffer<>(config.getBufferSize());
+        droppedCounter = Counter.builder("fileshare.accesslog.dropped")
+                .description("缓冲区已满被丢弃的访问日志数")
+                .register(meterRegistry);
+        Gauge.builder("fileshare.accesslog.backlog", buffer, AccessLogRingBuffer::size)
+                .description("等待写出的访问日志数")
+                .register(meterRegistry);
+        running = true;
+        writerThread = new Thread(this::drainLoop, "access-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        logger.info("访问日志已启用，缓冲区容量 {}", buffer.capacity());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writerThread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
+        writerThread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    public boolean isEnabled() {
+        return buffer != null;
+    }
+
+    /**
+     * 按接口路由模板取采样率，未单独配置的接口使用默认采样率
+     */
+    public double sampleRate(String pattern) {
+        FileUploadConfig.AccessLog config = fileUploadConfig.getAccessLog();
+        Map<String, Double> rates = config.getSampleRates();
+        Double rate = pattern != null ? rates.get(pattern) : null;
+        return rate != null ? rate : config.getDefaultSampleRate();
+    }
+
+    /**
+     * 按采样率决定是否记录；失败的请求总是记录
+     */
+    public boolean shouldLog(double sampleRate, int status) {
+        return status >= 400 || sampleRate >= 1.0
+                || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    /**
+     * 提交一条记录，不阻塞调用线程
+     */
+    public void submit(AccessLogRecord record) {
+        if (!buffer.offer(record)) {
+            droppedCounter.increment();
+        }
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        drain();
+    }
+
+    int drain() {
+        int written = 0;
+        AccessLogRecord record;
+        while ((record = buffer.poll()) != null) {
+            try {
+                accessLogger.info(record.toJson());
+            } catch (RuntimeException e) {
+                logger.warn("写出访问日志失败: {}", e.getMessage());
+            }
+            written++;
+        }
+        return written;
+    }
+}
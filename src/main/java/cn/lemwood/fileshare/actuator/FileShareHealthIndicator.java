@@ -0,0 +1,37 @@
+package cn.lemwood.fileshare.actuator;
+
+import cn.lemwood.fileshare.service.SystemStatusSnapshotService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * 文件分享平台健康指示器
+ * 基于后台刷新的系统状态快照，健康探针不会触发数据库查询
+ *
+ * @author lemwood
+ */
+@Component("fileShare")
+public class FileShareHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private SystemStatusSnapshotService statusSnapshotService;
+
+    @Override
+    public Health health() {
+        SystemStatusSnapshotService.Snapshot snapshot = statusSnapshotService.getSnapshot();
+        boolean stale = statusSnapshotService.isStale(snapshot);
+
+        Health.Builder builder = snapshot.isHealthy() && !stale ? Health.up() : Health.down();
+        builder.withDetail("database", snapshot.isDatabaseUp() ? "UP" : "DOWN")
+                .withDetail("uploadDirWritable", snapshot.isUploadDirWritable())
+                .withDetail("freeSpace", snapshot.getFreeSpace())
+                .withDetail("snapshotAge", snapshot.getAge())
+                .withDetail("stale", stale);
+        if (snapshot.getDatabaseError() != null) {
+            builder.withDetail("databaseError", snapshot.getDatabaseError());
+        }
+        return builder.build();
+    }
+}
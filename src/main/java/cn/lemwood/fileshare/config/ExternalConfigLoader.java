@@ -18,8 +18,17 @@ import java.nio.file.StandardOpenOption;
  */
 public class ExternalConfigLoader implements EnvironmentPostProcessor {
 
+    /**
+     * 设为 false 时不读取也不创建 ./config/database.yml（如压测、集成测试使用临时数据库）
+     */
+    public static final String ENABLED_PROPERTY = "app.external-config.enabled";
+
     @Override
     public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!environment.getProperty(ENABLED_PROPERTY, Boolean.class, true)) {
+            System.out.println("外部配置文件加载已关闭");
+            return;
+        }
         // 检查外部配置文件是否存在
         File externalConfig = new File("./config/database.yml");
         if (externalConfig.exists()) {
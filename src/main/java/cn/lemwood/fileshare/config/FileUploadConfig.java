@@ -3,8 +3,11 @@ package cn.lemwood.fileshare.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 文件上传配置类
@@ -16,10 +19,25 @@ import java.util.List;
 public class FileUploadConfig {
 
     private Upload upload = new Upload();
+    private Storage storage = new Storage();
     private Cleanup cleanup = new Cleanup();
+    private Stats stats = new Stats();
+    private Status status = new Status();
+    private Expiry expiry = new Expiry();
+    private Reconcile reconcile = new Reconcile();
+    private Reaper reaper = new Reaper();
+    private Eviction eviction = new Eviction();
+    private Reservation reservation = new Reservation();
+    private Transfer transfer = new Transfer();
+    private Jfr jfr = new Jfr();
+    private DiskIo diskIo = new DiskIo();
+    private Pools pools = new Pools();
+    private AccessLog accessLog = new AccessLog();
+    private Tier tier = new Tier();
 
     public static class Upload {
         private String path = "./uploads";
+        private List<String> paths = new ArrayList<>(); // 多块存储盘的上传目录，配置后取代 path（path 下已有文件时须一并列入）
         private long maxSize = 104857600L; // 100MB
         private String allowedTypes = ".jpg,.jpeg,.png,.gif,.pdf,.doc,.docx,.xls,.xlsx,.ppt,.pptx,.txt,.zip,.rar,.7z,.mp4,.avi,.mov";
 
@@ -31,6 +49,14 @@ public class FileUploadConfig {
             this.path = path;
         }
 
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        public void setPaths(List<String> paths) {
+            this.paths = paths;
+        }
+
         public long getMaxSize() {
             return maxSize;
         }
@@ -52,9 +78,141 @@ public class FileUploadConfig {
         }
     }
 
+    public static class Storage {
+        private Type type = Type.LOCAL;
+        private long memoryCapacity = 1073741824L; // 内存后端容量 1GB
+        private boolean packSmallFiles = false; // 小文件打包写入卷文件
+        private int smallFileThreshold = 262144; // 不超过 256KB 的文件打包
+        private String volumePath = "./volumes"; // 卷文件目录
+        private long volumeSize = 1073741824L; // 单个卷上限 1GB
+        private double compactionGarbageRatio = 0.5; // 卷中已删除字节占比超过 50% 时压缩
+        private long housekeepingInterval = 600000L; // 存储后端整理间隔 10分钟
+        private long diskMinFreeSpace = 536870912L; // 可用空间低于 512MB 的盘不再写入新文件
+        private long diskFailureCooldown = 60000L; // 写入失败的盘冷却 1分钟后再参与选择
+        private long healthCheckInterval = 10000L; // 存储盘健康检查间隔 10秒
+        private boolean directIo = false; // 大文件以直接 I/O 读写，绕过页缓存
+        private long directIoThreshold = 8388608L; // 超过 8MB 的部分使用直接 I/O
+
+        /**
+         * 存储后端类型
+         */
+        public enum Type {
+            /** 上传目录所在的本地文件系统 */
+            LOCAL,
+            /** 堆内存，仅用于测试和基准 */
+            MEMORY
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public void setType(Type type) {
+            this.type = type;
+        }
+
+        public long getMemoryCapacity() {
+            return memoryCapacity;
+        }
+
+        public void setMemoryCapacity(long memoryCapacity) {
+            this.memoryCapacity = memoryCapacity;
+        }
+
+        public boolean isPackSmallFiles() {
+            return packSmallFiles;
+        }
+
+        public void setPackSmallFiles(boolean packSmallFiles) {
+            this.packSmallFiles = packSmallFiles;
+        }
+
+        public int getSmallFileThreshold() {
+            return smallFileThreshold;
+        }
+
+        public void setSmallFileThreshold(int smallFileThreshold) {
+            this.smallFileThreshold = smallFileThreshold;
+        }
+
+        public String getVolumePath() {
+            return volumePath;
+        }
+
+        public void setVolumePath(String volumePath) {
+            this.volumePath = volumePath;
+        }
+
+        public long getVolumeSize() {
+            return volumeSize;
+        }
+
+        public void setVolumeSize(long volumeSize) {
+            this.volumeSize = volumeSize;
+        }
+
+        public double getCompactionGarbageRatio() {
+            return compactionGarbageRatio;
+        }
+
+        public void setCompactionGarbageRatio(double compactionGarbageRatio) {
+            this.compactionGarbageRatio = compactionGarbageRatio;
+        }
+
+        public long getHousekeepingInterval() {
+            return housekeepingInterval;
+        }
+
+        public void setHousekeepingInterval(long housekeepingInterval) {
+            this.housekeepingInterval = housekeepingInterval;
+        }
+
+        public long getDiskMinFreeSpace() {
+            return diskMinFreeSpace;
+        }
+
+        public void setDiskMinFreeSpace(long diskMinFreeSpace) {
+            this.diskMinFreeSpace = diskMinFreeSpace;
+        }
+
+        public long getDiskFailureCooldown() {
+            return diskFailureCooldown;
+        }
+
+        public void setDiskFailureCooldown(long diskFailureCooldown) {
+            this.diskFailureCooldown = diskFailureCooldown;
+        }
+
+        public long getHealthCheckInterval() {
+            return healthCheckInterval;
+        }
+
+        public void setHealthCheckInterval(long healthCheckInterval) {
+            this.healthCheckInterval = healthCheckInterval;
+        }
+
+        public boolean isDirectIo() {
+            return directIo;
+        }
+
+        public void setDirectIo(boolean directIo) {
+            this.directIo = directIo;
+        }
+
+        public long getDirectIoThreshold() {
+            return directIoThreshold;
+        }
+
+        public void setDirectIoThreshold(long directIoThreshold) {
+            this.directIoThreshold = directIoThreshold;
+        }
+    }
+
     public static class Cleanup {
-        private long interval = 3600000L; // 1小时
+        private long interval = 21600000L; // 6小时
         private int retentionHours = 24; // 24小时
+        private int batchSize = 500; // 每批处理的过期文件数
+        private long lockLease = 120000L; // 集群清理锁租约 2分钟
 
         public long getInterval() {
             return interval;
@@ -71,6 +229,676 @@ public class FileUploadConfig {
         public void setRetentionHours(int retentionHours) {
             this.retentionHours = retentionHours;
         }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public long getLockLease() {
+            return lockLease;
+        }
+
+        public void setLockLease(long lockLease) {
+            this.lockLease = lockLease;
+        }
+    }
+
+    public static class Reaper {
+        private long interval = 5000L; // 5秒
+        private int batchSize = 200; // 每轮回收的墓碑记录数
+        private int parallelism = 4; // 并行删除物理文件的线程数
+        private int maxUnlinksPerSecond = 200; // 删除物理文件的速率上限（多盘时为每块盘）
+        private int maxAttempts = 5; // 单个文件最多尝试删除次数
+        private long retryBackoff = 60000L; // 删除失败后的重试间隔 1分钟
+        private long maxBacklog = 10000L; // 积压超过该值时过期清理暂停标记新墓碑
+
+        public long getInterval() {
+            return interval;
+        }
+
+        public void setInterval(long interval) {
+            this.interval = interval;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public int getMaxUnlinksPerSecond() {
+            return maxUnlinksPerSecond;
+        }
+
+        public void setMaxUnlinksPerSecond(int maxUnlinksPerSecond) {
+            this.maxUnlinksPerSecond = maxUnlinksPerSecond;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public long getRetryBackoff() {
+            return retryBackoff;
+        }
+
+        public void setRetryBackoff(long retryBackoff) {
+            this.retryBackoff = retryBackoff;
+        }
+
+        public long getMaxBacklog() {
+            return maxBacklog;
+        }
+
+        public void setMaxBacklog(long maxBacklog) {
+            this.maxBacklog = maxBacklog;
+        }
+    }
+
+    public static class Reservation {
+        private long reservedSpace = 0L; // 上传后至少保留的可用空间，默认不保留
+
+        public long getReservedSpace() {
+            return reservedSpace;
+        }
+
+        public void setReservedSpace(long reservedSpace) {
+            this.reservedSpace = reservedSpace;
+        }
+    }
+
+    public static class Eviction {
+        private boolean enabled = false; // 默认关闭，磁盘与其他数据共享时按整盘使用率淘汰可能误删用户文件
+        private long checkInterval = 10000L; // 10秒
+        private double highWatermark = 0.90; // 磁盘使用率超过该值开始提前淘汰
+        private double lowWatermark = 0.80; // 淘汰到使用率低于该值为止
+        private Policy policy = Policy.OLDEST_FIRST;
+        private long minAge = 600000L; // 上传不足10分钟的文件不淘汰
+        private int maxEvictionsPerRun = 1000; // 单次最多淘汰的文件数
+        private long reclaimWait = 2000L; // 上传预留空间不足时最多等待后台淘汰 2秒
+
+        /**
+         * 淘汰策略
+         */
+        public enum Policy {
+            /** 最早上传的优先 */
+            OLDEST_FIRST,
+            /** 下载次数最少的优先 */
+            LEAST_DOWNLOADED,
+            /** 体积大且长时间未访问的优先 */
+            LARGEST_IDLE
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getCheckInterval() {
+            return checkInterval;
+        }
+
+        public void setCheckInterval(long checkInterval) {
+            this.checkInterval = checkInterval;
+        }
+
+        public double getHighWatermark() {
+            return highWatermark;
+        }
+
+        public void setHighWatermark(double highWatermark) {
+            this.highWatermark = highWatermark;
+        }
+
+        public double getLowWatermark() {
+            return lowWatermark;
+        }
+
+        public void setLowWatermark(double lowWatermark) {
+            this.lowWatermark = lowWatermark;
+        }
+
+        public Policy getPolicy() {
+            return policy;
+        }
+
+        public void setPolicy(Policy policy) {
+            this.policy = policy;
+        }
+
+        public long getMinAge() {
+            return minAge;
+        }
+
+        public void setMinAge(long minAge) {
+            this.minAge = minAge;
+        }
+
+        public int getMaxEvictionsPerRun() {
+            return maxEvictionsPerRun;
+        }
+
+        public void setMaxEvictionsPerRun(int maxEvictionsPerRun) {
+            this.maxEvictionsPerRun = maxEvictionsPerRun;
+        }
+
+        public long getReclaimWait() {
+            return reclaimWait;
+        }
+
+        public void setReclaimWait(long reclaimWait) {
+            this.reclaimWait = reclaimWait;
+        }
+    }
+
+    public static class Stats {
+        private long checkpointInterval = 60000L; // 1分钟
+        private long reconcileInterval = 3600000L; // 1小时
+        private long reconcileInitialDelay = 60000L; // 启动 1分钟后首次校准
+
+        public long getCheckpointInterval() {
+            return checkpointInterval;
+        }
+
+        public void setCheckpointInterval(long checkpointInterval) {
+            this.checkpointInterval = checkpointInterval;
+        }
+
+        public long getReconcileInterval() {
+            return reconcileInterval;
+        }
+
+        public void setReconcileInterval(long reconcileInterval) {
+            this.reconcileInterval = reconcileInterval;
+        }
+
+        public long getReconcileInitialDelay() {
+            return reconcileInitialDelay;
+        }
+
+        public void setReconcileInitialDelay(long reconcileInitialDelay) {
+            this.reconcileInitialDelay = reconcileInitialDelay;
+        }
+    }
+
+    public static class Status {
+        private long refreshInterval = 15000L; // 15秒
+        private long minRefreshInterval = 5000L; // 手动刷新最小间隔 5秒
+        private long streamInterval = 2000L; // 状态推送周期 2秒
+        private int streamBuffer = 16; // 每个订阅者最多积压的事件数
+        private int maxSubscribers = 200; // 状态推送订阅者上限
+        private long streamTimeout = 1800000L; // 推送连接最长保持 30分钟，之后由浏览器重连
+
+        public long getRefreshInterval() {
+            return refreshInterval;
+        }
+
+        public void setRefreshInterval(long refreshInterval) {
+            this.refreshInterval = refreshInterval;
+        }
+
+        public long getMinRefreshInterval() {
+            return minRefreshInterval;
+        }
+
+        public void setMinRefreshInterval(long minRefreshInterval) {
+            this.minRefreshInterval = minRefreshInterval;
+        }
+
+        public long getStreamInterval() {
+            return streamInterval;
+        }
+
+        public void setStreamInterval(long streamInterval) {
+            this.streamInterval = streamInterval;
+        }
+
+        public int getStreamBuffer() {
+            return streamBuffer;
+        }
+
+        public void setStreamBuffer(int streamBuffer) {
+            this.streamBuffer = streamBuffer;
+        }
+
+        public int getMaxSubscribers() {
+            return maxSubscribers;
+        }
+
+        public void setMaxSubscribers(int maxSubscribers) {
+            this.maxSubscribers = maxSubscribers;
+        }
+
+        public long getStreamTimeout() {
+            return streamTimeout;
+        }
+
+        public void setStreamTimeout(long streamTimeout) {
+            this.streamTimeout = streamTimeout;
+        }
+    }
+
+    public static class Expiry {
+        private boolean enabled = true;
+        private long horizon = 7200000L; // 时间轮只装载未来2小时内到期的文件
+        private int batchSize = 100; // 每次删除的到期文件数
+        private long leaderLease = 60000L; // 到期调度主节点租约 1分钟
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getHorizon() {
+            return horizon;
+        }
+
+        public void setHorizon(long horizon) {
+            this.horizon = horizon;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public long getLeaderLease() {
+            return leaderLease;
+        }
+
+        public void setLeaderLease(long leaderLease) {
+            this.leaderLease = leaderLease;
+        }
+    }
+
+    public static class Reconcile {
+        private long interval = 86400000L; // 24小时
+        private long gracePeriod = 600000L; // 10分钟内的新文件不视为孤儿
+        private int maxFilesPerSecond = 2000; // 对账扫描的I/O速率上限
+        private boolean deleteOrphanFiles = false; // 删除没有记录的物理文件，默认只报告
+        private boolean purgeMissingRows = false; // 删除物理文件已丢失的记录，默认只报告
+
+        public long getInterval() {
+            return interval;
+        }
+
+        public void setInterval(long interval) {
+            this.interval = interval;
+        }
+
+        public long getGracePeriod() {
+            return gracePeriod;
+        }
+
+        public void setGracePeriod(long gracePeriod) {
+            this.gracePeriod = gracePeriod;
+        }
+
+        public int getMaxFilesPerSecond() {
+            return maxFilesPerSecond;
+        }
+
+        public void setMaxFilesPerSecond(int maxFilesPerSecond) {
+            this.maxFilesPerSecond = maxFilesPerSecond;
+        }
+
+        public boolean isDeleteOrphanFiles() {
+            return deleteOrphanFiles;
+        }
+
+        public void setDeleteOrphanFiles(boolean deleteOrphanFiles) {
+            this.deleteOrphanFiles = deleteOrphanFiles;
+        }
+
+        public boolean isPurgeMissingRows() {
+            return purgeMissingRows;
+        }
+
+        public void setPurgeMissingRows(boolean purgeMissingRows) {
+            this.purgeMissingRows = purgeMissingRows;
+        }
+    }
+
+    public static class Transfer {
+        private boolean enabled = true;
+        private long minBytesPerSecond = 1024L; // 低于该速率视为停滞 1KB/s
+        private long gracePeriod = 30000L; // 传输开始30秒内不判定停滞
+        private long sampleInterval = 1000L; // 速率采样间隔 1秒
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMinBytesPerSecond() {
+            return minBytesPerSecond;
+        }
+
+        public void setMinBytesPerSecond(long minBytesPerSecond) {
+            this.minBytesPerSecond = minBytesPerSecond;
+        }
+
+        public long getGracePeriod() {
+            return gracePeriod;
+        }
+
+        public void setGracePeriod(long gracePeriod) {
+            this.gracePeriod = gracePeriod;
+        }
+
+        public long getSampleInterval() {
+            return sampleInterval;
+        }
+
+        public void setSampleInterval(long sampleInterval) {
+            this.sampleInterval = sampleInterval;
+        }
+    }
+
+    public static class Jfr {
+        private boolean enabled = true; // 持续飞行记录
+        private String settings = "default"; // JFR 预置配置: default(约1%开销) 或 profile
+        private long maxAge = 1800000L; // 环形缓冲保留最近30分钟
+        private long maxSize = 268435456L; // 环形缓冲最大 256MB
+        private String dumpPath = "./jfr"; // 导出目录
+        private int maxDumps = 5; // 最多保留的导出文件数
+        private boolean streamEnabled = true; // 按接口汇总分配和锁竞争
+        private long contentionThreshold = 10L; // 只统计超过10毫秒的锁等待
+        private String allocationThrottle = "150/s"; // 对象分配采样频率上限
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getSettings() {
+            return settings;
+        }
+
+        public void setSettings(String settings) {
+            this.settings = settings;
+        }
+
+        public long getMaxAge() {
+            return maxAge;
+        }
+
+        public void setMaxAge(long maxAge) {
+            this.maxAge = maxAge;
+        }
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(long maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public String getDumpPath() {
+            return dumpPath;
+        }
+
+        public void setDumpPath(String dumpPath) {
+            this.dumpPath = dumpPath;
+        }
+
+        public int getMaxDumps() {
+            return maxDumps;
+        }
+
+        public void setMaxDumps(int maxDumps) {
+            this.maxDumps = maxDumps;
+        }
+
+        public boolean isStreamEnabled() {
+            return streamEnabled;
+        }
+
+        public void setStreamEnabled(boolean streamEnabled) {
+            this.streamEnabled = streamEnabled;
+        }
+
+        public long getContentionThreshold() {
+            return contentionThreshold;
+        }
+
+        public void setContentionThreshold(long contentionThreshold) {
+            this.contentionThreshold = contentionThreshold;
+        }
+
+        public String getAllocationThrottle() {
+            return allocationThrottle;
+        }
+
+        public void setAllocationThrottle(String allocationThrottle) {
+            this.allocationThrottle = allocationThrottle;
+        }
+    }
+
+    public static class DiskIo {
+        private boolean enabled = true;
+        private long sampleInterval = 5000L; // 5秒
+        private long inodeInterval = 60000L; // inode 使用量采样间隔 1分钟
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getSampleInterval() {
+            return sampleInterval;
+        }
+
+        public void setSampleInterval(long sampleInterval) {
+            this.sampleInterval = sampleInterval;
+        }
+
+        public long getInodeInterval() {
+            return inodeInterval;
+        }
+
+        public void setInodeInterval(long inodeInterval) {
+            this.inodeInterval = inodeInterval;
+        }
+    }
+
+    public static class Pools {
+        private long checkInterval = 5000L; // 5秒
+        private double saturationThreshold = 0.9; // 使用率达到 90% 视为饱和
+        private long warnAfter = 30000L; // 持续饱和 30秒后告警
+
+        public long getCheckInterval() {
+            return checkInterval;
+        }
+
+        public void setCheckInterval(long checkInterval) {
+            this.checkInterval = checkInterval;
+        }
+
+        public double getSaturationThreshold() {
+            return saturationThreshold;
+        }
+
+        public void setSaturationThreshold(double saturationThreshold) {
+            this.saturationThreshold = saturationThreshold;
+        }
+
+        public long getWarnAfter() {
+            return warnAfter;
+        }
+
+        public void setWarnAfter(long warnAfter) {
+            this.warnAfter = warnAfter;
+        }
+    }
+
+    public static class Tier {
+        private boolean enabled = false; // 冷热分层，上传目录作为快速层
+        private String coldPath = "./uploads-cold"; // 容量层目录
+        private long demoteAfter = 3600000L; // 1小时没有访问的文件降级到容量层
+        private int promoteAfterHits = 2; // 容量层文件被读取2次后提升回快速层
+        private long migrationInterval = 60000L; // 迁移间隔 1分钟
+        private long migrationRate = 20971520L; // 迁移限速 20MB/s
+        private double fastHighWatermark = 0.80; // 快速层使用率超过 80% 时按最久未访问提前降级
+        private long fastMinFreeSpace = 536870912L; // 快速层可用空间低于 512MB 时新文件直接写入容量层
+        private boolean compress = false; // 降级时压缩
+        private String compressSkipTypes = ".jpg,.jpeg,.png,.gif,.zip,.rar,.7z,.mp4,.avi,.mov,.docx,.xlsx,.pptx"; // 已压缩格式不再压缩
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getColdPath() {
+            return coldPath;
+        }
+
+        public void setColdPath(String coldPath) {
+            this.coldPath = coldPath;
+        }
+
+        public long getDemoteAfter() {
+            return demoteAfter;
+        }
+
+        public void setDemoteAfter(long demoteAfter) {
+            this.demoteAfter = demoteAfter;
+        }
+
+        public int getPromoteAfterHits() {
+            return promoteAfterHits;
+        }
+
+        public void setPromoteAfterHits(int promoteAfterHits) {
+            this.promoteAfterHits = promoteAfterHits;
+        }
+
+        public long getMigrationInterval() {
+            return migrationInterval;
+        }
+
+        public void setMigrationInterval(long migrationInterval) {
+            this.migrationInterval = migrationInterval;
+        }
+
+        public long getMigrationRate() {
+            return migrationRate;
+        }
+
+        public void setMigrationRate(long migrationRate) {
+            this.migrationRate = migrationRate;
+        }
+
+        public double getFastHighWatermark() {
+            return fastHighWatermark;
+        }
+
+        public void setFastHighWatermark(double fastHighWatermark) {
+            this.fastHighWatermark = fastHighWatermark;
+        }
+
+        public long getFastMinFreeSpace() {
+            return fastMinFreeSpace;
+        }
+
+        public void setFastMinFreeSpace(long fastMinFreeSpace) {
+            this.fastMinFreeSpace = fastMinFreeSpace;
+        }
+
+        public boolean isCompress() {
+            return compress;
+        }
+
+        public void setCompress(boolean compress) {
+            this.compress = compress;
+        }
+
+        public String getCompressSkipTypes() {
+            return compressSkipTypes;
+        }
+
+        public void setCompressSkipTypes(String compressSkipTypes) {
+            this.compressSkipTypes = compressSkipTypes;
+        }
+    }
+
+    public static class AccessLog {
+        private boolean enabled = true;
+        private int bufferSize = 8192; // 环形缓冲区容量，向上取整为 2 的幂
+        private double defaultSampleRate = 1.0; // 未单独配置的接口全部记录
+        private Map<String, Double> sampleRates = new HashMap<>(); // 按路由模板配置的采样率
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        public double getDefaultSampleRate() {
+            return defaultSampleRate;
+        }
+
+        public void setDefaultSampleRate(double defaultSampleRate) {
+            this.defaultSampleRate = defaultSampleRate;
+        }
+
+        public Map<String, Double> getSampleRates() {
+            return sampleRates;
+        }
+
+        public void setSampleRates(Map<String, Double> sampleRates) {
+            this.sampleRates = sampleRates;
+        }
     }
 
     public Upload getUpload() {
@@ -89,6 +917,118 @@ public class FileUploadConfig {
         this.cleanup = cleanup;
     }
 
+    public Stats getStats() {
+        return stats;
+    }
+
+    public void setStats(Stats stats) {
+        this.stats = stats;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Expiry getExpiry() {
+        return expiry;
+    }
+
+    public void setExpiry(Expiry expiry) {
+        this.expiry = expiry;
+    }
+
+    public Reconcile getReconcile() {
+        return reconcile;
+    }
+
+    public void setReconcile(Reconcile reconcile) {
+        this.reconcile = reconcile;
+    }
+
+    public Reaper getReaper() {
+        return reaper;
+    }
+
+    public void setReaper(Reaper reaper) {
+        this.reaper = reaper;
+    }
+
+    public Eviction getEviction() {
+        return eviction;
+    }
+
+    public void setEviction(Eviction eviction) {
+        this.eviction = eviction;
+    }
+
+    public Reservation getReservation() {
+        return reservation;
+    }
+
+    public void setReservation(Reservation reservation) {
+        this.reservation = reservation;
+    }
+
+    public Transfer getTransfer() {
+        return transfer;
+    }
+
+    public void setTransfer(Transfer transfer) {
+        this.transfer = transfer;
+    }
+
+    public Jfr getJfr() {
+        return jfr;
+    }
+
+    public void setJfr(Jfr jfr) {
+        this.jfr = jfr;
+    }
+
+    public DiskIo getDiskIo() {
+        return diskIo;
+    }
+
+    public void setDiskIo(DiskIo diskIo) {
+        this.diskIo = diskIo;
+    }
+
+    public Pools getPools() {
+        return pools;
+    }
+
+    public void setPools(Pools pools) {
+        this.pools = pools;
+    }
+
+    public Storage getStorage() {
+        return storage;
+    }
+
+    public void setStorage(Storage storage) {
+        this.storage = storage;
+    }
+
+    public AccessLog getAccessLog() {
+        return accessLog;
+    }
+
+    public void setAccessLog(AccessLog accessLog) {
+        this.accessLog = accessLog;
+    }
+
+    public Tier getTier() {
+        return tier;
+    }
+
+    public void setTier(Tier tier) {
+        this.tier = tier;
+    }
+
     // 便捷方法，用于向后兼容
     public long getMaxFileSize() {
         return upload.getMaxSize();
@@ -0,0 +1,23 @@
+package cn.lemwood.fileshare.config;
+
+import cn.lemwood.fileshare.task.MeteredTaskScheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.task.TaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * 定时任务调度器配置类
+ * 沿用 spring.task.scheduling 的线程池配置，替换为记录等待时间的调度器
+ *
+ * @author lemwood
+ */
+@Configuration
+public class SchedulingConfig {
+
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(TaskSchedulerBuilder builder, MeterRegistry meterRegistry) {
+        return builder.configure(new MeteredTaskScheduler(meterRegistry));
+    }
+}
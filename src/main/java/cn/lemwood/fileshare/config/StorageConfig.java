@@ -0,0 +1,128 @@
+package cn.lemwood.fileshare.config;
+
+import cn.lemwood.fileshare.storage.InMemoryStorage;
+import cn.lemwood.fileshare.storage.LocalFileSystemStorage;
+import cn.lemwood.fileshare.storage.PackedVolumeStorage;
+import cn.lemwood.fileshare.storage.StorageBackend;
+import cn.lemwood.fileshare.storage.StripedStorage;
+import cn.lemwood.fileshare.storage.TieredStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 存储后端配置类
+ * 按 file.storage.type 选择存储后端，默认使用上传目录所在的本地文件系统；
+ * 开启 file.storage.pack-small-files 后本地后端外层包装小文件打包卷；
+ * 配置两个以上 file.upload.paths 时每个目录作为一块存储盘，组成条带存储；配置了 paths 而 file.upload.path
+ * 下仍有文件（从单目录迁移而来）却没有列入 paths 时拒绝启动，避免已有文件全部无法访问；
+ * 开启 file.tier.enabled 后上传目录作为快速层，file.tier.cold-path 作为容量层；
+ * 开启 file.storage.direct-io 后各本地目录的大文件读写绕过页缓存
+ *
+ * @author lemwood
+ */
+@Configuration
+public class StorageConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageConfig.class);
+
+    @Bean
+    public StorageBackend storageBackend(FileUploadConfig fileUploadConfig) throws IOException {
+        FileUploadConfig.Storage storage = fileUploadConfig.getStorage();
+        switch (storage.getType()) {
+            case MEMORY:
+                logger.warn("使用内存存储后端，容量 {} 字节，重启后文件全部丢失", storage.getMemoryCapacity());
+                return new InMemoryStorage(storage.getMemoryCapacity());
+            case LOCAL:
+            default:
+                if (storage.isDirectIo()) {
+                    logger.info("直接 I/O 已启用，文件超过 {} 字节的部分绕过页缓存", storage.getDirectIoThreshold());
+                }
+                StorageBackend uploads = uploadStorage(fileUploadConfig);
+                FileUploadConfig.Tier tier = fileUploadConfig.getTier();
+                if (!tier.isEnabled()) {
+                    return uploads;
+                }
+                LocalFileSystemStorage cold = new LocalFileSystemStorage(Paths.get(tier.getColdPath()));
+                cold.enableDirectIo(storage.isDirectIo(), storage.getDirectIoThreshold());
+                TieredStorage tiered = new TieredStorage(uploads, cold, tier.getDemoteAfter(), tier.getPromoteAfterHits(), tier.getMigrationRate(),
+                        tier.getFastHighWatermark(), tier.getFastMinFreeSpace());
+                if (tier.isCompress()) {
+                    tiered.enableCompression(Arrays.stream(tier.getCompressSkipTypes().split(","))
+                            .map(type -> type.trim().toLowerCase())
+                            .collect(Collectors.toSet()));
+                }
+                logger.info("容量层目录: {}", cold.getRoot());
+                return tiered;
+        }
+    }
+
+    /**
+     * 上传目录：单盘或多盘条带
+     */
+    private static StorageBackend uploadStorage(FileUploadConfig fileUploadConfig) throws IOException {
+        FileUploadConfig.Storage storage = fileUploadConfig.getStorage();
+        List<String> paths = fileUploadConfig.getUpload().getPaths();
+        Path legacyRoot = Paths.get(fileUploadConfig.getUpload().getPath()).toAbsolutePath().normalize();
+        Path legacyVolumes = Paths.get(storage.getVolumePath()).toAbsolutePath().normalize();
+        if (paths.isEmpty()) {
+            return localStorage(storage, legacyRoot, legacyVolumes);
+        }
+        List<Path> roots = paths.stream()
+                .map(path -> Paths.get(path).toAbsolutePath().normalize())
+                .collect(Collectors.toList());
+        if (!roots.contains(legacyRoot) && (hasFiles(legacyRoot) || storage.isPackSmallFiles() && hasFiles(legacyVolumes))) {
+            throw new IllegalStateException("上传目录 " + legacyRoot + " 中已有文件，但不在 file.upload.paths 中，"
+                    + "这些文件将无法访问；请把该目录加入 file.upload.paths，或迁移文件后再启动");
+        }
+        if (roots.size() == 1) {
+            return localStorage(storage, roots.get(0), legacyVolumes);
+        }
+        List<StripedStorage.Stripe> stripes = new ArrayList<>(roots.size());
+        for (Path root : roots) {
+            // 多盘时每块盘的打包卷放在各自上传目录下，卷与大文件落在同一块盘；
+            // 原上传目录沿用原来的卷目录，从单目录迁移来的打包文件仍可读取
+            Path volumePath = root.equals(legacyRoot) ? legacyVolumes : root.resolve(".volumes");
+            stripes.add(new StripedStorage.Stripe(root.toString(), localStorage(storage, root, volumePath)));
+        }
+        logger.info("已启用 {} 块存储盘", stripes.size());
+        return new StripedStorage(stripes, storage.getDiskMinFreeSpace(), storage.getDiskFailureCooldown());
+    }
+
+    /**
+     * 目录下是否有任何文件（只需找到第一个）
+     */
+    private static boolean hasFiles(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return false;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.anyMatch(Files::isRegularFile);
+        }
+    }
+
+    private static StorageBackend localStorage(FileUploadConfig.Storage storage, Path root, Path volumePath)
+            throws IOException {
+        LocalFileSystemStorage local = new LocalFileSystemStorage(root);
+        local.enableDirectIo(storage.isDirectIo(), storage.getDirectIoThreshold());
+        logger.info("文件上传目录初始化成功: {}", local.getRoot());
+        if (!storage.isPackSmallFiles()) {
+            return local;
+        }
+        PackedVolumeStorage packed = new PackedVolumeStorage(local, volumePath, storage.getSmallFileThreshold(),
+                storage.getVolumeSize(), storage.getCompactionGarbageRatio());
+        logger.info("小文件打包已启用，不超过 {} 字节的文件写入卷目录 {}", storage.getSmallFileThreshold(), volumePath);
+        return packed;
+    }
+}
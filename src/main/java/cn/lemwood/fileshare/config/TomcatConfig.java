@@ -0,0 +1,24 @@
+package cn.lemwood.fileshare.config;
+
+import cn.lemwood.fileshare.filter.TransferTrackingValve;
+import cn.lemwood.fileshare.service.TransferRegistry;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 内嵌 Tomcat 配置类
+ * 注册传输跟踪阀门，统计上传、下载的实时速率并中断停滞的传输
+ *
+ * @author lemwood
+ */
+@Configuration
+public class TomcatConfig {
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> transferTrackingCustomizer(
+            TransferRegistry transferRegistry) {
+        return factory -> factory.addContextValves(new TransferTrackingValve(transferRegistry));
+    }
+}
@@ -1,7 +1,11 @@
 package cn.lemwood.fileshare.controller;
 
 import cn.lemwood.fileshare.entity.FileInfo;
+import cn.lemwood.fileshare.exception.FileShareException;
+import cn.lemwood.fileshare.metrics.FileShareMetrics;
 import cn.lemwood.fileshare.service.FileService;
+import cn.lemwood.fileshare.service.StorageReservationLedger;
+import cn.lemwood.fileshare.service.TransferRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,6 +42,9 @@ public class FileController {
 
     @Autowired
     private FileService fileService;
+
+    @Autowired
+    private FileShareMetrics fileShareMetrics;
     
     @Value("${app.api.context-path:/api}")
     private String apiContextPath;
@@ -51,19 +58,46 @@ public class FileController {
             HttpServletRequest request) {
         
         Map<String, Object> response = new HashMap<>();
+        Object requestStart = request.getAttribute(FileShareMetrics.REQUEST_START_ATTRIBUTE);
+        long startNanos = requestStart instanceof Long ? (Long) requestStart : System.nanoTime();
+        
+        // 请求体已解析，按文件实际大小调整空间预留
+        Object reservation = request.getAttribute(StorageReservationLedger.RESERVATION_ATTRIBUTE);
+        if (reservation instanceof StorageReservationLedger.Reservation) {
+            ((StorageReservationLedger.Reservation) reservation).adjust(file.getSize());
+        }
         
         try {
             String uploaderIp = getClientIpAddress(request);
             FileInfo fileInfo = fileService.uploadFile(file, uploaderIp);
+            Object transfer = request.getAttribute(TransferRegistry.TRANSFER_ATTRIBUTE);
+            if (transfer instanceof TransferRegistry.Transfer) {
+                ((TransferRegistry.Transfer) transfer).setFileKey(fileInfo.getFileKey());
+            }
             
             response.put("success", true);
             response.put("message", "文件上传成功");
             response.put("data", buildFileInfoResponse(fileInfo));
+            fileShareMetrics.recordUpload(file.getContentType(), file.getSize(),
+                    System.nanoTime() - startNanos, "success");
             
             return ResponseEntity.ok(response);
             
+        } catch (FileShareException e) {
+            logger.error("文件上传失败: {}", e.getMessage());
+            fileShareMetrics.recordUpload(file.getContentType(), file.getSize(),
+                    System.nanoTime() - startNanos, "rejected");
+            response.put("success", false);
+            response.put("errorCode", e.getErrorCode());
+            response.put("message", e.getMessage());
+            if (FileShareException.ErrorCodes.STORAGE_FULL.equals(e.getErrorCode())) {
+                return ResponseEntity.status(HttpStatus.INSUFFICIENT_STORAGE).body(response);
+            }
+            return ResponseEntity.badRequest().body(response);
         } catch (Exception e) {
             logger.error("文件上传失败: {}", e.getMessage());
+            fileShareMetrics.recordUpload(file.getContentType(), file.getSize(),
+                    System.nanoTime() - startNanos, "error");
             response.put("success", false);
             response.put("message", e.getMessage());
             return ResponseEntity.badRequest().body(response);
@@ -101,6 +135,7 @@ public class FileController {
      */
     @GetMapping("/download/{fileKey}")
     public ResponseEntity<Resource> downloadFile(@PathVariable String fileKey) {
+        long startNanos = System.nanoTime();
         try {
             Optional<FileInfo> fileInfoOpt = fileService.getFileInfo(fileKey);
             if (!fileInfoOpt.isPresent()) {
@@ -112,7 +147,8 @@ public class FileController {
                 return ResponseEntity.status(HttpStatus.GONE).build();
             }
             
-            Resource resource = fileService.downloadFile(fileKey);
+            Resource resource = fileShareMetrics.meterDownload(
+                    fileService.downloadFile(fileKey), fileInfo, "files", startNanos);
             
             // 设置响应头
             String encodedFileName = URLEncoder.encode(fileInfo.getOriginalName(), StandardCharsets.UTF_8.toString())
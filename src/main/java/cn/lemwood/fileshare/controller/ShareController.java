@@ -1,6 +1,7 @@
 package cn.lemwood.fileshare.controller;
 
 import cn.lemwood.fileshare.entity.FileInfo;
+import cn.lemwood.fileshare.metrics.FileShareMetrics;
 import cn.lemwood.fileshare.service.FileService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,6 +40,9 @@ public class ShareController {
 
     @Autowired
     private FileService fileService;
+
+    @Autowired
+    private FileShareMetrics fileShareMetrics;
     
     @Value("${app.api.context-path:/api}")
     private String apiContextPath;
@@ -120,6 +124,7 @@ public class ShareController {
      */
     @GetMapping("/download/{fileKey}")
     public ResponseEntity<Resource> downloadShareFile(@PathVariable String fileKey) {
+        long startNanos = System.nanoTime();
         try {
             Optional<FileInfo> fileInfoOpt = fileService.getFileInfo(fileKey);
             if (!fileInfoOpt.isPresent()) {
@@ -131,7 +136,8 @@ public class ShareController {
                 return ResponseEntity.status(HttpStatus.GONE).build();
             }
             
-            Resource resource = fileService.downloadFile(fileKey);
+            Resource resource = fileShareMetrics.meterDownload(
+                    fileService.downloadFile(fileKey), fileInfo, "share", startNanos);
             
             // 设置响应头
             String encodedFileName = URLEncoder.encode(fileInfo.getOriginalName(), StandardCharsets.UTF_8.toString())
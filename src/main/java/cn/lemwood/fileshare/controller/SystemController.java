@@ -1,11 +1,15 @@
 package cn.lemwood.fileshare.controller;
 
 import cn.lemwood.fileshare.service.SystemMonitorService;
+import cn.lemwood.fileshare.service.SystemStatusBroadcaster;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -21,6 +25,9 @@ public class SystemController {
     @Autowired
     private SystemMonitorService systemMonitorService;
     
+    @Autowired
+    private SystemStatusBroadcaster statusBroadcaster;
+    
     /**
      * 获取系统状态信息
      */
@@ -38,7 +45,100 @@ public class SystemController {
     }
     
     /**
-     * 健康检查接口
+     * 订阅系统状态推送（Server-Sent Events）
+     * 先推送一次完整的 snapshot 事件，之后按推送周期推送变化分区的 delta 事件
+     */
+    @GetMapping(value = "/status/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamSystemStatus() {
+        SseEmitter emitter = statusBroadcaster.subscribe();
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+    
+    /**
+     * 强制刷新系统状态快照（限制刷新频率）
+     */
+    @org.springframework.web.bind.annotation.PostMapping("/status/refresh")
+    public ResponseEntity<Map<String, Object>> refreshSystemStatus() {
+        Map<String, Object> response = new HashMap<>();
+        
+        if (!systemMonitorService.refreshSystemStatus()) {
+            response.put("success", false);
+            response.put("message", "刷新过于频繁，请稍后重试");
+            return ResponseEntity.status(429).body(response);
+        }
+        
+        response.put("success", true);
+        response.put("message", "刷新完成");
+        response.put("data", systemMonitorService.getSystemStatus());
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * 获取磁盘压力淘汰状态和最近的淘汰记录
+     */
+    @GetMapping("/evictions")
+    public ResponseEntity<Map<String, Object>> getEvictionStatus() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", systemMonitorService.getEvictionStatus());
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * 获取进行中的上传和下载
+     *
+     * @param sort 排序方式：rate 按速率升序（默认），age 按持续时间降序
+     */
+    @GetMapping("/transfers")
+    public ResponseEntity<Map<String, Object>> getActiveTransfers(
+            @org.springframework.web.bind.annotation.RequestParam(defaultValue = "rate") String sort) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", systemMonitorService.getActiveTransfers(sort));
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * 获取持续飞行记录状态
+     */
+    @GetMapping("/jfr")
+    public ResponseEntity<Map<String, Object>> getRecordingStatus() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", systemMonitorService.getRecordingStatus());
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * 导出持续飞行记录到服务器本地文件
+     */
+    @org.springframework.web.bind.annotation.PostMapping("/jfr/dump")
+    public ResponseEntity<Map<String, Object>> dumpRecording() {
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            Map<String, Object> dump = systemMonitorService.dumpRecording();
+            if (dump == null) {
+                response.put("success", false);
+                response.put("message", "持续飞行记录未启用");
+                return ResponseEntity.status(409).body(response);
+            }
+            response.put("success", true);
+            response.put("message", "导出完成");
+            response.put("data", dump);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "导出飞行记录失败: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+    
+    /**
+     * 健康检查接口（读取状态快照）
      */
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> healthCheck() {
@@ -50,6 +150,7 @@ public class SystemController {
             response.put("status", isHealthy ? "UP" : "DOWN");
             response.put("healthy", isHealthy);
             response.put("timestamp", System.currentTimeMillis());
+            response.put("snapshotAge", systemMonitorService.getHealthSnapshotAge());
             
             if (isHealthy) {
                 response.put("message", "系统运行正常");
@@ -1,15 +1,22 @@
 package cn.lemwood.fileshare.entity;
 
+import org.hibernate.annotations.Where;
+
 import javax.persistence.*;
 import java.time.LocalDateTime;
 
 /**
  * 文件信息实体类
+ * 删除时只写入 deleted_time 墓碑，实体查询自动过滤墓碑记录，物理文件和记录由回收器异步清除
  * 
  * @author lemwood
  */
 @Entity
-@Table(name = "file_info")
+@Table(name = "file_info", indexes = {
+        @Index(name = "idx_file_info_expire_time", columnList = "expire_time"),
+        @Index(name = "idx_file_info_deleted_time", columnList = "deleted_time")
+})
+@Where(clause = "deleted_time IS NULL")
 public class FileInfo {
 
     @Id
@@ -52,6 +59,12 @@ public class FileInfo {
     @Column(name = "file_path")
     private String filePath;
 
+    /**
+     * 所在存储盘，多盘条带存储时记录写入时选择的盘，单盘时为空
+     */
+    @Column(name = "storage_volume")
+    private String storageVolume;
+
     /**
      * 上传时间
      */
@@ -76,6 +89,13 @@ public class FileInfo {
     @Column(name = "uploader_ip")
     private String uploaderIp;
 
+    /**
+     * 删除时间（墓碑），为空表示文件有效
+     * 只通过批量更新写入，避免保存实体时覆盖并发写入的墓碑
+     */
+    @Column(name = "deleted_time", updatable = false)
+    private LocalDateTime deletedTime;
+
     // 构造函数
     public FileInfo() {}
 
@@ -149,6 +169,14 @@ public class FileInfo {
         this.filePath = filePath;
     }
 
+    public String getStorageVolume() {
+        return storageVolume;
+    }
+
+    public void setStorageVolume(String storageVolume) {
+        this.storageVolume = storageVolume;
+    }
+
     public LocalDateTime getUploadTime() {
         return uploadTime;
     }
@@ -181,6 +209,14 @@ public class FileInfo {
         this.uploaderIp = uploaderIp;
     }
 
+    public LocalDateTime getDeletedTime() {
+        return deletedTime;
+    }
+
+    public void setDeletedTime(LocalDateTime deletedTime) {
+        this.deletedTime = deletedTime;
+    }
+
     /**
      * 检查文件是否已过期
      */
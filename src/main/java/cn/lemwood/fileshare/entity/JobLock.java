@@ -0,0 +1,109 @@
+package cn.lemwood.fileshare.entity;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 后台任务租约锁实体类
+ * 集群中每个后台任务对应一行，持有者在租约到期前续约，同一时间只有一个节点执行该任务
+ *
+ * @author lemwood
+ */
+@Entity
+@Table(name = "job_lock")
+public class JobLock {
+
+    /**
+     * 任务名称
+     */
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+
+    /**
+     * 当前持有者标识
+     */
+    @Column(name = "owner")
+    private String owner;
+
+    /**
+     * 租约到期时间
+     */
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    /**
+     * 进度检查点（最近处理到的记录ID）
+     */
+    @Column(name = "checkpoint")
+    private Long checkpoint;
+
+    /**
+     * 本轮已处理数量
+     */
+    @Column(name = "processed_count")
+    private Long processedCount;
+
+    /**
+     * 更新时间
+     */
+    @Column(name = "update_time")
+    private LocalDateTime updateTime;
+
+    // 构造函数
+    public JobLock() {}
+
+    public JobLock(String name) {
+        this.name = name;
+        this.updateTime = LocalDateTime.now();
+    }
+
+    // Getter和Setter方法
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public LocalDateTime getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public void setLeaseUntil(LocalDateTime leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
+
+    public Long getCheckpoint() {
+        return checkpoint;
+    }
+
+    public void setCheckpoint(Long checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    public Long getProcessedCount() {
+        return processedCount;
+    }
+
+    public void setProcessedCount(Long processedCount) {
+        this.processedCount = processedCount;
+    }
+
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTime = updateTime;
+    }
+}
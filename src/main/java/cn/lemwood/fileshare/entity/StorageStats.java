@@ -0,0 +1,84 @@
+package cn.lemwood.fileshare.entity;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 存储统计检查点实体类
+ * 只保存一行，记录内存计数器最近一次落盘时的文件总数和总大小
+ *
+ * @author lemwood
+ */
+@Entity
+@Table(name = "storage_stats")
+public class StorageStats {
+
+    /**
+     * 全局统计行的固定主键
+     */
+    public static final long GLOBAL_ID = 1L;
+
+    @Id
+    private Long id;
+
+    /**
+     * 文件总数
+     */
+    @Column(name = "total_files", nullable = false)
+    private Long totalFiles = 0L;
+
+    /**
+     * 文件总大小（字节）
+     */
+    @Column(name = "total_size", nullable = false)
+    private Long totalSize = 0L;
+
+    /**
+     * 检查点更新时间
+     */
+    @Column(name = "update_time")
+    private LocalDateTime updateTime;
+
+    // 构造函数
+    public StorageStats() {}
+
+    public StorageStats(long totalFiles, long totalSize) {
+        this.id = GLOBAL_ID;
+        this.totalFiles = totalFiles;
+        this.totalSize = totalSize;
+        this.updateTime = LocalDateTime.now();
+    }
+
+    // Getter和Setter方法
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getTotalFiles() {
+        return totalFiles;
+    }
+
+    public void setTotalFiles(Long totalFiles) {
+        this.totalFiles = totalFiles;
+    }
+
+    public Long getTotalSize() {
+        return totalSize;
+    }
+
+    public void setTotalSize(Long totalSize) {
+        this.totalSize = totalSize;
+    }
+
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTime = updateTime;
+    }
+}
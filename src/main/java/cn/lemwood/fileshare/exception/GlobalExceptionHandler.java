@@ -30,14 +30,18 @@ public class GlobalExceptionHandler {
     public ResponseEntity<Map<String, Object>> handleFileShareException(FileShareException e, HttpServletRequest request) {
         logger.warn("文件分享异常: {} - {}", e.getErrorCode(), e.getMessage());
         
+        // 存储空间不足返回 507，客户端可据此稍后重试
+        HttpStatus status = FileShareException.ErrorCodes.STORAGE_FULL.equals(e.getErrorCode())
+            ? HttpStatus.INSUFFICIENT_STORAGE
+            : HttpStatus.BAD_REQUEST;
         Map<String, Object> response = createErrorResponse(
             e.getErrorCode(),
             e.getMessage(),
-            HttpStatus.BAD_REQUEST.value(),
+            status.value(),
             request.getRequestURI()
         );
         
-        return ResponseEntity.badRequest().body(response);
+        return ResponseEntity.status(status).body(response);
     }
     
     /**
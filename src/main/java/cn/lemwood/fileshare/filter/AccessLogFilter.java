@@ -0,0 +1,105 @@
+package cn.lemwood.fileshare.filter;
+
+import cn.lemwood.fileshare.accesslog.AccessLogRecord;
+import cn.lemwood.fileshare.accesslog.AccessLogWriter;
+import cn.lemwood.fileshare.service.TransferRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * 访问日志过滤器
+ * 请求结束后按接口采样率决定是否记录，记录文件标识、客户端、字节数、状态码和耗时，
+ * 交给 {@link AccessLogWriter} 异步写出；上传、下载的字节数取自传输登记表的实际收发量。
+ *
+ * @author lemwood
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private AccessLogWriter accessLogWriter;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !accessLogWriter.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String endpoint = pattern != null ? pattern.toString() : null;
+            double sampleRate = accessLogWriter.sampleRate(endpoint);
+            int status = response.getStatus();
+            if (accessLogWriter.shouldLog(sampleRate, status)) {
+                Object transfer = request.getAttribute(TransferRegistry.TRANSFER_ATTRIBUTE);
+                accessLogWriter.submit(new AccessLogRecord(
+                        System.currentTimeMillis(),
+                        request.getMethod(),
+                        endpoint != null ? endpoint : request.getRequestURI(),
+                        fileKey(request, transfer),
+                        clientAddress(request),
+                        bytes(response, transfer),
+                        status,
+                        System.nanoTime() - start,
+                        sampleRate));
+            }
+        }
+    }
+
+    private static String fileKey(HttpServletRequest request, Object transfer) {
+        Object variables = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables instanceof Map) {
+            Object fileKey = ((Map<?, ?>) variables).get("fileKey");
+            if (fileKey != null) {
+                return fileKey.toString();
+            }
+        }
+        // 上传的文件标识在保存后才写入传输记录
+        return transfer instanceof TransferRegistry.Transfer ? ((TransferRegistry.Transfer) transfer).getFileKey() : null;
+    }
+
+    private static long bytes(HttpServletResponse response, Object transfer) {
+        if (transfer instanceof TransferRegistry.Transfer) {
+            return ((TransferRegistry.Transfer) transfer).getBytes();
+        }
+        String contentLength = response.getHeader("Content-Length");
+        if (contentLength != null) {
+            try {
+                return Long.parseLong(contentLength);
+            } catch (NumberFormatException ignored) {
+                // 按未知处理
+            }
+        }
+        return -1L;
+    }
+
+    private static String clientAddress(HttpServletRequest request) {
+        String xForwardedFor = request.getHeader("X-Forwarded-For");
+        if (xForwardedFor != null && !xForwardedFor.isEmpty() && !"unknown".equalsIgnoreCase(xForwardedFor)) {
+            int comma = xForwardedFor.indexOf(',');
+            return (comma >= 0 ? xForwardedFor.substring(0, comma) : xForwardedFor).trim();
+        }
+        String xRealIp = request.getHeader("X-Real-IP");
+        if (xRealIp != null && !xRealIp.isEmpty() && !"unknown".equalsIgnoreCase(xRealIp)) {
+            return xRealIp;
+        }
+        return request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,48 @@
+package cn.lemwood.fileshare.filter;
+
+import cn.lemwood.fileshare.jfr.HttpRequestEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 请求 JFR 事件过滤器
+ * 为每个请求提交一个 {@link HttpRequestEvent}，接口名取匹配到的路由模板，
+ * 供飞行记录分析和分配/锁竞争汇总按接口归类
+ *
+ * @author lemwood
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestEventFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        HttpRequestEvent event = new HttpRequestEvent();
+        if (!event.isEnabled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        event.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                event.endpoint = request.getMethod() + " " + (pattern != null ? pattern : "UNMATCHED");
+                event.status = response.getStatus();
+                event.commit();
+            }
+        }
+    }
+}
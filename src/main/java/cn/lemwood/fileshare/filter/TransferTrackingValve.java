@@ -0,0 +1,189 @@
+package cn.lemwood.fileshare.filter;
+
+import cn.lemwood.fileshare.service.TransferRegistry;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.apache.catalina.valves.ValveBase;
+import org.apache.coyote.InputBuffer;
+import org.apache.tomcat.util.net.ApplicationBufferHandler;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+
+/**
+ * 传输跟踪阀门
+ * 在 Tomcat 容器层统计上传、下载实际收发的字节并登记到 {@link TransferRegistry}：
+ * multipart 请求体在进入控制器之前就由容器接收，Servlet 过滤器无法观察到，因此上传包装底层输入缓冲区；
+ * 下载包装响应输出流，写出阻塞在容器缓冲区刷新上，统计值能反映客户端的实际接收速度。
+ * 被判定为停滞的传输在下一次读写时抛出 IOException，由容器关闭连接；完全不收发数据的连接
+ * 由连接超时(server.tomcat.connection-timeout)兜底。
+ *
+ * @author lemwood
+ */
+public class TransferTrackingValve extends ValveBase {
+
+    private static final String UPLOAD_PATH = "/files/upload";
+    private static final String[] DOWNLOAD_PATHS = {"/files/download/", "/share/download/"};
+
+    private final TransferRegistry transferRegistry;
+
+    public TransferTrackingValve(TransferRegistry transferRegistry) {
+        super(true);
+        this.transferRegistry = transferRegistry;
+    }
+
+    @Override
+    public void invoke(Request request, Response response) throws IOException, ServletException {
+        String path = request.getDecodedRequestURI().substring(request.getContextPath().length());
+        TransferRegistry.Direction direction = classify(request.getMethod(), path);
+        if (direction == null || !transferRegistry.isEnabled()) {
+            getNext().invoke(request, response);
+            return;
+        }
+
+        String fileKey = direction == TransferRegistry.Direction.DOWNLOAD
+                ? path.substring(path.lastIndexOf('/') + 1) : null;
+        long expected = direction == TransferRegistry.Direction.UPLOAD ? request.getContentLengthLong() : -1L;
+        TransferRegistry.Transfer transfer = transferRegistry.begin(direction, fileKey, request.getRemoteAddr(), expected);
+        request.setAttribute(TransferRegistry.TRANSFER_ATTRIBUTE, transfer);
+
+        org.apache.coyote.Request coyoteRequest = request.getCoyoteRequest();
+        InputBuffer originalInput = coyoteRequest.getInputBuffer();
+        HttpServletResponse originalResponse = response.getResponse();
+        if (direction == TransferRegistry.Direction.UPLOAD) {
+            coyoteRequest.setInputBuffer(new TrackingInputBuffer(originalInput, transfer));
+        } else {
+            response.setResponse(new TrackingResponse(originalResponse, transfer));
+        }
+        try {
+            getNext().invoke(request, response);
+        } finally {
+            // 底层缓冲区和响应对象随处理器复用，必须还原
+            coyoteRequest.setInputBuffer(originalInput);
+            response.setResponse(originalResponse);
+            transferRegistry.end(transfer);
+        }
+    }
+
+    static TransferRegistry.Direction classify(String method, String path) {
+        if ("POST".equalsIgnoreCase(method) && UPLOAD_PATH.equals(path)) {
+            return TransferRegistry.Direction.UPLOAD;
+        }
+        if ("GET".equalsIgnoreCase(method)) {
+            for (String prefix : DOWNLOAD_PATHS) {
+                if (path.startsWith(prefix) && path.length() > prefix.length()) {
+                    return TransferRegistry.Direction.DOWNLOAD;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static IOException stalled(TransferRegistry.Transfer transfer) {
+        return new IOException("传输速率过低，连接已中断: " + Math.round(transfer.getRate()) + " B/s");
+    }
+
+    /**
+     * 统计请求体读取字节的输入缓冲区
+     */
+    static final class TrackingInputBuffer implements InputBuffer {
+
+        private final InputBuffer delegate;
+        private final TransferRegistry.Transfer transfer;
+
+        TrackingInputBuffer(InputBuffer delegate, TransferRegistry.Transfer transfer) {
+            this.delegate = delegate;
+            this.transfer = transfer;
+        }
+
+        @Override
+        public int doRead(ApplicationBufferHandler handler) throws IOException {
+            if (transfer.isStalled()) {
+                throw stalled(transfer);
+            }
+            int read = delegate.doRead(handler);
+            if (read < 0) {
+                transfer.markComplete();
+            } else {
+                transfer.add(read);
+            }
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return delegate.available();
+        }
+    }
+
+    /**
+     * 统计响应体写出字节的响应包装
+     */
+    static final class TrackingResponse extends HttpServletResponseWrapper {
+
+        private final TransferRegistry.Transfer transfer;
+        private ServletOutputStream outputStream;
+
+        TrackingResponse(HttpServletResponse response, TransferRegistry.Transfer transfer) {
+            super(response);
+            this.transfer = transfer;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new TrackingOutputStream(super.getOutputStream(), transfer);
+            }
+            return outputStream;
+        }
+    }
+
+    static final class TrackingOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+        private final TransferRegistry.Transfer transfer;
+
+        TrackingOutputStream(ServletOutputStream delegate, TransferRegistry.Transfer transfer) {
+            this.delegate = delegate;
+            this.transfer = transfer;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (transfer.isStalled()) {
+                throw stalled(transfer);
+            }
+            delegate.write(b, off, len);
+            transfer.add(len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
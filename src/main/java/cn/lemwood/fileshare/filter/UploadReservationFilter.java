@@ -0,0 +1,104 @@
+package cn.lemwood.fileshare.filter;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import cn.lemwood.fileshare.exception.FileShareException;
+import cn.lemwood.fileshare.metrics.FileShareMetrics;
+import cn.lemwood.fileshare.service.StorageReservationLedger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 上传空间预留过滤器
+ * 在解析 multipart 请求体之前按 Content-Length 预留磁盘空间，空间不足时立即返回 507，
+ * 不再接收注定失败的请求体；声明长度超过单文件上限的请求直接返回 413，不依赖 multipart 的请求大小上限
+ * （两者分别配置，请求体会先落到临时目录）。未声明长度的分块上传按单文件上限预留。请求结束后释放预留。
+ *
+ * @author lemwood
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class UploadReservationFilter extends OncePerRequestFilter {
+
+    private static final String UPLOAD_PATH = "/files/upload";
+
+    /**
+     * multipart 分隔符、各部分头和表单字段的余量，避免恰好达到上限的文件被误拒
+     */
+    private static final long MULTIPART_OVERHEAD = 64 * 1024L;
+
+    @Autowired
+    private StorageReservationLedger reservationLedger;
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equalsIgnoreCase(request.getMethod()) || !UPLOAD_PATH.equals(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        request.setAttribute(FileShareMetrics.REQUEST_START_ATTRIBUTE, System.nanoTime());
+        long maxSize = fileUploadConfig.getUpload().getMaxSize();
+        long declared = request.getContentLengthLong();
+        if (declared > maxSize + MULTIPART_OVERHEAD) {
+            reject(request, response, HttpStatus.PAYLOAD_TOO_LARGE, FileShareException.ErrorCodes.FILE_TOO_LARGE,
+                    "文件大小超过限制，请选择较小的文件");
+            return;
+        }
+
+        StorageReservationLedger.Reservation reservation = reservationLedger.reserve(declared >= 0 ? declared : maxSize);
+        if (reservation == null) {
+            reject(request, response, HttpStatus.INSUFFICIENT_STORAGE, FileShareException.ErrorCodes.STORAGE_FULL,
+                    "存储空间不足，请稍后重试");
+            return;
+        }
+        request.setAttribute(StorageReservationLedger.RESERVATION_ATTRIBUTE, reservation);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            // 文件已写入上传目录或上传失败，预留不再需要
+            reservation.release();
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, HttpStatus status,
+                        String errorCode, String message) throws IOException {
+        Map<String, Object> body = new HashMap<>();
+        body.put("success", false);
+        body.put("errorCode", errorCode);
+        body.put("message", message);
+        body.put("status", status.value());
+        body.put("path", request.getRequestURI());
+        body.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        // 请求体未被读取，告知客户端关闭连接，避免容器继续接收
+        response.setHeader("Connection", "close");
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
@@ -0,0 +1,36 @@
+package cn.lemwood.fileshare.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 清理批次 JFR 事件
+ * 过期清理标记墓碑和回收器删除物理文件各算一个阶段
+ *
+ * @author lemwood
+ */
+@Name("cn.lemwood.fileshare.CleanupBatch")
+@Label("Cleanup Batch")
+@Category({"File Share", "Cleanup"})
+@Description("One batch of expiry tombstoning or tombstone reaping")
+@StackTrace(false)
+public class CleanupBatchEvent extends Event {
+
+    @Label("Stage")
+    public String stage;
+
+    @Label("Trigger")
+    public String trigger;
+
+    @Label("Files")
+    public int files;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,45 @@
+package cn.lemwood.fileshare.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 文件下载 JFR 事件
+ * 从打开文件到响应写完或客户端断开，记录首字节时间和实际输出字节数
+ *
+ * @author lemwood
+ */
+@Name("cn.lemwood.fileshare.Download")
+@Label("File Download")
+@Category({"File Share", "Transfer"})
+@Description("Streaming of a stored file to a client")
+@StackTrace(false)
+public class DownloadEvent extends Event {
+
+    @Label("File Key")
+    public String fileKey;
+
+    @Label("Channel")
+    public String channel;
+
+    @Label("File Size")
+    @DataAmount
+    public long fileSize;
+
+    @Label("Bytes Sent")
+    @DataAmount
+    public long bytes;
+
+    @Label("Time To First Byte")
+    @Timespan
+    public long timeToFirstByte;
+
+    @Label("Completed")
+    public boolean completed;
+}
@@ -0,0 +1,30 @@
+package cn.lemwood.fileshare.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * HTTP 请求 JFR 事件
+ * 标记请求线程在哪段时间处理哪个接口，用于把分配和锁竞争采样归属到接口
+ *
+ * @author lemwood
+ */
+@Name(HttpRequestEvent.NAME)
+@Label("HTTP Request")
+@Category({"File Share", "Web"})
+@Description("Handling of an HTTP request, labelled with the matched endpoint")
+@StackTrace(false)
+public class HttpRequestEvent extends Event {
+
+    public static final String NAME = "cn.lemwood.fileshare.HttpRequest";
+
+    @Label("Endpoint")
+    public String endpoint;
+
+    @Label("Status")
+    public int status;
+}
@@ -0,0 +1,193 @@
+package cn.lemwood.fileshare.jfr;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * JFR 分配与锁竞争汇总
+ * 通过 RecordingStream 消费对象分配采样、监视器等待和线程挂起事件，按 {@link HttpRequestEvent}
+ * 标记的时间段把采样归属到接口，累加到 fileshare.jfr.allocation 和 fileshare.jfr.contention 指标。
+ * 事件按块异步送达，先到的采样在所属请求事件到达前暂存在线程维度的短队列中。
+ * 所有事件都由流的单个消费线程处理，内部状态无需加锁。
+ *
+ * @author lemwood
+ */
+@Component
+public class JfrContentionMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(JfrContentionMonitor.class);
+
+    static final String KIND_MONITOR = "monitor";
+    static final String KIND_PARK = "park";
+
+    /**
+     * 每个线程暂存的未归属采样上限
+     */
+    private static final int MAX_PENDING_PER_THREAD = 512;
+
+    /**
+     * 未归属采样的最长暂存时间，超过后丢弃
+     */
+    private static final Duration PENDING_TTL = Duration.ofSeconds(10);
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<Long, Interval> intervals = new HashMap<>();
+    private final Map<Long, Deque<Sample>> pending = new HashMap<>();
+    private RecordingStream stream;
+
+    @PostConstruct
+    public void start() {
+        FileUploadConfig.Jfr config = fileUploadConfig.getJfr();
+        if (!config.isStreamEnabled()) {
+            return;
+        }
+        try {
+            RecordingStream recordingStream = new RecordingStream();
+            Duration threshold = Duration.ofMillis(config.getContentionThreshold());
+            recordingStream.enable("jdk.ObjectAllocationSample").with("throttle", config.getAllocationThrottle());
+            recordingStream.enable("jdk.JavaMonitorEnter").withThreshold(threshold);
+            recordingStream.enable("jdk.ThreadPark").withThreshold(threshold);
+            recordingStream.enable(HttpRequestEvent.NAME);
+            recordingStream.onEvent("jdk.ObjectAllocationSample", event ->
+                    onAllocation(threadId(event), event.getStartTime(), event.getLong("weight")));
+            recordingStream.onEvent("jdk.JavaMonitorEnter", event ->
+                    onContention(threadId(event), event.getStartTime(), event.getDuration(), KIND_MONITOR));
+            recordingStream.onEvent("jdk.ThreadPark", event ->
+                    onContention(threadId(event), event.getStartTime(), event.getDuration(), KIND_PARK));
+            recordingStream.onEvent(HttpRequestEvent.NAME, event ->
+                    onRequest(threadId(event), event.getStartTime(), event.getEndTime(), event.getString("endpoint")));
+            recordingStream.startAsync();
+            stream = recordingStream;
+            logger.info("JFR 分配/锁竞争汇总已启动，竞争阈值 {} ms", config.getContentionThreshold());
+        } catch (IllegalStateException | SecurityException e) {
+            logger.warn("启动 JFR 事件流失败: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    void onRequest(long threadId, Instant start, Instant end, String endpoint) {
+        Interval interval = new Interval(start, end, endpoint != null ? endpoint : "UNKNOWN");
+        intervals.put(threadId, interval);
+        Deque<Sample> samples = pending.get(threadId);
+        if (samples == null) {
+            return;
+        }
+        Iterator<Sample> iterator = samples.iterator();
+        while (iterator.hasNext()) {
+            Sample sample = iterator.next();
+            if (interval.contains(sample.time)) {
+                attribute(interval.endpoint, sample);
+                iterator.remove();
+            } else if (sample.time.isBefore(start)) {
+                // 早于当前请求且未归属的采样属于请求之外的工作
+                iterator.remove();
+            }
+        }
+    }
+
+    void onAllocation(long threadId, Instant time, long bytes) {
+        record(threadId, new Sample(time, null, bytes, null));
+    }
+
+    void onContention(long threadId, Instant time, Duration duration, String kind) {
+        record(threadId, new Sample(time, kind, 0L, duration));
+    }
+
+    private void record(long threadId, Sample sample) {
+        Interval interval = intervals.get(threadId);
+        if (interval != null && interval.contains(sample.time)) {
+            attribute(interval.endpoint, sample);
+            return;
+        }
+        Deque<Sample> samples = pending.computeIfAbsent(threadId, id -> new ArrayDeque<>());
+        Instant expiry = sample.time.minus(PENDING_TTL);
+        while (!samples.isEmpty()
+                && (samples.size() >= MAX_PENDING_PER_THREAD || samples.peekFirst().time.isBefore(expiry))) {
+            samples.pollFirst();
+        }
+        samples.addLast(sample);
+    }
+
+    private void attribute(String endpoint, Sample sample) {
+        if (sample.kind == null) {
+            Counter.builder("fileshare.jfr.allocation")
+                    .description("按接口归属的对象分配量（JFR 采样估算）")
+                    .baseUnit("bytes")
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry)
+                    .increment(sample.bytes);
+        } else {
+            Timer.builder("fileshare.jfr.contention")
+                    .description("按接口归属的锁等待时间（JFR 采样，超过阈值的等待）")
+                    .tag("endpoint", endpoint)
+                    .tag("kind", sample.kind)
+                    .register(meterRegistry)
+                    .record(sample.duration);
+        }
+    }
+
+    private static long threadId(RecordedEvent event) {
+        RecordedThread thread = event.getThread();
+        return thread != null ? thread.getJavaThreadId() : -1L;
+    }
+
+    private static final class Interval {
+        private final Instant start;
+        private final Instant end;
+        private final String endpoint;
+
+        private Interval(Instant start, Instant end, String endpoint) {
+            this.start = start;
+            this.end = end;
+            this.endpoint = endpoint;
+        }
+
+        private boolean contains(Instant time) {
+            return !time.isBefore(start) && !time.isAfter(end);
+        }
+    }
+
+    private static final class Sample {
+        private final Instant time;
+        private final String kind;
+        private final long bytes;
+        private final Duration duration;
+
+        private Sample(Instant time, String kind, long bytes, Duration duration) {
+            this.time = time;
+            this.kind = kind;
+            this.bytes = bytes;
+            this.duration = duration;
+        }
+    }
+}
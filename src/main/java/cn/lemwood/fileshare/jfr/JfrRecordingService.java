@@ -0,0 +1,135 @@
+package cn.lemwood.fileshare.jfr;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 持续飞行记录服务
+ * 启动后以环形缓冲方式常驻一份 JFR 记录，只保留最近一段时间/一定大小的数据；
+ * 出现延迟尖刺时通过管理接口导出，无需重新部署或重启即可分析 GC、磁盘和锁等待。
+ *
+ * @author lemwood
+ */
+@Service
+public class JfrRecordingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JfrRecordingService.class);
+
+    private static final String RECORDING_NAME = "fileshare-continuous";
+    private static final DateTimeFormatter DUMP_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    private volatile Recording recording;
+
+    @PostConstruct
+    public void start() {
+        FileUploadConfig.Jfr config = fileUploadConfig.getJfr();
+        if (!config.isEnabled()) {
+            return;
+        }
+        try {
+            Recording continuous = new Recording(Configuration.getConfiguration(config.getSettings()));
+            continuous.setName(RECORDING_NAME);
+            continuous.setToDisk(true);
+            continuous.setMaxAge(Duration.ofMillis(config.getMaxAge()));
+            continuous.setMaxSize(config.getMaxSize());
+            continuous.start();
+            recording = continuous;
+            logger.info("持续飞行记录已启动: 配置={}, 最长保留 {} ms, 最大 {} 字节",
+                    config.getSettings(), config.getMaxAge(), config.getMaxSize());
+        } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+            logger.warn("启动持续飞行记录失败: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        Recording current = recording;
+        recording = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    public boolean isRecording() {
+        Recording current = recording;
+        return current != null && current.getState() == RecordingState.RUNNING;
+    }
+
+    /**
+     * 导出持续记录的当前内容
+     *
+     * @return 导出文件信息；未启用持续记录时返回 null
+     */
+    public Map<String, Object> dump() throws IOException {
+        Recording current = recording;
+        if (current == null || current.getState() != RecordingState.RUNNING) {
+            return null;
+        }
+        FileUploadConfig.Jfr config = fileUploadConfig.getJfr();
+        Path directory = Paths.get(config.getDumpPath()).toAbsolutePath();
+        Files.createDirectories(directory);
+        Path target = directory.resolve("fileshare-" + LocalDateTime.now().format(DUMP_NAME_FORMAT) + ".jfr");
+        current.dump(target);
+        pruneDumps(directory, config.getMaxDumps());
+        logger.info("已导出飞行记录: {}", target);
+
+        Map<String, Object> info = new HashMap<>();
+        info.put("path", target.toString());
+        info.put("size", Files.size(target));
+        info.put("maxAge", config.getMaxAge());
+        return info;
+    }
+
+    /**
+     * 获取持续记录状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        Recording current = recording;
+        status.put("enabled", fileUploadConfig.getJfr().isEnabled());
+        status.put("state", current != null ? current.getState().name() : "NONE");
+        if (current != null) {
+            status.put("startTime", current.getStartTime());
+            status.put("size", current.getSize());
+        }
+        return status;
+    }
+
+    private void pruneDumps(Path directory, int maxDumps) throws IOException {
+        List<Path> dumps;
+        try (Stream<Path> files = Files.list(directory)) {
+            dumps = files.filter(file -> file.getFileName().toString().endsWith(".jfr"))
+                    .sorted(Comparator.comparing(Path::getFileName).reversed())
+                    .collect(Collectors.toList());
+        }
+        for (int i = Math.max(1, maxDumps); i < dumps.size(); i++) {
+            Files.deleteIfExists(dumps.get(i));
+        }
+    }
+}
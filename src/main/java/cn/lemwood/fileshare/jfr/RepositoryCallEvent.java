@@ -0,0 +1,31 @@
+package cn.lemwood.fileshare.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 仓库方法调用 JFR 事件
+ * 与同一线程上的 JDBC 锁等待、GC 暂停对照，定位慢查询
+ *
+ * @author lemwood
+ */
+@Name("cn.lemwood.fileshare.RepositoryCall")
+@Label("Repository Call")
+@Category({"File Share", "Database"})
+@Description("Invocation of a Spring Data repository method")
+@StackTrace(false)
+public class RepositoryCallEvent extends Event {
+
+    @Label("Repository")
+    public String repository;
+
+    @Label("Method")
+    public String method;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,45 @@
+package cn.lemwood.fileshare.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 文件上传 JFR 事件
+ * 覆盖从校验到落库的服务端处理过程，拆分写盘和落库耗时
+ *
+ * @author lemwood
+ */
+@Name("cn.lemwood.fileshare.Upload")
+@Label("File Upload")
+@Category({"File Share", "Transfer"})
+@Description("Server-side handling of an uploaded file")
+@StackTrace(false)
+public class UploadEvent extends Event {
+
+    @Label("File Key")
+    public String fileKey;
+
+    @Label("Content Type")
+    public String contentType;
+
+    @Label("File Size")
+    @DataAmount
+    public long fileSize;
+
+    @Label("Write Duration")
+    @Timespan
+    public long writeDuration;
+
+    @Label("Persist Duration")
+    @Timespan
+    public long persistDuration;
+
+    @Label("Outcome")
+    public String outcome;
+}
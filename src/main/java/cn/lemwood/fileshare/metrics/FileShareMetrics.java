@@ -0,0 +1,165 @@
+package cn.lemwood.fileshare.metrics;
+
+import cn.lemwood.fileshare.entity.FileInfo;
+import cn.lemwood.fileshare.jfr.DownloadEvent;
+import cn.lemwood.fileshare.service.SystemStatusSnapshotService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 业务指标
+ * 统一上传、下载热路径的指标名称和标签：按文件大小区间和内容大类打标签，控制标签基数；
+ * 直方图由 management.metrics.distribution 配置开启，便于 Prometheus 聚合分位数。
+ *
+ * @author lemwood
+ */
+@Component
+public class FileShareMetrics {
+
+    /**
+     * 请求属性名，保存请求进入过滤器的时间（纳秒），上传耗时包含请求体接收时间
+     */
+    public static final String REQUEST_START_ATTRIBUTE = FileShareMetrics.class.getName() + ".REQUEST_START";
+
+    private static final long MB = 1024L * 1024;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private SystemStatusSnapshotService statusSnapshotService;
+
+    @PostConstruct
+    public void init() {
+        // 已过期但尚未清理的文件，读取后台状态快照，不访问数据库
+        Gauge.builder("fileshare.expiry.overdue.files", statusSnapshotService,
+                        service -> service.getSnapshot().getExpiredFiles())
+                .description("已过期但尚未清理的文件数")
+                .register(meterRegistry);
+        Gauge.builder("fileshare.expiry.overdue.bytes", statusSnapshotService,
+                        service -> service.getSnapshot().getExpiredSize())
+                .description("已过期但尚未清理的文件字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录写入磁盘的上传字节数和耗时
+     */
+    public void recordUploadWrite(String contentType, long bytes, long durationNanos) {
+        Counter.builder("fileshare.upload.bytes")
+                .description("上传写入磁盘的字节数")
+                .baseUnit("bytes")
+                .tag("content.type", contentCategory(contentType))
+                .register(meterRegistry)
+                .increment(bytes);
+        Timer.builder("fileshare.upload.write")
+                .description("上传文件写入磁盘耗时")
+                .tag("size", sizeBucket(bytes))
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次上传请求的完整耗时
+     *
+     * @param outcome success / rejected / error
+     */
+    public void recordUpload(String contentType, long bytes, long durationNanos, String outcome) {
+        Timer.builder("fileshare.upload.duration")
+                .description("上传请求耗时（含请求体接收）")
+                .tag("size", sizeBucket(bytes))
+                .tag("content.type", contentCategory(contentType))
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 包装下载资源，在响应写出过程中记录首字节时间、传输字节数和总耗时
+     *
+     * @param channel    下载入口（files / share）
+     * @param startNanos 请求开始时间
+     */
+    public Resource meterDownload(Resource resource, FileInfo fileInfo, String channel, long startNanos) {
+        long size = fileInfo.getFileSize() != null ? fileInfo.getFileSize() : 0L;
+        String sizeBucket = sizeBucket(size);
+        String contentType = contentCategory(fileInfo.getContentType());
+        Counter bytesOut = Counter.builder("fileshare.download.bytes")
+                .description("下载输出的字节数")
+                .baseUnit("bytes")
+                .tag("channel", channel)
+                .tag("content.type", contentType)
+                .register(meterRegistry);
+        Timer ttfb = Timer.builder("fileshare.download.ttfb")
+                .description("下载首字节时间")
+                .tag("channel", channel)
+                .tag("size", sizeBucket)
+                .register(meterRegistry);
+        DownloadEvent event = new DownloadEvent();
+        event.begin();
+        return new MeteredResource(resource, startNanos, bytesOut, ttfb, (durationNanos, ttfbNanos, bytes, completed) -> {
+            Timer.builder("fileshare.download.duration")
+                    .description("下载耗时（至响应写完或客户端断开）")
+                    .tag("channel", channel)
+                    .tag("size", sizeBucket)
+                    .tag("content.type", contentType)
+                    .tag("outcome", completed ? "completed" : "aborted")
+                    .register(meterRegistry)
+                    .record(durationNanos, TimeUnit.NANOSECONDS);
+            event.end();
+            if (event.shouldCommit()) {
+                event.fileKey = fileInfo.getFileKey();
+                event.channel = channel;
+                event.fileSize = size;
+                event.bytes = bytes;
+                event.timeToFirstByte = Math.max(0L, ttfbNanos);
+                event.completed = completed;
+                event.commit();
+            }
+        });
+    }
+
+    /**
+     * 文件大小区间标签
+     */
+    public static String sizeBucket(long bytes) {
+        if (bytes < MB) {
+            return "lt_1m";
+        } else if (bytes < 10 * MB) {
+            return "1m_10m";
+        } else if (bytes < 100 * MB) {
+            return "10m_100m";
+        }
+        return "ge_100m";
+    }
+
+    /**
+     * 内容大类标签（image / video / audio / text / application / other）
+     */
+    public static String contentCategory(String contentType) {
+        if (contentType == null) {
+            return "other";
+        }
+        int slash = contentType.indexOf('/');
+        String major = (slash > 0 ? contentType.substring(0, slash) : contentType).trim().toLowerCase();
+        switch (major) {
+            case "image":
+            case "video":
+            case "audio":
+            case "text":
+            case "application":
+                return major;
+            default:
+                return "other";
+        }
+    }
+}
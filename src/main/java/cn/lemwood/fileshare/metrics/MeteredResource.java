@@ -0,0 +1,139 @@
+package cn.lemwood.fileshare.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带计量的下载资源
+ * 委托原资源的元数据（长度、文件名等），只包装输入流：首次读到数据时记录首字节时间，
+ * 每次读取累加输出字节数，流关闭时按是否读到末尾记录下载耗时。
+ *
+ * @author lemwood
+ */
+class MeteredResource extends AbstractResource {
+
+    /**
+     * 下载结束回调
+     */
+    interface CompletionListener {
+        void onComplete(long durationNanos, long ttfbNanos, long bytes, boolean completed);
+    }
+
+    private final Resource delegate;
+    private final long startNanos;
+    private final Counter bytesOut;
+    private final Timer ttfb;
+    private final CompletionListener listener;
+
+    MeteredResource(Resource delegate, long startNanos, Counter bytesOut, Timer ttfb, CompletionListener listener) {
+        this.delegate = delegate;
+        this.startNanos = startNanos;
+        this.bytesOut = bytesOut;
+        this.ttfb = ttfb;
+        this.listener = listener;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return new MeteredInputStream(delegate.getInputStream());
+    }
+
+    @Override
+    public boolean exists() {
+        return delegate.exists();
+    }
+
+    @Override
+    public boolean isReadable() {
+        return delegate.isReadable();
+    }
+
+    @Override
+    public URL getURL() throws IOException {
+        return delegate.getURL();
+    }
+
+    @Override
+    public URI getURI() throws IOException {
+        return delegate.getURI();
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return delegate.contentLength();
+    }
+
+    @Override
+    public long lastModified() throws IOException {
+        return delegate.lastModified();
+    }
+
+    @Override
+    public String getFilename() {
+        return delegate.getFilename();
+    }
+
+    @Override
+    public String getDescription() {
+        return "Metered " + delegate.getDescription();
+    }
+
+    private final class MeteredInputStream extends FilterInputStream {
+
+        private long ttfbNanos = -1L;
+        private long bytes;
+        private boolean eof;
+        private boolean closed;
+
+        private MeteredInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            onRead(b < 0 ? -1 : 1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            onRead(n);
+            return n;
+        }
+
+        private void onRead(int n) {
+            if (n < 0) {
+                eof = true;
+                return;
+            }
+            if (n > 0) {
+                if (ttfbNanos < 0) {
+                    ttfbNanos = System.nanoTime() - startNanos;
+                    ttfb.record(ttfbNanos, TimeUnit.NANOSECONDS);
+                }
+                bytes += n;
+                bytesOut.increment(n);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                listener.onComplete(System.nanoTime() - startNanos, ttfbNanos, bytes, eof);
+            }
+            super.close();
+        }
+    }
+}
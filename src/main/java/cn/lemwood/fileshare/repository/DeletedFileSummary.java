@@ -0,0 +1,23 @@
+package cn.lemwood.fileshare.repository;
+
+/**
+ * 墓碑记录摘要投影
+ * 用于后台回收器从存储后端删除对象和清除记录
+ *
+ * @author lemwood
+ */
+public interface DeletedFileSummary {
+
+    Long getId();
+
+    String getFileKey();
+
+    String getStoredName();
+
+    /**
+     * 所在存储盘，单盘时为空
+     */
+    String getStorageVolume();
+
+    Long getFileSize();
+}
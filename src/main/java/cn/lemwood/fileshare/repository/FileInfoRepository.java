@@ -1,11 +1,15 @@
 package cn.lemwood.fileshare.repository;
 
 import cn.lemwood.fileshare.entity.FileInfo;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,6 +32,115 @@ public interface FileInfoRepository extends JpaRepository<FileInfo, Long> {
     @Query("SELECT f FROM FileInfo f WHERE f.expireTime < :currentTime")
     List<FileInfo> findExpiredFiles(LocalDateTime currentTime);
 
+    /**
+     * 按ID游标分页查询已过期文件摘要
+     */
+    @Query("SELECT f.id AS id, f.fileKey AS fileKey, f.filePath AS filePath, f.fileSize AS fileSize, " +
+           "f.expireTime AS expireTime FROM FileInfo f " +
+           "WHERE f.expireTime < :currentTime AND f.id > :afterId ORDER BY f.id")
+    List<FileInfoSummary> findExpiredBatch(LocalDateTime currentTime, Long afterId, Pageable pageable);
+
+    /**
+     * 按ID游标分页查询指定时间窗口内到期的文件摘要
+     */
+    @Query("SELECT f.id AS id, f.fileKey AS fileKey, f.filePath AS filePath, f.fileSize AS fileSize, " +
+           "f.expireTime AS expireTime FROM FileInfo f " +
+           "WHERE f.expireTime >= :from AND f.expireTime < :to AND f.id > :afterId ORDER BY f.id")
+    List<FileInfoSummary> findExpiringBatch(LocalDateTime from, LocalDateTime to, Long afterId, Pageable pageable);
+
+    /**
+     * 根据文件key批量查询文件摘要
+     */
+    @Query("SELECT f.id AS id, f.fileKey AS fileKey, f.filePath AS filePath, f.fileSize AS fileSize, " +
+           "f.expireTime AS expireTime FROM FileInfo f WHERE f.fileKey IN :fileKeys")
+    List<FileInfoSummary> findSummariesByFileKeyIn(Collection<String> fileKeys);
+
+    /**
+     * 按ID游标分页查询存储文件名摘要
+     */
+    @Query("SELECT f.id AS id, f.fileKey AS fileKey, f.storedName AS storedName, f.fileSize AS fileSize, " +
+           "f.uploadTime AS uploadTime FROM FileInfo f WHERE f.id > :afterId ORDER BY f.id")
+    List<StoredFileSummary> findStoredNameBatch(Long afterId, Pageable pageable);
+
+    /**
+     * 根据存储文件名批量查询存储文件名摘要
+     */
+    @Query("SELECT f.id AS id, f.fileKey AS fileKey, f.storedName AS storedName, f.fileSize AS fileSize, " +
+           "f.uploadTime AS uploadTime FROM FileInfo f WHERE f.storedName IN :storedNames")
+    List<StoredFileSummary> findStoredSummariesByStoredNameIn(Collection<String> storedNames);
+
+    /**
+     * 按ID游标分页查询文件使用情况摘要
+     */
+    @Query("SELECT f.id AS id, f.fileKey AS fileKey, f.storedName AS storedName, f.fileSize AS fileSize, f.uploadTime AS uploadTime, " +
+           "f.expireTime AS expireTime, f.downloadCount AS downloadCount FROM FileInfo f " +
+           "WHERE f.id > :afterId ORDER BY f.id")
+    List<FileUsageSummary> findUsageBatch(Long afterId, Pageable pageable);
+
+    /**
+     * 按ID批量删除文件记录
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM FileInfo f WHERE f.id IN :ids")
+    int deleteBatchByIds(Collection<Long> ids);
+
+    /**
+     * 批量写入删除墓碑，已是墓碑的记录不重复标记
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileInfo f SET f.deletedTime = :deletedTime WHERE f.id IN :ids AND f.deletedTime IS NULL")
+    int markDeleted(Collection<Long> ids, LocalDateTime deletedTime);
+
+    /**
+     * 按ID游标查询墓碑记录（实体查询会过滤墓碑，这里使用原生SQL）
+     */
+    @Query(value = "SELECT id AS id, file_key AS fileKey, stored_name AS storedName, storage_volume AS storageVolume, " +
+                   "file_size AS fileSize " +
+                   "FROM file_info WHERE deleted_time IS NOT NULL AND id > :afterId ORDER BY id LIMIT :limit",
+           nativeQuery = true)
+    List<DeletedFileSummary> findTombstoneBatch(Long afterId, int limit);
+
+    /**
+     * 统计待回收的墓碑记录数
+     */
+    @Query(value = "SELECT COUNT(*) FROM file_info WHERE deleted_time IS NOT NULL", nativeQuery = true)
+    long countTombstones();
+
+    /**
+     * 查询仍存在的记录ID（包括墓碑），用于判断淘汰的文件是否已被回收
+     */
+    @Query(value = "SELECT id FROM file_info WHERE id IN :ids", nativeQuery = true)
+    List<Long> findExistingIds(Collection<Long> ids);
+
+    /**
+     * 按ID批量清除墓碑记录
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM file_info WHERE id IN :ids AND deleted_time IS NOT NULL", nativeQuery = true)
+    int purgeTombstones(Collection<Long> ids);
+
+    /**
+     * 原子递增下载次数，不覆盖并发写入的其他列
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileInfo f SET f.downloadCount = f.downloadCount + 1 WHERE f.id = :id AND f.deletedTime IS NULL")
+    int incrementDownloadCount(Long id);
+
+    /**
+     * 统计已过期文件数量
+     */
+    long countByExpireTimeBefore(LocalDateTime currentTime);
+
+    /**
+     * 统计已过期文件总大小
+     */
+    @Query("SELECT COALESCE(SUM(f.fileSize), 0) FROM FileInfo f WHERE f.expireTime < :currentTime")
+    Long getExpiredFileSize(LocalDateTime currentTime);
+
     /**
      * 根据上传者IP查找文件列表
      */
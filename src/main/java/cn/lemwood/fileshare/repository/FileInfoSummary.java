@@ -0,0 +1,22 @@
+package cn.lemwood.fileshare.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文件信息摘要投影
+ * 批量任务只查询需要的列，避免加载完整实体
+ *
+ * @author lemwood
+ */
+public interface FileInfoSummary {
+
+    Long getId();
+
+    String getFileKey();
+
+    String getFilePath();
+
+    Long getFileSize();
+
+    LocalDateTime getExpireTime();
+}
@@ -0,0 +1,26 @@
+package cn.lemwood.fileshare.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文件使用情况摘要投影
+ * 用于建立磁盘压力淘汰的内存排名
+ *
+ * @author lemwood
+ */
+public interface FileUsageSummary {
+
+    Long getId();
+
+    String getFileKey();
+
+    String getStoredName();
+
+    Long getFileSize();
+
+    LocalDateTime getUploadTime();
+
+    LocalDateTime getExpireTime();
+
+    Integer getDownloadCount();
+}
@@ -0,0 +1,50 @@
+package cn.lemwood.fileshare.repository;
+
+import cn.lemwood.fileshare.entity.JobLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * 后台任务租约锁数据访问接口
+ * 所有操作都是单条条件更新，依赖数据库行级原子性实现互斥
+ *
+ * @author lemwood
+ */
+@Repository
+public interface JobLockRepository extends JpaRepository<JobLock, String> {
+
+    /**
+     * 尝试获取租约：锁空闲、已过期或本来就由自己持有时成功
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE JobLock l SET l.owner = :owner, l.leaseUntil = :leaseUntil, l.checkpoint = NULL, " +
+           "l.processedCount = 0, l.updateTime = :now " +
+           "WHERE l.name = :name AND (l.owner IS NULL OR l.owner = :owner OR l.leaseUntil < :now)")
+    int tryAcquire(String name, String owner, LocalDateTime leaseUntil, LocalDateTime now);
+
+    /**
+     * 续约并记录进度检查点
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE JobLock l SET l.leaseUntil = :leaseUntil, l.checkpoint = :checkpoint, " +
+           "l.processedCount = :processedCount, l.updateTime = :now " +
+           "WHERE l.name = :name AND l.owner = :owner")
+    int renew(String name, String owner, LocalDateTime leaseUntil, Long checkpoint, Long processedCount,
+              LocalDateTime now);
+
+    /**
+     * 释放租约
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE JobLock l SET l.owner = NULL, l.leaseUntil = NULL, l.updateTime = :now " +
+           "WHERE l.name = :name AND l.owner = :owner")
+    int release(String name, String owner, LocalDateTime now);
+}
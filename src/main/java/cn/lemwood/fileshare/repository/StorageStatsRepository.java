@@ -0,0 +1,14 @@
+package cn.lemwood.fileshare.repository;
+
+import cn.lemwood.fileshare.entity.StorageStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 存储统计检查点数据访问接口
+ *
+ * @author lemwood
+ */
+@Repository
+public interface StorageStatsRepository extends JpaRepository<StorageStats, Long> {
+}
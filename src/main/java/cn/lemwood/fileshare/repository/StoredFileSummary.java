@@ -0,0 +1,22 @@
+package cn.lemwood.fileshare.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * 存储文件名摘要投影
+ * 用于存储目录对账，只包含对账所需的列
+ *
+ * @author lemwood
+ */
+public interface StoredFileSummary {
+
+    Long getId();
+
+    String getFileKey();
+
+    String getStoredName();
+
+    Long getFileSize();
+
+    LocalDateTime getUploadTime();
+}
@@ -0,0 +1,574 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import cn.lemwood.fileshare.storage.DirectIo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 磁盘 I/O 统计服务（Linux）
+ * 后台定期读取 /proc/diskstats，按相邻两次采样的差值计算各块设备的读写吞吐、IOPS、
+ * 平均队列深度、利用率和平均等待时间；并采集上传目录所在文件系统的 inode 使用量，
+ * 以及按设备实际读盘量与下载输出量之比估算的页缓存命中率。
+ * 多盘条带的每个上传目录、单盘时的打包卷目录和容量层目录分别解析所在设备，命中率按这些设备的读盘量之和估算。
+ * 命中率另按采样周期内的大文件写入方式（无批量写入 / 经过页缓存 / 直接 I/O）分组累计，用于对比直接 I/O 的效果。
+ * 状态接口只读取最近一次采样结果；非 Linux 系统上不采集。
+ *
+ * @author lemwood
+ */
+@Service
+public class DiskIoStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskIoStatsService.class);
+
+    private static final Path DISKSTATS = Paths.get("/proc/diskstats");
+    private static final Path MOUNTINFO = Paths.get("/proc/self/mountinfo");
+    private static final Path MEMINFO = Paths.get("/proc/meminfo");
+    private static final Path SYS_BLOCK = Paths.get("/sys/block");
+    private static final long SECTOR_SIZE = 512L;
+
+    // /proc/diskstats 中设备名之后各字段的下标
+    private static final int READS = 0;
+    private static final int SECTORS_READ = 2;
+    private static final int MS_READING = 3;
+    private static final int WRITES = 4;
+    private static final int SECTORS_WRITTEN = 6;
+    private static final int MS_WRITING = 7;
+    private static final int IN_FLIGHT = 8;
+    private static final int MS_IO = 9;
+    private static final int WEIGHTED_MS_IO = 10;
+
+    // 采样周期内大文件的写入方式
+    static final String INGEST_NONE = "none";
+    static final String INGEST_BUFFERED = "buffered";
+    static final String INGEST_DIRECT = "direct";
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Set<String> registeredDevices = ConcurrentHashMap.newKeySet();
+    private volatile Map<String, DeviceStats> latest = Collections.emptyMap();
+    private volatile InodeUsage inodeUsage;
+    private volatile Double pageCacheHitRatio;
+    private volatile long cachedBytes = -1L;
+    private volatile long dirtyBytes = -1L;
+    private volatile long sampledAt;
+    // 存储目录 -> 所在块设备
+    private volatile Map<Path, String> storageDevices = Collections.emptyMap();
+
+    private Map<String, long[]> previous;
+    private long previousNanos;
+    private double previousDownloadBytes = -1;
+    private long previousDirectBytes;
+    private long previousBufferedBytes;
+    // 写入方式 -> {累计下载输出字节, 累计设备读盘字节}
+    private final Map<String, double[]> ingestTotals = new ConcurrentHashMap<>();
+    private long lastInodeSample;
+    private boolean available;
+
+    @PostConstruct
+    public void init() {
+        available = Files.isReadable(DISKSTATS);
+        if (!available) {
+            logger.info("未找到 /proc/diskstats，磁盘 I/O 统计不可用");
+            return;
+        }
+        Gauge.builder("fileshare.disk.inodes.used", this, service -> inodeValue(true))
+                .description("上传目录所在文件系统已用 inode 数")
+                .register(meterRegistry);
+        Gauge.builder("fileshare.disk.inodes.total", this, service -> inodeValue(false))
+                .description("上传目录所在文件系统 inode 总数")
+                .register(meterRegistry);
+        Gauge.builder("fileshare.disk.pagecache.hit.ratio", this,
+                        service -> pageCacheHitRatio != null ? pageCacheHitRatio : Double.NaN)
+                .description("下载读取的页缓存命中率估算（1 - 设备读盘量 / 下载输出量）")
+                .register(meterRegistry);
+        for (String ingest : new String[]{INGEST_NONE, INGEST_BUFFERED, INGEST_DIRECT}) {
+            Gauge.builder("fileshare.disk.pagecache.hit.ratio.by.ingest", this, service -> ingestHitRatio(ingest))
+                    .description("按同期大文件写入方式分组累计的下载页缓存命中率估算")
+                    .tag("ingest", ingest)
+                    .register(meterRegistry);
+        }
+        FunctionCounter.builder("fileshare.storage.bulk.write.bytes", this, service -> DirectIo.bufferedBytes())
+                .description("超过直接 I/O 阈值的写入字节数（文件系统不支持时回退为经过页缓存）")
+                .baseUnit("bytes")
+                .tag("mode", INGEST_BUFFERED)
+                .register(meterRegistry);
+        FunctionCounter.builder("fileshare.storage.bulk.write.bytes", this, service -> DirectIo.directBytes())
+                .description("超过直接 I/O 阈值的写入字节数")
+                .baseUnit("bytes")
+                .tag("mode", INGEST_DIRECT)
+                .register(meterRegistry);
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * 定时采样
+     */
+    @Scheduled(fixedDelayString = "${file.disk-io.sample-interval:5000}")
+    public synchronized void sample() {
+        if (!available || !fileUploadConfig.getDiskIo().isEnabled()) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            Map<String, long[]> current = parseDiskstats(Files.readAllLines(DISKSTATS, StandardCharsets.US_ASCII));
+            if (storageDevices.isEmpty()) {
+                storageDevices = resolveStorageDevices(current);
+            }
+            if (previous != null) {
+                publish(current, now - previousNanos);
+            }
+            previous = current;
+            previousNanos = now;
+            sampleMemInfo();
+            if (System.currentTimeMillis() - lastInodeSample >= fileUploadConfig.getDiskIo().getInodeInterval()) {
+                lastInodeSample = System.currentTimeMillis();
+                inodeUsage = readInodeUsage(uploadPath());
+            }
+            sampledAt = System.currentTimeMillis();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("采集磁盘 I/O 统计失败: {}", e.getMessage());
+        }
+    }
+
+    private void publish(Map<String, long[]> current, long elapsedNanos) {
+        Set<String> tracked = trackedDevices(current.keySet());
+        Map<String, DeviceStats> stats = new LinkedHashMap<>();
+        for (String device : tracked) {
+            long[] before = previous.get(device);
+            long[] after = current.get(device);
+            if (before != null && after != null) {
+                stats.put(device, DeviceStats.between(device, before, after, elapsedNanos));
+                register(device);
+            }
+        }
+        latest = stats;
+
+        double readBytesPerSecond = 0.0;
+        boolean storageSampled = false;
+        for (String device : new LinkedHashSet<>(storageDevices.values())) {
+            DeviceStats storage = stats.get(device);
+            if (storage != null) {
+                readBytesPerSecond += storage.readBytesPerSecond;
+                storageSampled = true;
+            }
+        }
+        double downloadBytes = totalDownloadBytes();
+        if (storageSampled && previousDownloadBytes >= 0) {
+            double served = downloadBytes - previousDownloadBytes;
+            double fromDisk = readBytesPerSecond * elapsedNanos / 1e9;
+            pageCacheHitRatio = estimateHitRatio(served, fromDisk);
+            String ingest = classifyIngest(DirectIo.directBytes() - previousDirectBytes,
+                    DirectIo.bufferedBytes() - previousBufferedBytes);
+            double[] totals = ingestTotals.computeIfAbsent(ingest, key -> new double[2]);
+            synchronized (totals) {
+                totals[0] += served;
+                totals[1] += fromDisk;
+            }
+        }
+        previousDownloadBytes = downloadBytes;
+        previousDirectBytes = DirectIo.directBytes();
+        previousBufferedBytes = DirectIo.bufferedBytes();
+    }
+
+    /**
+     * 按采样周期内超过阈值的写入量归类：没有批量写入（或未开启直接 I/O）、以回退后经过页缓存为主或以直接 I/O 为主
+     */
+    static String classifyIngest(long directBytes, long bufferedBytes) {
+        if (directBytes <= 0 && bufferedBytes <= 0) {
+            return INGEST_NONE;
+        }
+        return directBytes >= bufferedBytes ? INGEST_DIRECT : INGEST_BUFFERED;
+    }
+
+    private double ingestHitRatio(String ingest) {
+        Double ratio = ingestHitRatioEstimate(ingest);
+        return ratio != null ? ratio : Double.NaN;
+    }
+
+    private Double ingestHitRatioEstimate(String ingest) {
+        double[] totals = ingestTotals.get(ingest);
+        if (totals == null) {
+            return null;
+        }
+        synchronized (totals) {
+            return estimateHitRatio(totals[0], totals[1]);
+        }
+    }
+
+    /**
+     * 估算页缓存命中率：下载输出的字节中，未由设备读盘提供的比例。
+     * 同一设备上的其他读盘会使估算偏低，下载量过小时不给出估算。
+     */
+    static Double estimateHitRatio(double servedBytes, double diskReadBytes) {
+        if (servedBytes < 1024 * 1024) {
+            return null;
+        }
+        return Math.max(0.0, 1.0 - Math.min(1.0, diskReadBytes / servedBytes));
+    }
+
+    private double totalDownloadBytes() {
+        return meterRegistry.find("fileshare.download.bytes").counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+
+    /**
+     * 需要统计的设备：/sys/block 下的整盘（不含 loop/ram）以及存储目录所在设备
+     */
+    private Set<String> trackedDevices(Set<String> all) {
+        Set<String> tracked = new TreeSet<>();
+        for (String device : all) {
+            if (device.startsWith("loop") || device.startsWith("ram")) {
+                continue;
+            }
+            if (Files.isDirectory(SYS_BLOCK.resolve(device)) || storageDevices.containsValue(device)) {
+                tracked.add(device);
+            }
+        }
+        return tracked;
+    }
+
+    private void register(String device) {
+        if (!registeredDevices.add(device)) {
+            return;
+        }
+        gauge("fileshare.disk.throughput", device, "读写吞吐", "bytes_per_second", "direction", "read",
+                stats -> stats.readBytesPerSecond);
+        gauge("fileshare.disk.throughput", device, "读写吞吐", "bytes_per_second", "direction", "write",
+                stats -> stats.writeBytesPerSecond);
+        gauge("fileshare.disk.iops", device, "每秒完成的读写请求数", null, "direction", "read",
+                stats -> stats.readIops);
+        gauge("fileshare.disk.iops", device, "每秒完成的读写请求数", null, "direction", "write",
+                stats -> stats.writeIops);
+        gauge("fileshare.disk.queue.depth", device, "平均队列深度", null, null, null,
+                stats -> stats.queueDepth);
+        gauge("fileshare.disk.utilization", device, "设备忙碌时间占比", null, null, null,
+                stats -> stats.utilization);
+        gauge("fileshare.disk.await", device, "读写请求平均等待时间", "milliseconds", null, null,
+                stats -> stats.awaitMillis);
+    }
+
+    private void gauge(String name, String device, String description, String baseUnit,
+                       String tagKey, String tagValue, ToDoubleFunction<DeviceStats> value) {
+        Gauge.Builder<DiskIoStatsService> builder = Gauge.builder(name, this, service -> {
+                    DeviceStats stats = latest.get(device);
+                    return stats != null ? value.applyAsDouble(stats) : Double.NaN;
+                })
+                .description(description)
+                .tag("device", device);
+        if (baseUnit != null) {
+            builder.baseUnit(baseUnit);
+        }
+        if (tagKey != null) {
+            builder.tag(tagKey, tagValue);
+        }
+        builder.register(meterRegistry);
+    }
+
+    private double inodeValue(boolean used) {
+        InodeUsage usage = inodeUsage;
+        if (usage == null) {
+            return Double.NaN;
+        }
+        return used ? usage.total - usage.free : usage.total;
+    }
+
+    /**
+     * inode 使用量按第一个上传目录采集
+     */
+    private Path uploadPath() {
+        return storageRoots(fileUploadConfig).get(0);
+    }
+
+    /**
+     * 存储后端写入的全部目录，与 StorageConfig 组装后端的方式一致：
+     * 上传目录（配置了多盘时为每块盘的目录）、单盘时独立配置的打包卷目录、启用分层时的容量层目录
+     */
+    static List<Path> storageRoots(FileUploadConfig config) {
+        Set<Path> roots = new LinkedHashSet<>();
+        List<String> paths = config.getUpload().getPaths();
+        if (paths.isEmpty()) {
+            roots.add(Paths.get(config.getUpload().getPath()).toAbsolutePath().normalize());
+        } else {
+            for (String path : paths) {
+                roots.add(Paths.get(path).toAbsolutePath().normalize());
+            }
+        }
+        if (config.getStorage().isPackSmallFiles() && paths.size() <= 1) {
+            roots.add(Paths.get(config.getStorage().getVolumePath()).toAbsolutePath().normalize());
+        }
+        if (config.getTier().isEnabled()) {
+            roots.add(Paths.get(config.getTier().getColdPath()).toAbsolutePath().normalize());
+        }
+        return new ArrayList<>(roots);
+    }
+
+    private Map<Path, String> resolveStorageDevices(Map<String, long[]> devices) throws IOException {
+        List<String> mountinfo = Files.readAllLines(MOUNTINFO, StandardCharsets.UTF_8);
+        Map<Path, String> resolved = new LinkedHashMap<>();
+        for (Path root : storageRoots(fileUploadConfig)) {
+            Path path = Files.exists(root) ? root.toRealPath() : root;
+            String device = resolveDevice(devices, resolveMountDevice(mountinfo, path));
+            if (device != null) {
+                logger.info("存储目录 {} 位于块设备 {}", path, device);
+                resolved.put(root, device);
+            }
+        }
+        return resolved;
+    }
+
+    private static String resolveDevice(Map<String, long[]> devices, String majorMinor) {
+        if (majorMinor == null) {
+            return null;
+        }
+        for (Map.Entry<String, long[]> entry : devices.entrySet()) {
+            long[] values = entry.getValue();
+            if ((values[values.length - 2] + ":" + values[values.length - 1]).equals(majorMinor)) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    private void sampleMemInfo() throws IOException {
+        if (!Files.isReadable(MEMINFO)) {
+            return;
+        }
+        for (String line : Files.readAllLines(MEMINFO, StandardCharsets.US_ASCII)) {
+            if (line.startsWith("Cached:")) {
+                cachedBytes = parseMemInfoKb(line) * 1024L;
+            } else if (line.startsWith("Dirty:")) {
+                dirtyBytes = parseMemInfoKb(line) * 1024L;
+            }
+        }
+    }
+
+    /**
+     * 通过 stat -f 读取 inode 总数和可用数，JDK 未提供对应的 API
+     */
+    private InodeUsage readInodeUsage(Path path) {
+        try {
+            Process process = new ProcessBuilder("stat", "-f", "-c", "%c %d", path.toString())
+                    .redirectErrorStream(true)
+                    .start();
+            if (!process.waitFor(2, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return inodeUsage;
+            }
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.US_ASCII).trim();
+            String[] parts = output.split("\\s+");
+            if (process.exitValue() != 0 || parts.length != 2) {
+                return inodeUsage;
+            }
+            return new InodeUsage(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        } catch (IOException | NumberFormatException e) {
+            logger.debug("读取 inode 使用量失败: {}", e.getMessage());
+            return inodeUsage;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return inodeUsage;
+        }
+    }
+
+    /**
+     * 获取最近一次采样结果
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("available", available);
+        if (!available) {
+            return status;
+        }
+        List<Map<String, Object>> storage = new ArrayList<>();
+        for (Map.Entry<Path, String> entry : storageDevices.entrySet()) {
+            Map<String, Object> root = new HashMap<>();
+            root.put("path", entry.getKey().toString());
+            root.put("device", entry.getValue());
+            storage.add(root);
+        }
+        status.put("storageDevices", storage);
+        status.put("sampledAt", sampledAt);
+        List<Map<String, Object>> devices = new ArrayList<>();
+        for (DeviceStats stats : latest.values()) {
+            devices.add(stats.toMap());
+        }
+        status.put("devices", devices);
+
+        InodeUsage usage = inodeUsage;
+        if (usage != null) {
+            Map<String, Object> inodes = new HashMap<>();
+            inodes.put("total", usage.total);
+            inodes.put("free", usage.free);
+            inodes.put("used", usage.total - usage.free);
+            inodes.put("usagePercentage", usage.total > 0 ? Math.round((double) (usage.total - usage.free) / usage.total * 100) : 0);
+            status.put("inodes", inodes);
+        }
+
+        Map<String, Object> pageCache = new HashMap<>();
+        pageCache.put("cachedBytes", cachedBytes);
+        pageCache.put("dirtyBytes", dirtyBytes);
+        pageCache.put("hitRatioEstimate", pageCacheHitRatio);
+        Map<String, Object> byIngest = new LinkedHashMap<>();
+        for (String ingest : new String[]{INGEST_NONE, INGEST_BUFFERED, INGEST_DIRECT}) {
+            byIngest.put(ingest, ingestHitRatioEstimate(ingest));
+        }
+        pageCache.put("hitRatioByIngest", byIngest);
+        pageCache.put("directWriteBytes", DirectIo.directBytes());
+        pageCache.put("bufferedBulkWriteBytes", DirectIo.bufferedBytes());
+        status.put("pageCache", pageCache);
+        return status;
+    }
+
+    /**
+     * 解析 /proc/diskstats，返回设备名到计数器的映射；计数器数组末尾追加主、次设备号
+     */
+    static Map<String, long[]> parseDiskstats(List<String> lines) {
+        Map<String, long[]> devices = new LinkedHashMap<>();
+        for (String line : lines) {
+            String[] fields = line.trim().split("\\s+");
+            if (fields.length < 14) {
+                continue;
+            }
+            long[] values = new long[13];
+            for (int i = 0; i < 11; i++) {
+                values[i] = Long.parseLong(fields[i + 3]);
+            }
+            values[11] = Long.parseLong(fields[0]);
+            values[12] = Long.parseLong(fields[1]);
+            devices.put(fields[2], values);
+        }
+        return devices;
+    }
+
+    /**
+     * 在 /proc/self/mountinfo 中找出包含指定路径的最长挂载点，返回其 "主:次" 设备号
+     */
+    static String resolveMountDevice(List<String> mountinfo, Path path) {
+        String target = path.toString();
+        String best = null;
+        int bestLength = -1;
+        for (String line : mountinfo) {
+            String[] fields = line.split(" ");
+            if (fields.length < 5) {
+                continue;
+            }
+            String mountPoint = fields[4].replace("\\040", " ");
+            boolean contains = mountPoint.equals("/") || target.equals(mountPoint)
+                    || target.startsWith(mountPoint + "/");
+            if (contains && mountPoint.length() > bestLength) {
+                best = fields[2];
+                bestLength = mountPoint.length();
+            }
+        }
+        return best;
+    }
+
+    private static long parseMemInfoKb(String line) {
+        String[] parts = line.split("\\s+");
+        return parts.length >= 2 ? Long.parseLong(parts[1]) : -1L;
+    }
+
+    /**
+     * 单个设备在一个采样周期内的统计
+     */
+    static final class DeviceStats {
+        final String device;
+        final double readBytesPerSecond;
+        final double writeBytesPerSecond;
+        final double readIops;
+        final double writeIops;
+        final double queueDepth;
+        final double utilization;
+        final double awaitMillis;
+        final long inFlight;
+
+        private DeviceStats(String device, double readBytesPerSecond, double writeBytesPerSecond,
+                            double readIops, double writeIops, double queueDepth, double utilization,
+                            double awaitMillis, long inFlight) {
+            this.device = device;
+            this.readBytesPerSecond = readBytesPerSecond;
+            this.writeBytesPerSecond = writeBytesPerSecond;
+            this.readIops = readIops;
+            this.writeIops = writeIops;
+            this.queueDepth = queueDepth;
+            this.utilization = utilization;
+            this.awaitMillis = awaitMillis;
+            this.inFlight = inFlight;
+        }
+
+        static DeviceStats between(String device, long[] before, long[] after, long elapsedNanos) {
+            double seconds = elapsedNanos / 1e9;
+            double elapsedMillis = elapsedNanos / 1e6;
+            long reads = after[READS] - before[READS];
+            long writes = after[WRITES] - before[WRITES];
+            long ioMillis = (after[MS_READING] - before[MS_READING]) + (after[MS_WRITING] - before[MS_WRITING]);
+            return new DeviceStats(device,
+                    (after[SECTORS_READ] - before[SECTORS_READ]) * SECTOR_SIZE / seconds,
+                    (after[SECTORS_WRITTEN] - before[SECTORS_WRITTEN]) * SECTOR_SIZE / seconds,
+                    reads / seconds,
+                    writes / seconds,
+                    (after[WEIGHTED_MS_IO] - before[WEIGHTED_MS_IO]) / elapsedMillis,
+                    Math.min(1.0, (after[MS_IO] - before[MS_IO]) / elapsedMillis),
+                    reads + writes > 0 ? (double) ioMillis / (reads + writes) : 0.0,
+                    after[IN_FLIGHT]);
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("device", device);
+            map.put("readBytesPerSecond", Math.round(readBytesPerSecond));
+            map.put("writeBytesPerSecond", Math.round(writeBytesPerSecond));
+            map.put("readIops", Math.round(readIops * 10) / 10.0);
+            map.put("writeIops", Math.round(writeIops * 10) / 10.0);
+            map.put("queueDepth", Math.round(queueDepth * 100) / 100.0);
+            map.put("utilizationPercentage", Math.round(utilization * 1000) / 10.0);
+            map.put("awaitMillis", Math.round(awaitMillis * 100) / 100.0);
+            map.put("inFlight", inFlight);
+            return map;
+        }
+    }
+
+    private static final class InodeUsage {
+        private final long total;
+        private final long free;
+
+        private InodeUsage(long total, long free) {
+            this.total = total;
+            this.free = free;
+        }
+    }
+}
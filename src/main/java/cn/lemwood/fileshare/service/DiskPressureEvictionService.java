@@ -0,0 +1,511 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import cn.lemwood.fileshare.entity.FileInfo;
+import cn.lemwood.fileshare.repository.FileInfoRepository;
+import cn.lemwood.fileshare.repository.FileUsageSummary;
+import cn.lemwood.fileshare.task.ExpiryScheduler;
+import cn.lemwood.fileshare.storage.StorageBackend;
+import cn.lemwood.fileshare.storage.StorageSpace;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 磁盘压力淘汰服务
+ * 定时检查上传目录所在磁盘的使用率，超过高水位时按配置的策略提前淘汰文件，直到低于低水位。
+ * 候选文件保存在内存索引中（上传、下载、删除时同步更新），淘汰时只对内存索引排序，不扫描数据表；
+ * 删除后不立即释放空间的文件（如打包存储的小文件，要等卷压缩）不作为淘汰候选，避免淘汰了却不降低水位。
+ * 被淘汰的文件写入墓碑并立即触发回收；墓碑只是隐藏文件，在回收器删除物理文件并清除记录之前，
+ * 这些字节记为待回收，计算还需淘汰的字节数时扣除，避免回收器正忙（或由其他节点回收）时反复淘汰更多文件。
+ * 上传预留空间不足时由预留账本请求后台淘汰，淘汰在单独的线程中执行，并发的请求合并为一次。
+ * 磁盘使用率按整块盘计算，需要释放的字节数不超过应用自己的有效文件总量；即使淘汰全部文件也无法回到低水位时，
+ * 压力来自日志、数据库等其他数据，只告警不淘汰，避免共享磁盘上把用户文件全部淘汰。默认关闭，需显式开启。
+ *
+ * @author lemwood
+ */
+@Service
+public class DiskPressureEvictionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskPressureEvictionService.class);
+
+    private static final int LOAD_PAGE_SIZE = 1000;
+    private static final int RECENT_EVICTIONS = 100;
+    private static final int PENDING_QUERY_SIZE = 1000;
+
+    @Autowired
+    private FileInfoRepository fileInfoRepository;
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    @Autowired
+    private StorageStatsService storageStatsService;
+
+    @Autowired
+    private TombstoneReaper tombstoneReaper;
+
+    @Autowired
+    private ExpiryScheduler expiryScheduler;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    private final Map<String, Candidate> index = new ConcurrentHashMap<>();
+    private final Deque<Eviction> recentEvictions = new ArrayDeque<>();
+
+    /**
+     * 已写入墓碑但记录尚未被回收器清除的淘汰文件：ID -> 大小
+     */
+    private final Map<Long, Long> pendingReclaim = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    private final ExecutorService reclaimExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "eviction-reclaim");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Object reclaimLock = new Object();
+    private CompletableFuture<Integer> reclaimInFlight;
+    private long reclaimRequested;
+
+    private volatile double lastUsage;
+    private volatile boolean underPressure;
+    private volatile LocalDateTime lastCheckTime;
+    private Counter evictedFilesCounter;
+    private Counter evictedBytesCounter;
+
+    @PostConstruct
+    public void init() {
+        evictedFilesCounter = Counter.builder("fileshare.eviction.files")
+                .description("磁盘压力下提前淘汰的文件数")
+                .register(meterRegistry);
+        evictedBytesCounter = Counter.builder("fileshare.eviction.bytes")
+                .description("磁盘压力下提前淘汰的字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("fileshare.eviction.candidates", index, Map::size)
+                .description("淘汰候选索引中的文件数")
+                .register(meterRegistry);
+        Gauge.builder("fileshare.eviction.pending", pendingReclaim,
+                        pending -> pending.values().stream().mapToLong(Long::longValue).sum())
+                .description("已淘汰但尚未回收的字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("fileshare.eviction.pressure", this, service -> service.underPressure ? 1 : 0)
+                .description("上传目录是否处于磁盘压力下")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reclaimExecutor.shutdownNow();
+    }
+
+    /**
+     * 登记新上传的文件
+     */
+    public void track(FileInfo fileInfo) {
+        index.put(fileInfo.getFileKey(), new Candidate(fileInfo.getId(), fileInfo.getFileKey(),
+                fileInfo.getStoredName(), sizeOf(fileInfo.getFileSize()), toMillis(fileInfo.getUploadTime()),
+                toMillis(fileInfo.getExpireTime()), 0));
+    }
+
+    /**
+     * 记录一次下载
+     */
+    public void touch(String fileKey) {
+        Candidate candidate = index.get(fileKey);
+        if (candidate != null) {
+            // 计数只用于排序，并发下允许少量丢失
+            candidate.downloads++;
+            candidate.lastAccess = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 移除已删除的文件
+     */
+    public void untrack(String fileKey) {
+        index.remove(fileKey);
+    }
+
+    /**
+     * 定时检查磁盘水位
+     */
+    @Scheduled(fixedDelayString = "${file.eviction.check-interval:10000}")
+    public void checkPressure() {
+        FileUploadConfig.Eviction config = fileUploadConfig.getEviction();
+        if (!config.isEnabled()) {
+            return;
+        }
+        try {
+            ensureLoaded();
+            pruneExpired(System.currentTimeMillis());
+
+            StorageSpace space = storageBackend.space();
+            long total = space.getTotal();
+            long used = space.getUsed();
+            lastUsage = total > 0 ? (double) used / total : 0D;
+            lastCheckTime = LocalDateTime.now();
+            underPressure = lastUsage >= config.getHighWatermark();
+            if (underPressure) {
+                long pending = pendingReclaimBytes();
+                long bytesNeeded = used - (long) (total * config.getLowWatermark()) - pending;
+                if (bytesNeeded <= 0) {
+                    logger.info("上传目录磁盘使用率 {}% 超过高水位，等待回收已淘汰的 {} 字节",
+                            String.format("%.1f", lastUsage * 100), pending);
+                    return;
+                }
+                if (!canFree(bytesNeeded)) {
+                    logger.warn("上传目录磁盘使用率 {}% 超过高水位，但需释放的 {} 字节不少于全部有效文件 {} 字节，"
+                                    + "压力来自其他数据，不淘汰",
+                            String.format("%.1f", lastUsage * 100), bytesNeeded, storageStatsService.getTotalSize());
+                    return;
+                }
+                logger.warn("上传目录磁盘使用率 {}% 超过高水位，开始提前淘汰约 {} 字节（另有 {} 字节待回收）",
+                        String.format("%.1f", lastUsage * 100), bytesNeeded, pending);
+                evict(bytesNeeded, "watermark");
+            }
+        } catch (Exception e) {
+            logger.error("磁盘水位检查失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 请求后台淘汰：已有淘汰在进行或排队时合并到同一次，返回其结果
+     *
+     * @param bytes 需要释放的字节数
+     * @return 淘汰的文件数
+     */
+    public CompletableFuture<Integer> reclaimAsync(long bytes) {
+        if (!fileUploadConfig.getEviction().isEnabled() || bytes <= 0) {
+            return CompletableFuture.completedFuture(0);
+        }
+        synchronized (reclaimLock) {
+            reclaimRequested = Math.max(reclaimRequested, bytes);
+            if (reclaimInFlight == null || reclaimInFlight.isDone()) {
+                reclaimInFlight = CompletableFuture.supplyAsync(() -> {
+                    long requested;
+                    synchronized (reclaimLock) {
+                        requested = reclaimRequested;
+                        reclaimRequested = 0L;
+                    }
+                    return reclaim(requested);
+                }, reclaimExecutor);
+            }
+            return reclaimInFlight;
+        }
+    }
+
+    /**
+     * 同步淘汰，已淘汰但尚未回收的字节视为即将释放
+     *
+     * @param bytes 需要释放的字节数
+     * @return 淘汰的文件数
+     */
+    public int reclaim(long bytes) {
+        if (!fileUploadConfig.getEviction().isEnabled() || bytes <= 0) {
+            return 0;
+        }
+        underPressure = true;
+        ensureLoaded();
+        long bytesNeeded = bytes - pendingReclaimBytes();
+        if (bytesNeeded <= 0 || !canFree(bytesNeeded)) {
+            return 0;
+        }
+        return evict(bytesNeeded, "upload");
+    }
+
+    /**
+     * 淘汰能否释放 bytesNeeded 字节：不超过应用自己的有效文件总量（已写墓碑的文件在统计中已扣除，
+     * 待回收的字节在调用方已扣除）；否则淘汰全部文件也不够，不淘汰
+     */
+    private boolean canFree(long bytesNeeded) {
+        return bytesNeeded < storageStatsService.getTotalSize();
+    }
+
+    /**
+     * 已淘汰但尚未回收的字节数，先剔除回收器已清除记录的文件
+     */
+    long pendingReclaimBytes() {
+        if (pendingReclaim.isEmpty()) {
+            return 0L;
+        }
+        List<Long> ids = new ArrayList<>(pendingReclaim.keySet());
+        Set<Long> remaining = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += PENDING_QUERY_SIZE) {
+            remaining.addAll(fileInfoRepository.findExistingIds(
+                    ids.subList(from, Math.min(ids.size(), from + PENDING_QUERY_SIZE))));
+        }
+        pendingReclaim.keySet().removeIf(id -> !remaining.contains(id));
+        return pendingReclaim.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * 按策略淘汰文件，直到累计释放 bytesNeeded 字节或达到单次上限
+     *
+     * @return 淘汰的文件数
+     */
+    synchronized int evict(long bytesNeeded, String reason) {
+        FileUploadConfig.Eviction config = fileUploadConfig.getEviction();
+        List<Candidate> victims = selectVictims(bytesNeeded, System.currentTimeMillis());
+        if (victims.isEmpty()) {
+            logger.warn("磁盘压力下没有可淘汰的文件（{}）", reason);
+            return 0;
+        }
+
+        List<Long> ids = new ArrayList<>(victims.size());
+        long bytes = 0L;
+        for (Candidate victim : victims) {
+            ids.add(victim.id);
+            bytes += victim.size;
+        }
+        // 索引与数据库的少量不一致（如已被并发删除）由统计校准修正
+        int marked = fileInfoRepository.markDeleted(ids, LocalDateTime.now());
+        tombstoneReaper.onTombstoned(marked);
+        storageStatsService.recordRemoved(marked, bytes);
+
+        for (Candidate victim : victims) {
+            pendingReclaim.put(victim.id, victim.size);
+            index.remove(victim.fileKey);
+            expiryScheduler.cancel(victim.fileKey);
+            recordEviction(new Eviction(victim.fileKey, victim.size, config.getPolicy().name(), reason));
+            logger.info("磁盘压力提前淘汰文件: {} ({} 字节, 策略 {}, 触发 {})",
+                    victim.fileKey, victim.size, config.getPolicy(), reason);
+        }
+        evictedFilesCounter.increment(marked);
+        evictedBytesCounter.increment(bytes);
+
+        // 立即回收，尽快释放磁盘空间；回收器正忙或由其他节点回收时，这些字节保持待回收，
+        // 下一轮检查不会为它们再次淘汰
+        if (tombstoneReaper.reap() == 0) {
+            logger.info("回收器正忙，淘汰的 {} 个文件稍后回收", marked);
+        }
+        return marked;
+    }
+
+    /**
+     * 对内存索引排序，选出需要淘汰的文件。已过期未清理的文件总是最先淘汰，删除后不释放空间的文件跳过。
+     */
+    List<Candidate> selectVictims(long bytesNeeded, long now) {
+        FileUploadConfig.Eviction config = fileUploadConfig.getEviction();
+        long youngest = now - config.getMinAge();
+        List<Candidate> ranked = new ArrayList<>();
+        for (Candidate candidate : index.values()) {
+            if (candidate.uploadTime <= youngest) {
+                ranked.add(candidate);
+            }
+        }
+        Comparator<Candidate> expiredFirst = Comparator.comparing(candidate -> candidate.expireAt > now);
+        ranked.sort(expiredFirst.thenComparing(policyOrder(config.getPolicy(), now)));
+
+        List<Candidate> victims = new ArrayList<>();
+        long selected = 0L;
+        for (Candidate candidate : ranked) {
+            if (selected >= bytesNeeded || victims.size() >= config.getMaxEvictionsPerRun()) {
+                break;
+            }
+            if (!freesSpaceOnDelete(candidate)) {
+                continue;
+            }
+            victims.add(candidate);
+            selected += candidate.size;
+        }
+        return victims;
+    }
+
+    private boolean freesSpaceOnDelete(Candidate candidate) {
+        if (candidate.storedName == null) {
+            return true;
+        }
+        try {
+            return storageBackend.freesSpaceOnDelete(candidate.storedName);
+        } catch (IOException e) {
+            logger.debug("无法判断文件 {} 删除后是否释放空间: {}", candidate.fileKey, e.getMessage());
+            return true;
+        }
+    }
+
+    private static Comparator<Candidate> policyOrder(FileUploadConfig.Eviction.Policy policy, long now) {
+        switch (policy) {
+            case LEAST_DOWNLOADED:
+                return Comparator.<Candidate>comparingInt(candidate -> candidate.downloads)
+                        .thenComparingLong(candidate -> candidate.uploadTime);
+            case LARGEST_IDLE:
+                // 体积与空闲时长的乘积越大越先淘汰
+                return Comparator.<Candidate>comparingDouble(
+                        candidate -> (double) candidate.size * (now - candidate.lastAccess)).reversed();
+            case OLDEST_FIRST:
+            default:
+                return Comparator.comparingLong(candidate -> candidate.uploadTime);
+        }
+    }
+
+    /**
+     * 首次使用时按ID游标装载全部有效文件
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            long lastId = 0L;
+            while (true) {
+                List<FileUsageSummary> page = fileInfoRepository.findUsageBatch(lastId, PageRequest.of(0, LOAD_PAGE_SIZE));
+                for (FileUsageSummary file : page) {
+                    index.putIfAbsent(file.getFileKey(), new Candidate(file.getId(), file.getFileKey(),
+                            file.getStoredName(), sizeOf(file.getFileSize()), toMillis(file.getUploadTime()), toMillis(file.getExpireTime()),
+                            file.getDownloadCount() != null ? file.getDownloadCount() : 0));
+                }
+                if (page.size() < LOAD_PAGE_SIZE) {
+                    break;
+                }
+                lastId = page.get(page.size() - 1).getId();
+            }
+            loaded = true;
+            logger.info("淘汰候选索引装载完成，共 {} 个文件", index.size());
+        }
+    }
+
+    /**
+     * 移除早已过期的条目（过期清理已处理），避免索引无限增长
+     */
+    private void pruneExpired(long now) {
+        long cutoff = now - fileUploadConfig.getCleanup().getInterval();
+        index.values().removeIf(candidate -> candidate.expireAt < cutoff);
+    }
+
+    private void recordEviction(Eviction eviction) {
+        synchronized (recentEvictions) {
+            if (recentEvictions.size() >= RECENT_EVICTIONS) {
+                recentEvictions.pollFirst();
+            }
+            recentEvictions.addLast(eviction);
+        }
+    }
+
+    /**
+     * 获取淘汰状态
+     */
+    public Map<String, Object> getStatus() {
+        FileUploadConfig.Eviction config = fileUploadConfig.getEviction();
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", config.isEnabled());
+        status.put("policy", config.getPolicy().name());
+        status.put("highWatermark", config.getHighWatermark());
+        status.put("lowWatermark", config.getLowWatermark());
+        status.put("usage", lastUsage);
+        status.put("underPressure", underPressure);
+        status.put("lastCheckTime", lastCheckTime);
+        status.put("candidates", index.size());
+        status.put("evictedFiles", (long) evictedFilesCounter.count());
+        status.put("evictedBytes", (long) evictedBytesCounter.count());
+        status.put("pendingReclaimBytes", pendingReclaim.values().stream().mapToLong(Long::longValue).sum());
+        List<Map<String, Object>> recent = new ArrayList<>();
+        synchronized (recentEvictions) {
+            for (Eviction eviction : recentEvictions) {
+                recent.add(eviction.toMap());
+            }
+        }
+        status.put("recent", recent);
+        return status;
+    }
+
+    public boolean isUnderPressure() {
+        return underPressure;
+    }
+
+    private static long sizeOf(Long size) {
+        return size != null ? size : 0L;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0L;
+    }
+
+    /**
+     * 淘汰候选
+     */
+    static final class Candidate {
+        final Long id;
+        final String fileKey;
+        final String storedName;
+        final long size;
+        final long uploadTime;
+        final long expireAt;
+        volatile int downloads;
+        volatile long lastAccess;
+
+        Candidate(Long id, String fileKey, String storedName, long size, long uploadTime, long expireAt,
+                  int downloads) {
+            this.id = id;
+            this.fileKey = fileKey;
+            this.storedName = storedName;
+            this.size = size;
+            this.uploadTime = uploadTime;
+            this.expireAt = expireAt;
+            this.downloads = downloads;
+            this.lastAccess = uploadTime;
+        }
+    }
+
+    /**
+     * 淘汰记录
+     */
+    private static final class Eviction {
+        private final String fileKey;
+        private final long fileSize;
+        private final String policy;
+        private final String reason;
+        private final LocalDateTime time = LocalDateTime.now();
+
+        private Eviction(String fileKey, long fileSize, String policy, String reason) {
+            this.fileKey = fileKey;
+            this.fileSize = fileSize;
+            this.policy = policy;
+            this.reason = reason;
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("fileKey", fileKey);
+            map.put("fileSize", fileSize);
+            map.put("policy", policy);
+            map.put("reason", reason);
+            map.put("time", time);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import cn.lemwood.fileshare.jfr.CleanupBatchEvent;
+import cn.lemwood.fileshare.repository.FileInfoRepository;
+import cn.lemwood.fileshare.repository.FileInfoSummary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 过期文件清理引擎
+ * 按ID游标分批读取过期文件摘要，用 UPDATE ... WHERE id IN (...) 批量写入删除墓碑，
+ * 物理文件由墓碑回收器在后台限速删除；回收积压过多时暂停本轮清理。
+ * 执行期间持有数据库租约锁，保证集群内同一时间只有一个节点在清理
+ *
+ * @author lemwood
+ */
+@Service
+public class ExpiredFileCleanupEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpiredFileCleanupEngine.class);
+
+    /**
+     * 集群锁名称
+     */
+    public static final String LOCK_NAME = "expired-file-cleanup";
+
+    @Autowired
+    private FileInfoRepository fileInfoRepository;
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    @Autowired
+    private StorageStatsService storageStatsService;
+
+    @Autowired
+    private JobLockService jobLockService;
+
+    @Autowired
+    private TombstoneReaper tombstoneReaper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Progress progress = new Progress();
+
+    private Timer batchTimer;
+    private Counter deletedCounter;
+    private Counter freedBytesCounter;
+
+    @PostConstruct
+    public void init() {
+        batchTimer = Timer.builder("fileshare.cleanup.batch")
+                .description("单批过期文件清理耗时")
+                .register(meterRegistry);
+        deletedCounter = Counter.builder("fileshare.cleanup.deleted")
+                .description("清理标记删除的过期文件数")
+                .register(meterRegistry);
+        freedBytesCounter = Counter.builder("fileshare.cleanup.freed")
+                .description("清理标记删除的过期文件字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("fileshare.cleanup.running", running, flag -> flag.get() ? 1 : 0)
+                .description("清理任务是否正在执行")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 执行一轮过期文件清理
+     *
+     * @param trigger 触发来源，用于日志
+     * @return 删除的文件数；本节点或其他节点已在清理时返回0
+     */
+    public int runCleanup(String trigger) {
+        if (!running.compareAndSet(false, true)) {
+            logger.debug("清理任务已在本节点执行中，跳过本次触发: {}", trigger);
+            return 0;
+        }
+        try {
+            FileUploadConfig.Cleanup config = fileUploadConfig.getCleanup();
+            if (!jobLockService.tryAcquire(LOCK_NAME, config.getLockLease())) {
+                logger.debug("清理任务正在其他节点执行，跳过本次触发: {}", trigger);
+                return 0;
+            }
+            try {
+                return cleanupBatches(trigger, config);
+            } finally {
+                jobLockService.release(LOCK_NAME);
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int cleanupBatches(String trigger, FileUploadConfig.Cleanup config) {
+        LocalDateTime cutoff = LocalDateTime.now();
+        int batchSize = Math.max(1, config.getBatchSize());
+        long startTime = System.currentTimeMillis();
+        long lastId = 0L;
+        int deletedCount = 0;
+        long freedBytes = 0L;
+
+        progress.start(trigger);
+        try {
+            while (true) {
+                if (tombstoneReaper.isBacklogged()) {
+                    // 已过期的文件不可下载，推迟标记不影响可见性，等回收器追上后再继续
+                    logger.info("墓碑回收积压 {} 条，暂停本轮过期清理", tombstoneReaper.getBacklog());
+                    break;
+                }
+                List<FileInfoSummary> batch = fileInfoRepository.findExpiredBatch(
+                        cutoff, lastId, PageRequest.of(0, batchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                long[] result = tombstoneBatch(batch, trigger);
+                deletedCount += result[0];
+                freedBytes += result[1];
+
+                lastId = batch.get(batch.size() - 1).getId();
+                progress.update(lastId, deletedCount);
+                if (!jobLockService.renew(LOCK_NAME, config.getLockLease(), lastId, deletedCount)) {
+                    logger.warn("清理任务租约已丢失，停止本轮清理");
+                    break;
+                }
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+        } finally {
+            progress.finish(deletedCount, System.currentTimeMillis() - startTime);
+        }
+
+        if (deletedCount > 0) {
+            logger.info("清理过期文件完成({})，共标记删除 {} 个文件({} 字节)，耗时 {} ms",
+                    trigger, deletedCount, freedBytes, System.currentTimeMillis() - startTime);
+        }
+        return deletedCount;
+    }
+
+    /**
+     * 立即清理指定的已到期文件（供到期调度器小批量调用）
+     * 只删除确实已过期的记录；全量清理正在本节点执行时返回-1，由调用方稍后重试
+     *
+     * @return 删除的文件数
+     */
+    public int purgeDue(Collection<String> fileKeys) {
+        if (fileKeys.isEmpty()) {
+            return 0;
+        }
+        if (!running.compareAndSet(false, true)) {
+            return -1;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<FileInfoSummary> due = new ArrayList<>(fileKeys.size());
+            for (FileInfoSummary file : fileInfoRepository.findSummariesByFileKeyIn(fileKeys)) {
+                if (file.getExpireTime() != null && !file.getExpireTime().isAfter(now)) {
+                    due.add(file);
+                }
+            }
+            return due.isEmpty() ? 0 : (int) tombstoneBatch(due, "expiry-wheel")[0];
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 将一批文件标记为墓碑，物理文件交给回收器删除
+     *
+     * @return {标记记录数, 标记字节数}
+     */
+    private long[] tombstoneBatch(List<FileInfoSummary> batch, String trigger) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CleanupBatchEvent event = new CleanupBatchEvent();
+        event.begin();
+        LocalDateTime now = LocalDateTime.now();
+        Timer expiryLag = Timer.builder("fileshare.expiry.lag")
+                .description("文件超过到期时间后仍然可见的时长")
+                .tag("trigger", trigger)
+                .register(meterRegistry);
+        List<Long> ids = new ArrayList<>(batch.size());
+        long batchBytes = 0L;
+        for (FileInfoSummary file : batch) {
+            ids.add(file.getId());
+            batchBytes += file.getFileSize() != null ? file.getFileSize() : 0L;
+            if (file.getExpireTime() != null) {
+                expiryLag.record(Math.max(0L, Duration.between(file.getExpireTime(), now).toMillis()),
+                        TimeUnit.MILLISECONDS);
+            }
+        }
+
+        // 与用户删除并发时少数记录可能已是墓碑，字节数的偏差由统计校准修正
+        int marked = fileInfoRepository.markDeleted(ids, now);
+        tombstoneReaper.onTombstoned(marked);
+        storageStatsService.recordRemoved(marked, batchBytes);
+        deletedCounter.increment(marked);
+        freedBytesCounter.increment(batchBytes);
+        sample.stop(batchTimer);
+        event.stage = "tombstone";
+        event.trigger = trigger;
+        event.files = marked;
+        event.bytes = batchBytes;
+        event.commit();
+        return new long[]{marked, batchBytes};
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public Progress getProgress() {
+        return progress;
+    }
+
+    /**
+     * 清理进度
+     */
+    public static class Progress {
+        private volatile String trigger;
+        private volatile LocalDateTime startTime;
+        private volatile long checkpoint;
+        private volatile long processed;
+        private volatile LocalDateTime lastFinishTime;
+        private volatile long lastDeleted;
+        private volatile long lastDuration;
+
+        void start(String trigger) {
+            this.trigger = trigger;
+            this.startTime = LocalDateTime.now();
+            this.checkpoint = 0L;
+            this.processed = 0L;
+        }
+
+        void update(long checkpoint, long processed) {
+            this.checkpoint = checkpoint;
+            this.processed = processed;
+        }
+
+        void finish(long deleted, long duration) {
+            this.lastFinishTime = LocalDateTime.now();
+            this.lastDeleted = deleted;
+            this.lastDuration = duration;
+        }
+
+        public String getTrigger() {
+            return trigger;
+        }
+
+        public LocalDateTime getStartTime() {
+            return startTime;
+        }
+
+        public long getCheckpoint() {
+            return checkpoint;
+        }
+
+        public long getProcessed() {
+            return processed;
+        }
+
+        public LocalDateTime getLastFinishTime() {
+            return lastFinishTime;
+        }
+
+        public long getLastDeleted() {
+            return lastDeleted;
+        }
+
+        public long getLastDuration() {
+            return lastDuration;
+        }
+    }
+}
@@ -3,25 +3,23 @@ package cn.lemwood.fileshare.service;
 import cn.lemwood.fileshare.config.FileUploadConfig;
 import cn.lemwood.fileshare.entity.FileInfo;
 import cn.lemwood.fileshare.exception.FileShareException;
+import cn.lemwood.fileshare.jfr.UploadEvent;
+import cn.lemwood.fileshare.metrics.FileShareMetrics;
 import cn.lemwood.fileshare.repository.FileInfoRepository;
+import cn.lemwood.fileshare.storage.StorageBackend;
+import cn.lemwood.fileshare.storage.StorageResource;
+import cn.lemwood.fileshare.task.ExpiryScheduler;
 import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.annotation.PostConstruct;
-import java.io.File;
 import java.io.IOException;
-import java.net.MalformedURLException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -42,24 +40,50 @@ public class FileService {
     @Autowired
     private FileUploadConfig fileUploadConfig;
 
-    private Path uploadPath;
+    @Autowired
+    private StorageStatsService storageStatsService;
+
+    @Autowired
+    private ExpiredFileCleanupEngine cleanupEngine;
+
+    @Autowired
+    private ExpiryScheduler expiryScheduler;
+
+    @Autowired
+    private TombstoneReaper tombstoneReaper;
+
+    @Autowired
+    private DiskPressureEvictionService evictionService;
+
+    @Autowired
+    private FileShareMetrics fileShareMetrics;
 
-    @PostConstruct
-    public void init() {
+    @Autowired
+    private StorageBackend storageBackend;
+
+    /**
+     * 上传文件
+     * 处理过程作为 JFR 上传事件提交，失败的上传同样记录
+     */
+    public FileInfo uploadFile(MultipartFile file, String uploaderIp) throws IOException {
+        UploadEvent event = new UploadEvent();
+        event.begin();
+        event.contentType = file.getContentType();
+        event.fileSize = file.getSize();
+        event.outcome = "failed";
         try {
-            uploadPath = Paths.get(fileUploadConfig.getUpload().getPath()).toAbsolutePath().normalize();
-            Files.createDirectories(uploadPath);
-            logger.info("文件上传目录初始化成功: {}", uploadPath);
-        } catch (IOException e) {
-            logger.error("无法创建上传目录: {}", e.getMessage());
-            throw new RuntimeException("无法创建上传目录", e);
+            FileInfo fileInfo = storeUpload(file, uploaderIp, event);
+            event.outcome = "success";
+            return fileInfo;
+        } finally {
+            event.commit();
         }
     }
 
     /**
-     * 上传文件
+     * 校验并保存上传文件，写盘和落库耗时记入事件
      */
-    public FileInfo uploadFile(MultipartFile file, String uploaderIp) throws IOException {
+    private FileInfo storeUpload(MultipartFile file, String uploaderIp, UploadEvent event) throws IOException {
         // 验证文件
         validateFile(file);
 
@@ -68,10 +92,30 @@ public class FileService {
         String originalName = file.getOriginalFilename();
         String extension = FilenameUtils.getExtension(originalName);
         String storedName = fileKey + "." + extension;
+        event.fileKey = fileKey;
 
-        // 保存文件到磁盘
-        Path targetPath = uploadPath.resolve(storedName);
-        Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+        // 写入存储后端
+        long writeStart = System.nanoTime();
+        try {
+            storageBackend.write(storedName, file.getInputStream());
+            event.writeDuration = System.nanoTime() - writeStart;
+            fileShareMetrics.recordUploadWrite(file.getContentType(), file.getSize(), event.writeDuration);
+        } catch (IOException e) {
+            try {
+                storageBackend.delete(storedName);
+            } catch (IOException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            if (evictionService.isUnderPressure()) {
+                // 写入期间磁盘被占满，返回明确的空间不足错误而不是I/O异常
+                throw new FileShareException(
+                    FileShareException.ErrorCodes.STORAGE_FULL,
+                    "存储空间不足，请稍后重试",
+                    e
+                );
+            }
+            throw e;
+        }
 
         // 创建文件信息记录
         FileInfo fileInfo = new FileInfo(
@@ -80,13 +124,19 @@ public class FileService {
                 storedName,
                 file.getSize(),
                 file.getContentType(),
-                targetPath.toString(),
+                storageBackend.location(storedName),
                 uploaderIp
         );
+        fileInfo.setStorageVolume(storageBackend.volumeOf(storedName));
 
         // 保存到数据库
+        long persistStart = System.nanoTime();
         fileInfo = fileInfoRepository.save(fileInfo);
-        logger.info("文件上传成功: {} -> {}", originalName, fileKey);
+        event.persistDuration = System.nanoTime() - persistStart;
+        storageStatsService.recordAdded(fileInfo.getFileSize());
+        expiryScheduler.schedule(fileKey, fileInfo.getExpireTime());
+        evictionService.track(fileInfo);
+        logger.debug("文件上传成功: {} -> {}", originalName, fileKey);
 
         return fileInfo;
     }
@@ -120,27 +170,25 @@ public class FileService {
             );
         }
 
-        // 获取文件资源
-        Path filePath = Paths.get(fileInfo.getFilePath());
-        Resource resource = new UrlResource(filePath.toUri());
-
-        if (!resource.exists() || !resource.isReadable()) {
-            throw new FileShareException(
-                FileShareException.ErrorCodes.FILE_NOT_READABLE,
-                "文件不存在或无法读取"
-            );
-        }
+        // 获取文件资源，按记录的存储盘直接定位
+        storageBackend.hintVolume(fileInfo.getStoredName(), fileInfo.getStorageVolume());
+        Resource resource = StorageResource.of(storageBackend, fileInfo.getStoredName())
+                .orElseThrow(() -> new FileShareException(
+                    FileShareException.ErrorCodes.FILE_NOT_READABLE,
+                    "文件不存在或无法读取"
+                ));
 
         // 增加下载次数
         fileInfo.incrementDownloadCount();
-        fileInfoRepository.save(fileInfo);
+        fileInfoRepository.incrementDownloadCount(fileInfo.getId());
+        evictionService.touch(fileKey);
 
-        logger.info("文件下载: {} ({})", fileInfo.getOriginalName(), fileKey);
+        logger.debug("文件下载: {} ({})", fileInfo.getOriginalName(), fileKey);
         return resource;
     }
 
     /**
-     * 删除文件
+     * 删除文件（写入墓碑，请求线程不做磁盘I/O）
      */
     public boolean deleteFile(String fileKey) {
         Optional<FileInfo> fileInfoOpt = fileInfoRepository.findByFileKey(fileKey);
@@ -149,21 +197,20 @@ public class FileService {
         }
 
         FileInfo fileInfo = fileInfoOpt.get();
-        
-        try {
-            // 删除物理文件
-            Path filePath = Paths.get(fileInfo.getFilePath());
-            Files.deleteIfExists(filePath);
-            
-            // 删除数据库记录
-            fileInfoRepository.delete(fileInfo);
-            
-            logger.info("文件删除成功: {} ({})", fileInfo.getOriginalName(), fileKey);
-            return true;
-        } catch (IOException e) {
-            logger.error("删除文件失败: {}", e.getMessage());
+
+        // 只写入墓碑，文件立即不可见；物理文件由回收器异步删除
+        int marked = fileInfoRepository.markDeleted(Collections.singletonList(fileInfo.getId()), LocalDateTime.now());
+        if (marked == 0) {
+            // 已被并发删除
             return false;
         }
+        tombstoneReaper.onTombstoned(marked);
+        storageStatsService.recordRemoved(fileInfo.getFileSize());
+        expiryScheduler.cancel(fileKey);
+        evictionService.untrack(fileKey);
+
+        logger.info("文件删除成功: {} ({})", fileInfo.getOriginalName(), fileKey);
+        return true;
     }
 
     /**
@@ -181,42 +228,17 @@ public class FileService {
     }
 
     /**
-     * 清理过期文件
+     * 全量清理过期文件（分批执行，集群内互斥）
      */
     public int cleanupExpiredFiles() {
-        List<FileInfo> expiredFiles = fileInfoRepository.findExpiredFiles(LocalDateTime.now());
-        int deletedCount = 0;
-
-        for (FileInfo fileInfo : expiredFiles) {
-            try {
-                // 删除物理文件
-                Path filePath = Paths.get(fileInfo.getFilePath());
-                Files.deleteIfExists(filePath);
-                
-                // 删除数据库记录
-                fileInfoRepository.delete(fileInfo);
-                deletedCount++;
-                
-                logger.debug("清理过期文件: {} ({})", fileInfo.getOriginalName(), fileInfo.getFileKey());
-            } catch (IOException e) {
-                logger.error("清理过期文件失败: {}", e.getMessage());
-            }
-        }
-
-        if (deletedCount > 0) {
-            logger.info("清理过期文件完成，共删除 {} 个文件", deletedCount);
-        }
-        
-        return deletedCount;
+        return cleanupEngine.runCleanup("scheduled");
     }
 
     /**
-     * 获取系统统计信息
+     * 获取系统统计信息（读取内存计数器，不访问数据库）
      */
     public SystemStats getSystemStats() {
-        long totalFiles = fileInfoRepository.count();
-        Long totalSize = fileInfoRepository.getTotalFileSize();
-        return new SystemStats(totalFiles, totalSize != null ? totalSize : 0L);
+        return new SystemStats(storageStatsService.getTotalFiles(), storageStatsService.getTotalSize());
     }
 
     /**
@@ -0,0 +1,96 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.entity.JobLock;
+import cn.lemwood.fileshare.repository.JobLockRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * 后台任务租约锁服务
+ * 基于 job_lock 表实现集群范围的互斥，租约过期后其他节点可以接管
+ *
+ * @author lemwood
+ */
+@Service
+public class JobLockService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobLockService.class);
+
+    @Autowired
+    private JobLockRepository jobLockRepository;
+
+    private final String ownerId = resolveOwnerId();
+
+    /**
+     * 尝试获取任务锁
+     *
+     * @param name        任务名称
+     * @param leaseMillis 租约时长（毫秒）
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire(String name, long leaseMillis) {
+        ensureLockRow(name);
+        LocalDateTime now = LocalDateTime.now();
+        boolean acquired = jobLockRepository.tryAcquire(name, ownerId, now.plusNanos(leaseMillis * 1_000_000L), now) > 0;
+        if (!acquired) {
+            logger.debug("任务锁 {} 已被其他节点持有", name);
+        }
+        return acquired;
+    }
+
+    /**
+     * 续约并记录进度
+     *
+     * @return 是否仍持有锁
+     */
+    public boolean renew(String name, long leaseMillis, Long checkpoint, long processedCount) {
+        LocalDateTime now = LocalDateTime.now();
+        return jobLockRepository.renew(name, ownerId, now.plusNanos(leaseMillis * 1_000_000L),
+                checkpoint, processedCount, now) > 0;
+    }
+
+    /**
+     * 释放任务锁
+     */
+    public void release(String name) {
+        try {
+            jobLockRepository.release(name, ownerId, LocalDateTime.now());
+        } catch (Exception e) {
+            // 释放失败时等待租约自然过期
+            logger.warn("释放任务锁 {} 失败: {}", name, e.getMessage());
+        }
+    }
+
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    private void ensureLockRow(String name) {
+        if (jobLockRepository.existsById(name)) {
+            return;
+        }
+        try {
+            jobLockRepository.save(new JobLock(name));
+        } catch (DataIntegrityViolationException e) {
+            // 其他节点已并发创建
+            logger.debug("任务锁 {} 已由其他节点创建", name);
+        }
+    }
+
+    private static String resolveOwnerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
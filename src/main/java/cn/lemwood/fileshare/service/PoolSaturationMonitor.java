@@ -0,0 +1,276 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.catalina.connector.Connector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerInitializedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 线程池与连接池饱和度监控
+ * 统一采集 Tomcat 工作线程池、Hikari 数据库连接池和定时任务调度器的活跃数、空闲数、排队数和上限，
+ * 以 fileshare.pool.* 指标发布（按 pool 标签区分），并在某个池持续饱和超过阈值时记录告警。
+ * 等待时间分布分别见 hikaricp.connections.acquire 和 fileshare.pool.wait{pool=scheduler}。
+ *
+ * @author lemwood
+ */
+@Service
+public class PoolSaturationMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoolSaturationMonitor.class);
+
+    static final String TOMCAT = "tomcat";
+    static final String DATABASE = "database";
+    static final String SCHEDULER = "scheduler";
+
+    private static final List<String> POOLS = Arrays.asList(TOMCAT, DATABASE, SCHEDULER);
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ThreadPoolTaskScheduler taskScheduler;
+
+    private volatile org.apache.tomcat.util.threads.ThreadPoolExecutor tomcatExecutor;
+    private Counter tomcatRejections;
+    private final Map<String, Long> saturatedSince = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> warned = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (String pool : POOLS) {
+            gauge("fileshare.pool.active", pool, "池中正在使用的线程/连接数", PoolView::getActive);
+            gauge("fileshare.pool.idle", pool, "池中空闲的线程/连接数", PoolView::getIdle);
+            gauge("fileshare.pool.queued", pool, "等待线程/连接的任务数", PoolView::getQueued);
+            gauge("fileshare.pool.max", pool, "池的容量上限", PoolView::getMax);
+            gauge("fileshare.pool.utilization", pool, "池使用率（活跃数/上限）", PoolView::getUtilization);
+        }
+        tomcatRejections = Counter.builder("fileshare.pool.rejected")
+                .description("池已满被拒绝的任务数")
+                .tag("pool", TOMCAT)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Web 服务器启动后取得 Tomcat 工作线程池，并统计被拒绝的连接
+     */
+    @EventListener
+    public void onWebServerInitialized(ServletWebServerInitializedEvent event) {
+        if (!(event.getWebServer() instanceof TomcatWebServer)) {
+            return;
+        }
+        Connector connector = ((TomcatWebServer) event.getWebServer()).getTomcat().getConnector();
+        Executor executor = connector.getProtocolHandler().getExecutor();
+        if (executor instanceof org.apache.tomcat.util.threads.ThreadPoolExecutor) {
+            org.apache.tomcat.util.threads.ThreadPoolExecutor pool = (org.apache.tomcat.util.threads.ThreadPoolExecutor) executor;
+            org.apache.tomcat.util.threads.ThreadPoolExecutor.RejectedExecutionHandler original =
+                    pool.getRejectedExecutionHandler();
+            pool.setRejectedExecutionHandler((runnable, rejectedBy) -> {
+                tomcatRejections.increment();
+                original.rejectedExecution(runnable, rejectedBy);
+            });
+            tomcatExecutor = pool;
+        }
+    }
+
+    /**
+     * 定时检查饱和度，持续饱和超过阈值时告警
+     */
+    @Scheduled(fixedDelayString = "${file.pools.check-interval:5000}")
+    public void check() {
+        FileUploadConfig.Pools config = fileUploadConfig.getPools();
+        long now = System.currentTimeMillis();
+        for (String pool : POOLS) {
+            PoolView view = view(pool);
+            if (view == null) {
+                continue;
+            }
+            if (view.isSaturated(config.getSaturationThreshold())) {
+                long since = saturatedSince.computeIfAbsent(pool, key -> now);
+                if (now - since >= config.getWarnAfter() && warned.putIfAbsent(pool, Boolean.TRUE) == null) {
+                    logger.warn("{} 池持续饱和 {} ms: 活跃 {}/{}，排队 {}，请考虑调大该池",
+                            pool, now - since, view.getActive(), view.getMax(), view.getQueued());
+                }
+            } else if (saturatedSince.remove(pool) != null && warned.remove(pool) != null) {
+                logger.info("{} 池已恢复: 活跃 {}/{}，排队 {}", pool, view.getActive(), view.getMax(), view.getQueued());
+            }
+        }
+    }
+
+    /**
+     * 获取各池当前状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        double threshold = fileUploadConfig.getPools().getSaturationThreshold();
+        for (String pool : POOLS) {
+            PoolView view = view(pool);
+            if (view == null) {
+                continue;
+            }
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("active", view.getActive());
+            info.put("idle", view.getIdle());
+            info.put("queued", view.getQueued());
+            info.put("max", view.getMax());
+            info.put("utilization", Math.round(view.getUtilization() * 1000) / 10.0);
+            info.put("saturated", view.isSaturated(threshold));
+            Long since = saturatedSince.get(pool);
+            info.put("saturatedFor", since != null ? System.currentTimeMillis() - since : 0L);
+            if (TOMCAT.equals(pool)) {
+                info.put("rejected", (long) tomcatRejections.count());
+            } else if (DATABASE.equals(pool)) {
+                Counter timeouts = meterRegistry.find("hikaricp.connections.timeout").counter();
+                info.put("timeouts", timeouts != null ? (long) timeouts.count() : 0L);
+            }
+            status.put(pool, info);
+        }
+        return status;
+    }
+
+    PoolView view(String pool) {
+        switch (pool) {
+            case TOMCAT:
+                return tomcatView();
+            case DATABASE:
+                return databaseView();
+            case SCHEDULER:
+                return schedulerView();
+            default:
+                return null;
+        }
+    }
+
+    private PoolView tomcatView() {
+        org.apache.tomcat.util.threads.ThreadPoolExecutor pool = tomcatExecutor;
+        if (pool == null) {
+            return null;
+        }
+        int active = pool.getActiveCount();
+        return new PoolView(active, Math.max(0, pool.getPoolSize() - active), pool.getQueue().size(),
+                pool.getMaximumPoolSize());
+    }
+
+    private PoolView databaseView() {
+        HikariDataSource hikari;
+        try {
+            if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+                return null;
+            }
+            hikari = dataSource.unwrap(HikariDataSource.class);
+        } catch (SQLException e) {
+            return null;
+        }
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+        if (pool == null) {
+            // 连接池尚未初始化
+            return null;
+        }
+        return new PoolView(pool.getActiveConnections(), pool.getIdleConnections(),
+                pool.getThreadsAwaitingConnection(), hikari.getMaximumPoolSize());
+    }
+
+    private PoolView schedulerView() {
+        ScheduledThreadPoolExecutor executor;
+        try {
+            executor = taskScheduler.getScheduledThreadPoolExecutor();
+        } catch (IllegalStateException e) {
+            return null;
+        }
+        // 周期任务常驻队列，只有已到执行时间仍未开始的才算排队
+        int overdue = 0;
+        for (Runnable task : executor.getQueue()) {
+            if (task instanceof Delayed && ((Delayed) task).getDelay(TimeUnit.MILLISECONDS) <= 0) {
+                overdue++;
+            }
+        }
+        int active = executor.getActiveCount();
+        return new PoolView(active, Math.max(0, executor.getPoolSize() - active), overdue,
+                executor.getCorePoolSize());
+    }
+
+    private void gauge(String name, String pool, String description, ToDoubleFunction<PoolView> value) {
+        Gauge.builder(name, this, monitor -> {
+                    PoolView view = monitor.view(pool);
+                    return view != null ? value.applyAsDouble(view) : Double.NaN;
+                })
+                .description(description)
+                .tag("pool", pool)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 池的瞬时状态
+     */
+    static final class PoolView {
+        private final int active;
+        private final int idle;
+        private final int queued;
+        private final int max;
+
+        PoolView(int active, int idle, int queued, int max) {
+            this.active = active;
+            this.idle = idle;
+            this.queued = queued;
+            this.max = max;
+        }
+
+        int getActive() {
+            return active;
+        }
+
+        int getIdle() {
+            return idle;
+        }
+
+        int getQueued() {
+            return queued;
+        }
+
+        int getMax() {
+            return max;
+        }
+
+        double getUtilization() {
+            return max > 0 ? (double) active / max : 0.0;
+        }
+
+        /**
+         * 使用率达到阈值，或已有任务在排队
+         */
+        boolean isSaturated(double threshold) {
+            return getUtilization() >= threshold || (queued > 0 && active >= max);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import cn.lemwood.fileshare.repository.FileInfoRepository;
+import cn.lemwood.fileshare.repository.StoredFileSummary;
+import cn.lemwood.fileshare.storage.StorageBackend;
+import cn.lemwood.fileshare.storage.StoredObject;
+import cn.lemwood.fileshare.task.ExpiryScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * 存储目录对账服务
+ * 先按ID游标流式读取全部 stored_name 建立内存索引（只保存文件名），再惰性遍历存储后端中的对象，
+ * 一次对账同时找出两类孤儿：没有记录的物理文件、物理文件已丢失的记录；后者的ID和大小对账结束后再按文件名查询。
+ * 宽限期内的新文件和新记录不处理，避免误删正在上传的文件；遍历速率受配置限制。
+ * 默认只报告不删除；集群锁租约丢失时立即停止，不基于不完整的索引做任何处理。
+ *
+ * @author lemwood
+ */
+@Service
+public class StorageReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageReconciliationService.class);
+
+    /**
+     * 集群锁名称
+     */
+    public static final String LOCK_NAME = "storage-reconcile";
+
+    private static final int PAGE_SIZE = 1000;
+    private static final long LOCK_LEASE = 10 * 60 * 1000L;
+    private static final int RENEW_EVERY_FILES = 10000;
+
+    @Autowired
+    private FileInfoRepository fileInfoRepository;
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    @Autowired
+    private StorageStatsService storageStatsService;
+
+    @Autowired
+    private JobLockService jobLockService;
+
+    @Autowired
+    private ExpiryScheduler expiryScheduler;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    /**
+     * 定时对账
+     */
+    @Scheduled(initialDelayString = "${file.reconcile.interval:86400000}",
+            fixedDelayString = "${file.reconcile.interval:86400000}")
+    public void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            logger.error("存储目录对账失败", e);
+        }
+    }
+
+    /**
+     * 执行一次对账
+     *
+     * @return 对账结果；其他节点正在对账时返回 null
+     */
+    public Result reconcile() throws IOException {
+        if (!jobLockService.tryAcquire(LOCK_NAME, LOCK_LEASE)) {
+            logger.info("存储目录对账正在其他节点执行，跳过");
+            return null;
+        }
+        try {
+            return doReconcile();
+        } finally {
+            jobLockService.release(LOCK_NAME);
+        }
+    }
+
+    private Result doReconcile() throws IOException {
+        FileUploadConfig.Reconcile config = fileUploadConfig.getReconcile();
+        long startTime = System.currentTimeMillis();
+        long graceCutoff = startTime - config.getGracePeriod();
+        Throttle throttle = new Throttle(config.getMaxFilesPerSecond());
+        Result result = new Result();
+
+        // 1. 流式读取所有记录的存储文件名
+        Set<String> storedNames = new HashSet<>();
+        long lastId = 0L;
+        while (true) {
+            List<StoredFileSummary> page = fileInfoRepository.findStoredNameBatch(lastId, PageRequest.of(0, PAGE_SIZE));
+            for (StoredFileSummary row : page) {
+                storedNames.add(row.getStoredName());
+            }
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+            lastId = page.get(page.size() - 1).getId();
+            if (!jobLockService.renew(LOCK_NAME, LOCK_LEASE, lastId, storedNames.size())) {
+                return leaseLost(result, startTime);
+            }
+        }
+
+        // 2. 惰性遍历存储后端，命中的记录从索引中移除，未命中的对象是孤儿文件
+        try (Stream<StoredObject> objects = storageBackend.list()) {
+            Iterator<StoredObject> iterator = objects.iterator();
+            while (iterator.hasNext()) {
+                throttle.acquire();
+                StoredObject object = iterator.next();
+                if (++result.scannedFiles % RENEW_EVERY_FILES == 0
+                        && !jobLockService.renew(LOCK_NAME, LOCK_LEASE, lastId, result.scannedFiles)) {
+                    return leaseLost(result, startTime);
+                }
+                if (storedNames.remove(object.getName())) {
+                    continue;
+                }
+                if (object.getLastModified() > graceCutoff) {
+                    // 宽限期内的文件可能正在上传，记录尚未写入
+                    continue;
+                }
+                result.orphanFiles++;
+                result.orphanBytes += object.getSize();
+                if (config.isDeleteOrphanFiles()) {
+                    try {
+                        storageBackend.delete(object.getName());
+                        logger.debug("删除孤儿文件: {}", object.getName());
+                    } catch (IOException e) {
+                        logger.warn("删除孤儿文件失败: {} - {}", object.getName(), e.getMessage());
+                    }
+                }
+            }
+        }
+
+        // 3. 索引中剩余的文件名没有对应的物理文件，按文件名分批查回记录
+        List<StoredFileSummary> missing = new ArrayList<>();
+        List<String> remaining = new ArrayList<>(storedNames);
+        for (int from = 0; from < remaining.size(); from += PAGE_SIZE) {
+            List<String> names = remaining.subList(from, Math.min(from + PAGE_SIZE, remaining.size()));
+            for (StoredFileSummary row : fileInfoRepository.findStoredSummariesByStoredNameIn(names)) {
+                if (row.getUploadTime() != null
+                        && row.getUploadTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() > graceCutoff) {
+                    continue;
+                }
+                // 再次确认，排除遍历期间被正常删除的文件
+                if (!storageBackend.exists(row.getStoredName())) {
+                    missing.add(row);
+                }
+            }
+        }
+        result.missingFileRows = missing.size();
+        if (config.isPurgeMissingRows() && !missing.isEmpty()) {
+            purgeRows(missing);
+        }
+
+        result.duration = System.currentTimeMillis() - startTime;
+        result.finishTime = LocalDateTime.now();
+        logger.info("存储目录对账完成: 扫描 {} 个文件，孤儿文件 {} 个({} 字节)，缺失文件的记录 {} 条，耗时 {} ms",
+                result.scannedFiles, result.orphanFiles, result.orphanBytes, result.missingFileRows, result.duration);
+        return result;
+    }
+
+    private Result leaseLost(Result result, long startTime) {
+        logger.warn("对账任务租约已丢失，停止本轮对账: 已扫描 {} 个文件", result.scannedFiles);
+        result.duration = System.currentTimeMillis() - startTime;
+        result.finishTime = LocalDateTime.now();
+        return result;
+    }
+
+    private void purgeRows(List<StoredFileSummary> missing) {
+        for (int from = 0; from < missing.size(); from += PAGE_SIZE) {
+            List<StoredFileSummary> batch = missing.subList(from, Math.min(from + PAGE_SIZE, missing.size()));
+            List<Long> ids = new ArrayList<>(batch.size());
+            long bytes = 0L;
+            for (StoredFileSummary row : batch) {
+                ids.add(row.getId());
+                bytes += row.getFileSize() != null ? row.getFileSize() : 0L;
+                expiryScheduler.cancel(row.getFileKey());
+            }
+            int removed = fileInfoRepository.deleteBatchByIds(ids);
+            storageStatsService.recordRemoved(removed, bytes);
+        }
+    }
+
+    /**
+     * 对账结果
+     */
+    public static class Result {
+        private long scannedFiles;
+        private long orphanFiles;
+        private long orphanBytes;
+        private long missingFileRows;
+        private long duration;
+        private LocalDateTime finishTime;
+
+        public long getScannedFiles() {
+            return scannedFiles;
+        }
+
+        public long getOrphanFiles() {
+            return orphanFiles;
+        }
+
+        public long getOrphanBytes() {
+            return orphanBytes;
+        }
+
+        public long getMissingFileRows() {
+            return missingFileRows;
+        }
+
+        public long getDuration() {
+            return duration;
+        }
+
+        public LocalDateTime getFinishTime() {
+            return finishTime;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import cn.lemwood.fileshare.storage.StorageBackend;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 上传空间预留账本
+ * 在接收请求体之前按声明的大小预留上传目录的磁盘空间，所有进行中的上传共享同一账本，
+ * 可用空间 = 磁盘可用空间 - 已预留空间 - 保留空间，并发上传不会超额占用磁盘。
+ * 空间不足时请求后台提前淘汰，在账本锁外等待一段有限时间后重新检查，仍不足则拒绝；
+ * 等待期间其他上传照常预留，不会排在一次限速的回收后面。上传结束后按实际大小调整并释放预留。
+ *
+ * @author lemwood
+ */
+@Service
+public class StorageReservationLedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageReservationLedger.class);
+
+    /**
+     * 请求属性名，保存当前上传请求的预留
+     */
+    public static final String RESERVATION_ATTRIBUTE = StorageReservationLedger.class.getName() + ".RESERVATION";
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    @Autowired
+    private DiskPressureEvictionService evictionService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private final AtomicLong activeReservations = new AtomicLong();
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("fileshare.storage.reserved", reservedBytes, AtomicLong::get)
+                .description("进行中的上传已预留的磁盘空间")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("fileshare.storage.reservations", activeReservations, AtomicLong::get)
+                .description("进行中的上传预留数")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("fileshare.upload.rejected")
+                .description("因磁盘空间不足被拒绝的上传数")
+                .tag("reason", "storage_full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 预留磁盘空间
+     *
+     * @param bytes 需要预留的字节数
+     * @return 预留凭据；空间不足时返回 null
+     */
+    public Reservation reserve(long bytes) {
+        long size = Math.max(0L, bytes);
+        Reservation reservation = tryReserve(size);
+        FileUploadConfig.Eviction eviction = fileUploadConfig.getEviction();
+        if (reservation == null && eviction.isEnabled()) {
+            awaitReclaim(size - availableBytes(), eviction.getReclaimWait());
+            reservation = tryReserve(size);
+        }
+        if (reservation == null) {
+            rejectedCounter.increment();
+            logger.warn("磁盘空间不足，拒绝上传: 需要 {} 字节，可用 {} 字节，已预留 {} 字节",
+                    size, Math.max(0L, availableBytes()), reservedBytes.get());
+        }
+        return reservation;
+    }
+
+    private synchronized Reservation tryReserve(long size) {
+        if (size > availableBytes()) {
+            return null;
+        }
+        reservedBytes.addAndGet(size);
+        activeReservations.incrementAndGet();
+        return new Reservation(size);
+    }
+
+    /**
+     * 请求后台淘汰并等待至多 waitMillis，并发上传共享同一次淘汰
+     */
+    private void awaitReclaim(long shortfall, long waitMillis) {
+        try {
+            evictionService.reclaimAsync(shortfall).get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.debug("等待提前淘汰超时，淘汰继续在后台进行");
+        } catch (ExecutionException e) {
+            logger.warn("提前淘汰失败: {}", e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 当前可预留的字节数
+     */
+    public long availableBytes() {
+        long usable;
+        try {
+            usable = storageBackend.space().getUsable();
+        } catch (IOException e) {
+            // 无法获取磁盘信息时不拦截上传
+            logger.warn("获取上传目录磁盘空间失败: {}", e.getMessage());
+            return Long.MAX_VALUE;
+        }
+        return usable - reservedBytes.get() - fileUploadConfig.getReservation().getReservedSpace();
+    }
+
+    public long getReservedBytes() {
+        return reservedBytes.get();
+    }
+
+    public long getActiveReservations() {
+        return activeReservations.get();
+    }
+
+    /**
+     * 空间预留凭据，释放是幂等的
+     */
+    public final class Reservation implements AutoCloseable {
+
+        private long bytes;
+        private boolean released;
+
+        private Reservation(long bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * 按实际大小调整预留（如请求体解析完成后得知文件的真实大小）
+         */
+        public synchronized void adjust(long actualBytes) {
+            if (released) {
+                return;
+            }
+            long size = Math.max(0L, actualBytes);
+            reservedBytes.addAndGet(size - bytes);
+            bytes = size;
+        }
+
+        /**
+         * 释放预留
+         */
+        public synchronized void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+            reservedBytes.addAndGet(-bytes);
+            activeReservations.decrementAndGet();
+        }
+
+        public synchronized long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public void close() {
+            release();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.entity.StorageStats;
+import cn.lemwood.fileshare.repository.FileInfoRepository;
+import cn.lemwood.fileshare.repository.StorageStatsRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 存储统计服务
+ * 在内存中维护文件总数和总大小，上传、删除、清理时增量更新，
+ * 定期落盘到 storage_stats 表，并在后台与数据库实际聚合值校准
+ *
+ * @author lemwood
+ */
+@Service
+public class StorageStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageStatsService.class);
+
+    /**
+     * 校准期间有并发增减时的重试次数
+     */
+    private static final int RECONCILE_ATTEMPTS = 3;
+
+    @Autowired
+    private FileInfoRepository fileInfoRepository;
+
+    @Autowired
+    private StorageStatsRepository storageStatsRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicLong totalFiles = new AtomicLong();
+    private final AtomicLong totalSize = new AtomicLong();
+
+    /**
+     * 最近一次校准时发现的偏差（实际值 - 计数器值）
+     */
+    private final AtomicLong lastFileDrift = new AtomicLong();
+    private final AtomicLong lastSizeDrift = new AtomicLong();
+
+    /**
+     * 增减记录的序号，校准据此判断查询期间是否有并发更新；增减记录和校准的叠加在该对象上互斥
+     */
+    private final AtomicLong updates = new AtomicLong();
+
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    private volatile LocalDateTime lastReconcileTime;
+
+    @PostConstruct
+    public void init() {
+        Optional<StorageStats> checkpoint = storageStatsRepository.findById(StorageStats.GLOBAL_ID);
+        if (checkpoint.isPresent()) {
+            totalFiles.set(checkpoint.get().getTotalFiles());
+            totalSize.set(checkpoint.get().getTotalSize());
+            logger.info("从检查点恢复存储统计: {} 个文件, {} 字节", totalFiles.get(), totalSize.get());
+        } else {
+            // 首次启动没有检查点，直接按实际聚合值初始化
+            reconcile();
+        }
+
+        Gauge.builder("fileshare.storage.files", totalFiles, AtomicLong::get)
+                .description("当前文件总数")
+                .register(meterRegistry);
+        Gauge.builder("fileshare.storage.bytes", totalSize, AtomicLong::get)
+                .description("当前文件总大小")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("fileshare.storage.drift.files", lastFileDrift, AtomicLong::get)
+                .description("最近一次校准发现的文件数偏差")
+                .register(meterRegistry);
+        Gauge.builder("fileshare.storage.drift.bytes", lastSizeDrift, AtomicLong::get)
+                .description("最近一次校准发现的文件大小偏差")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录新增文件
+     */
+    public void recordAdded(Long fileSize) {
+        synchronized (updates) {
+            totalFiles.incrementAndGet();
+            totalSize.addAndGet(fileSize != null ? fileSize : 0L);
+            updates.incrementAndGet();
+        }
+        dirty.set(true);
+    }
+
+    /**
+     * 记录删除文件
+     */
+    public void recordRemoved(Long fileSize) {
+        recordRemoved(1, fileSize != null ? fileSize : 0L);
+    }
+
+    /**
+     * 记录批量删除文件
+     */
+    public void recordRemoved(long fileCount, long bytes) {
+        if (fileCount == 0 && bytes == 0) {
+            return;
+        }
+        synchronized (updates) {
+            totalFiles.addAndGet(-fileCount);
+            totalSize.addAndGet(-bytes);
+            updates.incrementAndGet();
+        }
+        dirty.set(true);
+    }
+
+    public long getTotalFiles() {
+        return totalFiles.get();
+    }
+
+    public long getTotalSize() {
+        return totalSize.get();
+    }
+
+    public long getLastFileDrift() {
+        return lastFileDrift.get();
+    }
+
+    public long getLastSizeDrift() {
+        return lastSizeDrift.get();
+    }
+
+    public LocalDateTime getLastReconcileTime() {
+        return lastReconcileTime;
+    }
+
+    /**
+     * 将计数器写入检查点表
+     */
+    @Scheduled(initialDelayString = "${file.stats.checkpoint-interval:60000}",
+            fixedDelayString = "${file.stats.checkpoint-interval:60000}")
+    public void checkpoint() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            storageStatsRepository.save(new StorageStats(totalFiles.get(), totalSize.get()));
+        } catch (Exception e) {
+            dirty.set(true);
+            logger.error("存储统计检查点写入失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 与数据库实际聚合值校准
+     * 只把偏差叠加到计数器上。增减记录发生在数据库写入之后，查询期间若有新的记录，
+     * 无法判断查询结果是否已包含对应的数据库变更，直接叠加会重复计入或丢失，因此放弃本次结果重新查询；
+     * 多次重试仍有并发更新时跳过，留到下一轮。启动后很快执行一次，修正非正常退出时过期的检查点。
+     */
+    @Scheduled(initialDelayString = "${file.stats.reconcile-initial-delay:60000}",
+            fixedDelayString = "${file.stats.reconcile-interval:3600000}")
+    public void reconcile() {
+        try {
+            for (int attempt = 1; attempt <= RECONCILE_ATTEMPTS; attempt++) {
+                if (reconcileOnce()) {
+                    return;
+                }
+            }
+            logger.info("存储统计校准期间持续有文件增减，跳过本轮校准");
+        } catch (Exception e) {
+            logger.error("存储统计校准失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 查询期间没有并发增减时应用偏差并返回 true
+     */
+    private boolean reconcileOnce() {
+        long sequence = updates.get();
+        long expectedFiles = totalFiles.get();
+        long expectedSize = totalSize.get();
+
+        long actualFiles = fileInfoRepository.count();
+        Long actualSizeValue = fileInfoRepository.getTotalFileSize();
+        long actualSize = actualSizeValue != null ? actualSizeValue : 0L;
+
+        synchronized (updates) {
+            if (updates.get() != sequence) {
+                return false;
+            }
+            long fileDrift = actualFiles - expectedFiles;
+            long sizeDrift = actualSize - expectedSize;
+            totalFiles.addAndGet(fileDrift);
+            totalSize.addAndGet(sizeDrift);
+            lastFileDrift.set(fileDrift);
+            lastSizeDrift.set(sizeDrift);
+            lastReconcileTime = LocalDateTime.now();
+
+            if (fileDrift != 0 || sizeDrift != 0) {
+                logger.warn("存储统计校准发现偏差: 文件数 {}, 大小 {} 字节", fileDrift, sizeDrift);
+                dirty.set(true);
+            }
+            return true;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        checkpoint();
+    }
+}
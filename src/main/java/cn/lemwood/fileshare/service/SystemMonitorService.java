@@ -1,16 +1,22 @@
 package cn.lemwood.fileshare.service;
 
 import cn.lemwood.fileshare.config.FileUploadConfig;
-import cn.lemwood.fileshare.entity.FileInfo;
+import cn.lemwood.fileshare.jfr.JfrRecordingService;
 import cn.lemwood.fileshare.repository.FileInfoRepository;
+import cn.lemwood.fileshare.storage.StorageBackend;
+import cn.lemwood.fileshare.storage.StripedStorage;
+import cn.lemwood.fileshare.storage.TieredStorage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,37 +36,79 @@ public class SystemMonitorService {
     @Autowired
     private FileUploadConfig fileUploadConfig;
     
+    @Autowired
+    private StorageStatsService storageStatsService;
+    
+    @Autowired
+    private SystemStatusSnapshotService statusSnapshotService;
+    
+    @Autowired
+    private ExpiredFileCleanupEngine cleanupEngine;
+    
+    @Autowired
+    private StorageReconciliationService reconciliationService;
+    
+    @Autowired
+    private DiskPressureEvictionService evictionService;
+    
+    @Autowired
+    private TransferRegistry transferRegistry;
+    
+    @Autowired
+    private JfrRecordingService jfrRecordingService;
+    
+    @Autowired
+    private DiskIoStatsService diskIoStatsService;
+    
+    @Autowired
+    private PoolSaturationMonitor poolSaturationMonitor;
+
+    @Autowired
+    private StorageBackend storageBackend;
+    
     /**
      * 获取系统状态信息
+     * 文件总数和总大小读取内存计数器，其余数据来自后台刷新的状态快照
      */
     public Map<String, Object> getSystemStatus() {
         Map<String, Object> status = new HashMap<>();
         
         try {
-            // 基本统计信息
-            long totalFiles = fileInfoRepository.count();
-            long totalSize = fileInfoRepository.getTotalFileSize();
+            SystemStatusSnapshotService.Snapshot snapshot = statusSnapshotService.getSnapshot();
+            
+            // 基本统计信息（内存计数器）
+            long totalFiles = storageStatsService.getTotalFiles();
+            long totalSize = storageStatsService.getTotalSize();
             
-            // 过期文件统计
-            List<FileInfo> expiredFiles = fileInfoRepository.findExpiredFiles(LocalDateTime.now());
-            long expiredCount = expiredFiles.size();
-            long expiredSize = expiredFiles.stream().mapToLong(FileInfo::getFileSize).sum();
+            // 过期文件统计（快照中的聚合查询结果）
+            long expiredCount = snapshot.getExpiredFiles();
+            long expiredSize = snapshot.getExpiredSize();
             
             // 磁盘空间信息
-            File uploadDir = new File(fileUploadConfig.getUpload().getPath());
-            long totalSpace = uploadDir.getTotalSpace();
-            long freeSpace = uploadDir.getFreeSpace();
-            long usedSpace = totalSpace - freeSpace;
+            long totalSpace = snapshot.getTotalSpace();
+            long freeSpace = snapshot.getFreeSpace();
+            long usedSpace = snapshot.getUsedSpace();
             
             // 系统信息
-            Runtime runtime = Runtime.getRuntime();
-            long maxMemory = runtime.maxMemory();
-            long totalMemory = runtime.totalMemory();
-            long freeMemory = runtime.freeMemory();
-            long usedMemory = totalMemory - freeMemory;
+            long maxMemory = snapshot.getMaxMemory();
+            long totalMemory = snapshot.getTotalMemory();
+            long freeMemory = snapshot.getFreeMemory();
+            long usedMemory = snapshot.getUsedMemory();
             
             status.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-            status.put("status", "healthy");
+            status.put("status", snapshot.isDatabaseUp() ? "healthy" : "error");
+            if (!snapshot.isDatabaseUp()) {
+                status.put("error", snapshot.getDatabaseError());
+            }
+            
+            // 快照信息
+            Map<String, Object> snapshotInfo = new HashMap<>();
+            snapshotInfo.put("capturedAt", LocalDateTime.ofInstant(Instant.ofEpochMilli(snapshot.getCapturedAt()), 
+                    ZoneId.systemDefault()).format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+            snapshotInfo.put("age", snapshot.getAge());
+            snapshotInfo.put("refreshDuration", snapshot.getRefreshDuration());
+            snapshotInfo.put("stale", statusSnapshotService.isStale(snapshot));
+            status.put("snapshot", snapshotInfo);
             
             // 文件统计
             Map<String, Object> fileStats = new HashMap<>();
@@ -70,6 +118,8 @@ public class SystemMonitorService {
             fileStats.put("expiredFiles", expiredCount);
             fileStats.put("expiredSize", expiredSize);
             fileStats.put("expiredSizeFormatted", formatFileSize(expiredSize));
+            fileStats.put("countDrift", storageStatsService.getLastFileDrift());
+            fileStats.put("sizeDrift", storageStatsService.getLastSizeDrift());
             status.put("files", fileStats);
             
             // 磁盘空间
@@ -83,6 +133,12 @@ public class SystemMonitorService {
             diskStats.put("usagePercentage", Math.round((double) usedSpace / totalSpace * 100));
             status.put("disk", diskStats);
             
+            // 磁盘 I/O（后台采样）
+            status.put("diskIo", diskIoStatsService.getStatus());
+            
+            // 线程池与连接池饱和度
+            status.put("pools", poolSaturationMonitor.getStatus());
+            
             // 内存信息
             Map<String, Object> memoryStats = new HashMap<>();
             memoryStats.put("maxMemory", maxMemory);
@@ -105,6 +161,35 @@ public class SystemMonitorService {
             config.put("cleanupInterval", fileUploadConfig.getCleanupInterval());
             config.put("fileRetentionHours", fileUploadConfig.getFileRetentionHours());
             status.put("config", config);
+
+            // 冷热分层的迁移状态
+            StorageBackend uploads = storageBackend;
+            if (storageBackend instanceof TieredStorage) {
+                TieredStorage tiered = (TieredStorage) storageBackend;
+                Map<String, Object> tier = new HashMap<>();
+                tier.put("hotFiles", tiered.getHotCount());
+                tier.put("pendingPromotions", tiered.getPendingPromotions());
+                tier.put("demoted", tiered.getDemoted());
+                tier.put("promoted", tiered.getPromoted());
+                status.put("tier", tier);
+                uploads = tiered.getFast();
+            }
+
+            // 多盘时各存储盘的状态
+            if (uploads instanceof StripedStorage) {
+                List<Map<String, Object>> volumes = new ArrayList<>();
+                for (StripedStorage.Stripe stripe : ((StripedStorage) uploads).getStripes()) {
+                    Map<String, Object> volume = new HashMap<>();
+                    volume.put("path", stripe.getId());
+                    volume.put("healthy", stripe.isHealthy());
+                    volume.put("reason", stripe.getReason());
+                    volume.put("usableSpace", stripe.getUsable());
+                    volume.put("usableSpaceFormatted", formatFileSize(stripe.getUsable()));
+                    volume.put("inFlight", stripe.getInFlight());
+                    volumes.add(volume);
+                }
+                status.put("volumes", volumes);
+            }
             
         } catch (Exception e) {
             logger.error("获取系统状态失败", e);
@@ -116,33 +201,34 @@ public class SystemMonitorService {
     }
     
     /**
-     * 检查系统健康状况
+     * 强制刷新系统状态快照
+     *
+     * @return 是否执行了刷新，距上次刷新过近时返回false
+     */
+    public boolean refreshSystemStatus() {
+        return statusSnapshotService.forceRefresh();
+    }
+    
+    /**
+     * 检查系统健康状况（读取状态快照，不访问数据库）
      */
     public boolean isSystemHealthy() {
         try {
-            // 检查数据库连接
-            fileInfoRepository.count();
-            
-            // 检查上传目录
-            File uploadDir = new File(fileUploadConfig.getUpload().getPath());
-            if (!uploadDir.exists() || !uploadDir.canWrite()) {
-                return false;
-            }
-            
-            // 检查磁盘空间（至少保留1GB空间）
-            long freeSpace = uploadDir.getFreeSpace();
-            if (freeSpace < 1024 * 1024 * 1024) {
-                logger.warn("磁盘空间不足，剩余空间: {}", formatFileSize(freeSpace));
-                return false;
-            }
-            
-            return true;
+            SystemStatusSnapshotService.Snapshot snapshot = statusSnapshotService.getSnapshot();
+            return snapshot.isHealthy() && !statusSnapshotService.isStale(snapshot);
         } catch (Exception e) {
             logger.error("系统健康检查失败", e);
             return false;
         }
     }
     
+    /**
+     * 获取健康检查使用的快照年龄（毫秒）
+     */
+    public long getHealthSnapshotAge() {
+        return statusSnapshotService.getSnapshot().getAge();
+    }
+    
     /**
      * 手动清理过期文件
      */
@@ -150,26 +236,7 @@ public class SystemMonitorService {
         logger.info("开始手动清理过期文件...");
         
         try {
-            List<FileInfo> expiredFiles = fileInfoRepository.findExpiredFiles(LocalDateTime.now());
-            int deletedCount = 0;
-            
-            for (FileInfo fileInfo : expiredFiles) {
-                try {
-                    // 删除物理文件
-                    File file = new File(fileInfo.getFilePath());
-                    if (file.exists() && file.delete()) {
-                        logger.debug("删除物理文件: {}", fileInfo.getFilePath());
-                    }
-                    
-                    // 删除数据库记录
-                    fileInfoRepository.delete(fileInfo);
-                    deletedCount++;
-                    
-                } catch (Exception e) {
-                    logger.error("删除文件失败: {}", fileInfo.getOriginalName(), e);
-                }
-            }
-            
+            int deletedCount = cleanupEngine.runCleanup("manual");
             logger.info("手动清理完成，共删除 {} 个过期文件", deletedCount);
             return deletedCount;
             
@@ -179,6 +246,38 @@ public class SystemMonitorService {
         }
     }
     
+    /**
+     * 获取磁盘压力淘汰状态
+     */
+    public Map<String, Object> getEvictionStatus() {
+        return evictionService.getStatus();
+    }
+    
+    /**
+     * 获取进行中的传输列表
+     *
+     * @param sort 排序方式：rate 或 age
+     */
+    public List<Map<String, Object>> getActiveTransfers(String sort) {
+        return transferRegistry.list(sort);
+    }
+    
+    /**
+     * 获取持续飞行记录状态
+     */
+    public Map<String, Object> getRecordingStatus() {
+        return jfrRecordingService.getStatus();
+    }
+    
+    /**
+     * 导出持续飞行记录
+     *
+     * @return 导出文件信息；未启用持续记录时返回 null
+     */
+    public Map<String, Object> dumpRecording() throws IOException {
+        return jfrRecordingService.dump();
+    }
+    
     /**
      * 优化存储空间
      */
@@ -194,36 +293,23 @@ public class SystemMonitorService {
             int expiredDeleted = cleanExpiredFiles();
             cleanedFiles += expiredDeleted;
             
-            // 2. 清理孤儿文件（数据库中不存在但物理文件存在）
-            File uploadDir = new File(fileUploadConfig.getUpload().getPath());
-            if (uploadDir.exists() && uploadDir.isDirectory()) {
-                File[] files = uploadDir.listFiles();
-                if (files != null) {
-                    for (File file : files) {
-                        if (file.isFile()) {
-                            // 检查数据库中是否存在对应记录
-                            String fileName = file.getName();
-                            boolean existsInDb = fileInfoRepository.findByStoredName(fileName).isPresent();
-                            
-                            if (!existsInDb) {
-                                long fileSize = file.length();
-                                if (file.delete()) {
-                                    totalFreedSpace += fileSize;
-                                    cleanedFiles++;
-                                    logger.debug("删除孤儿文件: {}", fileName);
-                                }
-                            }
-                        }
-                    }
+            // 2. 对账上传目录与数据库，清理孤儿文件和缺失文件的记录
+            long missingFileRows = 0;
+            StorageReconciliationService.Result reconcileResult = reconciliationService.reconcile();
+            if (reconcileResult != null) {
+                if (fileUploadConfig.getReconcile().isDeleteOrphanFiles()) {
+                    cleanedFiles += reconcileResult.getOrphanFiles();
+                    totalFreedSpace += reconcileResult.getOrphanBytes();
                 }
+                missingFileRows = reconcileResult.getMissingFileRows();
             }
-            
-            // 3. 清理空目录
-            cleanEmptyDirectories(uploadDir);
+            // 3. 存储后端整理（本地后端清理空目录）
+            storageBackend.housekeeping();
             
             result.put("cleanedFiles", cleanedFiles);
             result.put("freedSpace", formatFileSize(totalFreedSpace));
             result.put("freedSpaceBytes", totalFreedSpace);
+            result.put("missingFileRows", missingFileRows);
             
             logger.info("存储优化完成，清理了 {} 个文件，释放了 {} 空间", cleanedFiles, formatFileSize(totalFreedSpace));
             
@@ -235,30 +321,6 @@ public class SystemMonitorService {
         return result;
     }
     
-    /**
-     * 清理空目录
-     */
-    private void cleanEmptyDirectories(File directory) {
-        if (directory == null || !directory.isDirectory()) {
-            return;
-        }
-        
-        File[] files = directory.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isDirectory()) {
-                    cleanEmptyDirectories(file);
-                    // 如果目录为空，删除它
-                    if (file.list() != null && file.list().length == 0) {
-                        if (file.delete()) {
-                            logger.debug("删除空目录: {}", file.getPath());
-                        }
-                    }
-                }
-            }
-        }
-    }
-    
     /**
      * 格式化文件大小
      */
@@ -0,0 +1,259 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 系统状态推送服务（Server-Sent Events）
+ * 每个推送周期只计算一次状态，按分区（文件、磁盘、内存、传输、清理进度）与上一周期比较，
+ * 只把变化的分区作为 delta 事件推送给所有订阅者；新订阅者先收到一次完整的 snapshot 事件。
+ * 每个订阅者有独立的有界发送队列，由共享的发送线程写出，队列满的慢速订阅者被断开，
+ * 不会拖慢推送周期或其他订阅者。
+ *
+ * @author lemwood
+ */
+@Service
+public class SystemStatusBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(SystemStatusBroadcaster.class);
+
+    private static final int SENDER_THREADS = 4;
+
+    /**
+     * 没有变化时发送心跳注释的周期数，防止代理因空闲断开连接
+     */
+    private static final int HEARTBEAT_TICKS = 15;
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    @Autowired
+    private SystemMonitorService systemMonitorService;
+
+    @Autowired
+    private TransferRegistry transferRegistry;
+
+    @Autowired
+    private ExpiredFileCleanupEngine cleanupEngine;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private volatile Map<String, Object> current = new LinkedHashMap<>();
+    private int idleTicks;
+    private ExecutorService sender;
+    private Counter droppedCounter;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        sender = new ThreadPoolExecutor(SENDER_THREADS, SENDER_THREADS, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "status-stream-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        Gauge.builder("fileshare.status.stream.subscribers", subscribers, List::size)
+                .description("系统状态推送的订阅者数")
+                .register(meterRegistry);
+        droppedCounter = Counter.builder("fileshare.status.stream.dropped")
+                .description("发送队列已满被断开的慢速订阅者数")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        sender.shutdownNow();
+    }
+
+    /**
+     * 新增订阅者
+     *
+     * @return SSE 连接；订阅者已达上限时返回 null
+     */
+    public SseEmitter subscribe() {
+        FileUploadConfig.Status config = fileUploadConfig.getStatus();
+        if (subscribers.size() >= config.getMaxSubscribers()) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(config.getStreamTimeout());
+        Subscriber subscriber = new Subscriber(emitter, Math.max(1, config.getStreamBuffer()));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+
+        Map<String, Object> snapshot = current;
+        if (snapshot.isEmpty()) {
+            snapshot = computeState();
+            current = snapshot;
+        }
+        enqueue(subscriber, new Message("snapshot", snapshot));
+        return emitter;
+    }
+
+    /**
+     * 推送周期：计算一次状态，向所有订阅者推送变化的分区
+     */
+    @Scheduled(fixedDelayString = "${file.status.stream-interval:2000}")
+    public void tick() {
+        if (subscribers.isEmpty()) {
+            // 无订阅者时不计算，下一个订阅者会拿到新的完整快照
+            current = new LinkedHashMap<>();
+            return;
+        }
+        Map<String, Object> next = computeState();
+        Map<String, Object> delta = diff(current, next);
+        current = next;
+
+        Message message;
+        if (!delta.isEmpty()) {
+            idleTicks = 0;
+            message = new Message("delta", delta);
+        } else if (++idleTicks >= HEARTBEAT_TICKS) {
+            idleTicks = 0;
+            message = Message.HEARTBEAT;
+        } else {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            enqueue(subscriber, message);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * 计算推送给订阅者的状态，按分区组织
+     */
+    Map<String, Object> computeState() {
+        Map<String, Object> status = systemMonitorService.getSystemStatus();
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("status", status.get("status"));
+        state.put("files", status.get("files"));
+        state.put("disk", status.get("disk"));
+        state.put("memory", status.get("memory"));
+
+        Map<String, Object> transfers = new HashMap<>();
+        transfers.put("active", transferRegistry.getActiveCount());
+        transfers.put("uploads", transferRegistry.getActiveCount(TransferRegistry.Direction.UPLOAD));
+        transfers.put("downloads", transferRegistry.getActiveCount(TransferRegistry.Direction.DOWNLOAD));
+        state.put("transfers", transfers);
+
+        ExpiredFileCleanupEngine.Progress progress = cleanupEngine.getProgress();
+        Map<String, Object> cleanup = new HashMap<>();
+        cleanup.put("running", cleanupEngine.isRunning());
+        cleanup.put("trigger", progress.getTrigger());
+        cleanup.put("processed", progress.getProcessed());
+        cleanup.put("lastDeleted", progress.getLastDeleted());
+        cleanup.put("lastFinishTime", progress.getLastFinishTime() != null ? progress.getLastFinishTime().toString() : null);
+        state.put("cleanup", cleanup);
+        return state;
+    }
+
+    /**
+     * 找出与上一周期不同的分区
+     */
+    static Map<String, Object> diff(Map<String, Object> previous, Map<String, Object> next) {
+        Map<String, Object> delta = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : next.entrySet()) {
+            if (!previous.containsKey(entry.getKey()) || !Objects.equals(previous.get(entry.getKey()), entry.getValue())) {
+                delta.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return delta;
+    }
+
+    private void enqueue(Subscriber subscriber, Message message) {
+        if (!subscriber.queue.offer(message)) {
+            // 发送队列已满说明客户端跟不上推送节奏，断开后由浏览器自动重连
+            if (subscribers.remove(subscriber)) {
+                droppedCounter.increment();
+                logger.debug("状态推送订阅者过慢，已断开");
+                subscriber.emitter.complete();
+            }
+            return;
+        }
+        if (subscriber.draining.compareAndSet(false, true)) {
+            sender.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            Message message;
+            while ((message = subscriber.queue.poll()) != null) {
+                // 事件构建器不是线程安全的，每个订阅者单独构建
+                subscriber.emitter.send(message.name != null
+                        ? SseEmitter.event().name(message.name).data(message.data)
+                        : SseEmitter.event().comment("heartbeat"));
+            }
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开
+            subscribers.remove(subscriber);
+            subscriber.queue.clear();
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // 释放标记后可能有新事件入队但没有触发发送
+        if (!subscriber.queue.isEmpty() && subscriber.draining.compareAndSet(false, true)) {
+            sender.execute(() -> drain(subscriber));
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final Queue<Message> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter, int buffer) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(buffer);
+        }
+    }
+
+    private static final class Message {
+        private static final Message HEARTBEAT = new Message(null, null);
+
+        private final String name;
+        private final Object data;
+
+        private Message(String name, Object data) {
+            this.name = name;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import cn.lemwood.fileshare.repository.FileInfoRepository;
+import cn.lemwood.fileshare.storage.StorageBackend;
+import cn.lemwood.fileshare.storage.StorageSpace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+/**
+ * 系统状态快照服务
+ * 按固定间隔在后台采集过期文件聚合、磁盘空间和数据库连通性，
+ * 状态接口和健康检查只读取最近一次快照，不再在请求线程上访问数据库
+ *
+ * @author lemwood
+ */
+@Service
+public class SystemStatusSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SystemStatusSnapshotService.class);
+
+    /**
+     * 健康检查要求的最小剩余磁盘空间（1GB）
+     */
+    public static final long MIN_FREE_SPACE = 1024L * 1024 * 1024;
+
+    @Autowired
+    private FileInfoRepository fileInfoRepository;
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    private volatile Snapshot snapshot;
+
+    @PostConstruct
+    public void init() {
+        refresh();
+    }
+
+    /**
+     * 定时刷新快照
+     */
+    @Scheduled(initialDelayString = "${file.status.refresh-interval:15000}",
+            fixedDelayString = "${file.status.refresh-interval:15000}")
+    public void scheduledRefresh() {
+        refresh();
+    }
+
+    /**
+     * 手动强制刷新快照，距上次刷新不足最小间隔时拒绝
+     *
+     * @return 是否执行了刷新
+     */
+    public boolean forceRefresh() {
+        Snapshot current = snapshot;
+        if (current != null && current.getAge() < fileUploadConfig.getStatus().getMinRefreshInterval()) {
+            return false;
+        }
+        refresh();
+        return true;
+    }
+
+    /**
+     * 获取最近一次快照
+     */
+    public Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            refresh();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    /**
+     * 快照是否已超过三个刷新周期未更新
+     */
+    public boolean isStale(Snapshot current) {
+        return current.getAge() > fileUploadConfig.getStatus().getRefreshInterval() * 3;
+    }
+
+    private synchronized void refresh() {
+        long start = System.currentTimeMillis();
+        Snapshot next = new Snapshot();
+
+        // 数据库：只执行聚合查询，同时作为连通性检查
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            next.expiredFiles = fileInfoRepository.countByExpireTimeBefore(now);
+            Long expiredSize = fileInfoRepository.getExpiredFileSize(now);
+            next.expiredSize = expiredSize != null ? expiredSize : 0L;
+            next.databaseUp = true;
+        } catch (Exception e) {
+            next.databaseUp = false;
+            next.databaseError = e.getMessage();
+            logger.error("系统状态快照数据库查询失败: {}", e.getMessage());
+        }
+
+        // 磁盘空间
+        try {
+            StorageSpace space = storageBackend.space();
+            next.uploadDirWritable = space.isWritable();
+            next.totalSpace = space.getTotal();
+            next.freeSpace = space.getUsable();
+        } catch (IOException e) {
+            next.uploadDirWritable = false;
+            logger.error("获取存储空间失败: {}", e.getMessage());
+        }
+        if (next.uploadDirWritable && next.freeSpace < MIN_FREE_SPACE) {
+            logger.warn("磁盘空间不足，剩余空间: {} 字节", next.freeSpace);
+        }
+
+        // 内存
+        Runtime runtime = Runtime.getRuntime();
+        next.maxMemory = runtime.maxMemory();
+        next.totalMemory = runtime.totalMemory();
+        next.freeMemory = runtime.freeMemory();
+
+        next.capturedAt = System.currentTimeMillis();
+        next.refreshDuration = next.capturedAt - start;
+        snapshot = next;
+    }
+
+    /**
+     * 系统状态快照，发布后不再修改
+     */
+    public static class Snapshot {
+        private long capturedAt;
+        private long refreshDuration;
+        private long expiredFiles;
+        private long expiredSize;
+        private boolean databaseUp;
+        private String databaseError;
+        private boolean uploadDirWritable;
+        private long totalSpace;
+        private long freeSpace;
+        private long maxMemory;
+        private long totalMemory;
+        private long freeMemory;
+
+        Snapshot() {}
+
+        Snapshot(boolean databaseUp, boolean uploadDirWritable, long totalSpace, long freeSpace) {
+            this.capturedAt = System.currentTimeMillis();
+            this.databaseUp = databaseUp;
+            this.uploadDirWritable = uploadDirWritable;
+            this.totalSpace = totalSpace;
+            this.freeSpace = freeSpace;
+        }
+
+        /**
+         * 快照年龄（毫秒）
+         */
+        public long getAge() {
+            return System.currentTimeMillis() - capturedAt;
+        }
+
+        /**
+         * 快照是否健康：数据库可用、上传目录可写且剩余空间充足
+         */
+        public boolean isHealthy() {
+            return databaseUp && uploadDirWritable && freeSpace >= MIN_FREE_SPACE;
+        }
+
+        public long getCapturedAt() {
+            return capturedAt;
+        }
+
+        public long getRefreshDuration() {
+            return refreshDuration;
+        }
+
+        public long getExpiredFiles() {
+            return expiredFiles;
+        }
+
+        public long getExpiredSize() {
+            return expiredSize;
+        }
+
+        public boolean isDatabaseUp() {
+            return databaseUp;
+        }
+
+        public String getDatabaseError() {
+            return databaseError;
+        }
+
+        public boolean isUploadDirWritable() {
+            return uploadDirWritable;
+        }
+
+        public long getTotalSpace() {
+            return totalSpace;
+        }
+
+        public long getFreeSpace() {
+            return freeSpace;
+        }
+
+        public long getUsedSpace() {
+            return totalSpace - freeSpace;
+        }
+
+        public long getMaxMemory() {
+            return maxMemory;
+        }
+
+        public long getTotalMemory() {
+            return totalMemory;
+        }
+
+        public long getFreeMemory() {
+            return freeMemory;
+        }
+
+        public long getUsedMemory() {
+            return totalMemory - freeMemory;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package cn.lemwood.fileshare.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 简单的匀速限流器，按固定间隔放行
+ * 用于后台任务平滑磁盘I/O；多个线程共用时依次放行，合计速率不超过上限
+ *
+ * @author lemwood
+ */
+final class Throttle {
+
+    private final long intervalNanos;
+    private long next = System.nanoTime();
+
+    /**
+     * @param permitsPerSecond 每秒放行次数，不大于0表示不限速
+     */
+    Throttle(int permitsPerSecond) {
+        this.intervalNanos = permitsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / permitsPerSecond : 0L;
+    }
+
+    synchronized void acquire() {
+        if (intervalNanos == 0L) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (next > now) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(next - now);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        next = Math.max(next, now) + intervalNanos;
+    }
+}
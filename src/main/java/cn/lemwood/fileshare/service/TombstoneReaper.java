@@ -0,0 +1,292 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import cn.lemwood.fileshare.jfr.CleanupBatchEvent;
+import cn.lemwood.fileshare.repository.DeletedFileSummary;
+import cn.lemwood.fileshare.repository.FileInfoRepository;
+import cn.lemwood.fileshare.storage.StorageBackend;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 墓碑回收器
+ * 删除请求和过期清理只写入墓碑，由回收器在后台按ID游标分批删除物理文件并清除记录。
+ * 物理文件删除在固定大小的线程池中执行（多盘时每块盘各一个），每块盘的删除速率各自受限，磁盘I/O被平滑到各轮之间，
+ * 回收线程只提交和等待，从不自己执行删除，一块盘的限速不会拖慢其他盘；
+ * 删除失败的文件按退避间隔重试，超过最大次数后清除记录，残留文件交给存储对账处理。
+ *
+ * @author lemwood
+ */
+@Service
+public class TombstoneReaper {
+
+    private static final Logger logger = LoggerFactory.getLogger(TombstoneReaper.class);
+
+    /**
+     * 集群锁名称
+     */
+    public static final String LOCK_NAME = "tombstone-reaper";
+
+    private static final long LOCK_LEASE = 60 * 1000L;
+
+    @Autowired
+    private FileInfoRepository fileInfoRepository;
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    @Autowired
+    private JobLockService jobLockService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong backlog = new AtomicLong();
+    private final Map<Long, Retry> retries = new ConcurrentHashMap<>();
+
+    private final Map<String, ExecutorService> unlinkExecutors = new ConcurrentHashMap<>();
+    private Timer batchTimer;
+    private Counter reapedCounter;
+    private Counter freedBytesCounter;
+    private Counter unlinkFailureCounter;
+
+    @PostConstruct
+    public void init() {
+        batchTimer = Timer.builder("fileshare.reaper.batch")
+                .description("单批墓碑回收耗时")
+                .register(meterRegistry);
+        reapedCounter = Counter.builder("fileshare.reaper.reaped")
+                .description("回收的墓碑记录数")
+                .register(meterRegistry);
+        freedBytesCounter = Counter.builder("fileshare.reaper.freed")
+                .description("回收释放的字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        unlinkFailureCounter = Counter.builder("fileshare.reaper.unlink.failures")
+                .description("删除物理文件失败次数")
+                .register(meterRegistry);
+        Gauge.builder("fileshare.reaper.backlog", backlog, AtomicLong::get)
+                .description("待回收的墓碑记录数")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        unlinkExecutors.values().forEach(ExecutorService::shutdownNow);
+    }
+
+    /**
+     * 每块存储盘一个删除线程池，各盘的删除互不排队，一块慢盘不会占满其他盘的删除线程
+     */
+    private ExecutorService unlinkExecutor(String volume) {
+        return unlinkExecutors.computeIfAbsent(volumeKey(volume), key -> {
+            int parallelism = Math.max(1, fileUploadConfig.getReaper().getParallelism());
+            AtomicInteger threadIndex = new AtomicInteger();
+            String prefix = "file-reaper-" + (unlinkExecutors.size() + 1) + "-";
+            // 回收线程等一批删除全部完成后才读取下一批，队列中的任务不超过一批，不需要队列上限；
+            // 也不能让回收线程代为执行，否则它会在这块盘的限速上休眠，其他盘的删除无人提交
+            return new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, prefix + threadIndex.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        });
+    }
+
+    private static String volumeKey(String volume) {
+        return volume != null ? volume : "";
+    }
+
+    /**
+     * 登记新写入的墓碑，用于在下一轮统计前估算积压
+     */
+    public void onTombstoned(int count) {
+        if (count > 0) {
+            backlog.addAndGet(count);
+        }
+    }
+
+    /**
+     * 墓碑积压是否超过上限，过期清理据此暂停标记新墓碑
+     */
+    public boolean isBacklogged() {
+        return backlog.get() > fileUploadConfig.getReaper().getMaxBacklog();
+    }
+
+    public long getBacklog() {
+        return backlog.get();
+    }
+
+    /**
+     * 定时回收墓碑
+     */
+    @Scheduled(fixedDelayString = "${file.reaper.interval:5000}")
+    public void scheduledReap() {
+        try {
+            reap();
+        } catch (Exception e) {
+            logger.error("墓碑回收失败", e);
+        }
+    }
+
+    /**
+     * 执行一轮回收，直到没有可回收的墓碑或租约丢失
+     *
+     * @return 清除的记录数；本节点或其他节点已在回收时返回0
+     */
+    public int reap() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            // 每轮以数据库中的实际墓碑数校准积压，未持有锁的节点也能感知回收进度
+            backlog.set(fileInfoRepository.countTombstones());
+            if (backlog.get() == 0L || !jobLockService.tryAcquire(LOCK_NAME, LOCK_LEASE)) {
+                return 0;
+            }
+            try {
+                return reapBatches();
+            } finally {
+                jobLockService.release(LOCK_NAME);
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int reapBatches() {
+        FileUploadConfig.Reaper config = fileUploadConfig.getReaper();
+        int batchSize = Math.max(1, config.getBatchSize());
+        // 每块盘各自的限速，在删除线程中获取，一块盘受限时其他盘的删除照常进行
+        Map<String, Throttle> throttles = new HashMap<>();
+
+        long lastId = 0L;
+        int reaped = 0;
+        while (true) {
+            List<DeletedFileSummary> page = fileInfoRepository.findTombstoneBatch(lastId, batchSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            reaped += reapBatch(page, throttles, config);
+            lastId = page.get(page.size() - 1).getId();
+            if (page.size() < batchSize || !jobLockService.renew(LOCK_NAME, LOCK_LEASE, lastId, reaped)) {
+                break;
+            }
+        }
+
+        if (reaped > 0) {
+            logger.debug("墓碑回收完成，清除 {} 条记录，剩余 {}", reaped, backlog.get());
+        }
+        return reaped;
+    }
+
+    private int reapBatch(List<DeletedFileSummary> page, Map<String, Throttle> throttles,
+                          FileUploadConfig.Reaper config) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CleanupBatchEvent event = new CleanupBatchEvent();
+        event.begin();
+        long now = System.currentTimeMillis();
+
+        List<DeletedFileSummary> due = new ArrayList<>(page.size());
+        List<Future<?>> results = new ArrayList<>(page.size());
+        for (DeletedFileSummary file : page) {
+            Retry retry = retries.get(file.getId());
+            if (retry != null && retry.nextAttemptAt > now) {
+                continue;
+            }
+            Throttle throttle = throttles.computeIfAbsent(volumeKey(file.getStorageVolume()),
+                    key -> new Throttle(config.getMaxUnlinksPerSecond()));
+            due.add(file);
+            results.add(unlinkExecutor(file.getStorageVolume())
+                    .submit(() -> {
+                        throttle.acquire();
+                        storageBackend.hintVolume(file.getStoredName(), file.getStorageVolume());
+                        return storageBackend.delete(file.getStoredName());
+                    }));
+        }
+
+        List<Long> purgeIds = new ArrayList<>(due.size());
+        long freedBytes = 0L;
+        for (int i = 0; i < due.size(); i++) {
+            DeletedFileSummary file = due.get(i);
+            if (awaitUnlink(results.get(i), file, config)) {
+                purgeIds.add(file.getId());
+                freedBytes += file.getFileSize() != null ? file.getFileSize() : 0L;
+            }
+        }
+
+        int purged = purgeIds.isEmpty() ? 0 : fileInfoRepository.purgeTombstones(purgeIds);
+        backlog.updateAndGet(value -> Math.max(0L, value - purged));
+        reapedCounter.increment(purged);
+        freedBytesCounter.increment(freedBytes);
+        sample.stop(batchTimer);
+        event.stage = "reap";
+        event.trigger = "reaper";
+        event.files = purged;
+        event.bytes = freedBytes;
+        event.commit();
+        return purged;
+    }
+
+    /**
+     * 等待物理文件删除结果
+     *
+     * @return 是否可以清除记录
+     */
+    private boolean awaitUnlink(Future<?> result, DeletedFileSummary file, FileUploadConfig.Reaper config) {
+        try {
+            result.get();
+            retries.remove(file.getId());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            unlinkFailureCounter.increment();
+            Retry retry = retries.computeIfAbsent(file.getId(), id -> new Retry());
+            retry.attempts++;
+            if (retry.attempts >= config.getMaxAttempts()) {
+                // 放弃删除，清除记录；残留的物理文件由存储对账作为孤儿文件清理
+                retries.remove(file.getId());
+                logger.error("删除文件 {} 连续失败 {} 次，放弃重试: {}", file.getFileKey(), retry.attempts, e.getMessage());
+                return true;
+            }
+            retry.nextAttemptAt = System.currentTimeMillis() + config.getRetryBackoff();
+            logger.warn("删除文件 {} 失败，稍后重试: {}", file.getFileKey(), e.getMessage());
+            return false;
+        }
+    }
+
+    private static final class Retry {
+        private int attempts;
+        private long nextAttemptAt;
+    }
+}
@@ -0,0 +1,280 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 进行中传输登记表
+ * 记录每个进行中的上传和下载（文件标识、客户端、已传字节、当前速率、开始时间），
+ * 定期采样速率；宽限期过后速率持续低于下限的传输被标记为停滞，在下一次读写时中断，
+ * 避免慢速客户端长期占用连接和工作线程。上传的请求体读完后传输已完成，之后保存文件、写入数据库的耗时
+ * 与客户端无关，不再参与停滞判断。
+ *
+ * @author lemwood
+ */
+@Service
+public class TransferRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransferRegistry.class);
+
+    /**
+     * 请求属性名，保存当前请求对应的传输
+     */
+    public static final String TRANSFER_ATTRIBUTE = TransferRegistry.class.getName() + ".TRANSFER";
+
+    /**
+     * 速率平滑系数，越大越偏向最近一次采样
+     */
+    private static final double RATE_SMOOTHING = 0.3;
+
+    public enum Direction {
+        UPLOAD, DOWNLOAD;
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<Long, Transfer> transfers = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Direction, AtomicLong> activeCounts = new EnumMap<>(Direction.class);
+    private final Map<Direction, Counter> stalledCounters = new EnumMap<>(Direction.class);
+    private final Map<Direction, DistributionSummary> rateSummaries = new EnumMap<>(Direction.class);
+
+    @PostConstruct
+    public void init() {
+        for (Direction direction : Direction.values()) {
+            AtomicLong active = new AtomicLong();
+            activeCounts.put(direction, active);
+            Gauge.builder("fileshare.transfer.active", active, AtomicLong::get)
+                    .description("进行中的传输数")
+                    .tag("direction", direction.tag())
+                    .register(meterRegistry);
+            stalledCounters.put(direction, Counter.builder("fileshare.transfer.stalled")
+                    .description("速率过低被中断的传输数")
+                    .tag("direction", direction.tag())
+                    .register(meterRegistry));
+            rateSummaries.put(direction, DistributionSummary.builder("fileshare.transfer.rate")
+                    .description("传输结束时的平均速率")
+                    .baseUnit("bytes_per_second")
+                    .tag("direction", direction.tag())
+                    .register(meterRegistry));
+        }
+    }
+
+    public boolean isEnabled() {
+        return fileUploadConfig.getTransfer().isEnabled();
+    }
+
+    /**
+     * 登记一个传输
+     *
+     * @param direction 传输方向
+     * @param fileKey   文件标识，上传在保存前未知，可为 null
+     * @param client    客户端地址
+     * @param expected  预期字节数，未知时为 -1
+     */
+    public Transfer begin(Direction direction, String fileKey, String client, long expected) {
+        Transfer transfer = new Transfer(sequence.incrementAndGet(), direction, fileKey, client, expected,
+                System.currentTimeMillis(), System.nanoTime());
+        transfers.put(transfer.id, transfer);
+        activeCounts.get(direction).incrementAndGet();
+        return transfer;
+    }
+
+    /**
+     * 注销传输并记录平均速率
+     */
+    public void end(Transfer transfer) {
+        if (transfers.remove(transfer.id) == null) {
+            return;
+        }
+        activeCounts.get(transfer.direction).decrementAndGet();
+        long elapsedNanos = System.nanoTime() - transfer.startNanos;
+        if (elapsedNanos > 0 && transfer.getBytes() > 0) {
+            rateSummaries.get(transfer.direction).record(transfer.getBytes() * 1e9 / elapsedNanos);
+        }
+    }
+
+    /**
+     * 采样所有传输的速率，中断宽限期后仍低于速率下限的传输
+     */
+    @Scheduled(fixedDelayString = "${file.transfer.sample-interval:1000}")
+    public void sample() {
+        FileUploadConfig.Transfer config = fileUploadConfig.getTransfer();
+        long now = System.nanoTime();
+        long graceNanos = config.getGracePeriod() * 1_000_000L;
+        for (Transfer transfer : transfers.values()) {
+            transfer.sample(now);
+            if (!config.isEnabled() || config.getMinBytesPerSecond() <= 0 || transfer.isStalled()
+                    || transfer.isComplete()) {
+                continue;
+            }
+            if (now - transfer.startNanos >= graceNanos && transfer.rate < config.getMinBytesPerSecond()) {
+                transfer.stalled = true;
+                stalledCounters.get(transfer.direction).increment();
+                logger.warn("传输速率过低，中断传输: 方向={}, 文件={}, 客户端={}, 已传 {} 字节, 速率 {} B/s",
+                        transfer.direction.tag(), transfer.fileKey, transfer.client,
+                        transfer.getBytes(), Math.round(transfer.rate));
+            }
+        }
+    }
+
+    /**
+     * 列出进行中的传输
+     *
+     * @param sort 排序方式：rate 按当前速率升序（最慢的在前），age 按已持续时间降序（最久的在前）
+     */
+    public List<Map<String, Object>> list(String sort) {
+        Comparator<Transfer> comparator = "age".equalsIgnoreCase(sort)
+                ? Comparator.comparingLong((Transfer transfer) -> transfer.startNanos)
+                : Comparator.comparingDouble((Transfer transfer) -> transfer.rate);
+        long now = System.nanoTime();
+        return transfers.values().stream()
+                .sorted(comparator)
+                .map(transfer -> transfer.describe(now))
+                .collect(Collectors.toList());
+    }
+
+    public int getActiveCount() {
+        return transfers.size();
+    }
+
+    public long getActiveCount(Direction direction) {
+        return activeCounts.get(direction).get();
+    }
+
+    /**
+     * 单个进行中的传输
+     */
+    public static final class Transfer {
+
+        private final long id;
+        private final Direction direction;
+        private final String client;
+        private final long expected;
+        private final long startTime;
+        private final long startNanos;
+        private final AtomicLong bytes = new AtomicLong();
+        private volatile String fileKey;
+        private volatile double rate;
+        private volatile boolean stalled;
+        private volatile boolean complete;
+        private long lastSampleBytes;
+        private long lastSampleNanos;
+        private boolean sampled;
+
+        Transfer(long id, Direction direction, String fileKey, String client, long expected,
+                 long startTime, long startNanos) {
+            this.id = id;
+            this.direction = direction;
+            this.fileKey = fileKey;
+            this.client = client;
+            this.expected = expected;
+            this.startTime = startTime;
+            this.startNanos = startNanos;
+            this.lastSampleNanos = startNanos;
+        }
+
+        /**
+         * 累加已传字节
+         */
+        public void add(long count) {
+            if (count > 0 && bytes.addAndGet(count) >= expected && expected >= 0) {
+                complete = true;
+            }
+        }
+
+        /**
+         * 请求体已读到末尾，客户端的传输部分结束
+         */
+        public void markComplete() {
+            complete = true;
+        }
+
+        public boolean isComplete() {
+            return complete;
+        }
+
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        public boolean isStalled() {
+            return stalled;
+        }
+
+        public double getRate() {
+            return rate;
+        }
+
+        public Direction getDirection() {
+            return direction;
+        }
+
+        public String getFileKey() {
+            return fileKey;
+        }
+
+        public void setFileKey(String fileKey) {
+            this.fileKey = fileKey;
+        }
+
+        void sample(long now) {
+            long elapsed = now - lastSampleNanos;
+            if (elapsed <= 0) {
+                return;
+            }
+            long current = bytes.get();
+            double instant = (current - lastSampleBytes) * 1e9 / elapsed;
+            // 第一次采样直接取瞬时速率，之后做指数平滑，避免偶发的网络抖动被当作停滞
+            rate = sampled ? RATE_SMOOTHING * instant + (1 - RATE_SMOOTHING) * rate : instant;
+            sampled = true;
+            lastSampleBytes = current;
+            lastSampleNanos = now;
+        }
+
+        Map<String, Object> describe(long now) {
+            Map<String, Object> info = new HashMap<>();
+            info.put("id", id);
+            info.put("direction", direction.tag());
+            info.put("fileKey", fileKey);
+            info.put("client", client);
+            info.put("bytes", getBytes());
+            info.put("expectedBytes", expected);
+            info.put("bytesPerSecond", Math.round(rate));
+            info.put("startTime", LocalDateTime.ofInstant(Instant.ofEpochMilli(startTime), ZoneId.systemDefault()));
+            info.put("ageMillis", (now - startNanos) / 1_000_000L);
+            info.put("stalled", stalled);
+            info.put("complete", complete);
+            return info;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package cn.lemwood.fileshare.storage;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 压缩存放的对象
+ * 格式为 magic(4) | 原始长度(8) | 原始修改时间(8) | deflate 数据；
+ * 读取通道对外呈现解压后的内容，向前定位时跳过解压数据，向后定位时从头重新解压。
+ *
+ * @author lemwood
+ */
+final class CompressedObject {
+
+    private static final int MAGIC = 0x46535A31;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private CompressedObject() {
+    }
+
+    /**
+     * 打开压缩写入流，关闭时结束压缩并关闭底层流
+     */
+    static OutputStream openWrite(OutputStream target, long length, long lastModified) throws IOException {
+        DataOutputStream header = new DataOutputStream(target);
+        header.writeInt(MAGIC);
+        header.writeLong(length);
+        header.writeLong(lastModified);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        return new DeflaterOutputStream(target, deflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * 只读取头部，返回原始长度和修改时间
+     */
+    static StoredObject stat(StorageBackend backend, String storedName, String name) throws IOException {
+        try (DataInputStream in = new DataInputStream(Channels.newInputStream(backend.openRead(storedName)))) {
+            Header header = Header.read(in, storedName);
+            return new StoredObject(name, header.length, header.lastModified);
+        }
+    }
+
+    static SeekableByteChannel openRead(StorageBackend backend, String storedName) throws IOException {
+        return new DecompressingChannel(backend, storedName);
+    }
+
+    private static final class Header {
+        final long length;
+        final long lastModified;
+
+        private Header(long length, long lastModified) {
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        static Header read(DataInputStream in, String storedName) throws IOException {
+            try {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException("不是压缩对象: " + storedName);
+                }
+                return new Header(in.readLong(), in.readLong());
+            } catch (EOFException e) {
+                throw new IOException("压缩对象头部不完整: " + storedName, e);
+            }
+        }
+    }
+
+    private static final class DecompressingChannel implements SeekableByteChannel {
+
+        private final StorageBackend backend;
+        private final String storedName;
+        private final long size;
+        private InputStream in;
+        private long position;
+        private byte[] buffer;
+        private boolean open = true;
+
+        DecompressingChannel(StorageBackend backend, String storedName) throws IOException {
+            this.backend = backend;
+            this.storedName = storedName;
+            this.size = reopen().length;
+        }
+
+        private Header reopen() throws IOException {
+            if (in != null) {
+                in.close();
+            }
+            DataInputStream raw = new DataInputStream(Channels.newInputStream(backend.openRead(storedName)));
+            try {
+                Header header = Header.read(raw, storedName);
+                in = new InflaterInputStream(raw, new Inflater(), BUFFER_SIZE) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            inf.end();
+                        }
+                    }
+                };
+                position = 0;
+                return header;
+            } catch (IOException e) {
+                raw.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            ensureOpen();
+            if (position >= size) {
+                return -1;
+            }
+            int length = (int) Math.min(dst.remaining(), Math.min(BUFFER_SIZE, size - position));
+            if (buffer == null) {
+                buffer = new byte[BUFFER_SIZE];
+            }
+            int n = in.read(buffer, 0, length);
+            if (n < 0) {
+                throw new EOFException("压缩对象数据不完整: " + storedName);
+            }
+            dst.put(buffer, 0, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public long position() throws IOException {
+            ensureOpen();
+            return position;
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            ensureOpen();
+            if (newPosition < 0) {
+                throw new IllegalArgumentException("position < 0");
+            }
+            if (newPosition < position) {
+                reopen();
+            }
+            long target = Math.min(newPosition, size);
+            while (position < target) {
+                long skipped = in.skip(target - position);
+                if (skipped <= 0) {
+                    throw new EOFException("压缩对象数据不完整: " + storedName);
+                }
+                position += skipped;
+            }
+            position = newPosition;
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            ensureOpen();
+            return size;
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (open) {
+                open = false;
+                in.close();
+            }
+        }
+
+        private void ensureOpen() throws ClosedChannelException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+        }
+    }
+}
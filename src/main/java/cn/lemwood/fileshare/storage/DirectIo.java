@@ -0,0 +1,375 @@
+package cn.lemwood.fileshare.storage;
+
+import com.sun.nio.file.ExtendedOpenOption;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 直接 I/O（O_DIRECT）读写
+ * 大文件超过阈值的部分绕过内核页缓存写入，后台迁移按块对齐直接读取，避免批量数据挤出下载常用的小文件。
+ * 直接 I/O 要求缓冲区地址、文件偏移和长度都按文件系统块大小对齐：写入流在阈值之前普通写入，
+ * 之后攒满对齐的直接缓冲区再写，关闭时不足一块的尾部改回普通写入。开启时先在目录中试写一块，
+ * 文件系统不支持时不启用；之后只有 O_DIRECT 被拒绝（EINVAL）时才回退为普通读写，其他 I/O 错误照常抛出。
+ * 统计全进程开启直接 I/O 后超过阈值的写入字节数，按是否实际绕过页缓存分别计数。
+ *
+ * @author lemwood
+ */
+public final class DirectIo {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private static final LongAdder DIRECT_BYTES = new LongAdder();
+    private static final LongAdder BUFFERED_BYTES = new LongAdder();
+
+    private DirectIo() {
+    }
+
+    /**
+     * 以直接 I/O 写入的大文件字节数
+     */
+    public static long directBytes() {
+        return DIRECT_BYTES.sum();
+    }
+
+    /**
+     * 开启了直接 I/O、超过阈值但因文件系统不支持而回退为经过页缓存写入的字节数
+     */
+    public static long bufferedBytes() {
+        return BUFFERED_BYTES.sum();
+    }
+
+    /**
+     * 文件系统不支持直接 I/O 时的回调
+     */
+    interface Fallback {
+        void unsupported(Exception cause);
+    }
+
+    /**
+     * 在目录中以直接 I/O 试写并读回一块，确认文件系统支持 O_DIRECT
+     */
+    static void probe(Path directory, int blockSize) throws IOException {
+        Path file = Files.createTempFile(directory, ".direct-io-", ".probe");
+        try {
+            ByteBuffer block = allocateAligned(blockSize).limit(blockSize);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, ExtendedOpenOption.DIRECT)) {
+                writeFully(channel, block, 0L);
+            }
+            block.clear().limit(blockSize);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, ExtendedOpenOption.DIRECT)) {
+                channel.read(block, 0L);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * 是否是文件系统拒绝 O_DIRECT（EINVAL），文件不存在、权限、设备故障等其他错误不应触发回退
+     */
+    static boolean isDirectIoRejected(IOException e) {
+        String reason = e instanceof FileSystemException ? ((FileSystemException) e).getReason() : e.getMessage();
+        return reason != null && reason.contains("Invalid argument");
+    }
+
+    /**
+     * 打开写入流，写满 threshold 字节后切换为直接 I/O
+     */
+    static OutputStream openWrite(Path path, long threshold, int blockSize, Fallback fallback) throws IOException {
+        return new DirectOutputStream(path, alignUp(threshold, blockSize), blockSize, fallback);
+    }
+
+    /**
+     * 打开按块对齐直接读取的只读通道，文件系统不支持时返回 null
+     */
+    static SeekableByteChannel openRead(Path path, int blockSize, Fallback fallback) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ, ExtendedOpenOption.DIRECT);
+        } catch (UnsupportedOperationException e) {
+            fallback.unsupported(e);
+            return null;
+        } catch (IOException e) {
+            // 不支持 O_DIRECT 的文件系统在 open 时返回 EINVAL；文件不存在等错误照常抛出
+            if (!isDirectIoRejected(e)) {
+                throw e;
+            }
+            fallback.unsupported(e);
+            return null;
+        }
+        return new DirectReadChannel(channel, blockSize);
+    }
+
+    private static long alignUp(long value, int blockSize) {
+        long remainder = value % blockSize;
+        return remainder == 0 ? value : value + blockSize - remainder;
+    }
+
+    private static ByteBuffer allocateAligned(int blockSize) {
+        int capacity = (int) alignUp(Math.max(BUFFER_SIZE, blockSize), blockSize);
+        return ByteBuffer.allocateDirect(capacity + blockSize).alignedSlice(blockSize).limit(capacity).slice();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static final class DirectOutputStream extends OutputStream {
+
+        private final Path path;
+        private final long threshold;
+        private final int blockSize;
+        private final Fallback fallback;
+        private final FileChannel buffered;
+        private boolean allowDirect;
+        private FileChannel direct;
+        private ByteBuffer buffer;
+        private long switchedAt;
+        private long directPosition;
+        private long written;
+        private boolean closed;
+
+        DirectOutputStream(Path path, long threshold, int blockSize, Fallback fallback) throws IOException {
+            this.path = path;
+            this.threshold = threshold;
+            this.blockSize = blockSize;
+            this.allowDirect = true;
+            this.fallback = fallback;
+            this.buffered = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("写入流已关闭: " + path);
+            }
+            while (len > 0) {
+                if (direct == null && written >= threshold && allowDirect) {
+                    switchToDirect();
+                }
+                int n;
+                if (direct != null) {
+                    n = Math.min(len, buffer.remaining());
+                    buffer.put(b, off, n);
+                    DIRECT_BYTES.add(n);
+                    if (!buffer.hasRemaining()) {
+                        flushDirect(buffer.position());
+                    }
+                } else {
+                    long beforeThreshold = threshold - written;
+                    n = beforeThreshold > 0 && allowDirect ? (int) Math.min(len, beforeThreshold) : len;
+                    writeFully(buffered, ByteBuffer.wrap(b, off, n), written);
+                    if (beforeThreshold <= 0) {
+                        BUFFERED_BYTES.add(n);
+                    } else if (n > beforeThreshold) {
+                        BUFFERED_BYTES.add(n - beforeThreshold);
+                    }
+                }
+                written += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void switchToDirect() throws IOException {
+            try {
+                direct = FileChannel.open(path, StandardOpenOption.WRITE, ExtendedOpenOption.DIRECT);
+            } catch (UnsupportedOperationException e) {
+                allowDirect = false;
+                fallback.unsupported(e);
+                return;
+            } catch (IOException e) {
+                if (!isDirectIoRejected(e)) {
+                    throw e;
+                }
+                allowDirect = false;
+                fallback.unsupported(e);
+                return;
+            }
+            buffer = allocateAligned(blockSize);
+            switchedAt = written;
+            directPosition = written;
+        }
+
+        /**
+         * 写出缓冲区中前 length 字节，length 必须是块大小的整数倍
+         */
+        private void flushDirect(int length) throws IOException {
+            ByteBuffer blocks = buffer.duplicate();
+            blocks.flip().limit(length);
+            try {
+                writeFully(direct, blocks, directPosition);
+            } catch (IOException e) {
+                if (directPosition > switchedAt || !isDirectIoRejected(e)) {
+                    throw e;
+                }
+                // 部分文件系统（如网络、FUSE 文件系统）允许打开但拒绝首次直接写入
+                fallBack(e);
+                return;
+            }
+            directPosition += length;
+            buffer.flip().position(length);
+            buffer.compact();
+        }
+
+        /**
+         * 把缓冲区中尚未写出的数据改为普通写入，之后不再尝试直接 I/O
+         */
+        private void fallBack(IOException cause) throws IOException {
+            buffer.flip();
+            int pending = buffer.remaining();
+            writeFully(buffered, buffer, directPosition);
+            DIRECT_BYTES.add(-pending);
+            BUFFERED_BYTES.add(pending);
+            try {
+                direct.close();
+            } finally {
+                direct = null;
+                buffer = null;
+                allowDirect = false;
+                fallback.unsupported(cause);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try (FileChannel tail = buffered) {
+                if (direct == null) {
+                    return;
+                }
+                try {
+                    int pending = buffer.position();
+                    int aligned = pending - pending % blockSize;
+                    if (aligned > 0) {
+                        flushDirect(aligned);
+                    }
+                    if (buffer != null) {
+                        buffer.flip();
+                        writeFully(tail, buffer, directPosition);
+                    }
+                } finally {
+                    if (direct != null) {
+                        direct.close();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 从对齐的偏移按整块读入直接缓冲区，再从中取出调用方请求的位置
+     */
+    private static final class DirectReadChannel implements SeekableByteChannel {
+
+        private final FileChannel channel;
+        private final int blockSize;
+        private final ByteBuffer buffer;
+        private long bufferStart;
+        private long position;
+
+        DirectReadChannel(FileChannel channel, int blockSize) {
+            this.channel = channel;
+            this.blockSize = blockSize;
+            this.buffer = allocateAligned(blockSize);
+            this.buffer.limit(0);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            ensureOpen();
+            if (position < bufferStart || position >= bufferStart + buffer.limit()) {
+                if (!fill()) {
+                    return -1;
+                }
+            }
+            ByteBuffer chunk = buffer.duplicate();
+            chunk.position((int) (position - bufferStart));
+            if (chunk.remaining() > dst.remaining()) {
+                chunk.limit(chunk.position() + dst.remaining());
+            }
+            int n = chunk.remaining();
+            dst.put(chunk);
+            position += n;
+            return n;
+        }
+
+        private boolean fill() throws IOException {
+            bufferStart = position - position % blockSize;
+            buffer.clear();
+            // 直接读取在文件末尾返回不足一块的字节数
+            int n = channel.read(buffer, bufferStart);
+            buffer.flip();
+            return n > 0 && position < bufferStart + buffer.limit();
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public long position() throws IOException {
+            ensureOpen();
+            return position;
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            ensureOpen();
+            if (newPosition < 0) {
+                throw new IllegalArgumentException("position < 0");
+            }
+            position = newPosition;
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private void ensureOpen() throws ClosedChannelException {
+            if (!channel.isOpen()) {
+                throw new ClosedChannelException();
+            }
+        }
+    }
+}
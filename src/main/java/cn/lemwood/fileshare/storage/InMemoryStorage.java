@@ -0,0 +1,213 @@
+package cn.lemwood.fileshare.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 内存存储后端
+ * 对象保存在堆内，用于单元测试和基准测试，不触碰磁盘；容量用于模拟空间不足，写入超出容量时抛出 IOException。
+ *
+ * @author lemwood
+ */
+public class InMemoryStorage implements StorageBackend {
+
+    private static final class Entry {
+        final byte[] data;
+        final long lastModified;
+
+        Entry(byte[] data, long lastModified) {
+            this.data = data;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private final Map<String, Entry> objects = new ConcurrentHashMap<>();
+    private final AtomicLong used = new AtomicLong();
+    private final long capacity;
+
+    public InMemoryStorage() {
+        this(Long.MAX_VALUE);
+    }
+
+    public InMemoryStorage(long capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public OutputStream openWrite(String name) {
+        return new ByteArrayOutputStream() {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                if (!closed) {
+                    closed = true;
+                    put(name, toByteArray(), System.currentTimeMillis());
+                }
+            }
+        };
+    }
+
+    @Override
+    public SeekableByteChannel openRead(String name) throws IOException {
+        return new ByteArrayChannel(entry(name).data);
+    }
+
+    @Override
+    public boolean delete(String name) {
+        Entry removed = objects.remove(name);
+        if (removed == null) {
+            return false;
+        }
+        used.addAndGet(-removed.data.length);
+        return true;
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String name) {
+        Entry entry = objects.get(name);
+        return entry != null ? Optional.of(new StoredObject(name, entry.data.length, entry.lastModified)) : Optional.empty();
+    }
+
+    @Override
+    public Stream<StoredObject> list() {
+        // 快照遍历，遍历期间的写入和删除不影响结果
+        return new ArrayList<>(objects.entrySet()).stream()
+                .map(entry -> new StoredObject(entry.getKey(), entry.getValue().data.length, entry.getValue().lastModified));
+    }
+
+    @Override
+    public StorageSpace space() {
+        return new StorageSpace(capacity, capacity - used.get(), true);
+    }
+
+    @Override
+    public String location(String name) {
+        return "memory:" + name;
+    }
+
+    /**
+     * 直接写入对象并指定修改时间，供测试构造历史数据
+     */
+    public void put(String name, byte[] data, long lastModified) throws IOException {
+        boolean[] full = new boolean[1];
+        objects.compute(name, (key, previous) -> {
+            long delta = data.length - (previous != null ? previous.data.length : 0L);
+            if (delta > 0 && used.get() + delta > capacity) {
+                full[0] = true;
+                return previous;
+            }
+            used.addAndGet(delta);
+            return new Entry(data, lastModified);
+        });
+        if (full[0]) {
+            throw new IOException("存储空间不足");
+        }
+    }
+
+    /**
+     * 修改对象的修改时间，供测试构造超出宽限期的文件
+     */
+    public void setLastModified(String name, long lastModified) throws NoSuchFileException {
+        Entry entry = entry(name);
+        objects.replace(name, entry, new Entry(entry.data, lastModified));
+    }
+
+    public int size() {
+        return objects.size();
+    }
+
+    private Entry entry(String name) throws NoSuchFileException {
+        Entry entry = objects.get(name);
+        if (entry == null) {
+            throw new NoSuchFileException(name);
+        }
+        return entry;
+    }
+
+    /**
+     * 字节数组上的只读通道
+     */
+    private static final class ByteArrayChannel implements SeekableByteChannel {
+
+        private final byte[] data;
+        private long position;
+        private boolean open = true;
+
+        ByteArrayChannel(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            ensureOpen();
+            if (position >= data.length) {
+                return -1;
+            }
+            int length = (int) Math.min(dst.remaining(), data.length - position);
+            dst.put(data, (int) position, length);
+            position += length;
+            return length;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public long position() throws IOException {
+            ensureOpen();
+            return position;
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            ensureOpen();
+            if (newPosition < 0) {
+                throw new IllegalArgumentException("位置不能为负数");
+            }
+            position = newPosition;
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            ensureOpen();
+            return data.length;
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+
+        private void ensureOpen() throws ClosedChannelException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+        }
+    }
+}
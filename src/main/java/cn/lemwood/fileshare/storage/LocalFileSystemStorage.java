@@ -0,0 +1,220 @@
+package cn.lemwood.fileshare.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 本地文件系统存储后端
+ * 所有对象平铺在上传目录下，文件名即存储名，与既有数据的布局一致。
+ * 开启直接 I/O 后，大文件超过阈值的部分和后台批量读取绕过页缓存，文件系统不支持时自动回退为普通读写。
+ *
+ * @author lemwood
+ */
+public class LocalFileSystemStorage implements StorageBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalFileSystemStorage.class);
+
+    private static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    private final Path root;
+    private long bulkThreshold = Long.MAX_VALUE;
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+    private volatile boolean directIo;
+
+    public LocalFileSystemStorage(Path root) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        Files.createDirectories(this.root);
+    }
+
+    /**
+     * 设置大文件阈值，direct 为 true 时超过阈值的部分绕过页缓存；未开启或回退后使用普通读写，不经过直接 I/O 写入流。
+     * 开启前先在上传目录试写，文件系统不支持时直接回退
+     */
+    public void enableDirectIo(boolean direct, long threshold) {
+        try {
+            blockSize = (int) Files.getFileStore(root).getBlockSize();
+        } catch (IOException | UnsupportedOperationException e) {
+            blockSize = DEFAULT_BLOCK_SIZE;
+        }
+        bulkThreshold = threshold;
+        directIo = direct;
+        if (direct) {
+            try {
+                DirectIo.probe(root, blockSize);
+            } catch (IOException | UnsupportedOperationException e) {
+                directIoUnsupported(e);
+            }
+        }
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * 是否正在使用直接 I/O；文件系统不支持时回退后返回 false
+     */
+    public boolean isDirectIo() {
+        return directIo;
+    }
+
+    @Override
+    public OutputStream openWrite(String name) throws IOException {
+        if (directIo) {
+            return DirectIo.openWrite(resolve(name), bulkThreshold, blockSize, this::directIoUnsupported);
+        }
+        return Files.newOutputStream(resolve(name), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public long write(String name, InputStream in) throws IOException {
+        if (directIo) {
+            return StorageBackend.super.write(name, in);
+        }
+        return Files.copy(in, resolve(name), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public SeekableByteChannel openRead(String name) throws IOException {
+        return Files.newByteChannel(resolve(name), StandardOpenOption.READ);
+    }
+
+    /**
+     * 超过阈值的文件以直接 I/O 读取
+     */
+    @Override
+    public SeekableByteChannel openBulkRead(String name) throws IOException {
+        Path path = resolve(name);
+        if (directIo && Files.size(path) >= bulkThreshold) {
+            SeekableByteChannel channel = DirectIo.openRead(path, blockSize, this::directIoUnsupported);
+            if (channel != null) {
+                return channel;
+            }
+        }
+        return Files.newByteChannel(path, StandardOpenOption.READ);
+    }
+
+    private void directIoUnsupported(Exception cause) {
+        if (directIo) {
+            directIo = false;
+            logger.warn("目录 {} 所在文件系统不支持直接 I/O，回退为经过页缓存读写: {}", root, cause.toString());
+        }
+    }
+
+    @Override
+    public boolean delete(String name) throws IOException {
+        return Files.deleteIfExists(resolve(name));
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String name) throws IOException {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(resolve(name), BasicFileAttributes.class);
+            return attrs.isRegularFile() ? Optional.of(toObject(name, attrs)) : Optional.empty();
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Stream<StoredObject> list() throws IOException {
+        DirectoryStream<Path> directory = Files.newDirectoryStream(root);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(directory.iterator(), Spliterator.NONNULL), false)
+                .flatMap(path -> {
+                    try {
+                        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                        return attrs.isRegularFile()
+                                ? Stream.of(toObject(path.getFileName().toString(), attrs)) : Stream.empty();
+                    } catch (IOException e) {
+                        // 遍历期间被删除的文件
+                        return Stream.empty();
+                    }
+                })
+                .onClose(() -> {
+                    try {
+                        directory.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    @Override
+    public StorageSpace space() throws IOException {
+        FileStore store = Files.getFileStore(root);
+        return new StorageSpace(store.getTotalSpace(), store.getUsableSpace(), Files.isWritable(root));
+    }
+
+    @Override
+    public String location(String name) {
+        return resolve(name).toString();
+    }
+
+    /**
+     * 删除上传目录下的空子目录
+     */
+    @Override
+    public long housekeeping() throws IOException {
+        long removed = 0;
+        try (DirectoryStream<Path> directory = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path child : directory) {
+                removed += removeEmptyDirectories(child);
+            }
+        }
+        return removed;
+    }
+
+    private long removeEmptyDirectories(Path directory) throws IOException {
+        long removed = 0;
+        boolean empty = true;
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+            for (Path child : children) {
+                if (Files.isDirectory(child)) {
+                    removed += removeEmptyDirectories(child);
+                }
+                if (Files.exists(child)) {
+                    empty = false;
+                }
+            }
+        }
+        if (empty && Files.deleteIfExists(directory)) {
+            removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * 存储名只能是上传目录下的单层文件名
+     */
+    private Path resolve(String name) {
+        Path path = root.resolve(name).normalize();
+        if (!root.equals(path.getParent())) {
+            throw new IllegalArgumentException("非法的存储名: " + name);
+        }
+        return path;
+    }
+
+    private static StoredObject toObject(String name, BasicFileAttributes attrs) {
+        return new StoredObject(name, attrs.size(), attrs.lastModifiedTime().toMillis());
+    }
+}
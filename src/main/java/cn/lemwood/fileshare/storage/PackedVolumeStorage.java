@@ -0,0 +1,524 @@
+package cn.lemwood.fileshare.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 小文件打包存储后端
+ * 不超过阈值的对象追加写入少量大卷文件，避免每个小文件占用一个 inode 和按块取整的空间浪费；
+ * 超过阈值的对象交给被包装的后端（通常是本地文件系统）按单个文件保存。
+ * 存储名到（卷、偏移、长度）的索引常驻内存，启动时顺序扫描卷中每条记录的头部和尾部重建；
+ * 读取使用定位读，不占用卷通道的位置。删除只在记录头部打标记，
+ * 卷中已删除字节的比例超过阈值后由 {@link #housekeeping()} 把仍存活的记录搬到当前卷并删除旧卷。
+ * 单个小文件写入不再单独 fsync，卷写满切换和定期整理时统一刷盘。
+ *
+ * @author lemwood
+ */
+public class PackedVolumeStorage implements StorageBackend, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PackedVolumeStorage.class);
+
+    private static final Pattern VOLUME_NAME = Pattern.compile("volume-(\\d{8})\\.dat");
+
+    /**
+     * 对象在卷中的位置
+     */
+    private static final class Location {
+        final VolumeFile volume;
+        final long offset;
+        final int nameLength;
+        final int length;
+        final long lastModified;
+
+        Location(VolumeFile volume, long offset, int nameLength, int length, long lastModified) {
+            this.volume = volume;
+            this.offset = offset;
+            this.nameLength = nameLength;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        long dataOffset() {
+            return offset + VolumeFile.HEADER_SIZE + nameLength;
+        }
+
+        long recordLength() {
+            return VolumeFile.recordLength(nameLength, length);
+        }
+    }
+
+    private final StorageBackend delegate;
+    private final Path directory;
+    private final int smallFileThreshold;
+    private final long volumeSize;
+    private final double compactionGarbageRatio;
+
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, VolumeFile> volumes = new ConcurrentSkipListMap<>();
+
+    /**
+     * 定时整理和手动优化可能同时触发，同一时间只允许一轮压缩
+     */
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    /**
+     * 串行化卷追加、卷切换和索引更新，保证同名对象在索引中的顺序与卷中一致
+     */
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private VolumeFile active;
+
+    public PackedVolumeStorage(StorageBackend delegate, Path directory, int smallFileThreshold, long volumeSize,
+                               double compactionGarbageRatio) throws IOException {
+        this.delegate = delegate;
+        this.directory = directory.toAbsolutePath().normalize();
+        this.smallFileThreshold = smallFileThreshold;
+        this.volumeSize = volumeSize;
+        this.compactionGarbageRatio = compactionGarbageRatio;
+        Files.createDirectories(this.directory);
+        rebuildIndex();
+    }
+
+    /**
+     * 按卷编号顺序扫描全部卷重建索引；同名对象以较新的记录为准
+     */
+    private void rebuildIndex() throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "volume-*.dat")) {
+            for (Path file : files) {
+                Matcher matcher = VOLUME_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    ids.add(Integer.parseInt(matcher.group(1)));
+                }
+            }
+        }
+        ids.sort(null);
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < ids.size(); i++) {
+            VolumeFile volume = VolumeFile.open(ids.get(i), volumePath(ids.get(i)));
+            volumes.put(volume.getId(), volume);
+            long end = volume.scan((name, offset, nameLength, dataLength, lastModified, deleted) -> {
+                Location location = new Location(volume, offset, nameLength, dataLength, lastModified);
+                if (deleted) {
+                    volume.addGarbage(location.recordLength());
+                    return;
+                }
+                Location previous = index.put(name, location);
+                if (previous != null) {
+                    previous.volume.addGarbage(previous.recordLength());
+                }
+            });
+            if (end < volume.getSize()) {
+                if (i == ids.size() - 1) {
+                    logger.warn("卷 {} 尾部有不完整的记录，截断 {} 字节", volume.getPath(), volume.getSize() - end);
+                    volume.truncate(end);
+                } else {
+                    // 中间卷损坏时无法越过坏记录，剩余部分按垃圾计入，由压缩回收
+                    logger.error("卷 {} 在偏移 {} 处损坏，之后的 {} 字节无法读取", volume.getPath(), end,
+                            volume.getSize() - end);
+                    volume.addGarbage(volume.getSize() - end);
+                }
+            }
+        }
+
+        VolumeFile last = volumes.isEmpty() ? null : volumes.lastEntry().getValue();
+        active = last != null && last.getSize() < volumeSize ? last : createVolume(last != null ? last.getId() + 1 : 1);
+        logger.info("打包卷索引重建完成: {} 个卷，{} 个对象，耗时 {} ms", volumes.size(), index.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    private VolumeFile createVolume(int id) throws IOException {
+        VolumeFile volume = VolumeFile.open(id, volumePath(id));
+        volumes.put(id, volume);
+        return volume;
+    }
+
+    private Path volumePath(int id) {
+        return directory.resolve(String.format("volume-%08d.dat", id));
+    }
+
+    /**
+     * 写入先缓存在内存中，超过阈值后转为写入被包装的后端；关闭时未超过阈值的内容追加到卷
+     */
+    @Override
+    public OutputStream openWrite(String name) {
+        return new OutputStream() {
+            private byte[] buffer = new byte[Math.min(8192, smallFileThreshold)];
+            private int count;
+            private OutputStream spill;
+            private boolean closed;
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (closed) {
+                    throw new IOException("写入流已关闭");
+                }
+                if (spill == null && count + len > smallFileThreshold) {
+                    spill = delegate.openWrite(name);
+                    spill.write(buffer, 0, count);
+                    buffer = null;
+                }
+                if (spill != null) {
+                    spill.write(b, off, len);
+                    return;
+                }
+                if (count + len > buffer.length) {
+                    byte[] grown = new byte[(int) Math.min(smallFileThreshold, Math.max((long) buffer.length * 2, count + len))];
+                    System.arraycopy(buffer, 0, grown, 0, count);
+                    buffer = grown;
+                }
+                System.arraycopy(b, off, buffer, count, len);
+                count += len;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                if (spill != null) {
+                    spill.close();
+                    discard(index.remove(name));
+                } else {
+                    pack(name, buffer, count, System.currentTimeMillis());
+                }
+            }
+        };
+    }
+
+    /**
+     * 追加一条记录并更新索引，同名的旧记录标记为已删除
+     */
+    private void pack(String name, byte[] data, int length, long lastModified) throws IOException {
+        byte[] encodedName = encodeName(name);
+        Location previous;
+        appendLock.lock();
+        try {
+            VolumeFile volume = activeFor(VolumeFile.recordLength(encodedName.length, length));
+            long offset = volume.append(encodedName, data, length, lastModified);
+            previous = index.put(name, new Location(volume, offset, encodedName.length, length, lastModified));
+        } finally {
+            appendLock.unlock();
+        }
+        discard(previous);
+    }
+
+    private static byte[] encodeName(String name) {
+        byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+        if (encoded.length > VolumeFile.MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("存储名过长: " + name);
+        }
+        return encoded;
+    }
+
+    /**
+     * 当前卷放不下这条记录时刷盘并切换到新卷。调用方持有追加锁。
+     */
+    private VolumeFile activeFor(long recordLength) throws IOException {
+        if (active.getSize() > 0 && active.getSize() + recordLength > volumeSize) {
+            active.force();
+            active = createVolume(active.getId() + 1);
+        }
+        return active;
+    }
+
+    private void discard(Location location) throws IOException {
+        if (location == null || !location.volume.retain()) {
+            return;
+        }
+        try {
+            location.volume.markDeleted(location.offset, location.recordLength());
+        } finally {
+            location.volume.release();
+        }
+    }
+
+    @Override
+    public SeekableByteChannel openRead(String name) throws IOException {
+        while (true) {
+            Location location = index.get(name);
+            if (location == null) {
+                return delegate.openRead(name);
+            }
+            if (location.volume.retain()) {
+                return new VolumeChannel(location);
+            }
+            // 卷刚被压缩退役，索引已指向新位置，重新查找
+        }
+    }
+
+    /**
+     * 打包的小文件照常读取，大文件交给被包装的后端
+     */
+    @Override
+    public SeekableByteChannel openBulkRead(String name) throws IOException {
+        return index.containsKey(name) ? openRead(name) : delegate.openBulkRead(name);
+    }
+
+    /**
+     * 卷和被包装的后端中的同名对象都删除
+     */
+    @Override
+    public boolean delete(String name) throws IOException {
+        Location location = index.remove(name);
+        discard(location);
+        return delegate.delete(name) || location != null;
+    }
+
+    /**
+     * 打包对象删除后只计入卷的垃圾字节，压缩前不释放空间
+     */
+    @Override
+    public boolean freesSpaceOnDelete(String name) throws IOException {
+        return !index.containsKey(name) && delegate.freesSpaceOnDelete(name);
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String name) throws IOException {
+        Location location = index.get(name);
+        if (location != null) {
+            return Optional.of(new StoredObject(name, location.length, location.lastModified));
+        }
+        return delegate.stat(name);
+    }
+
+    @Override
+    public Stream<StoredObject> list() throws IOException {
+        Stream<StoredObject> packed = index.entrySet().stream()
+                .map(entry -> new StoredObject(entry.getKey(), entry.getValue().length, entry.getValue().lastModified));
+        return Stream.concat(packed, delegate.list());
+    }
+
+    @Override
+    public StorageSpace space() throws IOException {
+        return delegate.space();
+    }
+
+    @Override
+    public String location(String name) {
+        Location location = index.get(name);
+        if (location != null) {
+            return location.volume.getPath() + "#" + location.offset;
+        }
+        return delegate.location(name);
+    }
+
+    /**
+     * 刷盘当前卷并压缩垃圾比例超过阈值的卷，返回被包装后端整理的条目数与压缩掉的卷数之和；
+     * 上一轮压缩仍在执行时只整理被包装后端
+     */
+    @Override
+    public long housekeeping() throws IOException {
+        long cleaned = delegate.housekeeping();
+        if (!compacting.compareAndSet(false, true)) {
+            return cleaned;
+        }
+        try {
+            return cleaned + compactGarbageVolumes();
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    private long compactGarbageVolumes() throws IOException {
+        long compacted = 0L;
+        VolumeFile current;
+        appendLock.lock();
+        try {
+            current = active;
+            current.force();
+        } finally {
+            appendLock.unlock();
+        }
+        for (VolumeFile volume : new ArrayList<>(volumes.values())) {
+            if (volume.getId() < current.getId() && volume.garbageRatio() >= compactionGarbageRatio) {
+                compact(volume);
+                compacted++;
+            }
+        }
+        return compacted;
+    }
+
+    /**
+     * 把卷中仍存活的记录搬到当前卷，然后退役旧卷
+     */
+    private void compact(VolumeFile volume) throws IOException {
+        long start = System.currentTimeMillis();
+        int moved = 0;
+        for (Map.Entry<String, Location> entry : index.entrySet()) {
+            Location location = entry.getValue();
+            if (location.volume != volume) {
+                continue;
+            }
+            byte[] data = new byte[location.length];
+            volume.readFully(ByteBuffer.wrap(data), location.dataOffset());
+            byte[] encodedName = encodeName(entry.getKey());
+            Location copy;
+            boolean replaced;
+            appendLock.lock();
+            try {
+                VolumeFile target = activeFor(VolumeFile.recordLength(encodedName.length, location.length));
+                long offset = target.append(encodedName, data, location.length, location.lastModified);
+                copy = new Location(target, offset, encodedName.length, location.length, location.lastModified);
+                // 搬运期间对象被删除或覆盖时放弃这份副本
+                replaced = index.replace(entry.getKey(), location, copy);
+            } finally {
+                appendLock.unlock();
+            }
+            if (replaced) {
+                moved++;
+            } else {
+                discard(copy);
+            }
+        }
+        appendLock.lock();
+        try {
+            active.force();
+        } finally {
+            appendLock.unlock();
+        }
+        volumes.remove(volume.getId());
+        volume.retire();
+        logger.info("压缩卷 {} 完成: 搬运 {} 个对象，回收 {} 字节，耗时 {} ms", volume.getPath(), moved,
+                volume.getGarbageBytes(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 打包对象数
+     */
+    public int getPackedCount() {
+        return index.size();
+    }
+
+    public int getVolumeCount() {
+        return volumes.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            for (VolumeFile volume : volumes.values()) {
+                volume.close();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * 卷中单个对象的只读通道
+     */
+    private static final class VolumeChannel implements SeekableByteChannel {
+
+        private final Location location;
+        private long position;
+        private boolean open = true;
+
+        VolumeChannel(Location location) {
+            this.location = location;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            ensureOpen();
+            long remaining = location.length - position;
+            if (remaining <= 0) {
+                return -1;
+            }
+            ByteBuffer slice = dst;
+            if (dst.remaining() > remaining) {
+                slice = dst.slice();
+                slice.limit((int) remaining);
+            }
+            int n = location.volume.read(slice, location.dataOffset() + position);
+            if (n > 0) {
+                if (slice != dst) {
+                    dst.position(dst.position() + n);
+                }
+                position += n;
+            }
+            return n;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public long position() throws IOException {
+            ensureOpen();
+            return position;
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            ensureOpen();
+            if (newPosition < 0) {
+                throw new IllegalArgumentException("position < 0");
+            }
+            position = newPosition;
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            ensureOpen();
+            return location.length;
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            if (open) {
+                open = false;
+                location.volume.release();
+            }
+        }
+
+        private void ensureOpen() throws ClosedChannelException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+        }
+    }
+}
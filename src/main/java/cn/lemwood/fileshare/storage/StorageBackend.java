@@ -0,0 +1,118 @@
+package cn.lemwood.fileshare.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * 存储后端
+ * 上传文件的所有物理读写都经过该接口，按存储名（文件标识.扩展名）寻址；
+ * 数据库、过期与回收逻辑只依赖存储名，不关心数据落在本地目录、内存还是其他介质。
+ *
+ * @author lemwood
+ */
+public interface StorageBackend {
+
+    /**
+     * 打开写入流，已存在的同名对象被覆盖；流关闭后内容对读取可见
+     */
+    OutputStream openWrite(String name) throws IOException;
+
+    /**
+     * 把输入流完整写入对象，返回写入的字节数
+     */
+    default long write(String name, InputStream in) throws IOException {
+        try (OutputStream out = openWrite(name)) {
+            return in.transferTo(out);
+        }
+    }
+
+    /**
+     * 打开只读通道，可通过 position 定位实现区间读取
+     *
+     * @throws java.nio.file.NoSuchFileException 对象不存在
+     */
+    SeekableByteChannel openRead(String name) throws IOException;
+
+    /**
+     * 打开后台批量读取（如分层迁移）用的只读通道，实现可绕过页缓存，避免挤出下载常用的文件
+     *
+     * @throws java.nio.file.NoSuchFileException 对象不存在
+     */
+    default SeekableByteChannel openBulkRead(String name) throws IOException {
+        return openRead(name);
+    }
+
+    /**
+     * 删除对象，返回对象是否存在
+     */
+    boolean delete(String name) throws IOException;
+
+    /**
+     * 删除对象后其占用的空间是否立即释放；打包存储的小文件删除只打标记，要等卷压缩后才释放，
+     * 磁盘压力淘汰和分层降级据此不把这类对象计入释放的字节数
+     */
+    default boolean freesSpaceOnDelete(String name) throws IOException {
+        return true;
+    }
+
+    /**
+     * 查询对象的大小和修改时间，不存在时返回空
+     */
+    Optional<StoredObject> stat(String name) throws IOException;
+
+    default boolean exists(String name) throws IOException {
+        return stat(name).isPresent();
+    }
+
+    /**
+     * 惰性列出全部对象，调用方必须关闭返回的流
+     */
+    Stream<StoredObject> list() throws IOException;
+
+    /**
+     * 容量和可用空间
+     */
+    StorageSpace space() throws IOException;
+
+    /**
+     * 对象在该后端中的位置描述，写入 file_info.file_path 便于排查
+     */
+    String location(String name);
+
+    /**
+     * 对象所在存储盘的标识，写入 file_info.storage_volume；单盘后端返回 null
+     */
+    default String volumeOf(String name) throws IOException {
+        return null;
+    }
+
+    /**
+     * 提示对象所在的存储盘（file_info.storage_volume），多盘后端据此先查该盘，不必逐盘探测
+     */
+    default void hintVolume(String name, String volume) throws IOException {
+    }
+
+    /**
+     * 后台整理（如清理空目录、压缩卷），返回整理掉的条目数
+     */
+    default long housekeeping() throws IOException {
+        return 0L;
+    }
+
+    /**
+     * 在存储层之间迁移对象（如冷热分层的降级和提升），返回迁移的对象数
+     */
+    default long migrate() throws IOException {
+        return 0L;
+    }
+
+    /**
+     * 检查存储盘健康状况，多盘后端据此调整可写入的盘
+     */
+    default void checkHealth() {
+    }
+}
@@ -0,0 +1,96 @@
+package cn.lemwood.fileshare.storage;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.util.Optional;
+
+/**
+ * 存储后端中的对象作为 Spring Resource 输出给下载响应
+ * 长度和修改时间取自创建时的元数据，读取时才打开通道
+ *
+ * @author lemwood
+ */
+public class StorageResource extends AbstractResource {
+
+    private final StorageBackend backend;
+    private final String name;
+    private final StoredObject object;
+
+    private StorageResource(StorageBackend backend, String name, StoredObject object) {
+        this.backend = backend;
+        this.name = name;
+        this.object = object;
+    }
+
+    /**
+     * 对象不存在时返回空
+     */
+    public static Optional<StorageResource> of(StorageBackend backend, String name) throws IOException {
+        return backend.stat(name).map(object -> new StorageResource(backend, name, object));
+    }
+
+    @Override
+    public boolean exists() {
+        try {
+            return backend.exists(name);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isReadable() {
+        return exists();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        try {
+            return Channels.newInputStream(backend.openRead(name));
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(getDescription() + " 不存在");
+        }
+    }
+
+    @Override
+    public ReadableByteChannel readableChannel() throws IOException {
+        return backend.openRead(name);
+    }
+
+    @Override
+    public long contentLength() {
+        return object.getSize();
+    }
+
+    @Override
+    public long lastModified() {
+        return object.getLastModified();
+    }
+
+    @Override
+    public String getFilename() {
+        return name;
+    }
+
+    @Override
+    public String getDescription() {
+        return "存储对象 [" + backend.location(name) + "]";
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || (other instanceof StorageResource
+                && ((StorageResource) other).backend == backend && ((StorageResource) other).name.equals(name));
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+}
@@ -0,0 +1,35 @@
+package cn.lemwood.fileshare.storage;
+
+/**
+ * 存储容量
+ *
+ * @author lemwood
+ */
+public final class StorageSpace {
+
+    private final long total;
+    private final long usable;
+    private final boolean writable;
+
+    public StorageSpace(long total, long usable, boolean writable) {
+        this.total = total;
+        this.usable = usable;
+        this.writable = writable;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getUsable() {
+        return usable;
+    }
+
+    public long getUsed() {
+        return total - usable;
+    }
+
+    public boolean isWritable() {
+        return writable;
+    }
+}
@@ -0,0 +1,34 @@
+package cn.lemwood.fileshare.storage;
+
+/**
+ * 存储对象的元数据
+ *
+ * @author lemwood
+ */
+public final class StoredObject {
+
+    private final String name;
+    private final long size;
+    private final long lastModified;
+
+    public StoredObject(String name, long size, long lastModified) {
+        this.name = name;
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * 最后修改时间（毫秒时间戳）
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+}
@@ -0,0 +1,507 @@
+package cn.lemwood.fileshare.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 多盘条带存储后端
+ * 每块存储盘是一个独立的后端（通常是一个上传目录），新对象按可用空间和当前读写数选择存储盘：
+ * 随机取两块健康的盘，选 可用空间 / (1 + 进行中的读写数) 较大的一块，既按容量分布又避开正忙的盘。
+ * 定期健康检查把无法读取容量、不可写或可用空间低于下限的盘移出候选，写入失败的盘冷却一段时间后再参与选择；
+ * 已有对象仍可从被移出的盘读取和删除。
+ * 对象所在的盘缓存在内存中；重启后首次访问时先查调用方按 file_info.storage_volume 提示的盘，
+ * 没有提示或提示不符时才逐盘探测。各盘都不存在的名称缓存一小段时间，文件缺失的记录被反复访问时不必每次逐盘探测。
+ * 整理任务在各盘上并行执行。
+ *
+ * @author lemwood
+ */
+public class StripedStorage implements StorageBackend, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripedStorage.class);
+
+    /**
+     * 不存在的名称的缓存时长和条目上限
+     */
+    private static final long MISSING_TTL = 10_000L;
+    private static final int MISSING_CAPACITY = 10_000;
+
+    /**
+     * 单块存储盘
+     */
+    public static final class Stripe {
+        private final String id;
+        private final StorageBackend backend;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile boolean healthy = true;
+        private volatile String reason;
+        private volatile long usable = Long.MAX_VALUE;
+        private volatile long total;
+        private volatile long failedUntil;
+
+        public Stripe(String id, StorageBackend backend) {
+            this.id = id;
+            this.backend = backend;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        /**
+         * 移出候选的原因，健康时为 null
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        public long getUsable() {
+            return usable;
+        }
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        double score() {
+            return (double) usable / (1 + inFlight.get());
+        }
+    }
+
+    private final List<Stripe> stripes;
+    private final long minFreeSpace;
+    private final long failureCooldown;
+    private final Map<String, Stripe> stripesById = new ConcurrentHashMap<>();
+    private final Map<String, Stripe> routes = new ConcurrentHashMap<>();
+
+    /**
+     * 各盘都不存在的名称 -> 缓存过期时间，写入同名对象时清除
+     */
+    private final Map<String, Long> missing = new ConcurrentHashMap<>();
+    private final ExecutorService maintenanceExecutor;
+
+    public StripedStorage(List<Stripe> stripes, long minFreeSpace, long failureCooldown) {
+        if (stripes.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一块存储盘");
+        }
+        this.stripes = Collections.unmodifiableList(new ArrayList<>(stripes));
+        this.minFreeSpace = minFreeSpace;
+        this.failureCooldown = failureCooldown;
+        for (Stripe stripe : this.stripes) {
+            stripesById.put(stripe.id, stripe);
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.maintenanceExecutor = Executors.newFixedThreadPool(stripes.size(), runnable -> {
+            Thread thread = new Thread(runnable, "storage-stripe-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkHealth();
+    }
+
+    public List<Stripe> getStripes() {
+        return stripes;
+    }
+
+    /**
+     * 两次随机选择：在两块健康的盘中取得分较高的一块
+     */
+    Stripe place() throws IOException {
+        List<Stripe> candidates = new ArrayList<>(stripes.size());
+        for (Stripe stripe : stripes) {
+            if (stripe.healthy) {
+                candidates.add(stripe);
+            }
+        }
+        if (candidates.isEmpty()) {
+            throw new IOException("没有可写入的存储盘");
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Stripe a = candidates.get(first);
+        Stripe b = candidates.get(second);
+        return a.score() >= b.score() ? a : b;
+    }
+
+    /**
+     * 查找对象所在的盘，未缓存时逐盘探测
+     */
+    private Stripe locate(String name) throws IOException {
+        Stripe cached = routes.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        Long missingUntil = missing.get(name);
+        if (missingUntil != null) {
+            if (missingUntil > System.currentTimeMillis()) {
+                return null;
+            }
+            missing.remove(name, missingUntil);
+        }
+        for (Stripe stripe : stripes) {
+            if (stripe.backend.exists(name)) {
+                return route(name, stripe);
+            }
+        }
+        if (missing.size() >= MISSING_CAPACITY) {
+            missing.clear();
+        }
+        missing.put(name, System.currentTimeMillis() + MISSING_TTL);
+        return null;
+    }
+
+    private Stripe route(String name, Stripe stripe) {
+        Stripe existing = routes.putIfAbsent(name, stripe);
+        return existing != null ? existing : stripe;
+    }
+
+    /**
+     * 未缓存位置时先查提示的盘，对象确实在该盘上才记入缓存
+     */
+    @Override
+    public void hintVolume(String name, String volume) throws IOException {
+        if (volume == null || routes.containsKey(name)) {
+            return;
+        }
+        Stripe stripe = stripesById.get(volume);
+        if (stripe != null && stripe.backend.exists(name)) {
+            missing.remove(name);
+            route(name, stripe);
+        }
+    }
+
+    @Override
+    public OutputStream openWrite(String name) throws IOException {
+        Stripe stripe = place();
+        OutputStream out;
+        stripe.inFlight.incrementAndGet();
+        try {
+            out = stripe.backend.openWrite(name);
+        } catch (IOException | RuntimeException e) {
+            stripe.inFlight.decrementAndGet();
+            markFailed(stripe, e);
+            throw e;
+        }
+        return new FilterOutputStream(out) {
+            private boolean closed;
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                try {
+                    out.write(b, off, len);
+                } catch (IOException e) {
+                    markFailed(stripe, e);
+                    throw e;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    markFailed(stripe, e);
+                    throw e;
+                } finally {
+                    stripe.inFlight.decrementAndGet();
+                }
+                missing.remove(name);
+                Stripe previous = routes.put(name, stripe);
+                if (previous != null && previous != stripe) {
+                    // 同名对象写到了另一块盘，删除旧盘上的副本
+                    previous.backend.delete(name);
+                }
+            }
+        };
+    }
+
+    @Override
+    public SeekableByteChannel openRead(String name) throws IOException {
+        return openRead(name, false);
+    }
+
+    @Override
+    public SeekableByteChannel openBulkRead(String name) throws IOException {
+        return openRead(name, true);
+    }
+
+    private SeekableByteChannel openRead(String name, boolean bulk) throws IOException {
+        Stripe stripe = locate(name);
+        if (stripe == null) {
+            throw new NoSuchFileException(name);
+        }
+        SeekableByteChannel channel = bulk ? stripe.backend.openBulkRead(name) : stripe.backend.openRead(name);
+        stripe.inFlight.incrementAndGet();
+        return new CountedChannel(channel, stripe);
+    }
+
+    @Override
+    public boolean delete(String name) throws IOException {
+        Stripe stripe = locate(name);
+        if (stripe == null) {
+            return false;
+        }
+        routes.remove(name, stripe);
+        return stripe.backend.delete(name);
+    }
+
+    @Override
+    public boolean freesSpaceOnDelete(String name) throws IOException {
+        Stripe stripe = locate(name);
+        return stripe == null || stripe.backend.freesSpaceOnDelete(name);
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String name) throws IOException {
+        Stripe stripe = locate(name);
+        if (stripe == null) {
+            return Optional.empty();
+        }
+        Optional<StoredObject> object = stripe.backend.stat(name);
+        if (!object.isPresent()) {
+            // 文件在盘外被删除
+            routes.remove(name, stripe);
+        }
+        return object;
+    }
+
+    /**
+     * 依次列出各盘的对象；任何一块盘无法列出时抛出异常，避免对账把该盘上的文件当作缺失
+     */
+    @Override
+    public Stream<StoredObject> list() throws IOException {
+        Stream<StoredObject> all = Stream.empty();
+        try {
+            for (Stripe stripe : stripes) {
+                all = Stream.concat(all, stripe.backend.list());
+            }
+        } catch (IOException | RuntimeException e) {
+            all.close();
+            throw e;
+        }
+        return all;
+    }
+
+    /**
+     * 各盘容量之和；只要有一块健康的盘即视为可写
+     */
+    @Override
+    public StorageSpace space() throws IOException {
+        long total = 0L;
+        long usable = 0L;
+        boolean writable = false;
+        for (Stripe stripe : stripes) {
+            StorageSpace space = stripe.backend.space();
+            total += space.getTotal();
+            usable += space.getUsable();
+            writable |= stripe.healthy && space.isWritable();
+        }
+        return new StorageSpace(total, usable, writable);
+    }
+
+    @Override
+    public String location(String name) {
+        Stripe stripe = routes.get(name);
+        return stripe != null ? stripe.backend.location(name) : name;
+    }
+
+    @Override
+    public String volumeOf(String name) throws IOException {
+        Stripe stripe = locate(name);
+        return stripe != null ? stripe.id : null;
+    }
+
+    /**
+     * 各盘并行整理
+     */
+    @Override
+    public long housekeeping() throws IOException {
+        List<Future<Long>> results = new ArrayList<>(stripes.size());
+        for (Stripe stripe : stripes) {
+            results.add(maintenanceExecutor.submit(stripe.backend::housekeeping));
+        }
+        long cleaned = 0L;
+        IOException failure = null;
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                cleaned += results.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("存储盘整理被中断", e);
+            } catch (ExecutionException e) {
+                IOException cause = new IOException("存储盘 " + stripes.get(i).id + " 整理失败", e.getCause());
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return cleaned;
+    }
+
+    /**
+     * 刷新各盘容量并更新可写入的盘
+     */
+    @Override
+    public void checkHealth() {
+        long now = System.currentTimeMillis();
+        for (Stripe stripe : stripes) {
+            String reason = null;
+            try {
+                StorageSpace space = stripe.backend.space();
+                stripe.total = space.getTotal();
+                stripe.usable = space.getUsable();
+                if (!space.isWritable()) {
+                    reason = "不可写";
+                } else if (space.getUsable() < minFreeSpace) {
+                    reason = "可用空间不足";
+                } else if (now < stripe.failedUntil) {
+                    reason = stripe.reason;
+                }
+            } catch (IOException | RuntimeException e) {
+                reason = "无法读取容量: " + e.getMessage();
+            }
+            updateHealth(stripe, reason);
+        }
+    }
+
+    private void markFailed(Stripe stripe, Exception e) {
+        stripe.failedUntil = System.currentTimeMillis() + failureCooldown;
+        updateHealth(stripe, "写入失败: " + e.getMessage());
+    }
+
+    private void updateHealth(Stripe stripe, String reason) {
+        boolean healthy = reason == null;
+        if (stripe.healthy != healthy) {
+            if (healthy) {
+                logger.info("存储盘 {} 恢复，重新参与写入", stripe.id);
+            } else {
+                logger.warn("存储盘 {} 移出写入候选: {}", stripe.id, reason);
+            }
+        }
+        stripe.reason = reason;
+        stripe.healthy = healthy;
+    }
+
+    @Override
+    public void close() throws IOException {
+        maintenanceExecutor.shutdownNow();
+        IOException failure = null;
+        for (Stripe stripe : stripes) {
+            if (stripe.backend instanceof Closeable) {
+                try {
+                    ((Closeable) stripe.backend).close();
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * 关闭时归还盘上的读写计数
+     */
+    private static final class CountedChannel implements SeekableByteChannel {
+
+        private final SeekableByteChannel channel;
+        private final Stripe stripe;
+        private boolean closed;
+
+        CountedChannel(SeekableByteChannel channel, Stripe stripe) {
+            this.channel = channel;
+            this.stripe = stripe;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return channel.read(dst);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return channel.write(src);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return channel.position();
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            channel.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) throws IOException {
+            channel.truncate(size);
+            return this;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                stripe.inFlight.decrementAndGet();
+            }
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package cn.lemwood.fileshare.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 冷热分层存储后端
+ * 新上传的对象写入快速层（通常是 SSD 上的上传目录），快速层最近访问时间常驻内存；
+ * 后台迁移把超过空闲时长没有被访问的对象降级到容量层，快速层使用率超过高水位时按最久未访问的顺序提前降级。
+ * 降级时可按扩展名选择压缩，压缩对象在容量层以 {@value #COMPRESSED_SUFFIX} 后缀保存，读取时透明解压。
+ * 容量层对象被再次读取达到次数后加入提升队列，由下一轮迁移搬回快速层。
+ * 迁移按字节限速并以批量读取打开源对象（可绕过页缓存），读取始终从对象当前所在的层提供，对下载透明。快速层空间不足时新对象直接写入容量层。
+ *
+ * @author lemwood
+ */
+public class TieredStorage implements StorageBackend, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TieredStorage.class);
+
+    static final String COMPRESSED_SUFFIX = ".fsz";
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final StorageBackend fast;
+    private final StorageBackend cold;
+    private final long demoteAfter;
+    private final int promoteAfterHits;
+    private final long migrationRate;
+    private final double fastHighWatermark;
+    private final long fastMinFreeSpace;
+
+    /**
+     * 降级时压缩，为空表示不压缩；集合中的扩展名（已压缩格式）不压缩
+     */
+    private volatile Set<String> compressionSkipExtensions;
+
+    /**
+     * 快速层中的对象及其最近访问时间
+     */
+    private final Map<String, Long> hot = new ConcurrentHashMap<>();
+
+    /**
+     * 容量层对象被读取的次数
+     */
+    private final Map<String, Integer> coldHits = new ConcurrentHashMap<>();
+
+    /**
+     * 正在提升的对象 -> 提升期间是否被删除。快速层可能在写入流关闭时才创建对象（打包、缓冲写入），
+     * 复制期间的删除找不到快速层副本，由提升在复制完成后检查并丢弃这份副本
+     */
+    private final Map<String, Boolean> promoting = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean migrating = new AtomicBoolean();
+    private final AtomicLong demoted = new AtomicLong();
+    private final AtomicLong promoted = new AtomicLong();
+
+    public TieredStorage(StorageBackend fast, StorageBackend cold, long demoteAfter, int promoteAfterHits,
+                         long migrationRate, double fastHighWatermark, long fastMinFreeSpace) throws IOException {
+        this.fast = fast;
+        this.cold = cold;
+        this.demoteAfter = demoteAfter;
+        this.promoteAfterHits = Math.max(1, promoteAfterHits);
+        this.migrationRate = migrationRate;
+        this.fastHighWatermark = fastHighWatermark;
+        this.fastMinFreeSpace = fastMinFreeSpace;
+        // 重启后以修改时间作为快速层对象的最近访问时间
+        try (Stream<StoredObject> objects = fast.list()) {
+            objects.forEach(object -> hot.put(object.getName(), object.getLastModified()));
+        }
+        logger.info("冷热分层存储已启用，快速层 {} 个对象", hot.size());
+    }
+
+    /**
+     * 降级时压缩可压缩的对象
+     *
+     * @param skipExtensions 不压缩的扩展名（含点，小写），如已经压缩过的图片、视频和归档格式
+     */
+    public void enableCompression(Set<String> skipExtensions) {
+        this.compressionSkipExtensions = skipExtensions;
+    }
+
+    public StorageBackend getFast() {
+        return fast;
+    }
+
+    public int getHotCount() {
+        return hot.size();
+    }
+
+    public int getPendingPromotions() {
+        int pending = 0;
+        for (int hits : coldHits.values()) {
+            if (hits >= promoteAfterHits) {
+                pending++;
+            }
+        }
+        return pending;
+    }
+
+    public long getDemoted() {
+        return demoted.get();
+    }
+
+    public long getPromoted() {
+        return promoted.get();
+    }
+
+    @Override
+    public OutputStream openWrite(String name) throws IOException {
+        if (!fastHasRoom()) {
+            // 快速层已满，直接写入容量层
+            return cold.openWrite(name);
+        }
+        return new FilterOutputStream(fast.openWrite(name)) {
+            private boolean closed;
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                out.close();
+                hot.put(name, System.currentTimeMillis());
+                coldHits.remove(name);
+            }
+        };
+    }
+
+    private boolean fastHasRoom() {
+        try {
+            StorageSpace space = fast.space();
+            return space.isWritable() && space.getUsable() >= fastMinFreeSpace;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public SeekableByteChannel openRead(String name) throws IOException {
+        long now = System.currentTimeMillis();
+        if (hot.computeIfPresent(name, (key, access) -> now) != null) {
+            try {
+                return fast.openRead(name);
+            } catch (NoSuchFileException e) {
+                // 刚被降级或在层外被删除
+                hot.remove(name);
+            }
+        }
+        SeekableByteChannel channel = openCold(name, false);
+        coldHits.merge(name, 1, Integer::sum);
+        return channel;
+    }
+
+    /**
+     * 读取容量层对象；bulk 为 true 时用于迁移，未压缩的对象以批量读取打开
+     */
+    private SeekableByteChannel openCold(String name, boolean bulk) throws IOException {
+        try {
+            return CompressedObject.openRead(cold, name + COMPRESSED_SUFFIX);
+        } catch (NoSuchFileException e) {
+            return bulk ? cold.openBulkRead(name) : cold.openRead(name);
+        }
+    }
+
+    /**
+     * 两层中的同名对象都删除
+     */
+    @Override
+    public boolean delete(String name) throws IOException {
+        promoting.replace(name, Boolean.FALSE, Boolean.TRUE);
+        hot.remove(name);
+        coldHits.remove(name);
+        boolean deleted = fast.delete(name);
+        deleted |= cold.delete(name);
+        deleted |= cold.delete(name + COMPRESSED_SUFFIX);
+        return deleted;
+    }
+
+    @Override
+    public boolean freesSpaceOnDelete(String name) throws IOException {
+        if (hot.containsKey(name)) {
+            return fast.freesSpaceOnDelete(name);
+        }
+        return cold.freesSpaceOnDelete(name) && cold.freesSpaceOnDelete(name + COMPRESSED_SUFFIX);
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String name) throws IOException {
+        if (hot.containsKey(name)) {
+            Optional<StoredObject> object = fast.stat(name);
+            if (object.isPresent()) {
+                return object;
+            }
+        }
+        if (cold.exists(name + COMPRESSED_SUFFIX)) {
+            try {
+                return Optional.of(CompressedObject.stat(cold, name + COMPRESSED_SUFFIX, name));
+            } catch (NoSuchFileException e) {
+                // 刚被提升回快速层
+                return fast.stat(name);
+            }
+        }
+        Optional<StoredObject> object = cold.stat(name);
+        return object.isPresent() ? object : fast.stat(name);
+    }
+
+    /**
+     * 列出两层的对象；压缩对象按存储名列出，大小为压缩后的大小。
+     * 迁移进行中或中断时同一对象可能同时在两层，只列出快速层的一份（读取也从快速层提供），
+     * 否则对账会把另一份当作孤儿文件，按名称删除时连同快速层的副本一起删掉。
+     */
+    @Override
+    public Stream<StoredObject> list() throws IOException {
+        Set<String> fastNames = ConcurrentHashMap.newKeySet();
+        // concat 先遍历完快速层再遍历容量层，过滤容量层时快速层的名称已全部记录
+        Stream<StoredObject> hotObjects = fast.list().peek(object -> fastNames.add(object.getName()));
+        Stream<StoredObject> coldObjects;
+        try {
+            coldObjects = cold.list().map(TieredStorage::stripCompressedSuffix)
+                    .filter(object -> !fastNames.contains(object.getName()));
+        } catch (IOException | RuntimeException e) {
+            hotObjects.close();
+            throw e;
+        }
+        return Stream.concat(hotObjects, coldObjects);
+    }
+
+    private static StoredObject stripCompressedSuffix(StoredObject object) {
+        String name = object.getName();
+        if (!name.endsWith(COMPRESSED_SUFFIX)) {
+            return object;
+        }
+        return new StoredObject(name.substring(0, name.length() - COMPRESSED_SUFFIX.length()), object.getSize(),
+                object.getLastModified());
+    }
+
+    /**
+     * 两层容量之和：快速层写满时新对象写入容量层，上传准入和磁盘压力淘汰按总容量计算
+     */
+    @Override
+    public StorageSpace space() throws IOException {
+        StorageSpace fastSpace = fast.space();
+        StorageSpace coldSpace = cold.space();
+        return new StorageSpace(fastSpace.getTotal() + coldSpace.getTotal(),
+                fastSpace.getUsable() + coldSpace.getUsable(),
+                fastSpace.isWritable() || coldSpace.isWritable());
+    }
+
+    @Override
+    public String location(String name) {
+        return hot.containsKey(name) ? fast.location(name) : cold.location(name);
+    }
+
+    @Override
+    public String volumeOf(String name) throws IOException {
+        return hot.containsKey(name) ? fast.volumeOf(name) : null;
+    }
+
+    /**
+     * 存储盘标识来自快速层，只转给快速层
+     */
+    @Override
+    public void hintVolume(String name, String volume) throws IOException {
+        fast.hintVolume(name, volume);
+    }
+
+    @Override
+    public long housekeeping() throws IOException {
+        return fast.housekeeping() + cold.housekeeping();
+    }
+
+    @Override
+    public void checkHealth() {
+        fast.checkHealth();
+        cold.checkHealth();
+    }
+
+    /**
+     * 执行一轮迁移：先提升被再次访问的冷对象，再降级空闲或超出快速层高水位的热对象
+     *
+     * @return 迁移的对象数；上一轮仍在执行时返回 0
+     */
+    @Override
+    public long migrate() throws IOException {
+        if (!migrating.compareAndSet(false, true)) {
+            return 0L;
+        }
+        try {
+            RateLimiter limiter = new RateLimiter(migrationRate);
+            long moved = 0L;
+            for (Map.Entry<String, Integer> entry : new ArrayList<>(coldHits.entrySet())) {
+                if (entry.getValue() >= promoteAfterHits && fastHasRoom() && promote(entry.getKey(), limiter)) {
+                    moved++;
+                }
+            }
+            moved += demote(limiter);
+            return moved;
+        } finally {
+            migrating.set(false);
+        }
+    }
+
+    private long demote(RateLimiter limiter) throws IOException {
+        StorageSpace space = fast.space();
+        long bytesToFree = space.getTotal() > 0
+                ? space.getUsed() - (long) (space.getTotal() * fastHighWatermark) : 0L;
+        long cutoff = System.currentTimeMillis() - demoteAfter;
+
+        List<Map.Entry<String, Long>> candidates = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : hot.entrySet()) {
+            if (bytesToFree > 0 || entry.getValue() < cutoff) {
+                candidates.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+        }
+        candidates.sort(Comparator.comparingLong(Map.Entry::getValue));
+
+        long moved = 0L;
+        for (Map.Entry<String, Long> candidate : candidates) {
+            boolean idle = candidate.getValue() < cutoff;
+            if (!idle && bytesToFree <= 0) {
+                break;
+            }
+            // 从快速层删除不释放空间的对象（如打包的小文件）降级也无助于降低水位，只按空闲时长降级
+            boolean freesSpace = fast.freesSpaceOnDelete(candidate.getKey());
+            if (!idle && !freesSpace) {
+                continue;
+            }
+            long size = demote(candidate.getKey(), candidate.getValue(), limiter);
+            if (size >= 0) {
+                if (freesSpace) {
+                    bytesToFree -= size;
+                }
+                moved++;
+            }
+        }
+        if (moved > 0) {
+            logger.info("降级 {} 个对象到容量层", moved);
+        }
+        return moved;
+    }
+
+    /**
+     * 复制到容量层后从快速层删除；复制期间对象被访问、覆盖或删除时放弃
+     *
+     * @return 降级的字节数，放弃时返回 -1
+     */
+    private long demote(String name, long observedAccess, RateLimiter limiter) {
+        boolean compress = shouldCompress(name);
+        String target = compress ? name + COMPRESSED_SUFFIX : name;
+        try {
+            Optional<StoredObject> object = fast.stat(name);
+            if (!object.isPresent()) {
+                hot.remove(name, observedAccess);
+                return -1L;
+            }
+            try (InputStream in = Channels.newInputStream(fast.openBulkRead(name));
+                 OutputStream out = compress
+                         ? CompressedObject.openWrite(cold.openWrite(target), object.get().getSize(),
+                         object.get().getLastModified())
+                         : cold.openWrite(target)) {
+                copy(in, out, limiter);
+            }
+            if (!hot.remove(name, observedAccess)) {
+                cold.delete(target);
+                return -1L;
+            }
+            fast.delete(name);
+            demoted.incrementAndGet();
+            return object.get().getSize();
+        } catch (IOException e) {
+            logger.warn("降级对象 {} 失败: {}", name, e.getMessage());
+            deleteQuietly(cold, target);
+            return -1L;
+        }
+    }
+
+    /**
+     * 复制回快速层后从容量层删除；复制期间对象被删除时丢弃快速层的副本
+     */
+    private boolean promote(String name, RateLimiter limiter) {
+        coldHits.remove(name);
+        if (hot.containsKey(name)) {
+            return false;
+        }
+        promoting.put(name, Boolean.FALSE);
+        try {
+            try (InputStream in = Channels.newInputStream(openCold(name, true));
+                 OutputStream out = fast.openWrite(name)) {
+                copy(in, out, limiter);
+            }
+            if (!promoting.remove(name, Boolean.FALSE)) {
+                // 已被删除，不能让副本复活
+                deleteQuietly(fast, name);
+                return false;
+            }
+            hot.putIfAbsent(name, System.currentTimeMillis());
+            cold.delete(name + COMPRESSED_SUFFIX);
+            cold.delete(name);
+            promoted.incrementAndGet();
+            return true;
+        } catch (NoSuchFileException e) {
+            // 已被删除
+            deleteQuietly(fast, name);
+            return false;
+        } catch (IOException e) {
+            logger.warn("提升对象 {} 失败: {}", name, e.getMessage());
+            deleteQuietly(fast, name);
+            return false;
+        } finally {
+            promoting.remove(name);
+        }
+    }
+
+    private boolean shouldCompress(String name) {
+        Set<String> skip = compressionSkipExtensions;
+        if (skip == null) {
+            return false;
+        }
+        int dot = name.lastIndexOf('.');
+        return dot < 0 || !skip.contains(name.substring(dot).toLowerCase());
+    }
+
+    private static void copy(InputStream in, OutputStream out, RateLimiter limiter) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+            limiter.acquire(n);
+        }
+    }
+
+    private static void deleteQuietly(StorageBackend backend, String name) {
+        try {
+            backend.delete(name);
+        } catch (IOException e) {
+            logger.warn("清理未完成的迁移副本 {} 失败: {}", name, e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (fast instanceof Closeable) {
+                ((Closeable) fast).close();
+            }
+        } finally {
+            if (cold instanceof Closeable) {
+                ((Closeable) cold).close();
+            }
+        }
+    }
+
+    /**
+     * 按字节限速，迁移的复制速度不超过每秒 bytesPerSecond 字节
+     */
+    private static final class RateLimiter {
+
+        private final long bytesPerSecond;
+        private final long start = System.nanoTime();
+        private long bytes;
+
+        RateLimiter(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        void acquire(int n) {
+            if (bytesPerSecond <= 0) {
+                return;
+            }
+            bytes += n;
+            long due = start + (long) ((double) bytes / bytesPerSecond * TimeUnit.SECONDS.toNanos(1));
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
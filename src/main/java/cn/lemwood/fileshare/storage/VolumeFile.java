@@ -0,0 +1,264 @@
+package cn.lemwood.fileshare.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 打包卷文件
+ * 小文件按记录顺序追加到卷中，每条记录的格式为：
+ * <pre>
+ * 头部 | magic(4) | flags(1) | 名称长度(2) | 数据长度(4) | 修改时间(8) |
+ * 名称 | UTF-8 存储名 |
+ * 数据 | 文件内容 |
+ * 尾部 | magic(4) | 数据长度(4) |
+ * </pre>
+ * 启动时顺序扫描头部和尾部重建索引，尾部完整才视为记录已写完；删除只把头部的 flags 原地改为已删除。
+ * 读写都使用定位读写，不依赖通道的当前位置。卷被压缩后先退役，最后一个读取方释放时才关闭并删除文件。
+ *
+ * @author lemwood
+ */
+final class VolumeFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(VolumeFile.class);
+
+    static final int HEADER_MAGIC = 0x46535652;
+    static final int FOOTER_MAGIC = 0x4653454E;
+    static final int HEADER_SIZE = 19;
+    static final int FOOTER_SIZE = 8;
+    static final int MAX_NAME_LENGTH = 1024;
+    static final byte FLAG_DELETED = 1;
+
+    private static final int FLAGS_OFFSET = 4;
+
+    private final int id;
+    private final Path path;
+    private final FileChannel channel;
+
+    /**
+     * 追加位置，只在追加锁内修改
+     */
+    private volatile long size;
+
+    private final AtomicLong garbageBytes = new AtomicLong();
+
+    /**
+     * 引用计数：卷本身持有 1，每个打开的读取通道持有 1
+     */
+    private final AtomicInteger refs = new AtomicInteger(1);
+
+    /**
+     * 卷本身的引用只释放一次
+     */
+    private final AtomicBoolean retired = new AtomicBoolean();
+
+    private VolumeFile(int id, Path path, FileChannel channel, long size) {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.size = size;
+    }
+
+    static VolumeFile open(int id, Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        return new VolumeFile(id, path, channel, channel.size());
+    }
+
+    int getId() {
+        return id;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    long getGarbageBytes() {
+        return garbageBytes.get();
+    }
+
+    /**
+     * 已删除或被覆盖的记录占卷大小的比例
+     */
+    double garbageRatio() {
+        long current = size;
+        return current > 0 ? (double) garbageBytes.get() / current : 0D;
+    }
+
+    void addGarbage(long bytes) {
+        garbageBytes.addAndGet(bytes);
+    }
+
+    static long recordLength(int nameLength, int dataLength) {
+        return HEADER_SIZE + nameLength + dataLength + FOOTER_SIZE;
+    }
+
+    /**
+     * 在卷尾追加一条记录，返回记录起始偏移。调用方负责串行化追加。
+     */
+    long append(byte[] name, byte[] data, int length, long lastModified) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate((int) recordLength(name.length, length));
+        record.putInt(HEADER_MAGIC)
+                .put((byte) 0)
+                .putShort((short) name.length)
+                .putInt(length)
+                .putLong(lastModified)
+                .put(name)
+                .put(data, 0, length)
+                .putInt(FOOTER_MAGIC)
+                .putInt(length)
+                .flip();
+        long offset = size;
+        writeFully(record, offset);
+        size = offset + record.capacity();
+        return offset;
+    }
+
+    /**
+     * 把记录原地标记为已删除
+     */
+    void markDeleted(long offset, long recordLength) throws IOException {
+        writeFully(ByteBuffer.wrap(new byte[]{FLAG_DELETED}), offset + FLAGS_OFFSET);
+        garbageBytes.addAndGet(recordLength);
+    }
+
+    /**
+     * 从指定位置读取，返回读到的字节数，到达文件末尾返回 -1
+     */
+    int read(ByteBuffer dst, long position) throws IOException {
+        return channel.read(dst, position);
+    }
+
+    void readFully(ByteBuffer dst, long position) throws IOException {
+        while (dst.hasRemaining()) {
+            int n = channel.read(dst, position);
+            if (n < 0) {
+                throw new IOException("卷 " + path + " 在偏移 " + position + " 处提前结束");
+            }
+            position += n;
+        }
+    }
+
+    private void writeFully(ByteBuffer src, long position) throws IOException {
+        while (src.hasRemaining()) {
+            position += channel.write(src, position);
+        }
+    }
+
+    /**
+     * 扫描卷中的记录，返回最后一条完整记录的结束位置
+     */
+    long scan(RecordVisitor visitor) throws IOException {
+        long end = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + MAX_NAME_LENGTH);
+        ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+        long position = 0;
+        while (position + HEADER_SIZE + FOOTER_SIZE <= end) {
+            header.clear();
+            header.limit((int) Math.min(header.capacity(), end - position));
+            readFully(header, position);
+            header.flip();
+            if (header.getInt() != HEADER_MAGIC) {
+                break;
+            }
+            byte flags = header.get();
+            int nameLength = Short.toUnsignedInt(header.getShort());
+            int dataLength = header.getInt();
+            long lastModified = header.getLong();
+            long recordLength = recordLength(nameLength, dataLength);
+            if (nameLength > MAX_NAME_LENGTH || dataLength < 0 || header.remaining() < nameLength
+                    || position + recordLength > end) {
+                break;
+            }
+            footer.clear();
+            readFully(footer, position + recordLength - FOOTER_SIZE);
+            footer.flip();
+            if (footer.getInt() != FOOTER_MAGIC || footer.getInt() != dataLength) {
+                break;
+            }
+            String name = new String(header.array(), HEADER_SIZE, nameLength, StandardCharsets.UTF_8);
+            visitor.visit(name, position, nameLength, dataLength, lastModified, (flags & FLAG_DELETED) != 0);
+            position += recordLength;
+        }
+        return position;
+    }
+
+    /**
+     * 丢弃不完整的尾部记录（进程在追加过程中退出）
+     */
+    void truncate(long length) throws IOException {
+        channel.truncate(length);
+        size = length;
+    }
+
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * 读取前占用卷，卷已退役时返回 false
+     */
+    boolean retain() {
+        while (true) {
+            int current = refs.get();
+            if (current == 0) {
+                return false;
+            }
+            if (refs.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        if (refs.decrementAndGet() == 0) {
+            try {
+                channel.close();
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                logger.warn("删除已压缩的卷失败: {} - {}", path, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 压缩完成后退役，正在进行的读取结束后删除文件；重复调用无效
+     */
+    void retire() {
+        if (retired.compareAndSet(false, true)) {
+            release();
+        }
+    }
+
+    /**
+     * 关闭卷但保留文件（应用停止）
+     */
+    void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    /**
+     * 扫描时每条完整记录的回调
+     */
+    interface RecordVisitor {
+        void visit(String name, long offset, int nameLength, int dataLength, long lastModified, boolean deleted)
+                throws IOException;
+    }
+}
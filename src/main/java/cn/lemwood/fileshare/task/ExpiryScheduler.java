@@ -0,0 +1,258 @@
+package cn.lemwood.fileshare.task;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import cn.lemwood.fileshare.repository.FileInfoRepository;
+import cn.lemwood.fileshare.repository.FileInfoSummary;
+import cn.lemwood.fileshare.service.ExpiredFileCleanupEngine;
+import cn.lemwood.fileshare.service.JobLockService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 文件到期调度器
+ * 用分层时间轮记录 (到期时间, fileKey)，每秒推进一次，文件到期后数秒内小批量删除。
+ * 时间轮只装载未来一个时间窗口内到期的文件，窗口过半时用按 expire_time 索引的范围查询续装；
+ * 上传和删除时同步更新时间轮。集群中只有持有主节点租约的实例执行删除。
+ *
+ * @author lemwood
+ */
+@Component
+public class ExpiryScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpiryScheduler.class);
+
+    /**
+     * 主节点租约名称
+     */
+    public static final String LEADER_LOCK_NAME = "expiry-scheduler";
+
+    private static final long TICK_MS = 1000L;
+    private static final int WHEEL_SIZE = 60;
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    @Autowired
+    private FileInfoRepository fileInfoRepository;
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    @Autowired
+    private ExpiredFileCleanupEngine cleanupEngine;
+
+    @Autowired
+    private JobLockService jobLockService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private TimingWheel wheel;
+    private final Deque<String> pending = new ArrayDeque<>();
+    private long loadedUntil;
+
+    private volatile boolean leader;
+    private long leaderCheckedAt;
+    private Counter purgedCounter;
+
+    @PostConstruct
+    public void init() {
+        long now = System.currentTimeMillis();
+        wheel = new TimingWheel(TICK_MS, WHEEL_SIZE, now);
+        loadedUntil = now;
+
+        Gauge.builder("fileshare.expiry.scheduled", this, ExpiryScheduler::getScheduledCount)
+                .description("时间轮中等待到期的文件数")
+                .register(meterRegistry);
+        purgedCounter = Counter.builder("fileshare.expiry.purged")
+                .description("到期调度器删除的文件数")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (leader) {
+            jobLockService.release(LEADER_LOCK_NAME);
+        }
+    }
+
+    /**
+     * 登记新文件的到期时间
+     */
+    public void schedule(String fileKey, LocalDateTime expireTime) {
+        if (!fileUploadConfig.getExpiry().isEnabled() || expireTime == null) {
+            return;
+        }
+        long expireAt = toMillis(expireTime);
+        synchronized (this) {
+            if (expireAt >= loadedUntil) {
+                // 超出当前窗口，由后续续装负责
+                return;
+            }
+            if (!wheel.add(fileKey, expireAt)) {
+                pending.add(fileKey);
+            }
+        }
+    }
+
+    /**
+     * 取消文件的到期登记
+     */
+    public synchronized void cancel(String fileKey) {
+        wheel.remove(fileKey);
+    }
+
+    public synchronized int getScheduledCount() {
+        return wheel.size();
+    }
+
+    /**
+     * 每秒推进时间轮并删除到期文件
+     */
+    @Scheduled(fixedDelay = TICK_MS)
+    public void tick() {
+        if (!fileUploadConfig.getExpiry().isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            pending.addAll(wheel.advance(now));
+            if (pending.isEmpty()) {
+                return;
+            }
+        }
+
+        if (!isLeader(now)) {
+            // 非主节点丢弃到期条目，由主节点或兜底清理处理
+            synchronized (this) {
+                pending.clear();
+            }
+            return;
+        }
+
+        int batchSize = Math.max(1, fileUploadConfig.getExpiry().getBatchSize());
+        while (true) {
+            List<String> batch = new ArrayList<>(batchSize);
+            synchronized (this) {
+                while (batch.size() < batchSize && !pending.isEmpty()) {
+                    batch.add(pending.poll());
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            int purged;
+            try {
+                purged = cleanupEngine.purgeDue(batch);
+            } catch (Exception e) {
+                // 删除失败的文件交给兜底清理
+                logger.error("到期文件删除失败: {}", e.getMessage());
+                return;
+            }
+            if (purged < 0) {
+                // 全量清理正在执行，放回队列下次再试
+                synchronized (this) {
+                    for (int i = batch.size() - 1; i >= 0; i--) {
+                        pending.addFirst(batch.get(i));
+                    }
+                }
+                return;
+            }
+            purgedCounter.increment(purged);
+            if (purged > 0) {
+                logger.debug("到期调度器删除 {} 个文件", purged);
+            }
+        }
+    }
+
+    /**
+     * 窗口剩余不足一半时续装下一段即将到期的文件
+     */
+    @Scheduled(fixedDelay = 60 * 1000)
+    public void refill() {
+        if (!fileUploadConfig.getExpiry().isEnabled()) {
+            return;
+        }
+        long horizon = fileUploadConfig.getExpiry().getHorizon();
+        long windowEnd = System.currentTimeMillis() + horizon;
+        long windowStart;
+        synchronized (this) {
+            if (windowEnd - loadedUntil < horizon / 2) {
+                return;
+            }
+            windowStart = loadedUntil;
+            // 先推进窗口，续装期间的新上传直接进入时间轮
+            loadedUntil = windowEnd;
+        }
+
+        LocalDateTime from = toLocalDateTime(windowStart);
+        LocalDateTime to = toLocalDateTime(windowEnd);
+        long lastId = 0L;
+        int loaded = 0;
+        try {
+            while (true) {
+                List<FileInfoSummary> page = fileInfoRepository.findExpiringBatch(
+                        from, to, lastId, PageRequest.of(0, LOAD_PAGE_SIZE));
+                if (page.isEmpty()) {
+                    break;
+                }
+                synchronized (this) {
+                    for (FileInfoSummary file : page) {
+                        if (!wheel.add(file.getFileKey(), toMillis(file.getExpireTime()))) {
+                            pending.add(file.getFileKey());
+                        }
+                    }
+                }
+                loaded += page.size();
+                lastId = page.get(page.size() - 1).getId();
+                if (page.size() < LOAD_PAGE_SIZE) {
+                    break;
+                }
+            }
+            logger.debug("时间轮续装完成，新增 {} 个即将到期的文件", loaded);
+        } catch (Exception e) {
+            // 续装失败时回退窗口，下一轮重试
+            synchronized (this) {
+                loadedUntil = Math.min(loadedUntil, windowStart);
+            }
+            logger.error("时间轮续装失败: {}", e.getMessage());
+        }
+    }
+
+    private boolean isLeader(long now) {
+        if (now - leaderCheckedAt >= fileUploadConfig.getExpiry().getLeaderLease() / 3) {
+            leaderCheckedAt = now;
+            try {
+                leader = jobLockService.tryAcquire(LEADER_LOCK_NAME, fileUploadConfig.getExpiry().getLeaderLease());
+            } catch (Exception e) {
+                leader = false;
+                logger.warn("到期调度主节点租约续期失败: {}", e.getMessage());
+            }
+        }
+        return leader;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
@@ -1,6 +1,8 @@
 package cn.lemwood.fileshare.task;
 
 import cn.lemwood.fileshare.service.FileService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,7 +11,7 @@ import org.springframework.stereotype.Component;
 
 /**
  * 文件清理定时任务
- * 定期清理过期文件
+ * 启动后补清理重启期间积累的过期文件，之后低频全量兜底
  */
 @Component
 public class FileCleanupTask {
@@ -19,37 +21,24 @@ public class FileCleanupTask {
     @Autowired
     private FileService fileService;
     
-    /**
-     * 每小时执行一次文件清理任务
-     * cron表达式: 0 0 * * * ? (每小时的0分0秒执行)
-     */
-    @Scheduled(cron = "0 0 * * * ?")
-    public void cleanupExpiredFiles() {
-        logger.info("开始执行文件清理任务...");
-        
-        try {
-            int deletedCount = fileService.cleanupExpiredFiles();
-            logger.info("文件清理任务完成，共删除 {} 个过期文件", deletedCount);
-        } catch (Exception e) {
-            logger.error("文件清理任务执行失败", e);
-        }
-    }
+    @Autowired
+    private MeterRegistry meterRegistry;
     
     /**
-     * 每30分钟执行一次文件清理任务（备用）
-     * 确保文件能够及时清理
+     * 全量兜底清理，默认每6小时执行一次
+     * 日常的到期删除由 ExpiryScheduler 在文件到期后数秒内完成，
+     * 这里只负责补漏（如到期调度器切换主节点期间到期的文件）
      */
-    @Scheduled(fixedRate = 30 * 60 * 1000) // 30分钟
-    public void cleanupExpiredFilesBackup() {
-        logger.debug("执行备用文件清理任务...");
+    @Scheduled(initialDelayString = "${file.cleanup.interval:21600000}",
+            fixedDelayString = "${file.cleanup.interval:21600000}")
+    public void cleanupExpiredFiles() {
+        logger.info("开始执行兜底文件清理任务...");
         
         try {
-            int deletedCount = fileService.cleanupExpiredFiles();
-            if (deletedCount > 0) {
-                logger.info("备用清理任务完成，共删除 {} 个过期文件", deletedCount);
-            }
+            int deletedCount = timedCleanup("sweep");
+            logger.info("兜底文件清理任务完成，共删除 {} 个过期文件", deletedCount);
         } catch (Exception e) {
-            logger.error("备用文件清理任务执行失败", e);
+            logger.error("兜底文件清理任务执行失败", e);
         }
     }
     
@@ -62,10 +51,25 @@ public class FileCleanupTask {
         logger.info("执行应用启动后的初始文件清理...");
         
         try {
-            int deletedCount = fileService.cleanupExpiredFiles();
+            int deletedCount = timedCleanup("initial");
             logger.info("初始文件清理完成，共删除 {} 个过期文件", deletedCount);
         } catch (Exception e) {
             logger.error("初始文件清理失败", e);
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * 执行清理并记录整轮耗时
+     */
+    private int timedCleanup(String run) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return fileService.cleanupExpiredFiles();
+        } finally {
+            sample.stop(Timer.builder("fileshare.cleanup.run")
+                    .description("定时清理整轮耗时")
+                    .tag("run", run)
+                    .register(meterRegistry));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package cn.lemwood.fileshare.task;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.Date;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录排队等待时间的定时任务调度器
+ * 包装固定间隔、固定频率和一次性任务，每次执行前记录实际开始时间比计划开始时间晚了多久
+ * (fileshare.pool.wait{pool=scheduler})。线程池被长任务占满时，其他定时任务的等待时间随之上升。
+ *
+ * @author lemwood
+ */
+public class MeteredTaskScheduler extends ThreadPoolTaskScheduler {
+
+    private final transient Timer waitTimer;
+
+    public MeteredTaskScheduler(MeterRegistry meterRegistry) {
+        this.waitTimer = Timer.builder("fileshare.pool.wait")
+                .description("任务从计划开始到实际开始的等待时间")
+                .tag("pool", "scheduler")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable task, Date startTime) {
+        return super.schedule(new Measured(task, startTime.getTime(), 0L, false), startTime);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, Date startTime, long period) {
+        return super.scheduleAtFixedRate(new Measured(task, startTime.getTime(), period, true), startTime, period);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long period) {
+        return super.scheduleAtFixedRate(new Measured(task, System.currentTimeMillis(), period, true), period);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, Date startTime, long delay) {
+        return super.scheduleWithFixedDelay(new Measured(task, startTime.getTime(), delay, false), startTime, delay);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long delay) {
+        return super.scheduleWithFixedDelay(new Measured(task, System.currentTimeMillis(), delay, false), delay);
+    }
+
+    private final class Measured implements Runnable {
+
+        private final Runnable delegate;
+        private final long interval;
+        private final boolean fixedRate;
+        private volatile long expectedStart;
+
+        private Measured(Runnable delegate, long expectedStart, long interval, boolean fixedRate) {
+            this.delegate = delegate;
+            this.expectedStart = expectedStart;
+            this.interval = interval;
+            this.fixedRate = fixedRate;
+        }
+
+        @Override
+        public void run() {
+            waitTimer.record(Math.max(0L, System.currentTimeMillis() - expectedStart), TimeUnit.MILLISECONDS);
+            try {
+                delegate.run();
+            } finally {
+                // 固定频率按计划时间递推，固定间隔从本次结束开始计算
+                expectedStart = fixedRate ? expectedStart + interval : System.currentTimeMillis() + interval;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+}
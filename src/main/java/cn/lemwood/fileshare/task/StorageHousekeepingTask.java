@@ -0,0 +1,57 @@
+package cn.lemwood.fileshare.task;
+
+import cn.lemwood.fileshare.storage.StorageBackend;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 存储后端整理定时任务
+ * 定期调用 {@link StorageBackend#housekeeping()}：打包卷刷盘并压缩垃圾比例过高的卷，本地目录清理空子目录；
+ * 高频调用 {@link StorageBackend#checkHealth()}，多盘时及时把故障或写满的盘移出写入候选；
+ * 按迁移间隔调用 {@link StorageBackend#migrate()}，冷热分层时降级空闲对象、提升重新变热的对象
+ *
+ * @author lemwood
+ */
+@Component
+public class StorageHousekeepingTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageHousekeepingTask.class);
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Scheduled(initialDelayString = "${file.storage.housekeeping-interval:600000}",
+            fixedDelayString = "${file.storage.housekeeping-interval:600000}")
+    public void housekeeping() {
+        try {
+            long cleaned = storageBackend.housekeeping();
+            if (cleaned > 0) {
+                logger.info("存储后端整理完成，整理了 {} 个条目", cleaned);
+            }
+        } catch (Exception e) {
+            logger.error("存储后端整理失败", e);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${file.tier.migration-interval:60000}",
+            fixedDelayString = "${file.tier.migration-interval:60000}")
+    public void migrate() {
+        try {
+            storageBackend.migrate();
+        } catch (Exception e) {
+            logger.error("存储分层迁移失败", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${file.storage.health-check-interval:10000}")
+    public void checkHealth() {
+        try {
+            storageBackend.checkHealth();
+        } catch (Exception e) {
+            logger.error("存储盘健康检查失败", e);
+        }
+    }
+}
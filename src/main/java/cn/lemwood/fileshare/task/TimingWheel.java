@@ -0,0 +1,151 @@
+package cn.lemwood.fileshare.task;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 分层时间轮
+ * 底层时间轮每格一个 tick，放不下的条目逐级溢出到更粗粒度的上层时间轮；
+ * 上层格子到期时其中的条目重新放入下层，最终在底层到期。
+ * 到期时间向上取整到 tick，条目不会早于其到期时间触发。
+ * 添加、取消均为 O(1)，推进时间只处理到期格子，与条目总数无关。
+ * 非线程安全，由调用方加锁。
+ *
+ * @author lemwood
+ */
+public class TimingWheel {
+
+    private final Level root;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * @param tickMs    底层每格时长（毫秒）
+     * @param wheelSize 每层格数
+     * @param startMs   起始时间（毫秒）
+     */
+    public TimingWheel(long tickMs, int wheelSize, long startMs) {
+        this.root = new Level(tickMs, wheelSize, startMs);
+    }
+
+    /**
+     * 添加或更新条目
+     *
+     * @return false 表示条目已经到期，未放入时间轮
+     */
+    public boolean add(String key, long expireAtMs) {
+        remove(key);
+        Entry entry = new Entry(key, expireAtMs + root.tick - 1);
+        if (!root.place(entry)) {
+            return false;
+        }
+        entries.put(key, entry);
+        return true;
+    }
+
+    /**
+     * 取消条目
+     */
+    public boolean remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        entry.bucket.remove(entry);
+        return true;
+    }
+
+    /**
+     * 推进时间并返回到期的条目key
+     */
+    public List<String> advance(long nowMs) {
+        List<Entry> drained = new ArrayList<>();
+        root.advanceTo(nowMs, drained);
+
+        List<String> expired = new ArrayList<>();
+        for (Entry entry : drained) {
+            if (!root.place(entry)) {
+                entries.remove(entry.key);
+                expired.add(entry.key);
+            }
+        }
+        return expired;
+    }
+
+    public boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getCurrentTime() {
+        return root.currentTime;
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final long expireAt;
+        private Set<Entry> bucket;
+
+        private Entry(String key, long expireAt) {
+            this.key = key;
+            this.expireAt = expireAt;
+        }
+    }
+
+    private static final class Level {
+        private final long tick;
+        private final int size;
+        private final long interval;
+        private final Set<Entry>[] buckets;
+        private long currentTime;
+        private Level overflow;
+
+        @SuppressWarnings("unchecked")
+        private Level(long tick, int size, long startMs) {
+            this.tick = tick;
+            this.size = size;
+            this.interval = tick * size;
+            this.currentTime = startMs - (startMs % tick);
+            this.buckets = new Set[size];
+            for (int i = 0; i < size; i++) {
+                buckets[i] = new HashSet<>();
+            }
+        }
+
+        private boolean place(Entry entry) {
+            if (entry.expireAt < currentTime + tick) {
+                return false;
+            }
+            if (entry.expireAt < currentTime + interval) {
+                Set<Entry> bucket = buckets[(int) ((entry.expireAt / tick) % size)];
+                bucket.add(entry);
+                entry.bucket = bucket;
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Level(interval, size, currentTime);
+            }
+            return overflow.place(entry);
+        }
+
+        private void advanceTo(long time, List<Entry> drained) {
+            while (time >= currentTime + tick) {
+                currentTime += tick;
+                Set<Entry> bucket = buckets[(int) ((currentTime / tick) % size)];
+                if (!bucket.isEmpty()) {
+                    drained.addAll(bucket);
+                    bucket.clear();
+                }
+            }
+            if (overflow != null) {
+                overflow.advanceTo(time, drained);
+            }
+        }
+    }
+}
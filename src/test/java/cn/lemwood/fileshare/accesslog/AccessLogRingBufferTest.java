@@ -0,0 +1,100 @@
+package cn.lemwood.fileshare.accesslog;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 访问日志环形缓冲区测试类
+ *
+ * @author lemwood
+ */
+class AccessLogRingBufferTest {
+
+    @Test
+    void testOfferRejectsWhenFull() {
+        // Given
+        AccessLogRingBuffer<Integer> buffer = new AccessLogRingBuffer<>(4);
+
+        // When
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+
+        // Then
+        assertFalse(buffer.offer(4));
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+        assertEquals(1, buffer.poll());
+        assertEquals(2, buffer.poll());
+        assertEquals(3, buffer.poll());
+        assertEquals(4, buffer.poll());
+        assertNull(buffer.poll());
+        assertEquals(0L, buffer.size());
+    }
+
+    @Test
+    void testCapacityRoundedUpToPowerOfTwo() {
+        assertEquals(8, new AccessLogRingBuffer<Integer>(5).capacity());
+        assertEquals(8192, new AccessLogRingBuffer<Integer>(8192).capacity());
+    }
+
+    @Test
+    void testConcurrentProducersDeliverEveryAcceptedRecord() throws InterruptedException {
+        // Given
+        AccessLogRingBuffer<Integer> buffer = new AccessLogRingBuffer<>(1024);
+        int producers = 4;
+        int perProducer = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch done = new CountDownLatch(producers);
+        AtomicInteger accepted = new AtomicInteger();
+
+        // When
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            executor.execute(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    if (buffer.offer(base + i)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            });
+        }
+        Set<Integer> received = new HashSet<>();
+        while (done.getCount() > 0 || buffer.size() > 0) {
+            Integer value = buffer.poll();
+            if (value != null) {
+                assertTrue(received.add(value), "重复读取 " + value);
+            }
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        // Then
+        assertEquals(accepted.get(), received.size());
+    }
+
+    @Test
+    void testRecordJsonEscapesStrings() {
+        // Given
+        AccessLogRecord record = new AccessLogRecord(1000L, "GET", "/files/download/{fileKey}",
+                "a\"b", null, 2048L, 200, 5_000_000L, 1.0);
+
+        // When
+        String json = record.toJson();
+
+        // Then
+        assertEquals("{\"ts\":1000,\"method\":\"GET\",\"endpoint\":\"/files/download/{fileKey}\","
+                + "\"fileKey\":\"a\\\"b\",\"client\":null,\"bytes\":2048,\"status\":200,"
+                + "\"durationMs\":5,\"sampleRate\":1.0}", json);
+    }
+}
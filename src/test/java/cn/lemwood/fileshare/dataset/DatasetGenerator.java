@@ -0,0 +1,277 @@
+package cn.lemwood.fileshare.dataset;
+
+import ch.qos.logback.classic.Level;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 合成数据集生成器
+ * 通过 JDBC 批量写入 file_info，并在上传目录中按应用的存储布局（文件标识.扩展名）创建对应的稀疏文件或小文件，
+ * 可按比例制造缺失物理文件的记录和没有记录的孤儿文件，用于在百万级数据上重现清理、对账、列表和统计的问题。
+ * 表结构由 Hibernate 按实体生成，与应用一致；生成后清除存储统计检查点，应用下次启动时按实际聚合值重新初始化。
+ *
+ * <pre>
+ * ./mvnw -Pdataset test-compile exec:exec -Ddataset.args="--rows=1000000 --missing=0.001 --orphans=500"
+ * </pre>
+ *
+ * @author lemwood
+ */
+public final class DatasetGenerator {
+
+    private static final String INSERT_SQL = "INSERT INTO file_info (file_key, original_name, stored_name, file_size, "
+            + "content_type, file_path, upload_time, expire_time, download_count, uploader_ip, deleted_time) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final byte[] CONTENT = new byte[64 * 1024];
+
+    static {
+        for (int i = 0; i < CONTENT.length; i++) {
+            CONTENT[i] = (byte) ('a' + i % 26);
+        }
+    }
+
+    /**
+     * 生成结果统计
+     */
+    static final class Result {
+        long rows;
+        long tombstones;
+        long missingFiles;
+        long orphanFiles;
+        final AtomicLong createdFiles = new AtomicLong();
+        long logicalBytes;
+        long durationMillis;
+
+        @Override
+        public String toString() {
+            return String.format("记录 %d 条 (墓碑 %d, 缺失物理文件 %d), 物理文件 %d 个 (孤儿 %d), 记录总大小 %.1f MB, 耗时 %.1f 秒, %.0f 行/秒",
+                    rows, tombstones, missingFiles, createdFiles.get(), orphanFiles, logicalBytes / 1048576.0,
+                    durationMillis / 1000.0, durationMillis > 0 ? rows * 1000.0 / durationMillis : 0.0);
+        }
+    }
+
+    private final DatasetSpec spec;
+    private final SplittableRandom random;
+    private final long now = System.currentTimeMillis();
+    private final Result result = new Result();
+    private final AtomicReference<IOException> fileFailure = new AtomicReference<>();
+    private ThreadPoolExecutor fileWriters;
+
+    private DatasetGenerator(DatasetSpec spec) {
+        this.spec = spec;
+        this.random = new SplittableRandom(spec.seed);
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Hibernate 启动时的调试日志会淹没生成进度
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        DatasetSpec spec = DatasetSpec.parse(args);
+        spec.describe().forEach((name, value) -> System.out.println(name + ": " + value));
+        System.out.println(generate(spec));
+    }
+
+    static Result generate(DatasetSpec spec) throws Exception {
+        return new DatasetGenerator(spec).run();
+    }
+
+    private Result run() throws Exception {
+        long start = System.currentTimeMillis();
+        DataSourceBuilder<?> builder = DataSourceBuilder.create().url(spec.url);
+        if (spec.username != null) {
+            builder.username(spec.username).password(spec.password);
+        }
+        DataSource dataSource = builder.build();
+        try {
+            createSchema(dataSource);
+            if (spec.fileMode != DatasetSpec.FileMode.NONE) {
+                Files.createDirectories(spec.uploadDir);
+                // 队列满时由生成线程自己写文件，限制内存中积压的任务数
+                fileWriters = new ThreadPoolExecutor(spec.fileThreads, spec.fileThreads, 0L, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(spec.batchSize), new ThreadPoolExecutor.CallerRunsPolicy());
+            }
+            insertRows(dataSource);
+            createOrphans();
+            if (fileWriters != null) {
+                fileWriters.shutdown();
+                fileWriters.awaitTermination(1, TimeUnit.HOURS);
+            }
+            if (fileFailure.get() != null) {
+                throw fileFailure.get();
+            }
+            // 统计检查点已与表中数据不符，清除后由应用启动时重新聚合
+            new JdbcTemplate(dataSource).update("DELETE FROM storage_stats");
+        } finally {
+            if (fileWriters != null) {
+                fileWriters.shutdownNow();
+            }
+            if (dataSource instanceof AutoCloseable) {
+                ((AutoCloseable) dataSource).close();
+            }
+        }
+        result.durationMillis = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    /**
+     * 用应用的实体和方言执行 Hibernate 的 schema update，表不存在时创建
+     */
+    private void createSchema(DataSource dataSource) {
+        LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
+        em.setDataSource(dataSource);
+        em.setPackagesToScan("cn.lemwood.fileshare.entity");
+        em.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        Properties properties = new Properties();
+        properties.setProperty("hibernate.dialect", spec.dialect);
+        properties.setProperty("hibernate.hbm2ddl.auto", "update");
+        em.setJpaProperties(properties);
+        em.afterPropertiesSet();
+        em.destroy();
+    }
+
+    private void insertRows(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                for (long index = 0; index < spec.rows; index++) {
+                    bindRow(statement);
+                    statement.addBatch();
+                    if ((index + 1) % spec.batchSize == 0) {
+                        statement.executeBatch();
+                        connection.commit();
+                        if (fileFailure.get() != null) {
+                            return;
+                        }
+                    }
+                }
+                statement.executeBatch();
+                connection.commit();
+            }
+        }
+    }
+
+    private void bindRow(PreparedStatement statement) throws SQLException {
+        String fileKey = randomKey();
+        String[] type = spec.sampleType(random);
+        String storedName = fileKey + "." + type[0];
+        Path path = spec.uploadDir.resolve(storedName);
+        long size = spec.sampleSize(random);
+        long uploadMillis = now - spec.sampleUploadAgeMillis(random);
+        LocalDateTime uploadTime = toLocalDateTime(uploadMillis);
+        LocalDateTime expireTime = uploadTime.plus(spec.retention);
+        boolean tombstone = random.nextDouble() < spec.tombstoneFraction;
+        boolean missing = random.nextDouble() < spec.missingFraction;
+
+        statement.setString(1, fileKey);
+        statement.setString(2, "file-" + (result.rows + 1) + "." + type[0]);
+        statement.setString(3, storedName);
+        statement.setLong(4, size);
+        statement.setString(5, type[1]);
+        statement.setString(6, path.toString());
+        statement.setTimestamp(7, Timestamp.valueOf(uploadTime));
+        statement.setTimestamp(8, Timestamp.valueOf(expireTime));
+        statement.setInt(9, spec.sampleDownloads(random));
+        statement.setString(10, spec.sampleUploaderIp(random));
+        if (tombstone) {
+            // 墓碑的物理文件仍在，等待回收器删除
+            LocalDateTime deletedTime = expireTime.isBefore(toLocalDateTime(now)) ? expireTime : uploadTime;
+            statement.setTimestamp(11, Timestamp.valueOf(deletedTime));
+            result.tombstones++;
+        } else {
+            statement.setTimestamp(11, null);
+        }
+
+        result.rows++;
+        result.logicalBytes += size;
+        if (missing) {
+            result.missingFiles++;
+        } else {
+            createFile(path, size, uploadMillis);
+        }
+    }
+
+    /**
+     * 在上传目录中创建没有对应记录的文件，修改时间早于生成时刻，超出对账的宽限期后即被识别为孤儿
+     */
+    private void createOrphans() {
+        for (long i = 0; i < spec.orphans; i++) {
+            String[] type = spec.sampleType(random);
+            long modified = now - spec.sampleUploadAgeMillis(random);
+            createFile(spec.uploadDir.resolve(randomKey() + "." + type[0]), spec.sampleSize(random), modified);
+            result.orphanFiles++;
+        }
+    }
+
+    private void createFile(Path path, long size, long modifiedMillis) {
+        if (fileWriters == null) {
+            return;
+        }
+        fileWriters.execute(() -> {
+            if (fileFailure.get() != null) {
+                return;
+            }
+            try {
+                writeFile(path, size);
+                Files.setLastModifiedTime(path, FileTime.fromMillis(modifiedMillis));
+                result.createdFiles.incrementAndGet();
+            } catch (IOException e) {
+                fileFailure.compareAndSet(null, e);
+            }
+        });
+    }
+
+    private void writeFile(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+                StandardOpenOption.SPARSE)) {
+            if (spec.fileMode == DatasetSpec.FileMode.SPARSE) {
+                // 只写最后一个字节，中间留空洞
+                if (size > 0) {
+                    channel.write(ByteBuffer.wrap(CONTENT, 0, 1), size - 1);
+                }
+                return;
+            }
+            long remaining = Math.min(size, spec.smallBytes);
+            while (remaining > 0) {
+                int length = (int) Math.min(remaining, CONTENT.length);
+                remaining -= channel.write(ByteBuffer.wrap(CONTENT, 0, length));
+            }
+        }
+    }
+
+    /**
+     * 与上传生成的文件标识格式相同的 32 位十六进制串
+     */
+    private String randomKey() {
+        return String.format("%016x%016x", random.nextLong(), random.nextLong());
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
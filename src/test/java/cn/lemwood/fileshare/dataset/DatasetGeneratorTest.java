@@ -0,0 +1,84 @@
+package cn.lemwood.fileshare.dataset;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 合成数据集生成器测试类
+ *
+ * @author lemwood
+ */
+class DatasetGeneratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testGeneratesRowsFilesAndInjectedAnomalies() throws Exception {
+        // Given
+        Path uploads = tempDir.resolve("uploads");
+        String url = "jdbc:sqlite:" + tempDir.resolve("dataset.db");
+        DatasetSpec spec = DatasetSpec.parse("--url=" + url, "--upload-dir=" + uploads, "--rows=2000",
+                "--batch=500", "--tombstones=0.05", "--missing=0.02", "--orphans=30", "--files=small",
+                "--small-bytes=16", "--file-threads=2");
+
+        // When
+        DatasetGenerator.Result result = DatasetGenerator.generate(spec);
+
+        // Then
+        assertEquals(2000, result.rows);
+        assertTrue(result.missingFiles > 0);
+        assertTrue(result.tombstones > 0);
+        assertEquals(30, result.orphanFiles);
+        assertEquals(2000 - result.missingFiles + 30, result.createdFiles.get());
+        try (Stream<Path> files = Files.list(uploads)) {
+            assertEquals(result.createdFiles.get(), files.count());
+        }
+        try (HikariDataSource dataSource = DataSourceBuilder.create().type(HikariDataSource.class).url(url).build()) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            assertEquals(2000L, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM file_info", Long.class));
+            assertEquals(result.tombstones, jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM file_info WHERE deleted_time IS NOT NULL", Long.class));
+            String storedName = jdbcTemplate.queryForObject(
+                    "SELECT stored_name FROM file_info ORDER BY id LIMIT 1", String.class);
+            assertTrue(storedName.matches("[0-9a-f]{32}\\.\\w+"));
+        }
+    }
+
+    @Test
+    void testSameSeedGeneratesSameSamples() {
+        // Given
+        DatasetSpec spec = DatasetSpec.parse("--uploaders=50", "--size-median=1MB");
+        SplittableRandom first = new SplittableRandom(7);
+        SplittableRandom second = new SplittableRandom(7);
+
+        // When / Then
+        for (int i = 0; i < 100; i++) {
+            long size = spec.sampleSize(first);
+            assertEquals(size, spec.sampleSize(second));
+            assertTrue(size >= 1 && size <= 100L * 1024 * 1024);
+            assertEquals(spec.sampleUploaderIp(first), spec.sampleUploaderIp(second));
+        }
+    }
+
+    @Test
+    void testParsesSizesAndDurations() {
+        assertEquals(512L, DatasetSpec.parseSize("512"));
+        assertEquals(64L * 1024, DatasetSpec.parseSize("64KB"));
+        assertEquals(1536L * 1024, DatasetSpec.parseSize("1.5MB"));
+        assertEquals(Duration.ofDays(7), DatasetSpec.parseDuration("7d"));
+        assertEquals(Duration.ofMinutes(30), DatasetSpec.parseDuration("30m"));
+        assertThrows(IllegalArgumentException.class, () -> DatasetSpec.parse("--unknown=1"));
+    }
+}
@@ -0,0 +1,285 @@
+package cn.lemwood.fileshare.dataset;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * 合成数据集参数与取值分布
+ * 参数以 --名称=值 传入，例如 --rows=1000000 --size-median=512KB --upload-span=30d --orphans=500；
+ * 同一组参数和随机种子生成的数据完全相同，便于重现问题。
+ *
+ * @author lemwood
+ */
+final class DatasetSpec {
+
+    /**
+     * 物理文件的生成方式
+     */
+    enum FileMode {
+        /**
+         * 稀疏文件，长度与记录的文件大小一致但几乎不占磁盘
+         */
+        SPARSE,
+        /**
+         * 只写入最多 small-bytes 字节的真实内容，用于不支持稀疏文件的文件系统
+         */
+        SMALL,
+        /**
+         * 只写数据库，不创建物理文件
+         */
+        NONE
+    }
+
+    private static final String DEFAULT_TYPES = "png:image/png:20,jpg:image/jpeg:20,pdf:application/pdf:15,"
+            + "zip:application/zip:15,mp4:video/mp4:10,docx:application/vnd.openxmlformats-officedocument."
+            + "wordprocessingml.document:10,txt:text/plain:10";
+
+    final String url;
+    final String username;
+    final String password;
+    final String dialect;
+    final Path uploadDir;
+    final long rows;
+    final int batchSize;
+    final long seed;
+
+    final long sizeMedian;
+    final double sizeSigma;
+    final long sizeMin;
+    final long sizeMax;
+    final List<String[]> types = new ArrayList<>();
+    private final double[] typeCdf;
+
+    final int uploaders;
+    final double uploaderSkew;
+    private final double[] uploaderCdf;
+
+    final Duration uploadSpan;
+    final Duration retention;
+    final double tombstoneFraction;
+    final double downloadsMean;
+
+    final FileMode fileMode;
+    final int smallBytes;
+    final int fileThreads;
+    final double missingFraction;
+    final long orphans;
+
+    DatasetSpec(Map<String, String> options) {
+        Map<String, String> remaining = new LinkedHashMap<>(options);
+        url = take(remaining, "url", "jdbc:sqlite:./data/fileshare.db");
+        username = take(remaining, "username", null);
+        password = take(remaining, "password", null);
+        dialect = take(remaining, "dialect", defaultDialect(url));
+        if (dialect == null) {
+            throw new IllegalArgumentException("无法根据 URL 推断数据库方言，请通过 --dialect 指定: " + url);
+        }
+        uploadDir = Paths.get(take(remaining, "upload-dir", "./uploads")).toAbsolutePath().normalize();
+        rows = Long.parseLong(take(remaining, "rows", "100000"));
+        batchSize = Integer.parseInt(take(remaining, "batch", "10000"));
+        seed = Long.parseLong(take(remaining, "seed", "42"));
+
+        sizeMedian = parseSize(take(remaining, "size-median", "256KB"));
+        sizeSigma = Double.parseDouble(take(remaining, "size-sigma", "1.5"));
+        sizeMin = parseSize(take(remaining, "size-min", "1"));
+        sizeMax = parseSize(take(remaining, "size-max", "100MB"));
+        List<Double> typeWeights = new ArrayList<>();
+        for (String entry : take(remaining, "types", DEFAULT_TYPES).split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("types 的每一项应为 扩展名:内容类型:权重 - " + entry);
+            }
+            types.add(new String[]{parts[0], parts[1]});
+            typeWeights.add(Double.parseDouble(parts[2]));
+        }
+        typeCdf = cumulative(typeWeights.stream().mapToDouble(Double::doubleValue).toArray());
+
+        uploaders = Integer.parseInt(take(remaining, "uploaders", "1000"));
+        uploaderSkew = Double.parseDouble(take(remaining, "uploader-skew", "1.1"));
+        double[] uploaderWeights = new double[uploaders];
+        for (int rank = 0; rank < uploaders; rank++) {
+            uploaderWeights[rank] = 1.0 / Math.pow(rank + 1, uploaderSkew);
+        }
+        uploaderCdf = cumulative(uploaderWeights);
+
+        uploadSpan = parseDuration(take(remaining, "upload-span", "48h"));
+        retention = parseDuration(take(remaining, "retention", "24h"));
+        tombstoneFraction = Double.parseDouble(take(remaining, "tombstones", "0.01"));
+        downloadsMean = Double.parseDouble(take(remaining, "downloads-mean", "2"));
+
+        fileMode = FileMode.valueOf(take(remaining, "files", "sparse").toUpperCase(Locale.ROOT));
+        smallBytes = (int) parseSize(take(remaining, "small-bytes", "1KB"));
+        fileThreads = Integer.parseInt(take(remaining, "file-threads",
+                String.valueOf(Math.max(2, Runtime.getRuntime().availableProcessors()))));
+        missingFraction = Double.parseDouble(take(remaining, "missing", "0"));
+        orphans = Long.parseLong(take(remaining, "orphans", "0"));
+
+        if (!remaining.isEmpty()) {
+            throw new IllegalArgumentException("未知参数: " + remaining.keySet());
+        }
+    }
+
+    static DatasetSpec parse(String... args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("参数格式应为 --名称=值: " + arg);
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return new DatasetSpec(options);
+    }
+
+    /**
+     * 对数正态分布的文件大小：多数文件在中位数附近，少量大文件形成长尾
+     */
+    long sampleSize(SplittableRandom random) {
+        double size = sizeMedian * Math.exp(sizeSigma * gaussian(random));
+        return Math.max(sizeMin, Math.min(sizeMax, Math.round(size)));
+    }
+
+    /**
+     * 按权重选择文件类型，返回 {扩展名, 内容类型}
+     */
+    String[] sampleType(SplittableRandom random) {
+        return types.get(pick(typeCdf, random.nextDouble()));
+    }
+
+    /**
+     * Zipf 分布的上传者：少数地址上传了大部分文件
+     */
+    String sampleUploaderIp(SplittableRandom random) {
+        int client = pick(uploaderCdf, random.nextDouble());
+        return "10." + (client >> 16 & 0xFF) + "." + (client >> 8 & 0xFF) + "." + (client & 0xFF);
+    }
+
+    /**
+     * 上传时间在 [now - upload-span, now] 内均匀分布
+     */
+    long sampleUploadAgeMillis(SplittableRandom random) {
+        long span = uploadSpan.toMillis();
+        return span > 0 ? random.nextLong(span) : 0L;
+    }
+
+    /**
+     * 几何分布的下载次数
+     */
+    int sampleDownloads(SplittableRandom random) {
+        if (downloadsMean <= 0) {
+            return 0;
+        }
+        double u = 1.0 - random.nextDouble();
+        return (int) Math.min(Integer.MAX_VALUE, Math.floor(Math.log(u) / Math.log(downloadsMean / (downloadsMean + 1))));
+    }
+
+    Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("url", url);
+        description.put("uploadDir", uploadDir);
+        description.put("rows", rows);
+        description.put("seed", seed);
+        description.put("size", "median=" + sizeMedian + " sigma=" + sizeSigma + " range=[" + sizeMin + ", " + sizeMax + "]");
+        description.put("uploaders", uploaders + " (skew " + uploaderSkew + ")");
+        description.put("uploadSpan", uploadSpan);
+        description.put("retention", retention);
+        description.put("tombstones", tombstoneFraction);
+        description.put("files", fileMode);
+        description.put("missing", missingFraction);
+        description.put("orphans", orphans);
+        return description;
+    }
+
+    private static String defaultDialect(String url) {
+        if (url.startsWith("jdbc:sqlite:")) {
+            return "org.sqlite.hibernate.dialect.SQLiteDialect";
+        }
+        if (url.startsWith("jdbc:mysql:")) {
+            return "org.hibernate.dialect.MySQL8Dialect";
+        }
+        return null;
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        // Box-Muller 变换
+        double u1 = 1.0 - random.nextDouble();
+        double u2 = random.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u1)) * Math.cos(2.0 * Math.PI * u2);
+    }
+
+    private static double[] cumulative(double[] weights) {
+        double[] cdf = new double[weights.length];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i];
+            cdf[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("权重之和必须大于 0");
+        }
+        for (int i = 0; i < cdf.length; i++) {
+            cdf[i] /= total;
+        }
+        return cdf;
+    }
+
+    private static int pick(double[] cdf, double u) {
+        int index = Arrays.binarySearch(cdf, u);
+        index = index >= 0 ? index : -index - 1;
+        return Math.min(index, cdf.length - 1);
+    }
+
+    private static String take(Map<String, String> options, String name, String defaultValue) {
+        String value = options.remove(name);
+        return value != null && !value.isEmpty() ? value : defaultValue;
+    }
+
+    /**
+     * 解析 512、64KB、1.5MB、2GB 形式的大小
+     */
+    static long parseSize(String text) {
+        String value = text.trim().toUpperCase(Locale.ROOT);
+        long unit = 1;
+        if (value.endsWith("KB")) {
+            unit = 1L << 10;
+        } else if (value.endsWith("MB")) {
+            unit = 1L << 20;
+        } else if (value.endsWith("GB")) {
+            unit = 1L << 30;
+        }
+        if (unit > 1) {
+            value = value.substring(0, value.length() - 2);
+        } else if (value.endsWith("B")) {
+            value = value.substring(0, value.length() - 1);
+        }
+        return Math.round(Double.parseDouble(value.trim()) * unit);
+    }
+
+    /**
+     * 解析 30m、48h、7d 形式的时长
+     */
+    static Duration parseDuration(String text) {
+        String value = text.trim().toLowerCase(Locale.ROOT);
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        switch (value.charAt(value.length() - 1)) {
+            case 's':
+                return Duration.ofSeconds(amount);
+            case 'm':
+                return Duration.ofMinutes(amount);
+            case 'h':
+                return Duration.ofHours(amount);
+            case 'd':
+                return Duration.ofDays(amount);
+            default:
+                throw new IllegalArgumentException("时长应以 s、m、h 或 d 结尾: " + text);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package cn.lemwood.fileshare.jfr;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JFR 分配与锁竞争汇总测试类
+ *
+ * @author lemwood
+ */
+@ExtendWith(MockitoExtension.class)
+class JfrContentionMonitorTest {
+
+    private static final String DOWNLOAD = "GET /files/download/{fileKey}";
+
+    @Mock
+    private FileUploadConfig fileUploadConfig;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private JfrContentionMonitor monitor;
+
+    private final Instant start = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Test
+    void testSamplesInsideRequestAreAttributedToEndpoint() {
+        // Given
+        monitor.onRequest(1L, start, start.plusMillis(100), DOWNLOAD);
+
+        // When
+        monitor.onAllocation(1L, start.plusMillis(10), 4096L);
+        monitor.onContention(1L, start.plusMillis(20), Duration.ofMillis(30), JfrContentionMonitor.KIND_MONITOR);
+        monitor.onAllocation(2L, start.plusMillis(10), 1024L);
+
+        // Then
+        assertEquals(4096.0, meterRegistry.get("fileshare.jfr.allocation").tag("endpoint", DOWNLOAD).counter().count());
+        assertEquals(30.0, meterRegistry.get("fileshare.jfr.contention").tag("kind", "monitor").timer()
+                .totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(1, meterRegistry.get("fileshare.jfr.allocation").counters().size());
+    }
+
+    @Test
+    void testSamplesArrivingBeforeRequestEventAreAttributedLater() {
+        // Given: 请求事件在请求结束时提交，可能晚于其间的采样送达
+        monitor.onAllocation(1L, start.minusMillis(50), 999L);
+        monitor.onAllocation(1L, start.plusMillis(10), 2048L);
+        monitor.onContention(1L, start.plusMillis(40), Duration.ofMillis(15), JfrContentionMonitor.KIND_PARK);
+
+        // When
+        monitor.onRequest(1L, start, start.plusMillis(100), DOWNLOAD);
+
+        // Then
+        assertEquals(2048.0, meterRegistry.get("fileshare.jfr.allocation").tag("endpoint", DOWNLOAD).counter().count());
+        assertEquals(1L, meterRegistry.get("fileshare.jfr.contention").tag("kind", "park").timer().count());
+    }
+}
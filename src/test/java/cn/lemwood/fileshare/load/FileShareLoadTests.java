@@ -0,0 +1,84 @@
+package cn.lemwood.fileshare.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 嵌入式服务器压测
+ * 在随机端口启动完整应用，使用临时上传目录和临时 SQLite 数据库，按 {@link LoadProfile}
+ * 的到达率混合执行上传、下载、分享页、信息查询和删除，报告写入 target/load-report.json。
+ * 默认构建不运行，使用 ./mvnw -Pload-test test 执行。
+ *
+ * @author lemwood
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class FileShareLoadTests {
+
+    private static final Path WORK_DIR = createWorkDir();
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void temporaryStorage(DynamicPropertyRegistry registry) {
+        registry.add("app.external-config.enabled", () -> "false");
+        registry.add("database.default.url", () -> "jdbc:sqlite:" + WORK_DIR.resolve("load.db"));
+        registry.add("file.upload.path", () -> WORK_DIR.resolve("uploads").toString());
+        registry.add("file.jfr.dump-path", () -> WORK_DIR.resolve("jfr").toString());
+        registry.add("logging.access.path", () -> WORK_DIR.resolve("logs").toString());
+    }
+
+    @AfterAll
+    static void cleanUp() throws IOException {
+        try (Stream<Path> paths = Files.walk(WORK_DIR)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void runLoadProfile() throws Exception {
+        // Given
+        LoadProfile profile = LoadProfile.fromSystemProperties();
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        LoadDriver driver = new LoadDriver(profile, URI.create("http://localhost:" + port + "/api"), objectMapper);
+        driver.seed();
+
+        // When
+        Map<String, Object> report = driver.run();
+
+        // Then
+        Files.createDirectories(profile.report.toAbsolutePath().getParent());
+        objectMapper.writeValue(profile.report.toFile(), report);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> totals = (Map<String, Object>) report.get("totals");
+        double errorRate = (Double) totals.get("errorRate");
+        assertTrue(errorRate <= profile.maxErrorRate,
+                "错误率 " + errorRate + " 超过上限 " + profile.maxErrorRate + "，详见 " + profile.report);
+    }
+
+    private static Path createWorkDir() {
+        try {
+            return Files.createTempDirectory("fileshare-load");
+        } catch (IOException e) {
+            throw new IllegalStateException("无法创建压测临时目录", e);
+        }
+    }
+}
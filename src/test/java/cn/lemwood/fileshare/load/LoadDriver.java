@@ -0,0 +1,291 @@
+package cn.lemwood.fileshare.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 开放模型压测驱动
+ * 每种操作按配置的到达率独立产生请求（泊松到达），请求的发出时间不受前一个请求是否完成影响；
+ * 延迟从计划发出时间开始计算，服务端变慢时排队时间会如实计入。同时在途的请求数超过上限时，
+ * 该次请求记为 dropped，说明压测客户端本身成为瓶颈，需要调大上限或降低到达率。
+ *
+ * @author lemwood
+ */
+final class LoadDriver {
+
+    private static final String BOUNDARY = "----fileshare-load-boundary";
+
+    private final LoadProfile profile;
+    private final URI baseUri;
+    private final ObjectMapper objectMapper;
+    private final HttpClient client;
+    private final byte[] payload;
+    private final Semaphore inFlight;
+    private final Map<LoadProfile.Operation, OperationStats> stats = new EnumMap<>(LoadProfile.Operation.class);
+    private final List<String> fileKeys = new ArrayList<>();
+    private final Set<String> deletedKeys = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger uploadSequence = new AtomicInteger();
+
+    LoadDriver(LoadProfile profile, URI baseUri, ObjectMapper objectMapper) {
+        this.profile = profile;
+        this.baseUri = baseUri;
+        this.objectMapper = objectMapper;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newCachedThreadPool(daemonThreads("load-http")))
+                .build();
+        this.payload = new byte[profile.fileSize];
+        new Random(42).nextBytes(payload);
+        this.inFlight = new Semaphore(profile.maxInFlight);
+        for (LoadProfile.Operation operation : LoadProfile.Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    /**
+     * 预先上传一批文件，供下载、查看和删除使用
+     */
+    void seed() throws IOException, InterruptedException {
+        for (int i = 0; i < profile.seedFiles; i++) {
+            String fileKey = upload();
+            if (fileKey == null) {
+                throw new IllegalStateException("预置文件上传失败");
+            }
+            addKey(fileKey);
+        }
+    }
+
+    /**
+     * 执行预热和正式压测，返回报告
+     */
+    Map<String, Object> run() throws InterruptedException {
+        ExecutorService workers = Executors.newCachedThreadPool(daemonThreads("load-worker"));
+        long start = System.nanoTime();
+        long measureStart = start + TimeUnit.SECONDS.toNanos(profile.warmupSeconds);
+        long end = measureStart + TimeUnit.SECONDS.toNanos(profile.durationSeconds);
+
+        List<Thread> generators = new ArrayList<>();
+        for (Map.Entry<LoadProfile.Operation, Double> entry : profile.rates.entrySet()) {
+            if (entry.getValue() <= 0) {
+                continue;
+            }
+            Thread generator = new Thread(() -> generate(entry.getKey(), entry.getValue(), start, measureStart, end, workers),
+                    "load-generator-" + entry.getKey().key());
+            generator.setDaemon(true);
+            generator.start();
+            generators.add(generator);
+        }
+        for (Thread generator : generators) {
+            generator.join();
+        }
+        workers.shutdown();
+        workers.awaitTermination(2, TimeUnit.MINUTES);
+        return report();
+    }
+
+    private void generate(LoadProfile.Operation operation, double rate, long start, long measureStart, long end,
+                          ExecutorService workers) {
+        OperationStats operationStats = stats.get(operation);
+        long next = start;
+        while (next < end) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+            long intended = next;
+            boolean measured = intended >= measureStart;
+            if (inFlight.tryAcquire()) {
+                workers.execute(() -> {
+                    try {
+                        execute(operation, intended, measured ? operationStats : null);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } else if (measured) {
+                operationStats.dropped();
+            }
+            // 指数分布的到达间隔
+            double interval = -Math.log(1.0 - ThreadLocalRandom.current().nextDouble()) / rate;
+            next += (long) (interval * 1e9);
+        }
+    }
+
+    private void execute(LoadProfile.Operation operation, long intended, OperationStats operationStats) {
+        try {
+            String error = perform(operation);
+            if (operationStats == null) {
+                return;
+            }
+            if (error == null) {
+                operationStats.success(System.nanoTime() - intended);
+            } else if (!"no-file".equals(error)) {
+                operationStats.error(error);
+            } else {
+                operationStats.dropped();
+            }
+        } catch (IOException e) {
+            if (operationStats != null) {
+                operationStats.error(e.getClass().getSimpleName());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 执行一次操作
+     *
+     * @return 成功时返回 null，否则返回错误类别
+     */
+    private String perform(LoadProfile.Operation operation) throws IOException, InterruptedException {
+        if (operation == LoadProfile.Operation.UPLOAD) {
+            String fileKey = upload();
+            if (fileKey == null) {
+                return "upload-rejected";
+            }
+            addKey(fileKey);
+            return null;
+        }
+        String fileKey = operation == LoadProfile.Operation.DELETE ? takeKey() : randomKey();
+        if (fileKey == null) {
+            return "no-file";
+        }
+        HttpRequest.Builder request;
+        switch (operation) {
+            case DOWNLOAD:
+                request = HttpRequest.newBuilder(resolve("/files/download/" + fileKey)).GET();
+                break;
+            case SHARE_PAGE:
+                request = HttpRequest.newBuilder(resolve("/share/" + fileKey)).GET();
+                break;
+            case INFO:
+                request = HttpRequest.newBuilder(resolve("/files/info/" + fileKey)).GET();
+                break;
+            default:
+                request = HttpRequest.newBuilder(resolve("/files/" + fileKey)).DELETE();
+                break;
+        }
+        HttpResponse<Void> response = client.send(request.timeout(Duration.ofSeconds(60)).build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 200) {
+            return null;
+        }
+        // 请求发出前文件已被压测中的删除操作删掉，不算服务端错误
+        if (response.statusCode() == 404 && operation != LoadProfile.Operation.DELETE && deletedKeys.contains(fileKey)) {
+            return "no-file";
+        }
+        return "status-" + response.statusCode();
+    }
+
+    private String upload() throws IOException, InterruptedException {
+        String fileName = "load-" + uploadSequence.incrementAndGet() + ".txt";
+        HttpRequest request = HttpRequest.newBuilder(resolve("/files/upload"))
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(multipartBody(fileName)))
+                .build();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            return null;
+        }
+        JsonNode fileKey = objectMapper.readTree(response.body()).path("data").path("fileKey");
+        return fileKey.isTextual() ? fileKey.asText() : null;
+    }
+
+    private byte[] multipartBody(String fileName) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(payload.length + 256);
+        String header = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n";
+        body.write(header.getBytes(StandardCharsets.UTF_8));
+        body.write(payload);
+        body.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+
+    private URI resolve(String path) {
+        return URI.create(baseUri.toString() + path);
+    }
+
+    private synchronized void addKey(String fileKey) {
+        fileKeys.add(fileKey);
+    }
+
+    private synchronized String randomKey() {
+        return fileKeys.isEmpty() ? null : fileKeys.get(ThreadLocalRandom.current().nextInt(fileKeys.size()));
+    }
+
+    private synchronized String takeKey() {
+        if (fileKeys.isEmpty()) {
+            return null;
+        }
+        int index = ThreadLocalRandom.current().nextInt(fileKeys.size());
+        // 与末尾交换后删除，避免移动数组
+        String fileKey = fileKeys.get(index);
+        fileKeys.set(index, fileKeys.get(fileKeys.size() - 1));
+        fileKeys.remove(fileKeys.size() - 1);
+        deletedKeys.add(fileKey);
+        return fileKey;
+    }
+
+    private Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("generatedAt", LocalDateTime.now().toString());
+        report.put("profile", profile.describe());
+        Map<String, Object> operations = new LinkedHashMap<>();
+        long requests = 0;
+        long errors = 0;
+        for (Map.Entry<LoadProfile.Operation, OperationStats> entry : stats.entrySet()) {
+            if (profile.rates.get(entry.getKey()) <= 0) {
+                continue;
+            }
+            operations.put(entry.getKey().key(), entry.getValue().summarize(profile.durationSeconds));
+            requests += entry.getValue().requests();
+            errors += entry.getValue().errors();
+        }
+        report.put("operations", operations);
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("requests", requests);
+        totals.put("errors", errors);
+        totals.put("errorRate", requests > 0 ? (double) errors / requests : 0.0);
+        report.put("totals", totals);
+        return report;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,76 @@
+package cn.lemwood.fileshare.load;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 压测参数
+ * 均通过系统属性配置，例如 -Dload.duration=120 -Dload.rate.download=200
+ *
+ * @author lemwood
+ */
+final class LoadProfile {
+
+    /**
+     * 压测中的操作类型
+     */
+    enum Operation {
+        UPLOAD, DOWNLOAD, SHARE_PAGE, INFO, DELETE;
+
+        String key() {
+            return name().toLowerCase().replace('_', '-');
+        }
+    }
+
+    private static final Map<Operation, Double> DEFAULT_RATES = new LinkedHashMap<>();
+
+    static {
+        DEFAULT_RATES.put(Operation.UPLOAD, 5.0);
+        DEFAULT_RATES.put(Operation.DOWNLOAD, 20.0);
+        DEFAULT_RATES.put(Operation.SHARE_PAGE, 20.0);
+        DEFAULT_RATES.put(Operation.INFO, 30.0);
+        DEFAULT_RATES.put(Operation.DELETE, 2.0);
+    }
+
+    final long warmupSeconds;
+    final long durationSeconds;
+    final int fileSize;
+    final int seedFiles;
+    final int maxInFlight;
+    final double maxErrorRate;
+    final Path report;
+    final Map<Operation, Double> rates = new LinkedHashMap<>();
+
+    private LoadProfile() {
+        warmupSeconds = Long.getLong("load.warmup", 10L);
+        durationSeconds = Long.getLong("load.duration", 60L);
+        fileSize = Integer.getInteger("load.file-size", 256 * 1024);
+        seedFiles = Integer.getInteger("load.seed-files", 50);
+        maxInFlight = Integer.getInteger("load.max-in-flight", 256);
+        maxErrorRate = Double.parseDouble(System.getProperty("load.max-error-rate", "0.01"));
+        report = Paths.get(System.getProperty("load.report", "target/load-report.json"));
+        for (Map.Entry<Operation, Double> entry : DEFAULT_RATES.entrySet()) {
+            String value = System.getProperty("load.rate." + entry.getKey().key());
+            rates.put(entry.getKey(), value != null ? Double.parseDouble(value) : entry.getValue());
+        }
+    }
+
+    static LoadProfile fromSystemProperties() {
+        return new LoadProfile();
+    }
+
+    Map<String, Object> describe() {
+        Map<String, Object> profile = new LinkedHashMap<>();
+        profile.put("warmupSeconds", warmupSeconds);
+        profile.put("durationSeconds", durationSeconds);
+        profile.put("fileSize", fileSize);
+        profile.put("seedFiles", seedFiles);
+        profile.put("maxInFlight", maxInFlight);
+        Map<String, Object> arrivalRates = new LinkedHashMap<>();
+        rates.forEach((operation, rate) -> arrivalRates.put(operation.key(), rate));
+        profile.put("arrivalRates", arrivalRates);
+        return profile;
+    }
+}
@@ -0,0 +1,83 @@
+package cn.lemwood.fileshare.load;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个操作的压测统计：延迟分布、成功数、错误数和因客户端并发上限未能发出的请求数
+ *
+ * @author lemwood
+ */
+final class OperationStats {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Map<String, AtomicLong> errorKinds = new LinkedHashMap<>();
+
+    /**
+     * 记录一次成功请求，延迟从计划发出时间算起，避免服务端变慢时少算排队时间
+     */
+    synchronized void success(long latencyNanos) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+    }
+
+    void error(String kind) {
+        errors.incrementAndGet();
+        synchronized (errorKinds) {
+            errorKinds.computeIfAbsent(kind, key -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    void dropped() {
+        dropped.incrementAndGet();
+    }
+
+    synchronized Map<String, Object> summarize(double seconds) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        long total = count + errors.get();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", total);
+        summary.put("successes", count);
+        summary.put("errors", errors.get());
+        summary.put("dropped", dropped.get());
+        summary.put("errorRate", total > 0 ? (double) errors.get() / total : 0.0);
+        summary.put("throughput", seconds > 0 ? count / seconds : 0.0);
+        Map<String, Object> percentiles = new LinkedHashMap<>();
+        percentiles.put("p50", percentileMillis(sorted, 0.50));
+        percentiles.put("p90", percentileMillis(sorted, 0.90));
+        percentiles.put("p99", percentileMillis(sorted, 0.99));
+        percentiles.put("p999", percentileMillis(sorted, 0.999));
+        percentiles.put("max", sorted.length > 0 ? sorted[sorted.length - 1] / 1e6 : 0.0);
+        summary.put("latencyMillis", percentiles);
+        synchronized (errorKinds) {
+            Map<String, Long> kinds = new LinkedHashMap<>();
+            errorKinds.forEach((kind, value) -> kinds.put(kind, value.get()));
+            summary.put("errorKinds", kinds);
+        }
+        return summary;
+    }
+
+    synchronized long requests() {
+        return count + errors.get();
+    }
+
+    long errors() {
+        return errors.get();
+    }
+
+    static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+}
@@ -0,0 +1,89 @@
+package cn.lemwood.fileshare.metrics;
+
+import cn.lemwood.fileshare.entity.FileInfo;
+import cn.lemwood.fileshare.service.SystemStatusSnapshotService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 业务指标测试类
+ *
+ * @author lemwood
+ */
+@ExtendWith(MockitoExtension.class)
+class FileShareMetricsTest {
+
+    @Mock
+    private SystemStatusSnapshotService statusSnapshotService;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private FileShareMetrics fileShareMetrics;
+
+    @Test
+    void testSizeBucketAndContentCategory() {
+        assertEquals("lt_1m", FileShareMetrics.sizeBucket(0L));
+        assertEquals("1m_10m", FileShareMetrics.sizeBucket(5L * 1024 * 1024));
+        assertEquals("ge_100m", FileShareMetrics.sizeBucket(200L * 1024 * 1024));
+        assertEquals("image", FileShareMetrics.contentCategory("image/png"));
+        assertEquals("application", FileShareMetrics.contentCategory("Application/PDF"));
+        assertEquals("other", FileShareMetrics.contentCategory("x-custom/thing"));
+        assertEquals("other", FileShareMetrics.contentCategory(null));
+    }
+
+    @Test
+    void testMeterDownload_RecordsBytesTtfbAndDuration() throws IOException {
+        // Given
+        FileInfo fileInfo = new FileInfo();
+        fileInfo.setFileSize(4096L);
+        fileInfo.setContentType("text/plain");
+        Resource resource = fileShareMetrics.meterDownload(
+                new ByteArrayResource(new byte[4096]), fileInfo, "files", System.nanoTime());
+
+        // When
+        assertEquals(4096L, resource.contentLength());
+        try (InputStream in = resource.getInputStream()) {
+            StreamUtils.copy(in, StreamUtils.nonClosing(new java.io.ByteArrayOutputStream()));
+        }
+
+        // Then
+        assertEquals(4096.0, meterRegistry.get("fileshare.download.bytes").counter().count());
+        assertEquals(1L, meterRegistry.get("fileshare.download.ttfb").timer().count());
+        Timer duration = meterRegistry.get("fileshare.download.duration").tag("outcome", "completed").timer();
+        assertEquals(1L, duration.count());
+    }
+
+    @Test
+    void testMeterDownload_AbortedWhenClosedEarly() throws IOException {
+        // Given
+        FileInfo fileInfo = new FileInfo();
+        fileInfo.setFileSize(4096L);
+        Resource resource = fileShareMetrics.meterDownload(
+                new ByteArrayResource(new byte[4096]), fileInfo, "share", System.nanoTime());
+
+        // When
+        try (InputStream in = resource.getInputStream()) {
+            assertEquals(100, in.read(new byte[100]));
+        }
+
+        // Then
+        assertEquals(100.0, meterRegistry.get("fileshare.download.bytes").counter().count());
+        assertEquals(1L, meterRegistry.get("fileshare.download.duration").tag("outcome", "aborted").timer().count());
+    }
+}
@@ -0,0 +1,89 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 磁盘 I/O 统计服务测试类
+ *
+ * @author lemwood
+ */
+class DiskIoStatsServiceTest {
+
+    @Test
+    void testDeviceStatsBetweenSamples() {
+        // Given: 1秒内读 100 次共 2048 扇区，写 50 次共 1024 扇区，设备忙 500ms，加权耗时 1500ms
+        Map<String, long[]> before = DiskIoStatsService.parseDiskstats(Arrays.asList(
+                "   8       0 sda 1000 0 20000 400 500 0 10000 600 0 3000 8000 0 0 0 0",
+                "   7       0 loop0 1 0 2 0 0 0 0 0 0 0 0 0 0 0 0"));
+        Map<String, long[]> after = DiskIoStatsService.parseDiskstats(Arrays.asList(
+                "   8       0 sda 1100 0 22048 600 550 0 11024 700 2 3500 9500 0 0 0 0"));
+
+        // When
+        DiskIoStatsService.DeviceStats stats = DiskIoStatsService.DeviceStats.between(
+                "sda", before.get("sda"), after.get("sda"), 1_000_000_000L);
+
+        // Then
+        assertEquals(2, before.size());
+        assertEquals(2048 * 512.0, stats.readBytesPerSecond, 0.001);
+        assertEquals(1024 * 512.0, stats.writeBytesPerSecond, 0.001);
+        assertEquals(100.0, stats.readIops, 0.001);
+        assertEquals(50.0, stats.writeIops, 0.001);
+        assertEquals(0.5, stats.utilization, 0.001);
+        assertEquals(1.5, stats.queueDepth, 0.001);
+        assertEquals(2.0, stats.awaitMillis, 0.001);
+        assertEquals(2L, stats.inFlight);
+    }
+
+    @Test
+    void testResolveMountDevice_LongestMatchingMountPoint() {
+        // Given
+        List<String> mountinfo = Arrays.asList(
+                "22 1 8:1 / / rw,relatime shared:1 - ext4 /dev/sda1 rw",
+                "30 22 8:17 / /data rw,relatime shared:2 - xfs /dev/sdb1 rw",
+                "31 22 8:33 / /data2 rw,relatime shared:3 - xfs /dev/sdc1 rw");
+
+        // When / Then
+        assertEquals("8:17", DiskIoStatsService.resolveMountDevice(mountinfo, Paths.get("/data/uploads")));
+        assertEquals("8:1", DiskIoStatsService.resolveMountDevice(mountinfo, Paths.get("/database/uploads")));
+        assertEquals("8:33", DiskIoStatsService.resolveMountDevice(mountinfo, Paths.get("/data2")));
+    }
+
+    @Test
+    void testStorageRoots_EveryStripeAndColdTier() {
+        // Given
+        FileUploadConfig config = new FileUploadConfig();
+        config.getUpload().setPaths(Arrays.asList("/data/uploads", "/data2/uploads"));
+        config.getTier().setEnabled(true);
+        config.getTier().setColdPath("/cold/uploads");
+
+        // When
+        List<Path> roots = DiskIoStatsService.storageRoots(config);
+
+        // Then
+        assertEquals(Arrays.asList(Paths.get("/data/uploads"), Paths.get("/data2/uploads"), Paths.get("/cold/uploads")),
+                roots);
+    }
+
+    @Test
+    void testEstimateHitRatio() {
+        assertNull(DiskIoStatsService.estimateHitRatio(1024, 0));
+        assertEquals(0.75, DiskIoStatsService.estimateHitRatio(4 * 1024 * 1024, 1024 * 1024), 0.001);
+        assertEquals(0.0, DiskIoStatsService.estimateHitRatio(4 * 1024 * 1024, 8 * 1024 * 1024), 0.001);
+    }
+
+    @Test
+    void testClassifyIngest() {
+        assertEquals(DiskIoStatsService.INGEST_NONE, DiskIoStatsService.classifyIngest(0, 0));
+        assertEquals(DiskIoStatsService.INGEST_DIRECT, DiskIoStatsService.classifyIngest(8 * 1024 * 1024, 1024));
+        assertEquals(DiskIoStatsService.INGEST_BUFFERED, DiskIoStatsService.classifyIngest(0, 1024));
+    }
+}
@@ -0,0 +1,222 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import cn.lemwood.fileshare.entity.FileInfo;
+import cn.lemwood.fileshare.repository.FileInfoRepository;
+import cn.lemwood.fileshare.storage.InMemoryStorage;
+import cn.lemwood.fileshare.storage.StorageSpace;
+import cn.lemwood.fileshare.task.ExpiryScheduler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 磁盘压力淘汰服务测试类
+ *
+ * @author lemwood
+ */
+@ExtendWith(MockitoExtension.class)
+class DiskPressureEvictionServiceTest {
+
+    @Mock
+    private FileInfoRepository fileInfoRepository;
+
+    @Mock
+    private FileUploadConfig fileUploadConfig;
+
+    @Mock
+    private StorageStatsService storageStatsService;
+
+    @Mock
+    private TombstoneReaper tombstoneReaper;
+
+    @Mock
+    private ExpiryScheduler expiryScheduler;
+
+    @Spy
+    private InMemoryStorage storageBackend = new InMemoryStorage();
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private DiskPressureEvictionService evictionService;
+
+    private final FileUploadConfig.Eviction evictionConfig = new FileUploadConfig.Eviction();
+
+    @BeforeEach
+    void setUp() {
+        evictionConfig.setEnabled(true);
+        evictionConfig.setMinAge(0L);
+        lenient().when(fileUploadConfig.getEviction()).thenReturn(evictionConfig);
+        lenient().when(storageStatsService.getTotalSize()).thenReturn(1110L);
+        evictionService.init();
+
+        LocalDateTime now = LocalDateTime.now();
+        // 1: 最早上传、下载多；2: 体积最大、从未下载；3: 最新上传、下载最少
+        evictionService.track(file(1L, 100L, now.minusHours(3)));
+        evictionService.track(file(2L, 1000L, now.minusHours(2)));
+        evictionService.track(file(3L, 10L, now.minusHours(1)));
+        for (int i = 0; i < 5; i++) {
+            evictionService.touch("key-1");
+        }
+        evictionService.touch("key-2");
+    }
+
+    @Test
+    void testSelectVictims_OldestFirst() {
+        // Given
+        evictionConfig.setPolicy(FileUploadConfig.Eviction.Policy.OLDEST_FIRST);
+
+        // When
+        List<DiskPressureEvictionService.Candidate> victims =
+                evictionService.selectVictims(50L, System.currentTimeMillis());
+
+        // Then
+        assertEquals(1, victims.size());
+        assertEquals("key-1", victims.get(0).fileKey);
+    }
+
+    @Test
+    void testSelectVictims_LeastDownloaded() {
+        // Given
+        evictionConfig.setPolicy(FileUploadConfig.Eviction.Policy.LEAST_DOWNLOADED);
+
+        // When
+        List<DiskPressureEvictionService.Candidate> victims =
+                evictionService.selectVictims(500L, System.currentTimeMillis());
+
+        // Then
+        assertEquals(Arrays.asList("key-3", "key-2"), keys(victims));
+    }
+
+    @Test
+    void testSelectVictims_LargestIdle() {
+        // Given
+        evictionConfig.setPolicy(FileUploadConfig.Eviction.Policy.LARGEST_IDLE);
+        evictionService.untrack("key-2");
+
+        // When
+        List<DiskPressureEvictionService.Candidate> victims =
+                evictionService.selectVictims(1L, System.currentTimeMillis());
+
+        // Then: key-1 刚被访问过，key-3 空闲更久
+        assertEquals(Arrays.asList("key-3"), keys(victims));
+    }
+
+    @Test
+    void testSelectVictims_SkipsYoungFiles() {
+        // Given
+        evictionConfig.setMinAge(90 * 60 * 1000L);
+
+        // When
+        List<DiskPressureEvictionService.Candidate> victims =
+                evictionService.selectVictims(Long.MAX_VALUE, System.currentTimeMillis());
+
+        // Then
+        assertEquals(Arrays.asList("key-1", "key-2"), keys(victims));
+    }
+
+    @Test
+    void testSelectVictims_SkipsFilesThatFreeNoSpaceOnDelete() throws Exception {
+        // Given: key-1 打包存储，删除后要等卷压缩才释放空间
+        evictionConfig.setPolicy(FileUploadConfig.Eviction.Policy.OLDEST_FIRST);
+        doReturn(false).when(storageBackend).freesSpaceOnDelete("key-1.bin");
+
+        // When
+        List<DiskPressureEvictionService.Candidate> victims =
+                evictionService.selectVictims(50L, System.currentTimeMillis());
+
+        // Then
+        assertEquals(Arrays.asList("key-2"), keys(victims));
+    }
+
+    @Test
+    void testEvict_TombstonesAndReports() {
+        // Given
+        when(fileInfoRepository.markDeleted(eq(Arrays.asList(1L, 2L)), any(LocalDateTime.class))).thenReturn(2);
+
+        // When
+        int evicted = evictionService.evict(500L, "test");
+
+        // Then
+        assertEquals(2, evicted);
+        verify(tombstoneReaper).onTombstoned(2);
+        verify(tombstoneReaper).reap();
+        verify(storageStatsService).recordRemoved(2L, 1100L);
+        verify(expiryScheduler).cancel("key-1");
+        verify(expiryScheduler).cancel("key-2");
+        Map<String, Object> status = evictionService.getStatus();
+        assertEquals(1, status.get("candidates"));
+        assertEquals(2L, status.get("evictedFiles"));
+        assertEquals(2, ((List<?>) status.get("recent")).size());
+    }
+
+    @Test
+    void testReclaim_WaitsForPendingTombstonesInsteadOfEvictingMore() {
+        // Given: 回收器正忙，淘汰的文件只写入了墓碑
+        evictionConfig.setPolicy(FileUploadConfig.Eviction.Policy.OLDEST_FIRST);
+        when(fileInfoRepository.markDeleted(anyList(), any(LocalDateTime.class))).thenReturn(1);
+        when(tombstoneReaper.reap()).thenReturn(0);
+        when(fileInfoRepository.findExistingIds(anyList())).thenReturn(Arrays.asList(1L));
+        evictionService.reclaim(50L);
+
+        // When
+        int second = evictionService.reclaim(50L);
+
+        // Then: 第一次淘汰的 100 字节仍待回收，不再淘汰其他文件
+        assertEquals(0, second);
+        verify(fileInfoRepository, times(1)).markDeleted(anyList(), any(LocalDateTime.class));
+        assertEquals(100L, evictionService.getStatus().get("pendingReclaimBytes"));
+
+        // When: 回收器清除了记录
+        when(fileInfoRepository.findExistingIds(anyList())).thenReturn(Arrays.asList());
+
+        // Then
+        assertEquals(0L, evictionService.pendingReclaimBytes());
+    }
+
+    @Test
+    void testCheckPressure_SkipsWhenOtherDataFillsDisk() {
+        // Given: 磁盘使用率 95%，需释放 150 字节，而有效文件只有 100 字节
+        doReturn(new StorageSpace(1000L, 50L, true)).when(storageBackend).space();
+        when(storageStatsService.getTotalSize()).thenReturn(100L);
+        when(fileUploadConfig.getCleanup()).thenReturn(new FileUploadConfig.Cleanup());
+
+        // When
+        evictionService.checkPressure();
+
+        // Then
+        assertTrue(evictionService.isUnderPressure());
+        verify(fileInfoRepository, never()).markDeleted(anyList(), any(LocalDateTime.class));
+    }
+
+    private static List<String> keys(List<DiskPressureEvictionService.Candidate> candidates) {
+        return candidates.stream().map(candidate -> candidate.fileKey).collect(java.util.stream.Collectors.toList());
+    }
+
+    private static FileInfo file(Long id, Long size, LocalDateTime uploadTime) {
+        FileInfo fileInfo = new FileInfo();
+        fileInfo.setId(id);
+        fileInfo.setFileKey("key-" + id);
+        fileInfo.setStoredName("key-" + id + ".bin");
+        fileInfo.setFileSize(size);
+        fileInfo.setUploadTime(uploadTime);
+        fileInfo.setExpireTime(uploadTime.plusHours(24));
+        return fileInfo;
+    }
+}
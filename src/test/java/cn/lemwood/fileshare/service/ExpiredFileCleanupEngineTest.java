@@ -0,0 +1,132 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import cn.lemwood.fileshare.repository.FileInfoRepository;
+import cn.lemwood.fileshare.repository.FileInfoSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 过期文件清理引擎测试类
+ *
+ * @author lemwood
+ */
+@ExtendWith(MockitoExtension.class)
+class ExpiredFileCleanupEngineTest {
+
+    @Mock
+    private FileInfoRepository fileInfoRepository;
+
+    @Mock
+    private FileUploadConfig fileUploadConfig;
+
+    @Mock
+    private StorageStatsService storageStatsService;
+
+    @Mock
+    private JobLockService jobLockService;
+
+    @Mock
+    private TombstoneReaper tombstoneReaper;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private ExpiredFileCleanupEngine cleanupEngine;
+
+    private final FileUploadConfig.Cleanup cleanupConfig = new FileUploadConfig.Cleanup();
+
+    @BeforeEach
+    void setUp() {
+        cleanupConfig.setBatchSize(2);
+        lenient().when(fileUploadConfig.getCleanup()).thenReturn(cleanupConfig);
+        cleanupEngine.init();
+    }
+
+    @Test
+    void testRunCleanup_TombstonesInBatches() {
+        // Given
+        List<FileInfoSummary> firstBatch = Arrays.asList(summary(1L, 100L), summary(2L, 200L));
+        List<FileInfoSummary> secondBatch = Collections.singletonList(summary(3L, 300L));
+        when(jobLockService.tryAcquire(eq(ExpiredFileCleanupEngine.LOCK_NAME), anyLong())).thenReturn(true);
+        when(jobLockService.renew(eq(ExpiredFileCleanupEngine.LOCK_NAME), anyLong(), anyLong(), anyLong()))
+                .thenReturn(true);
+        when(fileInfoRepository.findExpiredBatch(any(LocalDateTime.class), eq(0L), any()))
+                .thenReturn(firstBatch);
+        when(fileInfoRepository.findExpiredBatch(any(LocalDateTime.class), eq(2L), any()))
+                .thenReturn(secondBatch);
+        when(fileInfoRepository.markDeleted(anyCollection(), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0, java.util.Collection.class).size());
+
+        // When
+        int deletedCount = cleanupEngine.runCleanup("test");
+
+        // Then
+        assertEquals(3, deletedCount);
+        verify(fileInfoRepository).markDeleted(eq(Arrays.asList(1L, 2L)), any(LocalDateTime.class));
+        verify(fileInfoRepository).markDeleted(eq(Collections.singletonList(3L)), any(LocalDateTime.class));
+        verify(fileInfoRepository, never()).deleteBatchByIds(anyCollection());
+        verify(tombstoneReaper).onTombstoned(2);
+        verify(tombstoneReaper).onTombstoned(1);
+        verify(storageStatsService).recordRemoved(2, 300L);
+        verify(storageStatsService).recordRemoved(1, 300L);
+        verify(jobLockService).release(ExpiredFileCleanupEngine.LOCK_NAME);
+        assertEquals(3, cleanupEngine.getProgress().getLastDeleted());
+    }
+
+    @Test
+    void testRunCleanup_LockHeldElsewhere() {
+        // Given
+        when(jobLockService.tryAcquire(eq(ExpiredFileCleanupEngine.LOCK_NAME), anyLong())).thenReturn(false);
+
+        // When
+        int deletedCount = cleanupEngine.runCleanup("test");
+
+        // Then
+        assertEquals(0, deletedCount);
+        verify(fileInfoRepository, never()).findExpiredBatch(any(), anyLong(), any());
+        verify(jobLockService, never()).release(anyString());
+    }
+
+    @Test
+    void testRunCleanup_PausesWhenReaperBacklogged() {
+        // Given
+        when(jobLockService.tryAcquire(eq(ExpiredFileCleanupEngine.LOCK_NAME), anyLong())).thenReturn(true);
+        when(tombstoneReaper.isBacklogged()).thenReturn(true);
+
+        // When
+        int deletedCount = cleanupEngine.runCleanup("test");
+
+        // Then
+        assertEquals(0, deletedCount);
+        verify(fileInfoRepository, never()).findExpiredBatch(any(), anyLong(), any());
+        verify(jobLockService).release(ExpiredFileCleanupEngine.LOCK_NAME);
+    }
+
+    private FileInfoSummary summary(long id, long size) {
+        return new FileInfoSummary() {
+            public Long getId() { return id; }
+            public String getFileKey() { return "key-" + id; }
+            public String getFilePath() { return "/uploads/" + id + ".txt"; }
+            public Long getFileSize() { return size; }
+            public LocalDateTime getExpireTime() { return LocalDateTime.now().minusHours(1); }
+        };
+    }
+
+}
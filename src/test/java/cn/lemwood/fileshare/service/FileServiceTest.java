@@ -2,17 +2,28 @@ package cn.lemwood.fileshare.service;
 
 import cn.lemwood.fileshare.config.FileUploadConfig;
 import cn.lemwood.fileshare.entity.FileInfo;
+import cn.lemwood.fileshare.exception.FileShareException;
 import cn.lemwood.fileshare.repository.FileInfoRepository;
+import cn.lemwood.fileshare.storage.InMemoryStorage;
+import cn.lemwood.fileshare.task.ExpiryScheduler;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.Resource;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 /**
@@ -29,6 +40,21 @@ class FileServiceTest {
     @Mock
     private FileUploadConfig fileUploadConfig;
 
+    @Mock
+    private StorageStatsService storageStatsService;
+
+    @Mock
+    private ExpiryScheduler expiryScheduler;
+
+    @Mock
+    private TombstoneReaper tombstoneReaper;
+
+    @Mock
+    private DiskPressureEvictionService evictionService;
+
+    @Spy
+    private InMemoryStorage storageBackend = new InMemoryStorage();
+
     @InjectMocks
     private FileService fileService;
 
@@ -43,6 +69,7 @@ class FileServiceTest {
         testFileInfo.setStoredName("stored-test.txt");
         testFileInfo.setFileSize(1024L);
         testFileInfo.setContentType("text/plain");
+        testFileInfo.setExpireTime(LocalDateTime.now().plusHours(1));
     }
 
     @Test
@@ -77,8 +104,8 @@ class FileServiceTest {
     @Test
     void testGetSystemStats() {
         // Given
-        when(fileInfoRepository.count()).thenReturn(10L);
-        when(fileInfoRepository.getTotalFileSize()).thenReturn(1024000L);
+        when(storageStatsService.getTotalFiles()).thenReturn(10L);
+        when(storageStatsService.getTotalSize()).thenReturn(1024000L);
 
         // When
         FileService.SystemStats stats = fileService.getSystemStats();
@@ -86,8 +113,77 @@ class FileServiceTest {
         // Then
         assertEquals(10L, stats.getTotalFiles());
         assertEquals(1024000L, stats.getTotalSize());
-        verify(fileInfoRepository).count();
-        verify(fileInfoRepository).getTotalFileSize();
+        verifyNoInteractions(fileInfoRepository);
+    }
+
+    @Test
+    void testDownloadFile_ReadsFromStorageBackend() throws IOException {
+        // Given
+        byte[] content = "hello".getBytes(StandardCharsets.UTF_8);
+        storageBackend.put("stored-test.txt", content, System.currentTimeMillis());
+        when(fileInfoRepository.findByFileKey("test-key-123"))
+                .thenReturn(Optional.of(testFileInfo));
+
+        // When
+        Resource resource = fileService.downloadFile("test-key-123");
+
+        // Then
+        assertEquals(content.length, resource.contentLength());
+        try (InputStream in = resource.getInputStream()) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+        verify(fileInfoRepository).incrementDownloadCount(1L);
+        verify(evictionService).touch("test-key-123");
+    }
+
+    @Test
+    void testDownloadFile_MissingObject() {
+        // Given
+        when(fileInfoRepository.findByFileKey("test-key-123"))
+                .thenReturn(Optional.of(testFileInfo));
+
+        // When
+        FileShareException e = assertThrows(FileShareException.class,
+                () -> fileService.downloadFile("test-key-123"));
+
+        // Then
+        assertEquals(FileShareException.ErrorCodes.FILE_NOT_READABLE, e.getErrorCode());
+        verify(fileInfoRepository, never()).incrementDownloadCount(anyLong());
+    }
+
+    @Test
+    void testDeleteFile_WritesTombstoneOnly() {
+        // Given
+        when(fileInfoRepository.findByFileKey("test-key-123"))
+                .thenReturn(Optional.of(testFileInfo));
+        when(fileInfoRepository.markDeleted(eq(Collections.singletonList(1L)), any(LocalDateTime.class)))
+                .thenReturn(1);
+
+        // When
+        boolean deleted = fileService.deleteFile("test-key-123");
+
+        // Then
+        assertTrue(deleted);
+        verify(tombstoneReaper).onTombstoned(1);
+        verify(storageStatsService).recordRemoved(1024L);
+        verify(expiryScheduler).cancel("test-key-123");
+        verify(evictionService).untrack("test-key-123");
+        verify(fileInfoRepository, never()).delete(any(FileInfo.class));
+    }
+
+    @Test
+    void testDeleteFile_AlreadyTombstoned() {
+        // Given
+        when(fileInfoRepository.findByFileKey("test-key-123"))
+                .thenReturn(Optional.of(testFileInfo));
+        when(fileInfoRepository.markDeleted(anyCollection(), any(LocalDateTime.class))).thenReturn(0);
+
+        // When
+        boolean deleted = fileService.deleteFile("test-key-123");
+
+        // Then
+        assertFalse(deleted);
+        verifyNoInteractions(storageStatsService, tombstoneReaper);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,117 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 线程池与连接池饱和度监控测试类
+ *
+ * @author lemwood
+ */
+@ExtendWith(MockitoExtension.class)
+class PoolSaturationMonitorTest {
+
+    @Mock
+    private FileUploadConfig fileUploadConfig;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private ThreadPoolTaskScheduler taskScheduler;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private PoolSaturationMonitor poolSaturationMonitor;
+
+    private final FileUploadConfig.Pools poolsConfig = new FileUploadConfig.Pools();
+    private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+
+    @BeforeEach
+    void setUp() {
+        poolsConfig.setWarnAfter(0L);
+        lenient().when(fileUploadConfig.getPools()).thenReturn(poolsConfig);
+        lenient().when(taskScheduler.getScheduledThreadPoolExecutor()).thenReturn(executor);
+        poolSaturationMonitor.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testSchedulerSaturatedWhileOverdueTasksWait() throws InterruptedException {
+        // Given: 唯一的调度线程被占用，另一个任务已到执行时间仍在排队
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await(5, TimeUnit.SECONDS);
+        executor.schedule(() -> { }, 0, TimeUnit.MILLISECONDS);
+        executor.schedule(() -> { }, 1, TimeUnit.HOURS);
+
+        // When
+        poolSaturationMonitor.check();
+        Map<String, Object> status = poolSaturationMonitor.getStatus();
+
+        // Then
+        @SuppressWarnings("unchecked")
+        Map<String, Object> scheduler = (Map<String, Object>) status.get(PoolSaturationMonitor.SCHEDULER);
+        assertEquals(1, scheduler.get("active"));
+        assertEquals(1, scheduler.get("queued"));
+        assertEquals(true, scheduler.get("saturated"));
+        assertEquals(1.0, meterRegistry.get("fileshare.pool.queued").tag("pool", "scheduler").gauge().value(), 0.001);
+        assertFalse(status.containsKey(PoolSaturationMonitor.TOMCAT));
+        assertFalse(status.containsKey(PoolSaturationMonitor.DATABASE));
+        release.countDown();
+    }
+
+    @Test
+    void testIdleSchedulerNotSaturated() {
+        // When
+        poolSaturationMonitor.check();
+        Map<String, Object> status = poolSaturationMonitor.getStatus();
+
+        // Then
+        @SuppressWarnings("unchecked")
+        Map<String, Object> scheduler = (Map<String, Object>) status.get(PoolSaturationMonitor.SCHEDULER);
+        assertEquals(0, scheduler.get("active"));
+        assertEquals(false, scheduler.get("saturated"));
+        assertEquals(0L, scheduler.get("saturatedFor"));
+    }
+
+    @Test
+    void testPoolViewSaturation() {
+        assertTrue(new PoolSaturationMonitor.PoolView(9, 1, 0, 10).isSaturated(0.9));
+        assertFalse(new PoolSaturationMonitor.PoolView(5, 5, 0, 10).isSaturated(0.9));
+        assertTrue(new PoolSaturationMonitor.PoolView(2, 0, 3, 2).isSaturated(1.5));
+        assertFalse(new PoolSaturationMonitor.PoolView(0, 0, 0, 0).isSaturated(0.9));
+    }
+}
@@ -0,0 +1,198 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import cn.lemwood.fileshare.repository.FileInfoRepository;
+import cn.lemwood.fileshare.repository.StoredFileSummary;
+import cn.lemwood.fileshare.storage.InMemoryStorage;
+import cn.lemwood.fileshare.task.ExpiryScheduler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 存储目录对账服务测试类
+ *
+ * @author lemwood
+ */
+@ExtendWith(MockitoExtension.class)
+class StorageReconciliationServiceTest {
+
+    @Mock
+    private FileInfoRepository fileInfoRepository;
+
+    @Mock
+    private FileUploadConfig fileUploadConfig;
+
+    @Mock
+    private StorageStatsService storageStatsService;
+
+    @Mock
+    private JobLockService jobLockService;
+
+    @Mock
+    private ExpiryScheduler expiryScheduler;
+
+    @Spy
+    private InMemoryStorage storageBackend = new InMemoryStorage();
+
+    @InjectMocks
+    private StorageReconciliationService reconciliationService;
+
+    private final FileUploadConfig.Reconcile reconcileConfig = new FileUploadConfig.Reconcile();
+
+    @BeforeEach
+    void setUp() {
+        reconcileConfig.setMaxFilesPerSecond(0);
+        lenient().when(fileUploadConfig.getReconcile()).thenReturn(reconcileConfig);
+        lenient().when(jobLockService.tryAcquire(eq(StorageReconciliationService.LOCK_NAME), anyLong()))
+                .thenReturn(true);
+    }
+
+    @Test
+    void testReconcile_RemovesOrphansInBothDirections() throws IOException {
+        // Given
+        reconcileConfig.setDeleteOrphanFiles(true);
+        reconcileConfig.setPurgeMissingRows(true);
+        createOldFile("kept.bin", 10);
+        createOldFile("orphan.bin", 20);
+        when(fileInfoRepository.findStoredNameBatch(eq(0L), any())).thenReturn(Arrays.asList(
+                summary(1L, "kept.bin", 10L),
+                summary(2L, "missing.bin", 30L)));
+        when(fileInfoRepository.findStoredSummariesByStoredNameIn(Collections.singletonList("missing.bin")))
+                .thenReturn(Collections.singletonList(summary(2L, "missing.bin", 30L)));
+        when(fileInfoRepository.deleteBatchByIds(Collections.singletonList(2L))).thenReturn(1);
+
+        // When
+        StorageReconciliationService.Result result = reconciliationService.reconcile();
+
+        // Then
+        assertEquals(2, result.getScannedFiles());
+        assertEquals(1, result.getOrphanFiles());
+        assertEquals(20, result.getOrphanBytes());
+        assertEquals(1, result.getMissingFileRows());
+        assertTrue(storageBackend.exists("kept.bin"));
+        assertFalse(storageBackend.exists("orphan.bin"));
+        verify(storageStatsService).recordRemoved(1L, 30L);
+        verify(expiryScheduler).cancel("key-2");
+        verify(jobLockService).release(StorageReconciliationService.LOCK_NAME);
+    }
+
+    @Test
+    void testReconcile_ReportsWithoutDeletingByDefault() throws IOException {
+        // Given
+        createOldFile("orphan.bin", 20);
+        when(fileInfoRepository.findStoredNameBatch(eq(0L), any())).thenReturn(
+                Collections.singletonList(summary(2L, "missing.bin", 30L)));
+        when(fileInfoRepository.findStoredSummariesByStoredNameIn(Collections.singletonList("missing.bin")))
+                .thenReturn(Collections.singletonList(summary(2L, "missing.bin", 30L)));
+
+        // When
+        StorageReconciliationService.Result result = reconciliationService.reconcile();
+
+        // Then
+        assertEquals(1, result.getOrphanFiles());
+        assertEquals(1, result.getMissingFileRows());
+        assertTrue(storageBackend.exists("orphan.bin"));
+        verify(fileInfoRepository, never()).deleteBatchByIds(anyList());
+    }
+
+    @Test
+    void testReconcile_StopsWhenLeaseLost() throws IOException {
+        // Given: 第一页已满，续约失败
+        reconcileConfig.setDeleteOrphanFiles(true);
+        reconcileConfig.setPurgeMissingRows(true);
+        createOldFile("orphan.bin", 20);
+        List<StoredFileSummary> page = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            page.add(summary(id, "file-" + id + ".bin", 1L));
+        }
+        when(fileInfoRepository.findStoredNameBatch(eq(0L), any())).thenReturn(page);
+        when(jobLockService.renew(eq(StorageReconciliationService.LOCK_NAME), anyLong(), eq(1000L), anyLong()))
+                .thenReturn(false);
+
+        // When
+        StorageReconciliationService.Result result = reconciliationService.reconcile();
+
+        // Then: 索引不完整，不删除任何文件或记录
+        assertEquals(0, result.getScannedFiles());
+        assertTrue(storageBackend.exists("orphan.bin"));
+        verify(fileInfoRepository, never()).findStoredSummariesByStoredNameIn(anyCollection());
+        verify(fileInfoRepository, never()).deleteBatchByIds(anyList());
+        verify(jobLockService).release(StorageReconciliationService.LOCK_NAME);
+    }
+
+    @Test
+    void testReconcile_KeepsFilesWithinGracePeriod() throws IOException {
+        // Given
+        storageBackend.put("uploading.bin", new byte[5], System.currentTimeMillis());
+        when(fileInfoRepository.findStoredNameBatch(eq(0L), any())).thenReturn(Collections.emptyList());
+
+        // When
+        StorageReconciliationService.Result result = reconciliationService.reconcile();
+
+        // Then
+        assertEquals(0, result.getOrphanFiles());
+        assertTrue(storageBackend.exists("uploading.bin"));
+    }
+
+    @Test
+    void testReconcile_SkipsWhenLockHeldElsewhere() throws IOException {
+        // Given
+        when(jobLockService.tryAcquire(eq(StorageReconciliationService.LOCK_NAME), anyLong())).thenReturn(false);
+
+        // When
+        StorageReconciliationService.Result result = reconciliationService.reconcile();
+
+        // Then
+        assertNull(result);
+        verify(fileInfoRepository, never()).findStoredNameBatch(anyLong(), any());
+    }
+
+    private void createOldFile(String name, int size) throws IOException {
+        storageBackend.put(name, new byte[size], System.currentTimeMillis() - 24 * 3600 * 1000L);
+    }
+
+    private static StoredFileSummary summary(Long id, String storedName, Long size) {
+        return new StoredFileSummary() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getFileKey() {
+                return "key-" + id;
+            }
+
+            @Override
+            public String getStoredName() {
+                return storedName;
+            }
+
+            @Override
+            public Long getFileSize() {
+                return size;
+            }
+
+            @Override
+            public LocalDateTime getUploadTime() {
+                return LocalDateTime.now().minusDays(1);
+            }
+        };
+    }
+}
@@ -0,0 +1,142 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import cn.lemwood.fileshare.storage.InMemoryStorage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 上传空间预留账本测试类
+ *
+ * @author lemwood
+ */
+@ExtendWith(MockitoExtension.class)
+class StorageReservationLedgerTest {
+
+    private static final long HEADROOM = 10L * 1024 * 1024;
+
+    private static final long CAPACITY = 1024L * 1024 * 1024;
+
+    @Mock
+    private FileUploadConfig fileUploadConfig;
+
+    @Mock
+    private DiskPressureEvictionService evictionService;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private InMemoryStorage storageBackend = new InMemoryStorage(CAPACITY);
+
+    @InjectMocks
+    private StorageReservationLedger ledger;
+
+    private final FileUploadConfig.Eviction evictionConfig = new FileUploadConfig.Eviction();
+
+    private final FileUploadConfig.Reservation reservationConfig = new FileUploadConfig.Reservation();
+
+    @BeforeEach
+    void setUp() {
+        // 保留空间设为存储容量减去 10MB，使可预留空间为 10MB
+        reservationConfig.setReservedSpace(CAPACITY - HEADROOM);
+        evictionConfig.setEnabled(true);
+        lenient().when(fileUploadConfig.getReservation()).thenReturn(reservationConfig);
+        lenient().when(fileUploadConfig.getEviction()).thenReturn(evictionConfig);
+        lenient().when(evictionService.reclaimAsync(anyLong())).thenReturn(CompletableFuture.completedFuture(0));
+        ledger.init();
+    }
+
+    @Test
+    void testReserve_ConcurrentUploadsDoNotOversubscribe() {
+        // Given
+        long size = HEADROOM * 6 / 10;
+
+        // When
+        StorageReservationLedger.Reservation first = ledger.reserve(size);
+        StorageReservationLedger.Reservation second = ledger.reserve(size);
+
+        // Then
+        assertNotNull(first);
+        assertNull(second);
+        assertEquals(size, ledger.getReservedBytes());
+        verify(evictionService).reclaimAsync(anyLong());
+        assertEquals(1.0, meterRegistry.counter("fileshare.upload.rejected", "reason", "storage_full").count());
+    }
+
+    @Test
+    void testRelease_IsIdempotentAndFreesSpace() {
+        // Given
+        long size = HEADROOM * 6 / 10;
+        StorageReservationLedger.Reservation first = ledger.reserve(size);
+
+        // When
+        first.release();
+        first.release();
+        StorageReservationLedger.Reservation second = ledger.reserve(size);
+
+        // Then
+        assertNotNull(second);
+        assertEquals(size, ledger.getReservedBytes());
+        assertEquals(1, ledger.getActiveReservations());
+    }
+
+    @Test
+    void testAdjust_ShrinksReservation() {
+        // Given
+        StorageReservationLedger.Reservation reservation = ledger.reserve(HEADROOM / 2);
+
+        // When
+        reservation.adjust(1024L);
+
+        // Then
+        assertEquals(1024L, ledger.getReservedBytes());
+        reservation.close();
+        assertEquals(0L, ledger.getReservedBytes());
+    }
+
+    @Test
+    void testReserve_SkipsEvictionWhenDisabled() {
+        // Given
+        evictionConfig.setEnabled(false);
+
+        // When
+        StorageReservationLedger.Reservation reservation = ledger.reserve(HEADROOM * 2);
+
+        // Then
+        assertNull(reservation);
+        verify(evictionService, never()).reclaimAsync(anyLong());
+    }
+
+    @Test
+    void testReserve_DoesNotBlockOtherUploadsWhileReclaiming() throws Exception {
+        // Given: 后台淘汰迟迟不完成
+        evictionConfig.setReclaimWait(5000L);
+        CompletableFuture<Integer> slowReclaim = new CompletableFuture<>();
+        when(evictionService.reclaimAsync(anyLong())).thenReturn(slowReclaim);
+        CompletableFuture<StorageReservationLedger.Reservation> large =
+                CompletableFuture.supplyAsync(() -> ledger.reserve(HEADROOM * 2));
+        verify(evictionService, timeout(2000)).reclaimAsync(anyLong());
+
+        // When: 等待淘汰期间另一个小上传预留
+        StorageReservationLedger.Reservation small = ledger.reserve(1024L);
+
+        // Then
+        assertNotNull(small);
+        assertFalse(large.isDone());
+        slowReclaim.complete(0);
+        assertNull(large.get(2, java.util.concurrent.TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,118 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.entity.StorageStats;
+import cn.lemwood.fileshare.repository.FileInfoRepository;
+import cn.lemwood.fileshare.repository.StorageStatsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 存储统计服务测试类
+ *
+ * @author lemwood
+ */
+@ExtendWith(MockitoExtension.class)
+class StorageStatsServiceTest {
+
+    @Mock
+    private FileInfoRepository fileInfoRepository;
+
+    @Mock
+    private StorageStatsRepository storageStatsRepository;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private StorageStatsService storageStatsService;
+
+    @Test
+    void testInit_RestoresFromCheckpoint() {
+        // Given
+        when(storageStatsRepository.findById(StorageStats.GLOBAL_ID))
+                .thenReturn(Optional.of(new StorageStats(3L, 300L)));
+
+        // When
+        storageStatsService.init();
+
+        // Then
+        assertEquals(3L, storageStatsService.getTotalFiles());
+        assertEquals(300L, storageStatsService.getTotalSize());
+        verify(fileInfoRepository, never()).count();
+    }
+
+    @Test
+    void testRecordAddedAndRemoved() {
+        // Given
+        when(storageStatsRepository.findById(StorageStats.GLOBAL_ID))
+                .thenReturn(Optional.of(new StorageStats(0L, 0L)));
+        storageStatsService.init();
+
+        // When
+        storageStatsService.recordAdded(100L);
+        storageStatsService.recordAdded(50L);
+        storageStatsService.recordRemoved(100L);
+
+        // Then
+        assertEquals(1L, storageStatsService.getTotalFiles());
+        assertEquals(50L, storageStatsService.getTotalSize());
+        assertEquals(1.0, meterRegistry.get("fileshare.storage.files").gauge().value());
+    }
+
+    @Test
+    void testReconcile_CorrectsDrift() {
+        // Given
+        when(storageStatsRepository.findById(StorageStats.GLOBAL_ID))
+                .thenReturn(Optional.of(new StorageStats(10L, 1000L)));
+        storageStatsService.init();
+        when(fileInfoRepository.count()).thenReturn(12L);
+        when(fileInfoRepository.getTotalFileSize()).thenReturn(900L);
+
+        // When
+        storageStatsService.reconcile();
+
+        // Then
+        assertEquals(12L, storageStatsService.getTotalFiles());
+        assertEquals(900L, storageStatsService.getTotalSize());
+        assertEquals(2L, storageStatsService.getLastFileDrift());
+        assertEquals(-100L, storageStatsService.getLastSizeDrift());
+
+        storageStatsService.checkpoint();
+        verify(storageStatsRepository).save(any(StorageStats.class));
+    }
+
+    @Test
+    void testReconcile_RetriesWhenUpdatedDuringQuery() {
+        // Given: 第一次查询期间有一次上传，其数据库写入已计入查询结果
+        when(storageStatsRepository.findById(StorageStats.GLOBAL_ID))
+                .thenReturn(Optional.of(new StorageStats(10L, 1000L)));
+        storageStatsService.init();
+        when(fileInfoRepository.count()).thenAnswer(invocation -> {
+            if (storageStatsService.getTotalFiles() == 10L) {
+                storageStatsService.recordAdded(100L);
+            }
+            return 11L;
+        });
+        when(fileInfoRepository.getTotalFileSize()).thenReturn(1100L);
+
+        // When
+        storageStatsService.reconcile();
+
+        // Then: 第一次结果被放弃，重新查询后没有偏差，上传没有被重复计入
+        assertEquals(11L, storageStatsService.getTotalFiles());
+        assertEquals(1100L, storageStatsService.getTotalSize());
+        assertEquals(0L, storageStatsService.getLastFileDrift());
+        verify(fileInfoRepository, times(2)).count();
+    }
+}
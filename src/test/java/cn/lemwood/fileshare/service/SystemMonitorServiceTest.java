@@ -1,7 +1,6 @@
 package cn.lemwood.fileshare.service;
 
 import cn.lemwood.fileshare.config.FileUploadConfig;
-import cn.lemwood.fileshare.entity.FileInfo;
 import cn.lemwood.fileshare.repository.FileInfoRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,8 +10,6 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -37,6 +34,21 @@ class SystemMonitorServiceTest {
     @Mock
     private FileUploadConfig.Upload uploadConfig;
 
+    @Mock
+    private StorageStatsService storageStatsService;
+
+    @Mock
+    private SystemStatusSnapshotService statusSnapshotService;
+
+    @Mock
+    private ExpiredFileCleanupEngine cleanupEngine;
+
+    @Mock
+    private DiskIoStatsService diskIoStatsService;
+
+    @Mock
+    private PoolSaturationMonitor poolSaturationMonitor;
+
     @InjectMocks
     private SystemMonitorService systemMonitorService;
 
@@ -49,10 +61,10 @@ class SystemMonitorServiceTest {
     @Test
     void testGetSystemStatus() {
         // Given
-        when(fileInfoRepository.count()).thenReturn(5L);
-        when(fileInfoRepository.getTotalFileSize()).thenReturn(1024000L);
-        when(fileInfoRepository.findExpiredFiles(any(LocalDateTime.class)))
-                .thenReturn(new ArrayList<>());
+        when(storageStatsService.getTotalFiles()).thenReturn(5L);
+        when(storageStatsService.getTotalSize()).thenReturn(1024000L);
+        when(statusSnapshotService.getSnapshot())
+                .thenReturn(new SystemStatusSnapshotService.Snapshot(true, true, 100L, 50L));
 
         // When
         Map<String, Object> status = systemMonitorService.getSystemStatus();
@@ -63,59 +75,69 @@ class SystemMonitorServiceTest {
         assertTrue(status.containsKey("timestamp"));
         assertTrue(status.containsKey("files"));
         assertTrue(status.containsKey("disk"));
+        assertTrue(status.containsKey("diskIo"));
+        assertTrue(status.containsKey("pools"));
         assertTrue(status.containsKey("memory"));
         assertTrue(status.containsKey("config"));
         
-        verify(fileInfoRepository).count();
-        verify(fileInfoRepository).getTotalFileSize();
+        verifyNoInteractions(fileInfoRepository);
     }
 
     @Test
     void testIsSystemHealthy_Healthy() {
         // Given
-        when(fileInfoRepository.count()).thenReturn(1L);
+        when(statusSnapshotService.getSnapshot()).thenReturn(new SystemStatusSnapshotService.Snapshot(
+                true, true, Long.MAX_VALUE, SystemStatusSnapshotService.MIN_FREE_SPACE));
 
         // When
         boolean isHealthy = systemMonitorService.isSystemHealthy();
 
         // Then
         assertTrue(isHealthy);
-        verify(fileInfoRepository).count();
+        verifyNoInteractions(fileInfoRepository);
     }
 
     @Test
     void testIsSystemHealthy_DatabaseError() {
         // Given
-        when(fileInfoRepository.count()).thenThrow(new RuntimeException("Database error"));
+        when(statusSnapshotService.getSnapshot()).thenReturn(new SystemStatusSnapshotService.Snapshot(
+                false, true, Long.MAX_VALUE, SystemStatusSnapshotService.MIN_FREE_SPACE));
+
+        // When
+        boolean isHealthy = systemMonitorService.isSystemHealthy();
+
+        // Then
+        assertFalse(isHealthy);
+        verifyNoInteractions(fileInfoRepository);
+    }
+
+    @Test
+    void testIsSystemHealthy_StaleSnapshot() {
+        // Given
+        SystemStatusSnapshotService.Snapshot snapshot = new SystemStatusSnapshotService.Snapshot(
+                true, true, Long.MAX_VALUE, SystemStatusSnapshotService.MIN_FREE_SPACE);
+        when(statusSnapshotService.getSnapshot()).thenReturn(snapshot);
+        when(statusSnapshotService.isStale(snapshot)).thenReturn(true);
 
         // When
         boolean isHealthy = systemMonitorService.isSystemHealthy();
 
         // Then
         assertFalse(isHealthy);
-        verify(fileInfoRepository).count();
     }
 
     @Test
     void testCleanExpiredFiles() {
         // Given
-        List<FileInfo> expiredFiles = new ArrayList<>();
-        FileInfo expiredFile = new FileInfo();
-        expiredFile.setId(1L);
-        expiredFile.setOriginalName("expired.txt");
-        expiredFile.setFilePath("/tmp/expired.txt");
-        expiredFiles.add(expiredFile);
-        
-        when(fileInfoRepository.findExpiredFiles(any(LocalDateTime.class)))
-                .thenReturn(expiredFiles);
+        when(cleanupEngine.runCleanup("manual")).thenReturn(1);
 
         // When
         int deletedCount = systemMonitorService.cleanExpiredFiles();
 
         // Then
         assertEquals(1, deletedCount);
-        verify(fileInfoRepository).findExpiredFiles(any(LocalDateTime.class));
-        verify(fileInfoRepository).delete(expiredFile);
+        verify(cleanupEngine).runCleanup("manual");
+        verify(fileInfoRepository, never()).findExpiredFiles(any(LocalDateTime.class));
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,131 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 系统状态推送服务测试类
+ *
+ * @author lemwood
+ */
+@ExtendWith(MockitoExtension.class)
+class SystemStatusBroadcasterTest {
+
+    @Mock
+    private FileUploadConfig fileUploadConfig;
+
+    @Mock
+    private SystemMonitorService systemMonitorService;
+
+    @Mock
+    private TransferRegistry transferRegistry;
+
+    @Mock
+    private ExpiredFileCleanupEngine cleanupEngine;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private SystemStatusBroadcaster broadcaster;
+
+    private final FileUploadConfig.Status statusConfig = new FileUploadConfig.Status();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(fileUploadConfig.getStatus()).thenReturn(statusConfig);
+        lenient().when(cleanupEngine.getProgress()).thenReturn(new ExpiredFileCleanupEngine.Progress());
+        lenient().when(systemMonitorService.getSystemStatus()).thenAnswer(invocation -> status(5L));
+        broadcaster.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void testTick_ComputesOncePerTickForAllSubscribers() {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(broadcaster.subscribe());
+        }
+        clearInvocations(systemMonitorService);
+
+        // When
+        broadcaster.tick();
+
+        // Then
+        verify(systemMonitorService, times(1)).getSystemStatus();
+        assertEquals(3, broadcaster.getSubscriberCount());
+    }
+
+    @Test
+    void testTick_SkipsComputationWithoutSubscribers() {
+        // When
+        broadcaster.tick();
+
+        // Then
+        verifyNoInteractions(systemMonitorService);
+    }
+
+    @Test
+    void testSubscribe_RejectsBeyondLimit() {
+        // Given
+        statusConfig.setMaxSubscribers(1);
+
+        // When / Then
+        assertNotNull(broadcaster.subscribe());
+        assertNull(broadcaster.subscribe());
+    }
+
+    @Test
+    void testDiff_OnlyChangedSections() {
+        // Given
+        Map<String, Object> previous = new LinkedHashMap<>();
+        previous.put("files", section(5L));
+        previous.put("disk", section(1L));
+        Map<String, Object> next = new LinkedHashMap<>();
+        next.put("files", section(6L));
+        next.put("disk", section(1L));
+        next.put("transfers", section(0L));
+
+        // When
+        Map<String, Object> delta = SystemStatusBroadcaster.diff(previous, next);
+
+        // Then
+        assertEquals(2, delta.size());
+        assertTrue(delta.containsKey("files"));
+        assertTrue(delta.containsKey("transfers"));
+    }
+
+    private static Map<String, Object> status(long totalFiles) {
+        Map<String, Object> status = new HashMap<>();
+        status.put("status", "healthy");
+        status.put("files", section(totalFiles));
+        status.put("disk", section(1L));
+        status.put("memory", section(1L));
+        return status;
+    }
+
+    private static Map<String, Object> section(long value) {
+        Map<String, Object> section = new HashMap<>();
+        section.put("value", value);
+        return section;
+    }
+}
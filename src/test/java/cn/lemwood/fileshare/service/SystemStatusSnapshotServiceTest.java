@@ -0,0 +1,98 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import cn.lemwood.fileshare.repository.FileInfoRepository;
+import cn.lemwood.fileshare.storage.InMemoryStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 系统状态快照服务测试类
+ *
+ * @author lemwood
+ */
+@ExtendWith(MockitoExtension.class)
+class SystemStatusSnapshotServiceTest {
+
+    @Mock
+    private FileInfoRepository fileInfoRepository;
+
+    @Mock
+    private FileUploadConfig fileUploadConfig;
+
+    @Spy
+    private InMemoryStorage storageBackend = new InMemoryStorage();
+
+    @InjectMocks
+    private SystemStatusSnapshotService statusSnapshotService;
+
+    private final FileUploadConfig.Status status = new FileUploadConfig.Status();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(fileUploadConfig.getStatus()).thenReturn(status);
+    }
+
+    @Test
+    void testGetSnapshot_ServedFromCache() {
+        // Given
+        when(fileInfoRepository.countByExpireTimeBefore(any(LocalDateTime.class))).thenReturn(2L);
+        when(fileInfoRepository.getExpiredFileSize(any(LocalDateTime.class))).thenReturn(2048L);
+        statusSnapshotService.init();
+
+        // When
+        SystemStatusSnapshotService.Snapshot first = statusSnapshotService.getSnapshot();
+        SystemStatusSnapshotService.Snapshot second = statusSnapshotService.getSnapshot();
+
+        // Then
+        assertSame(first, second);
+        assertTrue(first.isDatabaseUp());
+        assertEquals(2L, first.getExpiredFiles());
+        assertEquals(2048L, first.getExpiredSize());
+        verify(fileInfoRepository, times(1)).countByExpireTimeBefore(any(LocalDateTime.class));
+        verify(fileInfoRepository, never()).count();
+        verify(fileInfoRepository, never()).findExpiredFiles(any(LocalDateTime.class));
+    }
+
+    @Test
+    void testForceRefresh_RateLimited() {
+        // Given
+        status.setMinRefreshInterval(60000L);
+        statusSnapshotService.init();
+
+        // When
+        boolean refreshed = statusSnapshotService.forceRefresh();
+
+        // Then
+        assertFalse(refreshed);
+        verify(fileInfoRepository, times(1)).countByExpireTimeBefore(any(LocalDateTime.class));
+    }
+
+    @Test
+    void testRefresh_DatabaseError() {
+        // Given
+        when(fileInfoRepository.countByExpireTimeBefore(any(LocalDateTime.class)))
+                .thenThrow(new RuntimeException("Database error"));
+
+        // When
+        statusSnapshotService.init();
+
+        // Then
+        SystemStatusSnapshotService.Snapshot snapshot = statusSnapshotService.getSnapshot();
+        assertFalse(snapshot.isDatabaseUp());
+        assertFalse(snapshot.isHealthy());
+        assertEquals("Database error", snapshot.getDatabaseError());
+    }
+
+}
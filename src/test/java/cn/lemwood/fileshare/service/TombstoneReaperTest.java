@@ -0,0 +1,216 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import cn.lemwood.fileshare.repository.DeletedFileSummary;
+import cn.lemwood.fileshare.repository.FileInfoRepository;
+import cn.lemwood.fileshare.storage.InMemoryStorage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 墓碑回收器测试类
+ *
+ * @author lemwood
+ */
+@ExtendWith(MockitoExtension.class)
+class TombstoneReaperTest {
+
+    @Mock
+    private FileInfoRepository fileInfoRepository;
+
+    @Mock
+    private FileUploadConfig fileUploadConfig;
+
+    @Mock
+    private JobLockService jobLockService;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private InMemoryStorage storageBackend = new InMemoryStorage();
+
+    @InjectMocks
+    private TombstoneReaper reaper;
+
+    private final FileUploadConfig.Reaper reaperConfig = new FileUploadConfig.Reaper();
+
+    @BeforeEach
+    void setUp() {
+        reaperConfig.setBatchSize(10);
+        reaperConfig.setParallelism(2);
+        reaperConfig.setMaxUnlinksPerSecond(0);
+        reaperConfig.setMaxAttempts(2);
+        reaperConfig.setRetryBackoff(0L);
+        reaperConfig.setMaxBacklog(5L);
+        lenient().when(fileUploadConfig.getReaper()).thenReturn(reaperConfig);
+        lenient().when(jobLockService.tryAcquire(eq(TombstoneReaper.LOCK_NAME), anyLong())).thenReturn(true);
+        reaper.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reaper.shutdown();
+    }
+
+    @Test
+    void testReap_UnlinksFilesAndPurgesRows() throws IOException {
+        // Given
+        storageBackend.put("1.txt", new byte[100], System.currentTimeMillis());
+        storageBackend.put("2.txt", new byte[200], System.currentTimeMillis());
+        when(fileInfoRepository.countTombstones()).thenReturn(2L);
+        when(fileInfoRepository.findTombstoneBatch(0L, 10)).thenReturn(Arrays.asList(
+                tombstone(1L, "1.txt", 100L), tombstone(2L, "2.txt", 200L)));
+        when(fileInfoRepository.purgeTombstones(Arrays.asList(1L, 2L))).thenReturn(2);
+
+        // When
+        int reaped = reaper.reap();
+
+        // Then
+        assertEquals(2, reaped);
+        assertFalse(storageBackend.exists("1.txt"));
+        assertFalse(storageBackend.exists("2.txt"));
+        assertEquals(0L, reaper.getBacklog());
+        verify(jobLockService).release(TombstoneReaper.LOCK_NAME);
+    }
+
+    @Test
+    void testReap_RetriesFailedUnlinkThenGivesUp() throws IOException {
+        // Given: 存储后端删除持续失败
+        doThrow(new IOException("设备忙")).when(storageBackend).delete("stuck.bin");
+        when(fileInfoRepository.countTombstones()).thenReturn(1L);
+        when(fileInfoRepository.findTombstoneBatch(0L, 10))
+                .thenReturn(Collections.singletonList(tombstone(3L, "stuck.bin", 50L)));
+        when(fileInfoRepository.purgeTombstones(Collections.singletonList(3L))).thenReturn(1);
+
+        // When
+        int firstAttempt = reaper.reap();
+        int secondAttempt = reaper.reap();
+
+        // Then
+        assertEquals(0, firstAttempt);
+        assertEquals(1, secondAttempt);
+        verify(fileInfoRepository, times(1)).purgeTombstones(anyCollection());
+        assertEquals(2.0, meterRegistry.counter("fileshare.reaper.unlink.failures").count());
+    }
+
+    @Test
+    void testReap_ThrottlesEachVolumeSeparately() throws IOException {
+        // Given: 每秒只允许删除 1 个文件，两个文件位于不同的盘
+        reaperConfig.setMaxUnlinksPerSecond(1);
+        storageBackend.put("a.bin", new byte[10], System.currentTimeMillis());
+        storageBackend.put("b.bin", new byte[10], System.currentTimeMillis());
+        when(fileInfoRepository.countTombstones()).thenReturn(2L);
+        when(fileInfoRepository.findTombstoneBatch(0L, 10)).thenReturn(Arrays.asList(
+                tombstone(1L, "a.bin", 10L, "/data1"), tombstone(2L, "b.bin", 10L, "/data2")));
+        when(fileInfoRepository.purgeTombstones(Arrays.asList(1L, 2L))).thenReturn(2);
+
+        // When
+        long start = System.nanoTime();
+        int reaped = reaper.reap();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // Then: 两块盘各用自己的配额，不必等待 1 秒
+        assertEquals(2, reaped);
+        assertTrue(elapsedMillis < 900, "耗时 " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void testReap_NeverUnlinksOnReaperThread() throws IOException {
+        // Given: 一批文件超过删除线程数，且都在同一块盘上
+        Set<Thread> unlinkThreads = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            unlinkThreads.add(Thread.currentThread());
+            return invocation.callRealMethod();
+        }).when(storageBackend).delete(anyString());
+        List<DeletedFileSummary> page = new ArrayList<>();
+        for (long id = 1; id <= 8; id++) {
+            storageBackend.put(id + ".bin", new byte[10], System.currentTimeMillis());
+            page.add(tombstone(id, id + ".bin", 10L, "/data1"));
+        }
+        when(fileInfoRepository.countTombstones()).thenReturn(8L);
+        when(fileInfoRepository.findTombstoneBatch(0L, 10)).thenReturn(page);
+        when(fileInfoRepository.purgeTombstones(anyCollection())).thenReturn(8);
+
+        // When
+        int reaped = reaper.reap();
+
+        // Then
+        assertEquals(8, reaped);
+        assertFalse(unlinkThreads.contains(Thread.currentThread()));
+    }
+
+    @Test
+    void testReap_NothingToDo() {
+        // Given
+        when(fileInfoRepository.countTombstones()).thenReturn(0L);
+
+        // When
+        int reaped = reaper.reap();
+
+        // Then
+        assertEquals(0, reaped);
+        verifyNoInteractions(jobLockService);
+    }
+
+    @Test
+    void testIsBacklogged() {
+        // When
+        reaper.onTombstoned(6);
+
+        // Then
+        assertTrue(reaper.isBacklogged());
+    }
+
+    private static DeletedFileSummary tombstone(Long id, String storedName, Long size) {
+        return tombstone(id, storedName, size, null);
+    }
+
+    private static DeletedFileSummary tombstone(Long id, String storedName, Long size, String volume) {
+        return new DeletedFileSummary() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getFileKey() {
+                return "key-" + id;
+            }
+
+            @Override
+            public String getStoredName() {
+                return storedName;
+            }
+
+            @Override
+            public String getStorageVolume() {
+                return volume;
+            }
+
+            @Override
+            public Long getFileSize() {
+                return size;
+            }
+        };
+    }
+}
@@ -0,0 +1,145 @@
+package cn.lemwood.fileshare.service;
+
+import cn.lemwood.fileshare.config.FileUploadConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 进行中传输登记表测试类
+ *
+ * @author lemwood
+ */
+@ExtendWith(MockitoExtension.class)
+class TransferRegistryTest {
+
+    @Mock
+    private FileUploadConfig fileUploadConfig;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private TransferRegistry transferRegistry;
+
+    private final FileUploadConfig.Transfer transferConfig = new FileUploadConfig.Transfer();
+
+    @BeforeEach
+    void setUp() {
+        transferConfig.setGracePeriod(0L);
+        lenient().when(fileUploadConfig.getTransfer()).thenReturn(transferConfig);
+        transferRegistry.init();
+    }
+
+    @Test
+    void testSample_CutsTransfersBelowMinimumRate() throws InterruptedException {
+        // Given
+        transferConfig.setMinBytesPerSecond(1024L);
+        TransferRegistry.Transfer slow = transferRegistry.begin(
+                TransferRegistry.Direction.UPLOAD, null, "10.0.0.1", 1L << 20);
+        TransferRegistry.Transfer fast = transferRegistry.begin(
+                TransferRegistry.Direction.DOWNLOAD, "key-1", "10.0.0.2", -1L);
+
+        // When
+        Thread.sleep(20);
+        slow.add(1);
+        fast.add(1L << 20);
+        transferRegistry.sample();
+
+        // Then
+        assertTrue(slow.isStalled());
+        assertFalse(fast.isStalled());
+        assertEquals(1.0, meterRegistry.get("fileshare.transfer.stalled").tag("direction", "upload").counter().count());
+        assertEquals(0.0, meterRegistry.get("fileshare.transfer.stalled").tag("direction", "download").counter().count());
+    }
+
+    @Test
+    void testSample_IgnoresUploadsPastEndOfBody() throws InterruptedException {
+        // Given: 请求体已全部读完，正在保存文件
+        transferConfig.setMinBytesPerSecond(1024L);
+        TransferRegistry.Transfer declared = transferRegistry.begin(
+                TransferRegistry.Direction.UPLOAD, null, "10.0.0.1", 4L);
+        TransferRegistry.Transfer chunked = transferRegistry.begin(
+                TransferRegistry.Direction.UPLOAD, null, "10.0.0.2", -1L);
+        declared.add(4);
+        chunked.add(4);
+        chunked.markComplete();
+        transferRegistry.sample();
+
+        // When
+        Thread.sleep(20);
+        transferRegistry.sample();
+
+        // Then
+        assertTrue(declared.isComplete());
+        assertFalse(declared.isStalled());
+        assertFalse(chunked.isStalled());
+        assertEquals(0.0, meterRegistry.get("fileshare.transfer.stalled").tag("direction", "upload").counter().count());
+    }
+
+    @Test
+    void testSample_RespectsGracePeriod() {
+        // Given
+        transferConfig.setGracePeriod(60000L);
+        TransferRegistry.Transfer transfer = transferRegistry.begin(
+                TransferRegistry.Direction.DOWNLOAD, "key-1", "10.0.0.1", -1L);
+
+        // When
+        transferRegistry.sample();
+
+        // Then
+        assertFalse(transfer.isStalled());
+    }
+
+    @Test
+    void testList_SortsByRateOrAge() throws InterruptedException {
+        // Given
+        TransferRegistry.Transfer older = transferRegistry.begin(
+                TransferRegistry.Direction.DOWNLOAD, "key-old", "10.0.0.1", -1L);
+        Thread.sleep(5);
+        TransferRegistry.Transfer newer = transferRegistry.begin(
+                TransferRegistry.Direction.DOWNLOAD, "key-new", "10.0.0.2", -1L);
+        transferConfig.setEnabled(false);
+        older.add(1L << 20);
+        newer.add(10);
+        transferRegistry.sample();
+
+        // When
+        List<Map<String, Object>> byRate = transferRegistry.list("rate");
+        List<Map<String, Object>> byAge = transferRegistry.list("age");
+
+        // Then
+        assertEquals("key-new", byRate.get(0).get("fileKey"));
+        assertEquals("key-old", byAge.get(0).get("fileKey"));
+        assertEquals(10L, byRate.get(0).get("bytes"));
+    }
+
+    @Test
+    void testEnd_RemovesTransferAndRecordsRate() throws InterruptedException {
+        // Given
+        TransferRegistry.Transfer transfer = transferRegistry.begin(
+                TransferRegistry.Direction.UPLOAD, null, "10.0.0.1", 4096L);
+        transfer.add(4096L);
+        Thread.sleep(2);
+
+        // When
+        transferRegistry.end(transfer);
+        transferRegistry.end(transfer);
+
+        // Then
+        assertEquals(0, transferRegistry.getActiveCount());
+        assertEquals(0.0, meterRegistry.get("fileshare.transfer.active").tag("direction", "upload").gauge().value());
+        assertEquals(1L, meterRegistry.get("fileshare.transfer.rate").tag("direction", "upload").summary().count());
+    }
+}
@@ -0,0 +1,160 @@
+package cn.lemwood.fileshare.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 本地文件系统存储后端测试类
+ * 直接 I/O 相关用例在不支持 O_DIRECT 的文件系统（如 tmpfs）上验证回退后的结果
+ *
+ * @author lemwood
+ */
+class LocalFileSystemStorageTest {
+
+    private static final int THRESHOLD = 64 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testWrite_LargeFileBypassesPageCacheBeyondThreshold() throws IOException {
+        // Given: 大小不是块大小整数倍的文件，尾部需改回普通写入
+        LocalFileSystemStorage storage = new LocalFileSystemStorage(tempDir);
+        storage.enableDirectIo(true, THRESHOLD);
+        byte[] data = pattern(3 * 1024 * 1024 + 123);
+        long directBefore = DirectIo.directBytes();
+        long bufferedBefore = DirectIo.bufferedBytes();
+
+        // When
+        long written = storage.write("movie.mp4", new ByteArrayInputStream(data));
+
+        // Then
+        assertEquals(data.length, written);
+        assertArrayEquals(data, Files.readAllBytes(tempDir.resolve("movie.mp4")));
+        long beyondThreshold = data.length - THRESHOLD;
+        if (storage.isDirectIo()) {
+            assertEquals(beyondThreshold, DirectIo.directBytes() - directBefore);
+            assertEquals(0L, DirectIo.bufferedBytes() - bufferedBefore);
+        } else {
+            assertEquals(beyondThreshold, DirectIo.bufferedBytes() - bufferedBefore);
+        }
+    }
+
+    @Test
+    void testWrite_SmallFileAndOverwriteTruncate() throws IOException {
+        // Given
+        LocalFileSystemStorage storage = new LocalFileSystemStorage(tempDir);
+        storage.enableDirectIo(true, THRESHOLD);
+        storage.write("archive.zip", new ByteArrayInputStream(pattern(THRESHOLD * 4)));
+        long directBefore = DirectIo.directBytes();
+
+        // When: 覆盖为小文件，逐字节写入
+        byte[] small = pattern(100);
+        try (OutputStream out = storage.openWrite("archive.zip")) {
+            for (byte b : small) {
+                out.write(b);
+            }
+        }
+
+        // Then
+        assertEquals(directBefore, DirectIo.directBytes());
+        assertArrayEquals(small, Files.readAllBytes(tempDir.resolve("archive.zip")));
+    }
+
+    @Test
+    void testWrite_DisabledUsesPlainWrites() throws IOException {
+        // Given
+        LocalFileSystemStorage storage = new LocalFileSystemStorage(tempDir);
+        storage.enableDirectIo(false, THRESHOLD);
+        byte[] data = pattern(THRESHOLD + 5000);
+        long directBefore = DirectIo.directBytes();
+        long bufferedBefore = DirectIo.bufferedBytes();
+
+        // When
+        storage.write("backup.zip", new ByteArrayInputStream(data));
+        try (OutputStream out = storage.openWrite("copy.zip")) {
+            out.write(data);
+        }
+
+        // Then: 未开启时不经过直接 I/O 写入流，也不计入批量写入统计
+        assertFalse(storage.isDirectIo());
+        assertEquals(directBefore, DirectIo.directBytes());
+        assertEquals(bufferedBefore, DirectIo.bufferedBytes());
+        assertArrayEquals(data, Files.readAllBytes(tempDir.resolve("backup.zip")));
+        assertArrayEquals(data, Files.readAllBytes(tempDir.resolve("copy.zip")));
+    }
+
+    @Test
+    void testOpenBulkRead_ReadsUnalignedRanges() throws IOException {
+        // Given
+        LocalFileSystemStorage storage = new LocalFileSystemStorage(tempDir);
+        storage.enableDirectIo(true, THRESHOLD);
+        byte[] data = pattern(2 * 1024 * 1024 + 777);
+        Files.write(tempDir.resolve("video.mp4"), data);
+
+        // When
+        byte[] all;
+        try (InputStream in = Channels.newInputStream(storage.openBulkRead("video.mp4"))) {
+            all = in.readAllBytes();
+        }
+        ByteBuffer range = ByteBuffer.allocate(5000);
+        try (SeekableByteChannel channel = storage.openBulkRead("video.mp4")) {
+            channel.position(1_500_001);
+            while (range.hasRemaining() && channel.read(range) > 0) {
+                // 读满为止
+            }
+            assertEquals(data.length, channel.size());
+            channel.position(data.length);
+            assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+        }
+
+        // Then
+        assertArrayEquals(data, all);
+        assertArrayEquals(Arrays.copyOfRange(data, 1_500_001, 1_505_001), range.array());
+    }
+
+    @Test
+    void testOpenBulkRead_MissingFileDoesNotDisableDirectIo() throws IOException {
+        // Given
+        LocalFileSystemStorage storage = new LocalFileSystemStorage(tempDir);
+        storage.enableDirectIo(true, THRESHOLD);
+        boolean directBefore = storage.isDirectIo();
+
+        // When / Then: 文件不存在照常抛出，不当作文件系统不支持直接 I/O
+        assertThrows(NoSuchFileException.class, () -> storage.openBulkRead("missing.mp4"));
+        assertEquals(directBefore, storage.isDirectIo());
+    }
+
+    @Test
+    void testIsDirectIoRejected_OnlyForInvalidArgument() {
+        assertTrue(DirectIo.isDirectIoRejected(new FileSystemException("/data/a.bin", null, "Invalid argument")));
+        assertTrue(DirectIo.isDirectIoRejected(new IOException("Invalid argument")));
+        assertFalse(DirectIo.isDirectIoRejected(new AccessDeniedException("/data/a.bin")));
+        assertFalse(DirectIo.isDirectIoRejected(new IOException("Input/output error")));
+        assertFalse(DirectIo.isDirectIoRejected(new FileSystemException("/data/a.bin", null, "Too many open files")));
+    }
+
+    private static byte[] pattern(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 31 + i / 4096);
+        }
+        return data;
+    }
+}
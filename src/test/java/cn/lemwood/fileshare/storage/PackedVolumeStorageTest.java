@@ -0,0 +1,236 @@
+package cn.lemwood.fileshare.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 小文件打包存储后端测试类
+ *
+ * @author lemwood
+ */
+class PackedVolumeStorageTest {
+
+    private static final int THRESHOLD = 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private Path uploadDir;
+    private Path volumeDir;
+    private PackedVolumeStorage storage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        uploadDir = tempDir.resolve("uploads");
+        volumeDir = tempDir.resolve("volumes");
+        storage = open(1024L * 1024);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        storage.close();
+    }
+
+    private PackedVolumeStorage open(long volumeSize) throws IOException {
+        return new PackedVolumeStorage(new LocalFileSystemStorage(uploadDir), volumeDir, THRESHOLD, volumeSize, 0.5);
+    }
+
+    @Test
+    void testFreesSpaceOnDelete_OnlyForDelegatedObjects() throws IOException {
+        // Given
+        storage.write("small.txt", new ByteArrayInputStream(bytes(100, 1)));
+        storage.write("large.bin", new ByteArrayInputStream(bytes(THRESHOLD + 1, 2)));
+
+        // When / Then: 打包对象删除后只计入垃圾，要等压缩才释放
+        assertFalse(storage.freesSpaceOnDelete("small.txt"));
+        assertTrue(storage.freesSpaceOnDelete("large.bin"));
+    }
+
+    @Test
+    void testWrite_SmallFilesPackedLargeFilesDelegated() throws IOException {
+        // Given
+        byte[] small = bytes(100, 1);
+        byte[] large = bytes(THRESHOLD + 1, 2);
+
+        // When
+        storage.write("small.txt", new ByteArrayInputStream(small));
+        storage.write("large.bin", new ByteArrayInputStream(large));
+
+        // Then
+        assertFalse(Files.exists(uploadDir.resolve("small.txt")));
+        assertTrue(Files.exists(uploadDir.resolve("large.bin")));
+        assertEquals(1, storage.getPackedCount());
+        assertArrayEquals(small, read("small.txt"));
+        assertArrayEquals(large, read("large.bin"));
+        assertEquals(100L, storage.stat("small.txt").get().getSize());
+        try (Stream<StoredObject> objects = storage.list()) {
+            Set<String> names = objects.map(StoredObject::getName).collect(Collectors.toSet());
+            assertEquals(Set.of("small.txt", "large.bin"), names);
+        }
+    }
+
+    @Test
+    void testOpenRead_PositionalRange() throws IOException {
+        // Given
+        byte[] data = bytes(500, 3);
+        storage.write("range.txt", new ByteArrayInputStream(data));
+
+        // When
+        ByteBuffer buffer = ByteBuffer.allocate(50);
+        try (SeekableByteChannel channel = storage.openRead("range.txt")) {
+            channel.position(200);
+            while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                // 读满为止
+            }
+            assertEquals(500L, channel.size());
+        }
+
+        // Then
+        assertArrayEquals(Arrays.copyOfRange(data, 200, 250), buffer.array());
+    }
+
+    @Test
+    void testReopen_RebuildsIndexAndKeepsDeletes() throws IOException {
+        // Given
+        storage.write("kept.txt", new ByteArrayInputStream(bytes(10, 4)));
+        storage.write("deleted.txt", new ByteArrayInputStream(bytes(20, 5)));
+        storage.write("overwritten.txt", new ByteArrayInputStream(bytes(30, 6)));
+        storage.write("overwritten.txt", new ByteArrayInputStream(bytes(40, 7)));
+        assertTrue(storage.delete("deleted.txt"));
+        storage.close();
+
+        // When
+        storage = open(1024L * 1024);
+
+        // Then
+        assertEquals(2, storage.getPackedCount());
+        assertArrayEquals(bytes(10, 4), read("kept.txt"));
+        assertArrayEquals(bytes(40, 7), read("overwritten.txt"));
+        assertFalse(storage.exists("deleted.txt"));
+        assertThrows(NoSuchFileException.class, () -> storage.openRead("deleted.txt"));
+    }
+
+    @Test
+    void testReopen_TruncatesIncompleteTail() throws IOException {
+        // Given
+        storage.write("complete.txt", new ByteArrayInputStream(bytes(10, 8)));
+        storage.close();
+        Path volume = volumeDir.resolve("volume-00000001.dat");
+        long validLength = Files.size(volume);
+        // 模拟追加到一半时进程退出
+        Files.write(volume, new byte[]{0x46, 0x53, 0x56, 0x52, 0, 0, 5}, StandardOpenOption.APPEND);
+
+        // When
+        storage = open(1024L * 1024);
+        storage.write("after.txt", new ByteArrayInputStream(bytes(5, 9)));
+
+        // Then
+        assertArrayEquals(bytes(10, 8), read("complete.txt"));
+        assertArrayEquals(bytes(5, 9), read("after.txt"));
+        assertEquals(validLength + VolumeFile.recordLength("after.txt".length(), 5), Files.size(volume));
+    }
+
+    @Test
+    void testHousekeeping_CompactsVolumeAboveGarbageRatio() throws IOException {
+        // Given: 每个卷只能放下两条记录
+        storage.close();
+        storage = open(1200L);
+        storage.write("a.txt", new ByteArrayInputStream(bytes(500, 10)));
+        storage.write("b.txt", new ByteArrayInputStream(bytes(500, 11)));
+        storage.write("c.txt", new ByteArrayInputStream(bytes(500, 12)));
+        storage.delete("a.txt");
+        assertEquals(2, storage.getVolumeCount());
+
+        // When
+        long cleaned = storage.housekeeping();
+
+        // Then
+        assertEquals(1L, cleaned);
+        assertFalse(Files.exists(volumeDir.resolve("volume-00000001.dat")));
+        assertArrayEquals(bytes(500, 11), read("b.txt"));
+        assertArrayEquals(bytes(500, 12), read("c.txt"));
+        assertFalse(storage.exists("a.txt"));
+
+        storage.close();
+        storage = open(1200L);
+        assertEquals(2, storage.getPackedCount());
+        assertArrayEquals(bytes(500, 11), read("b.txt"));
+    }
+
+    @Test
+    void testHousekeeping_OpenReaderKeepsRetiredVolume() throws IOException {
+        // Given
+        storage.close();
+        storage = open(1200L);
+        storage.write("a.txt", new ByteArrayInputStream(bytes(500, 13)));
+        storage.write("b.txt", new ByteArrayInputStream(bytes(500, 14)));
+        storage.write("c.txt", new ByteArrayInputStream(bytes(500, 15)));
+        storage.delete("b.txt");
+        SeekableByteChannel reader = storage.openRead("a.txt");
+
+        // When
+        storage.housekeeping();
+
+        // Then
+        assertTrue(Files.exists(volumeDir.resolve("volume-00000001.dat")));
+        try (InputStream in = Channels.newInputStream(reader)) {
+            assertArrayEquals(bytes(500, 13), in.readAllBytes());
+        }
+        assertFalse(Files.exists(volumeDir.resolve("volume-00000001.dat")));
+        assertArrayEquals(bytes(500, 13), read("a.txt"));
+    }
+
+    @Test
+    void testRetire_RepeatedCallsReleaseVolumeOnce() throws IOException {
+        // Given: 读取方占用着已压缩的卷
+        Path path = tempDir.resolve("volume-retire.dat");
+        VolumeFile volume = VolumeFile.open(1, path);
+        long offset = volume.append("a.txt".getBytes(), bytes(100, 16), 100, 0L);
+        assertTrue(volume.retain());
+
+        // When: 两轮整理都退役了同一个卷
+        volume.retire();
+        volume.retire();
+
+        // Then: 读取方仍可读，释放后才删除
+        ByteBuffer data = ByteBuffer.allocate(100);
+        volume.readFully(data, offset + VolumeFile.HEADER_SIZE + "a.txt".length());
+        assertArrayEquals(bytes(100, 16), data.array());
+        assertTrue(Files.exists(path));
+        volume.release();
+        assertFalse(Files.exists(path));
+    }
+
+    private byte[] read(String name) throws IOException {
+        try (InputStream in = Channels.newInputStream(storage.openRead(name))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] bytes(int size, int seed) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (seed * 31 + i);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,195 @@
+package cn.lemwood.fileshare.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 多盘条带存储后端测试类
+ *
+ * @author lemwood
+ */
+class StripedStorageTest {
+
+    private static final long MB = 1024L * 1024;
+
+    private StripedStorage storage;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (storage != null) {
+            storage.close();
+        }
+    }
+
+    @Test
+    void testPlace_PrefersFreeSpaceThenIdleStripe() throws IOException {
+        // Given
+        InMemoryStorage small = new InMemoryStorage(10 * MB);
+        InMemoryStorage large = new InMemoryStorage(20 * MB);
+        storage = new StripedStorage(Arrays.asList(new StripedStorage.Stripe("small", small),
+                new StripedStorage.Stripe("large", large)), 0L, 60000L);
+
+        // When
+        write("a.txt", 10);
+        SeekableByteChannel first = storage.openRead("a.txt");
+        SeekableByteChannel second = storage.openRead("a.txt");
+        write("b.txt", 10);
+        first.close();
+        second.close();
+        write("c.txt", 10);
+
+        // Then: 大盘空闲时优先；两个读取进行中时得分降到 20MB/3，新文件落到小盘
+        assertEquals("large", storage.volumeOf("a.txt"));
+        assertEquals("small", storage.volumeOf("b.txt"));
+        assertEquals("large", storage.volumeOf("c.txt"));
+        assertTrue(small.exists("b.txt"));
+        assertFalse(large.exists("b.txt"));
+    }
+
+    @Test
+    void testCheckHealth_RemovesFullStripeFromPlacement() throws IOException {
+        // Given
+        InMemoryStorage full = new InMemoryStorage(2 * MB);
+        InMemoryStorage spare = new InMemoryStorage(MB);
+        storage = new StripedStorage(Arrays.asList(new StripedStorage.Stripe("full", full),
+                new StripedStorage.Stripe("spare", spare)), MB, 60000L);
+        full.put("existing.bin", new byte[(int) (MB + 1)], System.currentTimeMillis());
+
+        // When
+        storage.checkHealth();
+        write("new.txt", 10);
+
+        // Then
+        StripedStorage.Stripe stripe = storage.getStripes().get(0);
+        assertFalse(stripe.isHealthy());
+        assertEquals("可用空间不足", stripe.getReason());
+        assertEquals("spare", storage.volumeOf("new.txt"));
+        // 移出候选的盘上已有的文件仍可读取
+        assertArrayEquals(new byte[(int) (MB + 1)], read("existing.bin"));
+    }
+
+    @Test
+    void testWriteFailure_CoolsDownStripe() throws IOException {
+        // Given
+        InMemoryStorage broken = spy(new InMemoryStorage(20 * MB));
+        InMemoryStorage healthy = new InMemoryStorage(10 * MB);
+        doThrow(new IOException("设备错误")).when(broken).openWrite(anyString());
+        storage = new StripedStorage(Arrays.asList(new StripedStorage.Stripe("broken", broken),
+                new StripedStorage.Stripe("healthy", healthy)), 0L, 60000L);
+
+        // When
+        assertThrows(IOException.class, () -> write("first.txt", 10));
+        storage.checkHealth();
+        write("second.txt", 10);
+
+        // Then: 冷却期内健康检查不会把盘放回候选
+        assertFalse(storage.getStripes().get(0).isHealthy());
+        assertEquals("healthy", storage.volumeOf("second.txt"));
+    }
+
+    @Test
+    void testRestart_LocatesObjectsByProbing() throws IOException {
+        // Given
+        InMemoryStorage first = new InMemoryStorage(10 * MB);
+        InMemoryStorage second = new InMemoryStorage(20 * MB);
+        storage = new StripedStorage(Arrays.asList(new StripedStorage.Stripe("first", first),
+                new StripedStorage.Stripe("second", second)), 0L, 60000L);
+        first.put("a.txt", new byte[]{1, 2, 3}, System.currentTimeMillis());
+        second.put("b.txt", new byte[]{4, 5}, System.currentTimeMillis());
+
+        // When
+        byte[] a = read("a.txt");
+        boolean deleted = storage.delete("b.txt");
+
+        // Then
+        assertArrayEquals(new byte[]{1, 2, 3}, a);
+        assertEquals("first", storage.volumeOf("a.txt"));
+        assertTrue(deleted);
+        assertFalse(second.exists("b.txt"));
+        assertFalse(storage.exists("b.txt"));
+        try (Stream<StoredObject> objects = storage.list()) {
+            assertEquals(Set.of("a.txt"), objects.map(StoredObject::getName).collect(Collectors.toSet()));
+        }
+        assertEquals(30 * MB, storage.space().getTotal());
+    }
+
+    @Test
+    void testRestart_HintedVolumeSkipsProbing() throws IOException {
+        // Given
+        InMemoryStorage first = spy(new InMemoryStorage(10 * MB));
+        InMemoryStorage second = spy(new InMemoryStorage(20 * MB));
+        storage = new StripedStorage(Arrays.asList(new StripedStorage.Stripe("first", first),
+                new StripedStorage.Stripe("second", second)), 0L, 60000L);
+        second.put("b.txt", new byte[]{4, 5}, System.currentTimeMillis());
+
+        // When
+        storage.hintVolume("b.txt", "second");
+        byte[] b = read("b.txt");
+
+        // Then
+        assertArrayEquals(new byte[]{4, 5}, b);
+        verify(first, never()).exists(anyString());
+    }
+
+    @Test
+    void testLocate_CachesMissingNamesUntilWritten() throws IOException {
+        // Given
+        InMemoryStorage first = spy(new InMemoryStorage(10 * MB));
+        InMemoryStorage second = spy(new InMemoryStorage(20 * MB));
+        storage = new StripedStorage(Arrays.asList(new StripedStorage.Stripe("first", first),
+                new StripedStorage.Stripe("second", second)), 0L, 60000L);
+
+        // When
+        assertFalse(storage.exists("gone.txt"));
+        assertFalse(storage.exists("gone.txt"));
+        write("gone.txt", 10);
+
+        // Then: 第二次查找不再逐盘探测，写入后立即可见
+        verify(first, times(1)).exists("gone.txt");
+        verify(second, times(1)).exists("gone.txt");
+        assertTrue(storage.exists("gone.txt"));
+    }
+
+    @Test
+    void testHousekeeping_RunsOnEveryStripe() throws IOException {
+        // Given
+        StorageBackend first = mock(StorageBackend.class);
+        StorageBackend second = mock(StorageBackend.class);
+        when(first.space()).thenReturn(new StorageSpace(MB, MB, true));
+        when(second.space()).thenReturn(new StorageSpace(MB, MB, true));
+        when(first.housekeeping()).thenReturn(2L);
+        when(second.housekeeping()).thenReturn(3L);
+        storage = new StripedStorage(Arrays.asList(new StripedStorage.Stripe("first", first),
+                new StripedStorage.Stripe("second", second)), 0L, 60000L);
+
+        // When
+        long cleaned = storage.housekeeping();
+
+        // Then
+        assertEquals(5L, cleaned);
+    }
+
+    private void write(String name, int size) throws IOException {
+        storage.write(name, new ByteArrayInputStream(new byte[size]));
+    }
+
+    private byte[] read(String name) throws IOException {
+        try (InputStream in = Channels.newInputStream(storage.openRead(name))) {
+            return in.readAllBytes();
+        }
+    }
+}
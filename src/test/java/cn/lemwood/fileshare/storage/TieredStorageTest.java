@@ -0,0 +1,240 @@
+package cn.lemwood.fileshare.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 冷热分层存储后端测试类
+ *
+ * @author lemwood
+ */
+class TieredStorageTest {
+
+    private static final long HOUR = 3600 * 1000L;
+
+    private final InMemoryStorage fast = new InMemoryStorage(1024 * 1024);
+    private final InMemoryStorage cold = new InMemoryStorage();
+
+    private TieredStorage open(double fastHighWatermark, long fastMinFreeSpace) throws IOException {
+        return new TieredStorage(fast, cold, HOUR, 2, 0L, fastHighWatermark, fastMinFreeSpace);
+    }
+
+    @Test
+    void testMigrate_DemotesIdleObjectsOnly() throws IOException {
+        // Given
+        fast.put("idle.txt", text("idle"), System.currentTimeMillis() - 2 * HOUR);
+        TieredStorage storage = open(1.0, 0L);
+        storage.write("fresh.txt", new ByteArrayInputStream(text("fresh")));
+
+        // When
+        long moved = storage.migrate();
+
+        // Then
+        assertEquals(1L, moved);
+        assertFalse(fast.exists("idle.txt"));
+        assertTrue(cold.exists("idle.txt"));
+        assertTrue(fast.exists("fresh.txt"));
+        assertArrayEquals(text("idle"), read(storage, "idle.txt"));
+        try (Stream<StoredObject> objects = storage.list()) {
+            assertEquals(Set.of("idle.txt", "fresh.txt"),
+                    objects.map(StoredObject::getName).collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    void testMigrate_CompressesDemotedObjects() throws IOException {
+        // Given
+        byte[] data = new byte[100_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + i % 7);
+        }
+        long uploadTime = System.currentTimeMillis() - 2 * HOUR;
+        fast.put("log.txt", data, uploadTime);
+        fast.put("photo.jpg", new byte[100], uploadTime);
+        TieredStorage storage = open(1.0, 0L);
+        storage.enableCompression(Collections.singleton(".jpg"));
+
+        // When
+        storage.migrate();
+
+        // Then
+        assertTrue(cold.exists("log.txt.fsz"));
+        assertTrue(cold.stat("log.txt.fsz").get().getSize() < data.length / 10);
+        assertTrue(cold.exists("photo.jpg"));
+        StoredObject object = storage.stat("log.txt").get();
+        assertEquals(data.length, object.getSize());
+        assertEquals(uploadTime, object.getLastModified());
+        assertArrayEquals(data, read(storage, "log.txt"));
+
+        ByteBuffer range = ByteBuffer.allocate(100);
+        try (SeekableByteChannel channel = storage.openRead("log.txt")) {
+            channel.position(50_000);
+            while (range.hasRemaining() && channel.read(range) > 0) {
+                // 读满为止
+            }
+            channel.position(10);
+            assertEquals(10L, channel.position());
+        }
+        assertArrayEquals(Arrays.copyOfRange(data, 50_000, 50_100), range.array());
+    }
+
+    @Test
+    void testMigrate_PromotesReaccessedObjects() throws IOException {
+        // Given
+        cold.put("again.txt", text("again"), System.currentTimeMillis() - 2 * HOUR);
+        cold.put("once.txt", text("once"), System.currentTimeMillis() - 2 * HOUR);
+        TieredStorage storage = open(1.0, 0L);
+        read(storage, "again.txt");
+        read(storage, "again.txt");
+        read(storage, "once.txt");
+        assertEquals(1, storage.getPendingPromotions());
+
+        // When
+        storage.migrate();
+
+        // Then
+        assertTrue(fast.exists("again.txt"));
+        assertFalse(cold.exists("again.txt"));
+        assertTrue(cold.exists("once.txt"));
+        assertEquals(1L, storage.getPromoted());
+        assertEquals(1, storage.getHotCount());
+        assertArrayEquals(text("again"), read(storage, "again.txt"));
+    }
+
+    @Test
+    void testMigrate_PromotionDiscardedWhenDeletedDuringCopy() throws IOException {
+        // Given: 快速层在写入流关闭时才创建对象，提升复制期间对象被删除
+        TieredStorage[] tiered = new TieredStorage[1];
+        InMemoryStorage deletingFast = new InMemoryStorage(1024 * 1024) {
+            @Override
+            public OutputStream openWrite(String name) {
+                try {
+                    tiered[0].delete(name);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return super.openWrite(name);
+            }
+        };
+        cold.put("gone.txt", text("gone"), System.currentTimeMillis() - 2 * HOUR);
+        tiered[0] = new TieredStorage(deletingFast, cold, HOUR, 2, 0L, 1.0, 0L);
+        read(tiered[0], "gone.txt");
+        read(tiered[0], "gone.txt");
+
+        // When
+        tiered[0].migrate();
+
+        // Then
+        assertFalse(deletingFast.exists("gone.txt"));
+        assertFalse(tiered[0].exists("gone.txt"));
+        assertEquals(0L, tiered[0].getPromoted());
+    }
+
+    @Test
+    void testMigrate_DemotesOldestFirstAboveHighWatermark() throws IOException {
+        // Given: 快速层 1MB，高水位 50%
+        long now = System.currentTimeMillis();
+        fast.put("oldest.bin", new byte[300 * 1024], now - 3000);
+        fast.put("older.bin", new byte[300 * 1024], now - 2000);
+        fast.put("newest.bin", new byte[100 * 1024], now - 1000);
+        TieredStorage storage = open(0.5, 0L);
+
+        // When
+        storage.migrate();
+
+        // Then: 只需降级最早访问的一个对象即可回到高水位以下
+        assertTrue(cold.exists("oldest.bin"));
+        assertTrue(fast.exists("older.bin"));
+        assertTrue(fast.exists("newest.bin"));
+        assertEquals(1L, storage.getDemoted());
+    }
+
+    @Test
+    void testMigrate_WatermarkSkipsObjectsThatFreeNoSpace() throws IOException {
+        // Given: 最早访问的对象删除后不释放空间（如打包的小文件）
+        InMemoryStorage packedFast = new InMemoryStorage(1024 * 1024) {
+            @Override
+            public boolean freesSpaceOnDelete(String name) {
+                return !"packed.bin".equals(name);
+            }
+        };
+        long now = System.currentTimeMillis();
+        packedFast.put("packed.bin", new byte[300 * 1024], now - 3000);
+        packedFast.put("older.bin", new byte[300 * 1024], now - 2000);
+        packedFast.put("newest.bin", new byte[100 * 1024], now - 1000);
+        TieredStorage storage = new TieredStorage(packedFast, cold, HOUR, 2, 0L, 0.5, 0L);
+
+        // When
+        storage.migrate();
+
+        // Then: 降级真正释放空间的下一个对象
+        assertTrue(packedFast.exists("packed.bin"));
+        assertTrue(cold.exists("older.bin"));
+        assertTrue(packedFast.exists("newest.bin"));
+        assertEquals(1L, storage.getDemoted());
+    }
+
+    @Test
+    void testList_ObjectInBothTiersListedOnce() throws IOException {
+        // Given: 降级中断后快速层和容量层各有一份，压缩对象同理
+        long old = System.currentTimeMillis() - 2 * HOUR;
+        fast.put("copy.bin", text("live"), old);
+        cold.put("copy.bin", text("live"), old);
+        fast.put("packed.txt", text("text"), old);
+        cold.put("packed.txt" + TieredStorage.COMPRESSED_SUFFIX, text("compressed"), old);
+        cold.put("cold.bin", text("cold"), old);
+        TieredStorage storage = open(1.0, 0L);
+
+        // When
+        List<String> names;
+        try (Stream<StoredObject> objects = storage.list()) {
+            names = objects.map(StoredObject::getName).sorted().collect(Collectors.toList());
+        }
+
+        // Then
+        assertEquals(Arrays.asList("cold.bin", "copy.bin", "packed.txt"), names);
+    }
+
+    @Test
+    void testWrite_FallsBackToColdTierWhenFastTierFull() throws IOException {
+        // Given
+        TieredStorage storage = open(1.0, 2 * 1024 * 1024);
+
+        // When
+        storage.write("overflow.txt", new ByteArrayInputStream(text("overflow")));
+
+        // Then
+        assertFalse(fast.exists("overflow.txt"));
+        assertTrue(cold.exists("overflow.txt"));
+        assertArrayEquals(text("overflow"), read(storage, "overflow.txt"));
+        assertTrue(storage.delete("overflow.txt"));
+        assertFalse(storage.exists("overflow.txt"));
+    }
+
+    private static byte[] read(TieredStorage storage, String name) throws IOException {
+        try (InputStream in = Channels.newInputStream(storage.openRead(name))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] text(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,86 @@
+package cn.lemwood.fileshare.task;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分层时间轮测试类
+ *
+ * @author lemwood
+ */
+class TimingWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    @Test
+    void testAdvance_ExpiresNotBeforeDeadline() {
+        // Given
+        TimingWheel wheel = new TimingWheel(1000L, 60, START);
+        wheel.add("a", START + 10_500L);
+
+        // When
+        List<String> early = wheel.advance(START + 10_000L);
+        List<String> due = wheel.advance(START + 11_000L);
+
+        // Then
+        assertTrue(early.isEmpty());
+        assertEquals(Collections.singletonList("a"), due);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testAdvance_CascadesFromOverflowLevels() {
+        // Given
+        TimingWheel wheel = new TimingWheel(1000L, 60, START);
+        wheel.add("minutes", START + 5 * 60_000L);
+        wheel.add("hours", START + 3 * 3_600_000L);
+
+        // When
+        List<String> expired = new ArrayList<>();
+        for (long now = START; now <= START + 4 * 3_600_000L; now += 1000L) {
+            for (String key : wheel.advance(now)) {
+                expired.add(key + "@" + (now - START));
+            }
+        }
+
+        // Then
+        assertEquals(2, expired.size());
+        assertEquals("minutes@" + 5 * 60_000L, expired.get(0));
+        assertEquals("hours@" + 3 * 3_600_000L, expired.get(1));
+    }
+
+    @Test
+    void testRemove_CancelsEntry() {
+        // Given
+        TimingWheel wheel = new TimingWheel(1000L, 60, START);
+        wheel.add("a", START + 5_000L);
+        wheel.add("b", START + 5_000L);
+
+        // When
+        assertTrue(wheel.remove("a"));
+        List<String> expired = wheel.advance(START + 10_000L);
+
+        // Then
+        assertEquals(Collections.singletonList("b"), expired);
+        assertFalse(wheel.remove("a"));
+    }
+
+    @Test
+    void testAdd_AlreadyDue() {
+        // Given
+        TimingWheel wheel = new TimingWheel(1000L, 60, START);
+
+        // When
+        boolean added = wheel.add("past", START - 1L);
+
+        // Then
+        assertFalse(added);
+        assertFalse(wheel.contains("past"));
+    }
+
+}